@@ -0,0 +1,4 @@
+-- Mounted into the primary's init directory by docker-compose.replicas.yml:
+-- the account the replicas connect with.
+CREATE USER IF NOT EXISTS 'replicator'@'%' IDENTIFIED BY 'replicator';
+GRANT REPLICATION SLAVE ON *.* TO 'replicator'@'%';
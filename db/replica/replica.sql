@@ -0,0 +1,10 @@
+-- Replicate from the primary with GTID auto-positioning, so the replica fetches the
+-- primary's whole binary log (including the world.sql load) without a dump.
+CHANGE REPLICATION SOURCE TO
+    SOURCE_HOST = 'db',
+    SOURCE_PORT = 3306,
+    SOURCE_USER = 'replicator',
+    SOURCE_PASSWORD = 'replicator',
+    SOURCE_AUTO_POSITION = 1,
+    GET_SOURCE_PUBLIC_KEY = 1;
+START REPLICA;
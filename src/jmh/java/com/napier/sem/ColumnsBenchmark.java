@@ -0,0 +1,68 @@
+package com.napier.sem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans and aggregates over WorldColumns against the same work done on City objects,
+ * with the 4,079 real cities repeated {@code copies} times. Run from the project root
+ * (the world dump is read from db/world-db/world.sql).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class ColumnsBenchmark {
+    @Param({"1", "250"})
+    public int copies;
+
+    private WorldColumns columns;
+    private List<City> cityObjects;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        WorldColumns real = WorldColumns.of(WorldSnapshot.fromSqlDump(Path.of("db", "world-db", "world.sql")));
+        columns = real.repeat(copies);
+        int[] all = columns.filterCities(columns.cityIn(ReportScope.WORLD, null));
+        cityObjects = new ArrayList<>(all.length);
+        for (int row : all) cityObjects.add(columns.toCity(row, false));
+    }
+
+    @Benchmark
+    public long columnsSumDistrict() {
+        return columns.sumCityPopulation(columns.cityIn(ReportScope.DISTRICT, "São Paulo"));
+    }
+
+    @Benchmark
+    public long objectsSumDistrict() {
+        long total = 0;
+        for (City c : cityObjects) {
+            if ("São Paulo".equals(c.District)) total += c.Population;
+        }
+        return total;
+    }
+
+    @Benchmark
+    public int[] columnsTopCitiesInAsia() {
+        return columns.topCities(columns.filterCities(columns.cityIn(ReportScope.CONTINENT, "Asia")), 10);
+    }
+
+    @Benchmark
+    public long[] columnsCityPopulationByCountry() {
+        return columns.cityPopulationByCountry();
+    }
+}
@@ -0,0 +1,63 @@
+package com.napier.sem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ResultSet to object mapping in SqlReportBackend (executeReportQuery and the mapToX methods),
+ * measured against an in-process stub ResultSet so no database time is included.
+ * The stub is a dynamic proxy, so absolute times include some proxy overhead;
+ * compare results between builds rather than reading them as real JDBC cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class MappingBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int rows;
+
+    private ConnectionPool pool;
+    private SqlReportBackend backend;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        pool = StubJdbc.pool(StubJdbc.rows(rows));
+        backend = new SqlReportBackend(pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.close();
+    }
+
+    @Benchmark
+    public List<City> mapCities() {
+        return backend.cities(ReportScope.WORLD, null);
+    }
+
+    @Benchmark
+    public List<Country> mapCountries() {
+        return backend.countries(ReportScope.WORLD, null);
+    }
+
+    @Benchmark
+    public int streamCities() {
+        int[] count = {0};
+        backend.streamCities(ReportScope.WORLD, null, city -> count[0]++);
+        return count[0];
+    }
+}
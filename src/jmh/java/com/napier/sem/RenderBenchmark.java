@@ -0,0 +1,89 @@
+package com.napier.sem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.OutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Table rendering of the report models (City.printReport and friends) for 10, 1k and 100k rows.
+ * Output goes to a PrintStream (or, for the export formats, a channel) over a null stream,
+ * so only formatting and encoding are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class RenderBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int rows;
+
+    private List<City> cities;
+    private List<Country> countries;
+    private List<PopulationSummary> summaries;
+    private PrintStream out;
+    private WritableByteChannel channel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cities = new ArrayList<>(rows);
+        countries = new ArrayList<>(rows);
+        summaries = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            long population = (long) (rows - i) * 1000 + 7;
+            // Interned like the rows the backends produce (see StringDictionary)
+            cities.add(new City("City " + i, StringDictionary.COUNTRY_NAMES.intern("Country " + (i % 239)),
+                    StringDictionary.DISTRICTS.intern("District " + (i % 500)), population, false));
+            countries.add(new Country("C" + i, "Country " + i, "Asia", "Eastern Asia", population, "Capital " + i));
+            summaries.add(new PopulationSummary("Entity " + i, population, population / 3,
+                    33.33, population - population / 3, 66.67));
+        }
+        out = new PrintStream(OutputStream.nullOutputStream());
+        channel = Channels.newChannel(OutputStream.nullOutputStream());
+    }
+
+    @Benchmark
+    public void renderCities() {
+        City.printReport(cities, "UC07: All Cities in the World", false, out);
+    }
+
+    @Benchmark
+    public void renderCapitals() {
+        City.printReport(cities, "UC17: All Capital Cities in the World", true, out);
+    }
+
+    @Benchmark
+    public void renderCountries() {
+        Country.printReport(countries, "UC01: All Countries in the World", out);
+    }
+
+    @Benchmark
+    public void renderPopulationSummaries() {
+        PopulationSummary.printReport(summaries, "UC25: Country Population Breakdown", out);
+    }
+
+    @Benchmark
+    public void exportCitiesCsv() throws IOException {
+        ExportFormat.CSV.open(channel).write(new ReportResult(UseCase.UC07, "UC07: All Cities in the World", cities, 0));
+    }
+
+    @Benchmark
+    public void exportCitiesJsonLines() throws IOException {
+        ExportFormat.JSONL.open(channel).write(new ReportResult(UseCase.UC07, "UC07: All Cities in the World", cities, 0));
+    }
+}
@@ -0,0 +1,62 @@
+package com.napier.sem;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One representative use case per report family, run through App.report() against
+ * the world fixture database.
+ * <p>
+ * backend=snapshot (default) loads db/world-db/world.sql in process, so the benchmark runs
+ * anywhere; override the dump with -Dbench.fixture=path. backend=sql queries a running
+ * MySQL instead (-p backend=sql, location from -Dbench.db, default localhost:3306).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+public class ReportBenchmark {
+    @Param({"snapshot"})
+    public String backend;
+
+    /** UC01 countries, UC07 cities, UC13 top cities, UC18 capitals, UC23/UC25 breakdowns, UC27 total, UC32 languages. */
+    @Param({"UC01", "UC07", "UC13", "UC18", "UC23", "UC25", "UC27", "UC32"})
+    public UseCase useCase;
+
+    private App app;
+    private String name;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        app = new App();
+        if (backend.equals("sql")) {
+            app.connect(System.getProperty("bench.db", "localhost:3306"), 0);
+            if (!app.isConnected()) throw new IllegalStateException("No database for backend=sql.");
+        } else {
+            app.useSnapshot(WorldSnapshot.fromSqlDump(Path.of(System.getProperty("bench.fixture", "db/world-db/world.sql"))));
+        }
+        name = useCase.scope() == ReportScope.CONTINENT ? "Asia" : null;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        app.disconnect();
+    }
+
+    @Benchmark
+    public ReportResult report() {
+        return app.report(useCase, name, 10);
+    }
+}
@@ -0,0 +1,99 @@
+package com.napier.sem;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-process JDBC stubs for benchmarking SqlReportBackend without a database:
+ * every statement returns the same fixed rows, whatever the SQL.
+ * Interface methods the backend does not call return null/0/false.
+ */
+final class StubJdbc {
+    /** Column labels of the stub rows; a superset of what the country and city mappers read. */
+    static final String[] COLUMNS = {"Code", "Name", "Continent", "Region", "Population", "Capital", "Country", "District"};
+
+    private StubJdbc() {
+    }
+
+    /**
+     * Builds {@code count} synthetic rows with the COLUMNS layout.
+     */
+    static Object[][] rows(int count) {
+        Object[][] rows = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            rows[i] = new Object[]{"C" + (i % 1000), "Name " + i, "Asia", "Eastern Asia",
+                    (long) (count - i) * 1000, "Capital " + i, "Country " + (i % 239), "District " + (i % 500)};
+        }
+        return rows;
+    }
+
+    /**
+     * A connection pool whose connections answer every query with the given rows.
+     */
+    static ConnectionPool pool(Object[][] rows) throws SQLException {
+        return new ConnectionPool(() -> connection(rows), 1, 4, 60_000, 60_000, 10_000);
+    }
+
+    private static Connection connection(Object[][] rows) {
+        return (Connection) Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "prepareStatement": return statement(rows);
+                        case "isValid": return true;
+                        case "getAutoCommit": return true;
+                        default: return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static PreparedStatement statement(Object[][] rows) {
+        return (PreparedStatement) Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("executeQuery")) return resultSet(rows);
+                    return defaultValue(method.getReturnType());
+                });
+    }
+
+    private static final Map<String, Integer> COLUMN_INDEX = new HashMap<>();
+
+    static {
+        for (int i = 0; i < COLUMNS.length; i++) {
+            COLUMN_INDEX.put(COLUMNS[i], i);
+        }
+    }
+
+    private static ResultSet resultSet(Object[][] rows) {
+        int[] cursor = {-1};
+        return (ResultSet) Proxy.newProxyInstance(StubJdbc.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next": return ++cursor[0] < rows.length;
+                        case "getString": return String.valueOf(value(rows[cursor[0]], args[0]));
+                        case "getLong": return ((Number) value(rows[cursor[0]], args[0])).longValue();
+                        case "getDouble": return ((Number) value(rows[cursor[0]], args[0])).doubleValue();
+                        default: return defaultValue(method.getReturnType());
+                    }
+                });
+    }
+
+    private static Object value(Object[] row, Object column) {
+        int index = column instanceof Integer ? (Integer) column - 1 : COLUMN_INDEX.get((String) column);
+        return row[index];
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0;
+        if (type == float.class) return 0.0f;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        return null;
+    }
+}
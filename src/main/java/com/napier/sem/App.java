@@ -1,87 +1,346 @@
 package com.napier.sem;
 
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.sql.*;
-import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Locale;
-import java.text.NumberFormat;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 /**
  * Represents the core application logic, database connection,
  * and methods for generating all 32 required reports (countries, cities, population).
+ * Report data comes from a {@link ReportBackend}: live SQL or an in-memory snapshot.
  */
 @SuppressWarnings({"unused"})
 public class App {
-    /** Connection to the MySQL database. */
-    private Connection con = null;
+    /** How reports are answered once connected. */
+    public enum Mode {
+        /** Every report queries MySQL. */
+        LIVE_SQL,
+        /** The world tables are loaded once at connect time and reports are answered from memory. */
+        SNAPSHOT
+    }
+
+    /** Pool of connections to the MySQL database; each report leases one for its query. */
+    private volatile ConnectionPool pool = null;
+    /** Read replicas (host:port) the next connect() routes report queries to; empty for none. */
+    private volatile List<String> replicaLocations = List.of();
+    /** Lag threshold for the read replicas, in seconds. */
+    private volatile long maxReplicaLagSeconds = ReplicaRouter.DEFAULT_MAX_LAG_SECONDS;
+    /** Routes report queries over the read replicas; null when there are none. */
+    private volatile ReplicaRouter replicas = null;
+    /** One pool per shard instance in partitioned mode (see connectShards); empty otherwise. */
+    private volatile List<ConnectionPool> shardPools = List.of();
+    /** Where report data comes from; DISCONNECTED until connect() succeeds. */
+    private volatile ReportBackend backend = ReportBackend.DISCONNECTED;
+    /**
+     * The snapshot reports are answered from in snapshot mode; null in live-SQL and partitioned
+     * mode. Kept apart from backend, which change tracking may wrap.
+     */
+    private volatile WorldSnapshot snapshot = null;
+    /** Optional result cache in front of the backend; null when caching is off. */
+    private volatile ReportCache cache = null;
+    /** When true, the full-list reports stream rows to the console as they arrive. */
+    private volatile boolean streaming = false;
+    /** When true, Connector/J prepares statements on the server (kept open by the pool's statement cache). */
+    private volatile boolean serverPreparedStatements = false;
+    /** When true, connect() installs the population rollup tables and UC23-UC30 read from them. */
+    private volatile boolean rollups = false;
+    /** How many reports of a batch (e.g. the demonstration reports) run at the same time. */
+    private volatile int parallelism = ReportBatch.DEFAULT_PARALLELISM;
+    /** Keeps the UC23-UC31 totals current from the database change log; null when not tracking. */
+    private volatile PopulationChangeFeed changeFeed = null;
+    /** Latency histograms and counters of every report run through this application. */
+    private final ReportMetrics metrics = new ReportMetrics();
+    /** Runs the reports started through async(); created on first use. */
+    private ExecutorService asyncExecutor = null;
+    /** JDBC connect timeout, so a probe against an unreachable host fails instead of hanging. */
+    private static final int CONNECT_TIMEOUT_MS = 5_000;
+    /** How long a report waits for a replica connection before the router tries another node. */
+    private static final long REPLICA_BORROW_TIMEOUT_MS = 1_000;
+    /** Credentials of the world database (primary and replicas), as set in docker-compose.yml. */
+    private static final String DB_USER = "root";
+    private static final String DB_PASSWORD = "example";
 
-    // --- Functional Interface for mapping ResultSet to objects ---
-    @FunctionalInterface
-    private interface ResultSetMapper<T> {
-        T map(ResultSet rs) throws SQLException;
+    /**
+     * Connects to the MySQL database at the specified location, in live-SQL mode.
+     * @param location The hostname and port (e.g., "localhost:33060").
+     * @param delay The longest time in milliseconds to wait for the database to accept connections.
+     */
+    public void connect(String location, int delay) {
+        connect(location, delay, Mode.LIVE_SQL);
     }
 
     /**
-     * Connects to the MySQL database at the specified location after a delay.
+     * Connects to the MySQL database at the specified location as soon as it accepts connections.
+     * In SNAPSHOT mode the world tables are then loaded into memory; if that fails
+     * the application falls back to live SQL. Anything connected before is disconnected first.
      * @param location The hostname and port (e.g., "localhost:33060").
-     * @param delay The initial delay in milliseconds before the first connection attempt.
+     * @param delay The longest time in milliseconds to wait for the database to accept connections.
+     * @param mode LIVE_SQL or SNAPSHOT.
+     */
+    public void connect(String location, int delay, Mode mode) {
+        disconnect();
+        pool = openPool(location, delay);
+        if (pool == null) return;
+
+        backend = new SqlReportBackend(openReplicas(), rollups && installRollups());
+        invalidateCache();
+        if (mode == Mode.SNAPSHOT) {
+            try (Connection con = pool.getConnection()) {
+                useSnapshot(WorldSnapshot.load(con));
+            } catch (SQLException e) {
+                System.err.println("Failed to load world snapshot, using live SQL instead: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Connects in partitioned mode: the world tables are split by continent over several MySQL
+     * instances, and reports fan out to them and merge (see ShardedReportBackend). Continent
+     * reports go only to the instance holding that continent. Rollups, schema migrations and
+     * change tracking need a single database and are not available in this mode. Anything
+     * connected before is disconnected first.
+     * @param locationByContinent The hostname and port holding each continent's rows; one
+     *                            instance may hold several continents.
+     * @param delay The longest time in milliseconds to wait for each instance to accept connections.
+     * @return true if every instance was reached; otherwise nothing stays connected.
+     */
+    public boolean connectShards(Map<String, String> locationByContinent, int delay) {
+        disconnect();
+        Map<String, ConnectionPool> pools = new LinkedHashMap<>();
+        Map<String, ReportBackend> shards = new LinkedHashMap<>();
+        Map<String, ReportBackend> byLocation = new LinkedHashMap<>();
+        for (Map.Entry<String, String> entry : locationByContinent.entrySet()) {
+            String location = entry.getValue();
+            if (!pools.containsKey(location)) {
+                ConnectionPool shardPool = openPool(location, delay);
+                if (shardPool == null) {
+                    System.err.println("Failed to reach the shard at " + location + " for " + entry.getKey() + ".");
+                    pools.values().forEach(ConnectionPool::close);
+                    return false;
+                }
+                pools.put(location, shardPool);
+                byLocation.put(location, new SqlReportBackend(shardPool));
+            }
+            shards.put(entry.getKey(), byLocation.get(location));
+        }
+        shardPools = List.copyOf(pools.values());
+        backend = new ShardedReportBackend(shards);
+        invalidateCache();
+        System.out.println("Serving reports from " + pools.size() + " continent shards.");
+        return true;
+    }
+
+    /**
+     * Creates (and on first use fills) the population rollup tables.
+     * @return true if they are ready; false if live SQL should aggregate as before.
+     */
+    private boolean installRollups() {
+        try (Connection con = pool.getConnection()) {
+            PopulationRollup.install(con);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Failed to install population rollups, aggregating live instead: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Recomputes the population rollup tables from the country and city tables in one step
+     * (e.g. after the data was edited) and drops cached results.
+     * @return true if the refresh succeeded.
+     */
+    public boolean refreshRollups() {
+        ConnectionPool p = pool;
+        if (p == null) return false;
+        try (Connection con = p.getConnection()) {
+            PopulationRollup.refresh(con);
+        } catch (SQLException e) {
+            System.err.println("Failed to refresh population rollups: " + e.getMessage());
+            return false;
+        }
+        invalidateCache();
+        return true;
+    }
+
+    /**
+     * Brings the world schema up to the latest SchemaMigrations version (adding the report
+     * indexes) and drops cached results.
+     * @return true if the schema is current.
+     */
+    public boolean migrateSchema() {
+        ConnectionPool p = pool;
+        if (p == null) return false;
+        try (Connection con = p.getConnection()) {
+            int applied = SchemaMigrations.migrate(con);
+            if (applied > 0) {
+                System.out.println("Applied " + applied + " schema migration(s), now at version "
+                        + SchemaMigrations.latestVersion() + ".");
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to migrate schema: " + e.getMessage());
+            return false;
+        }
+        invalidateCache();
+        return true;
+    }
+
+    /**
+     * Answers all reports from an already loaded snapshot (e.g. one read from a dump file).
+     * @param snapshot The snapshot to serve reports from.
      */
-    public void connect(String location, int delay) { // <-- UPDATED SIGNATURE
+    public void useSnapshot(WorldSnapshot snapshot) {
+        this.snapshot = snapshot;
+        backend = snapshot;
+        invalidateCache();
+        System.out.println("Serving reports from world snapshot (" + snapshot.getCountryCount() + " countries, "
+                + snapshot.getCityCount() + " cities, " + snapshot.getLanguageRowCount() + " language rows).");
+    }
+
+    /**
+     * Writes the world tables to a snapshot file (see SnapshotFile) that a later start can
+     * map instead of connecting. Uses the snapshot reports are served from, if any;
+     * otherwise the tables are read over the connection.
+     * @param file The file to write.
+     * @return true if the file was written.
+     */
+    public boolean exportSnapshot(Path file) {
+        try {
+            WorldSnapshot snapshot = this.snapshot;
+            if (snapshot == null && pool != null) {
+                try (Connection con = pool.getConnection()) {
+                    snapshot = WorldSnapshot.load(con);
+                }
+            } else if (snapshot == null) {
+                System.err.println("Failed to export snapshot: not connected.");
+                return false;
+            }
+            SnapshotFile.write(snapshot, file);
+            System.out.println("Exported world snapshot to " + file + ".");
+            return true;
+        } catch (SQLException | IOException e) {
+            System.err.println("Failed to export snapshot to " + file + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Opens the connection pool as soon as the database accepts connections. There is no
+     * fixed initial sleep: the database is probed straight away and then with exponential
+     * backoff and jitter until it answers or {@code delay} has passed. Errors that waiting
+     * cannot fix (e.g. access denied) end the attempt immediately.
+     * @param delay The longest time to wait for the database, in milliseconds.
+     * @return The open pool, or null if the database could not be reached.
+     */
+    private ConnectionPool openPool(String location, int delay) {
         try {
             // Load Database driver
             Class.forName("com.mysql.cj.jdbc.Driver");
         } catch (ClassNotFoundException e) {
             System.err.println("Error: MySQL JDBC Driver not found. Check dependencies in pom.xml.");
-            return;
+            return null;
         }
 
-        String user = "root";
-        String password = "example";
+        String url = jdbcUrl(location);
 
-        // --- 1. INITIAL LONG WAIT (HAPPENS ONLY ONCE) ---
-        try {
-            System.out.println("Initial connection delay: waiting " + delay + "ms...");
-            Thread.sleep(delay); // Apply the full, single long delay here.
-        } catch (InterruptedException ie) {
-            System.out.println("Connection interrupted during initial wait.");
-            Thread.currentThread().interrupt();
-            return;
-        }
-
-        // --- 2. RETRY LOOP (HAPPENS MULTIPLE TIMES WITH SHORT DELAY) ---
-        int retries = 10;
-        for (int i = 0; i < retries; ++i) {
-            System.out.println("Attempting to connect to database... (Attempt " + (i + 1) + ")");
+        long deadline = System.currentTimeMillis() + delay;
+        Backoff backoff = new Backoff();
+        while (true) {
+            System.out.println("Attempting to connect to database... (Attempt " + (backoff.getAttempts() + 1) + ")");
             try {
-                // Connect to database using location parameter and 'world' database name
-                con = DriverManager.getConnection("jdbc:mysql://" + location
-                                + "/world?allowPublicKeyRetrieval=true&useSSL=false",
-                        user, password);
+                // Opening the pool opens its first connections, which doubles as the readiness probe
+                ConnectionPool opened = new ConnectionPool(url, DB_USER, DB_PASSWORD);
                 System.out.println("Successfully connected to MySQL database!");
-                return; // Exit method on success
+                return opened; // Exit method on success
             } catch (SQLException sqle) {
-                System.out.println("SQL Exception: DB not yet available. Retrying in 3s...");
+                if (!ConnectionPool.isConnectionFailure(sqle)) {
+                    System.err.println("Failed to connect to database: " + sqle.getMessage());
+                    return null;
+                }
+                long wait = backoff.nextDelayMillis();
+                if (System.currentTimeMillis() + wait > deadline) break;
+                System.out.println("SQL Exception: DB not yet available. Retrying in " + wait + "ms...");
                 System.out.println(sqle.getMessage());
                 try {
-                    // Short, standard delay for retries (3 seconds)
-                    Thread.sleep(3000);
+                    Thread.sleep(wait);
                 } catch (InterruptedException ie) {
                     System.out.println("Retry sleep interrupted.");
                     Thread.currentThread().interrupt();
-                    return;
+                    return null;
                 }
             }
         }
-        System.err.println("Failed to connect to database after all retries.");
+        System.err.println("Failed to connect to database within " + delay + "ms.");
+        return null;
+    }
+
+    private String jdbcUrl(String location) {
+        return "jdbc:mysql://" + location
+                + "/world?allowPublicKeyRetrieval=true&useSSL=false&connectTimeout=" + CONNECT_TIMEOUT_MS
+                + (serverPreparedStatements ? "&useServerPrepStmts=true" : "");
     }
 
     /**
-     * Disconnects from the MySQL database.
+     * Creates a pool per read replica (opening connections on first use, so a replica that is
+     * still starting does not hold up connect) and a router over them and the primary.
+     * @return Where report queries lease connections: the router, or the primary pool if there are no replicas.
+     */
+    private DataSource openReplicas() {
+        List<String> locations = replicaLocations;
+        if (locations.isEmpty()) return pool;
+        Map<String, ConnectionPool> pools = new LinkedHashMap<>();
+        for (String location : locations) {
+            String url = jdbcUrl(location);
+            try {
+                pools.put(location, new ConnectionPool(() -> DriverManager.getConnection(url, DB_USER, DB_PASSWORD),
+                        0, ConnectionPool.DEFAULT_MAX_SIZE, ConnectionPool.DEFAULT_IDLE_TIMEOUT_MS,
+                        ConnectionPool.DEFAULT_LEAK_THRESHOLD_MS, REPLICA_BORROW_TIMEOUT_MS));
+            } catch (SQLException e) {
+                // Not reached with no connections opened up front
+                System.err.println("Failed to create pool for replica " + location + ": " + e.getMessage());
+            }
+        }
+        replicas = new ReplicaRouter(pool, pools, ReplicaRouter.MYSQL_LAG, maxReplicaLagSeconds,
+                ReplicaRouter.DEFAULT_EJECT_MS, ReplicaRouter.DEFAULT_CHECK_INTERVAL_MS);
+        System.out.println("Routing reports over " + replicas.getEligibleReplicaCount() + " of "
+                + pools.size() + " read replicas.");
+        return replicas;
+    }
+
+    /**
+     * Disconnects from the MySQL database by closing the connection pool,
+     * and stops serving reports from any snapshot.
      */
     public void disconnect() {
-        if (con != null) {
+        stopChangeTracking();
+        ReportBackend previous = backend;
+        backend = ReportBackend.DISCONNECTED;
+        snapshot = null;
+        invalidateCache();
+        if (previous instanceof ShardedReportBackend) {
+            ((ShardedReportBackend) previous).close();
+        }
+        for (ConnectionPool shardPool : shardPools) shardPool.close();
+        shardPools = List.of();
+        if (replicas != null) {
+            replicas.close();
+            replicas = null;
+        }
+        if (pool != null) {
             try {
-                con.close();
+                pool.close();
+                pool = null;
                 System.out.println("Database connection closed.");
             } catch (Exception e) {
                 System.err.println("Error closing connection to database: " + e.getMessage());
@@ -90,226 +349,522 @@ public class App {
     }
 
     /**
-     * Getter for the database connection.
-     * @return The Connection object.
+     * Chooses server-side prepared statements for connections opened by the next connect().
+     * Each report SQL is then parsed and planned once per connection by MySQL; the pool keeps
+     * the statements open and only rebinds parameters (see ConnectionPool's statement cache).
+     * @param enabled true to add useServerPrepStmts=true to the JDBC URL.
      */
-    public Connection getCon() {
-        return con;
+    public void setServerPreparedStatements(boolean enabled) {
+        this.serverPreparedStatements = enabled;
     }
 
     /**
-     * Executes a generic SQL query and maps the results using a provided mapper.
+     * Answers UC23-UC31 from in-process totals that follow edits to the city and country
+     * tables: installs the change-log triggers if needed, loads the totals, then polls the
+     * log in the background and applies only the changed rows. Cached results of the reports
+     * a change affects are dropped. Call after connect() (or useSnapshot()).
+     * @param pollMillis Time between polls of the change log.
+     * @return true if tracking started; false if not connected to MySQL or the setup failed.
      */
-    private <T> List<T> executeReportQuery(String sql, ResultSetMapper<T> mapper, Object... params) {
-        List<T> results = new ArrayList<>();
-        if (con == null) return results;
+    public boolean enableChangeTracking(long pollMillis) {
+        ConnectionPool p = pool;
+        if (p == null || !isConnected()) return false;
+        stopChangeTracking();
+        PopulationChangeFeed feed;
+        try {
+            feed = PopulationChangeFeed.open(p);
+        } catch (SQLException e) {
+            System.err.println("Failed to start population change tracking: " + e.getMessage());
+            return false;
+        }
+        ReportBackend base = backend;
+        feed.subscribe(keys -> {
+            // Country populations changed: the base backend's language index is stale, and so is
+            // its UC23-UC25 breakdown (answered from the totals while tracking, but not after)
+            if (keys.stream().anyMatch(k -> k.Report.kind() == UseCase.Kind.BREAKDOWN
+                    || k.Report.kind() == UseCase.Kind.LANGUAGES)) {
+                base.invalidate();
+            }
+            ReportCache c = cache;
+            if (c != null) keys.forEach(c::invalidate);
+        });
+        backend = feed.getTotals().over(backend);
+        invalidateCache();
+        changeFeed = feed;
+        feed.start(pollMillis);
+        return true;
+    }
 
-        try (PreparedStatement pStmt = con.prepareStatement(sql)) {
-            // Handle LIMIT parameter (N) which is an integer
-            // N should always be the last parameter if present, otherwise string parameters first.
-            int strParamCount = 0;
-            int limitParam = -1;
+    /**
+     * Stops polling the change log (the totals keep their last state until reconnect).
+     */
+    public void stopChangeTracking() {
+        PopulationChangeFeed feed = changeFeed;
+        changeFeed = null;
+        if (feed != null) feed.close();
+    }
 
-            for (Object param : params) {
-                if (param instanceof String) {
-                    strParamCount++;
-                    pStmt.setString(strParamCount, (String) param);
-                } else if (param instanceof Integer) {
-                    limitParam = (int) param;
-                }
+    /**
+     * Getter for the change feed, e.g. to subscribe to changed report keys or poll on demand.
+     * @return The PopulationChangeFeed, or null when change tracking is off.
+     */
+    public PopulationChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    /**
+     * Chooses whether the next connect() answers UC23-UC30 from the population rollup tables
+     * (created in the world schema if missing) instead of aggregating country and city on
+     * every call. Use refreshRollups() after editing population data.
+     * @param enabled true to use the rollup tables.
+     */
+    public void setRollups(boolean enabled) {
+        this.rollups = enabled;
+    }
+
+    /**
+     * Chooses read replicas for the next connect(): report queries are then spread over the
+     * replicas that are reachable and no more than maxLagSeconds behind, and go to the primary
+     * only when none is. Writes (rollups, migrations, change tracking) and snapshot loads
+     * always use the primary.
+     * @param locations Replica hostnames and ports (e.g. "replica1:3306"); empty for none.
+     * @param maxLagSeconds Lag threshold (see ReplicaRouter.DEFAULT_MAX_LAG_SECONDS).
+     */
+    public void setReadReplicas(List<String> locations, long maxLagSeconds) {
+        this.replicaLocations = List.copyOf(locations);
+        this.maxReplicaLagSeconds = maxLagSeconds;
+    }
+
+    /**
+     * @return The router over the read replicas, or null when connected without replicas.
+     */
+    public ReplicaRouter getReplicaRouter() {
+        return replicas;
+    }
+
+    /**
+     * Checks whether the application can answer reports.
+     * @return true if connect() succeeded and disconnect() has not been called.
+     */
+    public boolean isConnected() {
+        return backend != ReportBackend.DISCONNECTED;
+    }
+
+    /**
+     * Checks whether the database behind the reports is reachable right now, as last seen
+     * by the connection pool. Always true when reports come from a snapshot.
+     * @return false while connected to a database that is down or restarting.
+     */
+    public boolean isDatabaseAvailable() {
+        ConnectionPool p = pool;
+        return isConnected() && (p == null || p.isHealthy() || snapshot != null);
+    }
+
+    /**
+     * Getter for the backend reports are currently answered from.
+     * @return The active ReportBackend (ReportBackend.DISCONNECTED when not connected).
+     */
+    public ReportBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Getter for the pooled data source that report queries lease connections from.
+     * @return The ConnectionPool, or null when not connected.
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Turns on result caching for all reports.
+     * @param maxBytes Upper bound on the estimated size of cached results.
+     * @param ttlMillis How long a cached result stays valid.
+     */
+    public void enableCache(long maxBytes, long ttlMillis) {
+        cache = new ReportCache(maxBytes, ttlMillis);
+    }
+
+    /**
+     * Turns off result caching and drops any cached results.
+     */
+    public void disableCache() {
+        cache = null;
+    }
+
+    /**
+     * Getter for the report cache, e.g. to read hit/miss counters or invalidate a use case.
+     * @return The ReportCache, or null when caching is off.
+     */
+    public ReportCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Drops all cached results, and the data the backend keeps for several reports
+     * (see ReportBackend.invalidate()).
+     */
+    public void invalidateCache() {
+        backend.invalidate();
+        ReportCache c = cache;
+        if (c != null) c.invalidateAll();
+    }
+
+    /**
+     * Runs a report query through the cache when caching is on.
+     * @param ucNumber Use case number, part of the cache key.
+     * @param query The backend call.
+     * @param params The report arguments, the rest of the cache key.
+     */
+    private <T> T cached(int ucNumber, Supplier<T> query, Object... params) {
+        ReportCache c = cache;
+        return c == null ? query.get() : c.get(ucNumber, query, params);
+    }
+
+    /**
+     * Getter for the per-use-case report metrics (latency by phase, rows, bytes, errors).
+     * @return The ReportMetrics of this application.
+     */
+    public ReportMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Turns streaming mode on or off. In streaming mode the full-list reports
+     * (UC01-UC03, UC07-UC11, UC17-UC19) write each row as soon as it is read instead of
+     * collecting the whole result first; they bypass the result cache.
+     * @param streaming true to stream.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Sets how many reports of a batch run at the same time; 1 runs them one after another.
+     * With live SQL each running report leases its own pooled connection, so values above
+     * the pool size only queue for connections.
+     * @param parallelism At least 1.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /** @return How many reports of a batch run at the same time. */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Asynchronous, data-returning access to the reports, run on a pool of daemon threads
+     * sized by the parallelism at first use.
+     * @return The reports as CompletableFutures.
+     */
+    public synchronized AsyncReports async() {
+        if (asyncExecutor == null) {
+            AtomicInteger count = new AtomicInteger();
+            asyncExecutor = Executors.newFixedThreadPool(parallelism, r -> {
+                Thread t = new Thread(r, "report-async-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return new AsyncReports(this, asyncExecutor);
+    }
+
+    /**
+     * Asynchronous, data-returning access to the reports, run on the given executor.
+     * @param executor Where the reports run.
+     * @return The reports as CompletableFutures.
+     */
+    public AsyncReports async(Executor executor) {
+        return new AsyncReports(this, executor);
+    }
+
+    /**
+     * Streams the countries in a scope (UC01-UC03 data) into a sink, then calls sink.end().
+     * Use Country.reportSink to write the usual table to any PrintStream (console, file, socket).
+     */
+    public void streamCountries(ReportScope scope, String name, RowSink<Country> sink) {
+        backend.streamCountries(scope, name, sink);
+        sink.end();
+    }
+
+    /**
+     * Streams the cities in a scope (UC07-UC11 data) into a sink, then calls sink.end().
+     */
+    public void streamCities(ReportScope scope, String name, RowSink<City> sink) {
+        backend.streamCities(scope, name, sink);
+        sink.end();
+    }
+
+    /**
+     * Streams the capital cities in a scope (UC17-UC19 data) into a sink, then calls sink.end().
+     */
+    public void streamCapitals(ReportScope scope, String name, RowSink<City> sink) {
+        backend.streamCapitals(scope, name, sink);
+        sink.end();
+    }
+
+    /**
+     * Runs a report and returns its data without printing anything.
+     * Goes through the result cache when caching is on.
+     * @param useCase The report to run.
+     * @param name The continent/region/country/district/city name (ignored if the report takes none).
+     * @param n The N of Top-N reports (ignored otherwise).
+     * @return The report title and rows (or population total for UC26-UC31).
+     */
+    public ReportResult report(UseCase useCase, String name, int n) {
+        try (ReportMetrics.Execution execution = metrics.start(useCase)) {
+            long start = System.nanoTime();
+            try {
+                ReportResult result = query(useCase, name, n);
+                execution.recordQueryIfUntimed(System.nanoTime() - start);
+                ReportMetrics.rows(useCase.kind() == UseCase.Kind.POPULATION ? 1 : result.Rows.size());
+                return result;
+            } catch (RuntimeException e) {
+                execution.fail();
+                throw e;
             }
+        }
+    }
 
-            // Set integer/LIMIT parameter last
-            if (limitParam != -1) {
-                // Assuming LIMIT is the last placeholder (?)
-                pStmt.setInt(strParamCount + 1, limitParam);
+    /**
+     * Answers a report from the backend (or the cache), see report().
+     */
+    private ReportResult query(UseCase useCase, String name, int n) {
+        ReportBackend b = backend;
+        ReportScope scope = useCase.scope();
+        int uc = useCase.number();
+        String title = useCase.title(name, n);
+        Object[] params = useCase.takesName()
+                ? (useCase.takesN() ? new Object[]{name, n} : new Object[]{name})
+                : (useCase.takesN() ? new Object[]{n} : new Object[0]);
+
+        switch (useCase.kind()) {
+            case COUNTRIES:
+                return new ReportResult(useCase, title, useCase.takesN()
+                        ? cached(uc, () -> b.topCountries(scope, name, n), params)
+                        : cached(uc, () -> b.countries(scope, name), params), 0);
+            case CITIES:
+                return new ReportResult(useCase, title, useCase.takesN()
+                        ? cached(uc, () -> b.topCities(scope, name, n), params)
+                        : cached(uc, () -> b.cities(scope, name), params), 0);
+            case CAPITALS:
+                return new ReportResult(useCase, title, useCase.takesN()
+                        ? cached(uc, () -> b.topCapitals(scope, name, n), params)
+                        : cached(uc, () -> b.capitals(scope, name), params), 0);
+            case BREAKDOWN:
+                return new ReportResult(useCase, title, cached(uc, () -> b.populationBreakdown(scope), params), 0);
+            case POPULATION:
+                long population = cached(uc, () -> b.population(scope, useCase.takesName() ? name : null), params);
+                return new ReportResult(useCase, title, null, population);
+            case LANGUAGES:
+            default:
+                return new ReportResult(useCase, title, cached(uc, b::majorLanguageSpeakers, params), 0);
+        }
+    }
+
+    /**
+     * Runs a report and prints it to the console (streaming the full-list reports when
+     * streaming is on). UC26-UC32 print nothing when not connected, as before.
+     * @return The population total for UC26-UC31, otherwise 0.
+     */
+    private long printReport(UseCase useCase, String name, int n) {
+        return printReport(useCase, name, n, System.out);
+    }
+
+    /**
+     * Runs a report and prints it to the given stream, exactly as the console methods do.
+     * @param out Where the report is written.
+     * @return The population total for UC26-UC31, otherwise 0.
+     */
+    public long printReport(UseCase useCase, String name, int n, PrintStream out) {
+        UseCase.Kind kind = useCase.kind();
+        if (!isConnected() && (kind == UseCase.Kind.POPULATION || kind == UseCase.Kind.LANGUAGES)) return 0;
+
+        try (ReportMetrics.Execution execution = metrics.start(useCase)) {
+            try {
+                if (streaming && useCase.isStreamable()) {
+                    String title = useCase.title(name, n);
+                    switch (kind) {
+                        case COUNTRIES:
+                            streamCountries(useCase.scope(), name, counting(Country.reportSink(title, out)));
+                            break;
+                        case CITIES:
+                            streamCities(useCase.scope(), name, counting(City.reportSink(title, false, out)));
+                            break;
+                        default:
+                            streamCapitals(useCase.scope(), name, counting(City.reportSink(title, true, out)));
+                    }
+                    return 0;
+                }
+
+                ReportResult result = report(useCase, name, n);
+                long start = System.nanoTime();
+                result.print(out);
+                execution.record(ReportMetrics.Phase.RENDER, System.nanoTime() - start);
+                return result.Total;
+            } catch (RuntimeException e) {
+                execution.fail();
+                throw e;
             }
+        }
+    }
 
-            try (ResultSet rs = pStmt.executeQuery()) {
-                while (rs.next()) {
-                    results.add(mapper.map(rs));
+    /**
+     * Runs a report and writes it to a channel in an export format. The full-list reports
+     * are streamed, each row written as it arrives, unless they can be answered from the cache.
+     * UC26-UC32 write nothing when not connected, like printReport.
+     * @param format CSV, JSON Lines or Markdown.
+     * @param out Where the report is written (not closed).
+     * @return The population total for UC26-UC31, otherwise 0.
+     * @throws IOException if the channel cannot be written.
+     */
+    public long exportReport(UseCase useCase, String name, int n, ExportFormat format, WritableByteChannel out)
+            throws IOException {
+        UseCase.Kind kind = useCase.kind();
+        if (!isConnected() && (kind == UseCase.Kind.POPULATION || kind == UseCase.Kind.LANGUAGES)) return 0;
+
+        ReportExporter exporter = format.open(out);
+        try (ReportMetrics.Execution execution = metrics.start(useCase)) {
+            try {
+                if (useCase.isStreamable() && (streaming || cache == null)) {
+                    String title = useCase.title(name, n);
+                    switch (kind) {
+                        case COUNTRIES:
+                            streamCountries(useCase.scope(), name, counting(exporter.sink(useCase, title)));
+                            break;
+                        case CITIES:
+                            streamCities(useCase.scope(), name, counting(exporter.sink(useCase, title)));
+                            break;
+                        default:
+                            streamCapitals(useCase.scope(), name, counting(exporter.sink(useCase, title)));
+                    }
+                    return 0;
                 }
+
+                ReportResult result = report(useCase, name, n);
+                long start = System.nanoTime();
+                exporter.write(result);
+                execution.record(ReportMetrics.Phase.RENDER, System.nanoTime() - start);
+                return result.Total;
+            } catch (UncheckedIOException e) {
+                execution.fail();
+                throw e.getCause();
+            } catch (IOException | RuntimeException e) {
+                execution.fail();
+                throw e;
             }
-        } catch (SQLException e) {
-            System.err.println("SQL Error executing report: " + e.getMessage());
         }
-        return results;
+    }
+
+    /**
+     * Wraps a sink so the rows it receives are added to the report metrics when it ends.
+     */
+    private static <T> RowSink<T> counting(RowSink<T> sink) {
+        return new RowSink<T>() {
+            private long count;
+
+            @Override
+            public void accept(T row) {
+                count++;
+                sink.accept(row);
+            }
+
+            @Override
+            public void end() {
+                ReportMetrics.rows(count);
+                sink.end();
+            }
+        };
     }
 
     // =========================================================================
     // I. Country Report Methods (UC01 - UC06)
     // =========================================================================
 
-    private Country mapToCountry(ResultSet rs) throws SQLException {
-        // Uses the public field constructor: (Code, Name, Continent, Region, Population, Capital)
-        return new Country(
-                rs.getString("Code"),
-                rs.getString("Name"),
-                rs.getString("Continent"),
-                rs.getString("Region"),
-                rs.getLong("Population"),
-                rs.getString("Capital")
-        );
-    }
-
     // UC01: All countries in the world
     public void getGlobalCountryReport() {
-        String sql = "SELECT c.Code, c.Name, c.Continent, c.Region, c.Population, cap.Name AS Capital " +
-                "FROM country AS c JOIN city AS cap ON c.Capital = cap.ID ORDER BY c.Population DESC";
-        List<Country> countries = executeReportQuery(sql, this::mapToCountry);
-        Country.printReport(countries, "UC01: All Countries in the World");
+        printReport(UseCase.UC01, null, 0);
     }
 
     // UC02: All countries in a continent
     public void getCountriesByContinent(String continentName) {
-        String sql = "SELECT c.Code, c.Name, c.Continent, c.Region, c.Population, cap.Name AS Capital " +
-                "FROM country AS c JOIN city AS cap ON c.Capital = cap.ID " +
-                "WHERE c.Continent = ? ORDER BY c.Population DESC";
-        List<Country> countries = executeReportQuery(sql, this::mapToCountry, continentName);
-        Country.printReport(countries, "UC02: All Countries in Continent '" + continentName + "'");
+        printReport(UseCase.UC02, continentName, 0);
     }
 
     // UC03: All countries in a region
     public void getCountriesByRegion(String regionName) {
-        String sql = "SELECT c.Code, c.Name, c.Continent, c.Region, c.Population, cap.Name AS Capital " +
-                "FROM country AS c JOIN city AS cap ON c.Capital = cap.ID " +
-                "WHERE c.Region = ? ORDER BY c.Population DESC";
-        List<Country> countries = executeReportQuery(sql, this::mapToCountry, regionName);
-        Country.printReport(countries, "UC03: All Countries in Region '" + regionName + "'");
+        printReport(UseCase.UC03, regionName, 0);
     }
 
     // UC04: Top N populated countries in the world
     public void getTopNGlobalCountries(int N) {
-        String sql = "SELECT c.Code, c.Name, c.Continent, c.Region, c.Population, cap.Name AS Capital " +
-                "FROM country AS c JOIN city AS cap ON c.Capital = cap.ID ORDER BY c.Population DESC LIMIT ?";
-        List<Country> countries = executeReportQuery(sql, this::mapToCountry, N);
-        Country.printReport(countries, "UC04: Top " + N + " Populated Countries in the World");
+        printReport(UseCase.UC04, null, N);
     }
 
     // UC05: Top N populated countries in a continent
     public void getTopNCountriesByContinent(String continentName, int N) {
-        String sql = "SELECT c.Code, c.Name, c.Continent, c.Region, c.Population, cap.Name AS Capital " +
-                "FROM country AS c JOIN city AS cap ON c.Capital = cap.ID " +
-                "WHERE c.Continent = ? ORDER BY c.Population DESC LIMIT ?";
-        List<Country> countries = executeReportQuery(sql, this::mapToCountry, continentName, N);
-        Country.printReport(countries, "UC05: Top " + N + " Populated Countries in Continent '" + continentName + "'");
+        printReport(UseCase.UC05, continentName, N);
     }
 
     // UC06: Top N populated countries in a region
     public void getTopNCountriesByRegion(String regionName, int N) {
-        String sql = "SELECT c.Code, c.Name, c.Continent, c.Region, c.Population, cap.Name AS Capital " +
-                "FROM country AS c JOIN city AS cap ON c.Capital = cap.ID " +
-                "WHERE c.Region = ? ORDER BY c.Population DESC LIMIT ?";
-        List<Country> countries = executeReportQuery(sql, this::mapToCountry, regionName, N);
-        Country.printReport(countries, "UC06: Top " + N + " Populated Countries in Region '" + regionName + "'");
+        printReport(UseCase.UC06, regionName, N);
     }
 
     // =========================================================================
     // II. City Report Methods (UC07 - UC16)
     // =========================================================================
 
-    private City mapToCity(ResultSet rs, boolean isCapital) throws SQLException {
-        // Uses the City constructor: (Name, Country, District, Population, isCapital)
-        return new City(
-                rs.getString("Name"),
-                rs.getString("Country"),
-                rs.getString("District"),
-                rs.getLong("Population"),
-                isCapital
-        );
-    }
-
-    private List<City> executeCityReportQuery(String sql, boolean isCapital, Object... params) {
-        // Use executeReportQuery with a lambda that calls the specific mapper
-        return executeReportQuery(sql, (rs) -> mapToCity(rs, isCapital), params);
-    }
-
     // UC07: All cities in the world
     public void getGlobalCityReport() {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.District, ci.Population " +
-                "FROM city AS ci JOIN country AS c ON ci.CountryCode = c.Code ORDER BY ci.Population DESC";
-        List<City> cities = executeCityReportQuery(sql, false);
-        City.printReport(cities, "UC07: All Cities in the World", false);
+        printReport(UseCase.UC07, null, 0);
     }
 
     // UC08: All cities in a continent
     public void getCitiesByContinent(String continentName) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.District, ci.Population " +
-                "FROM city AS ci JOIN country AS c ON ci.CountryCode = c.Code " +
-                "WHERE c.Continent = ? ORDER BY ci.Population DESC";
-        List<City> cities = executeCityReportQuery(sql, false, continentName);
-        City.printReport(cities, "UC08: All Cities in Continent '" + continentName + "'", false);
+        printReport(UseCase.UC08, continentName, 0);
     }
 
     // UC09: All cities in a region
     public void getCitiesByRegion(String regionName) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.District, ci.Population " +
-                "FROM city AS ci JOIN country AS c ON ci.CountryCode = c.Code " +
-                "WHERE c.Region = ? ORDER BY ci.Population DESC";
-        List<City> cities = executeCityReportQuery(sql, false, regionName);
-        City.printReport(cities, "UC09: All Cities in Region '" + regionName + "'", false);
+        printReport(UseCase.UC09, regionName, 0);
     }
 
     // UC10: All cities in a country
     public void getCitiesByCountry(String countryName) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.District, ci.Population " +
-                "FROM city AS ci JOIN country AS c ON ci.CountryCode = c.Code " +
-                "WHERE c.Name = ? ORDER BY ci.Population DESC";
-        List<City> cities = executeCityReportQuery(sql, false, countryName);
-        City.printReport(cities, "UC10: All Cities in Country '" + countryName + "'", false);
+        printReport(UseCase.UC10, countryName, 0);
     }
 
     // UC11: All cities in a district
     public void getCitiesByDistrict(String districtName) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.District, ci.Population " +
-                "FROM city AS ci JOIN country AS c ON ci.CountryCode = c.Code " +
-                "WHERE ci.District = ? ORDER BY ci.Population DESC";
-        List<City> cities = executeCityReportQuery(sql, false, districtName);
-        City.printReport(cities, "UC11: All Cities in District '" + districtName + "'", false);
+        printReport(UseCase.UC11, districtName, 0);
     }
 
     // UC12: Top N populated cities in the world
     public void getTopNGlobalCities(int N) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.District, ci.Population " +
-                "FROM city AS ci JOIN country AS c ON ci.CountryCode = c.Code ORDER BY ci.Population DESC LIMIT ?";
-        List<City> cities = executeCityReportQuery(sql, false, N);
-        City.printReport(cities, "UC12: Top " + N + " Populated Cities in the World", false);
+        printReport(UseCase.UC12, null, N);
     }
 
     // UC13: Top N populated cities in a continent
     public void getTopNContinentCities(String continentName, int N) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.District, ci.Population " +
-                "FROM city AS ci JOIN country AS c ON ci.CountryCode = c.Code " +
-                "WHERE c.Continent = ? ORDER BY ci.Population DESC LIMIT ?";
-        List<City> cities = executeCityReportQuery(sql, false, continentName, N);
-        City.printReport(cities, "UC13: Top " + N + " Populated Cities in Continent '" + continentName + "'", false);
+        printReport(UseCase.UC13, continentName, N);
     }
 
     // UC14: Top N populated cities in a region
     public void getTopNRegionCities(String regionName, int N) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.District, ci.Population " +
-                "FROM city AS ci JOIN country AS c ON ci.CountryCode = c.Code " +
-                "WHERE c.Region = ? ORDER BY ci.Population DESC LIMIT ?";
-        List<City> cities = executeCityReportQuery(sql, false, regionName, N);
-        City.printReport(cities, "UC14: Top " + N + " Populated Cities in Region '" + regionName + "'", false);
+        printReport(UseCase.UC14, regionName, N);
     }
 
     // UC15: Top N populated cities in a country
     public void getTopNCountryCities(String countryName, int N) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.District, ci.Population " +
-                "FROM city AS ci JOIN country AS c ON ci.CountryCode = c.Code " +
-                "WHERE c.Name = ? ORDER BY ci.Population DESC LIMIT ?";
-        List<City> cities = executeCityReportQuery(sql, false, countryName, N);
-        City.printReport(cities, "UC15: Top " + N + " Populated Cities in Country '" + countryName + "'", false);
+        printReport(UseCase.UC15, countryName, N);
     }
 
     // UC16: Top N populated cities in a district
     public void getTopNDistrictCities(String districtName, int N) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.District, ci.Population " +
-                "FROM city AS ci JOIN country AS c ON ci.CountryCode = c.Code " +
-                "WHERE ci.District = ? ORDER BY ci.Population DESC LIMIT ?";
-        List<City> cities = executeCityReportQuery(sql, false, districtName, N);
-        City.printReport(cities, "UC16: Top " + N + " Populated Cities in District '" + districtName + "'", false);
+        printReport(UseCase.UC16, districtName, N);
     }
 
     // =========================================================================
@@ -318,224 +873,125 @@ public class App {
 
     // UC17: All capital cities in the world
     public void getGlobalCapitalCityReport() {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.Population, ci.District FROM country AS c " +
-                "JOIN city AS ci ON c.Capital = ci.ID ORDER BY ci.Population DESC";
-        List<City> cities = executeCityReportQuery(sql, true);
-        City.printReport(cities, "UC17: All Capital Cities in the World", true);
+        printReport(UseCase.UC17, null, 0);
     }
 
     // UC18: All capital cities in a continent
     public void getCapitalCitiesByContinent(String continentName) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.Population, ci.District FROM country AS c " +
-                "JOIN city AS ci ON c.Capital = ci.ID WHERE c.Continent = ? ORDER BY ci.Population DESC";
-        List<City> cities = executeCityReportQuery(sql, true, continentName);
-        City.printReport(cities, "UC18: All Capital Cities in Continent '" + continentName + "'", true);
+        printReport(UseCase.UC18, continentName, 0);
     }
 
     // UC19: All capital cities in a region
     public void getCapitalCitiesByRegion(String regionName) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.Population, ci.District FROM country AS c " +
-                "JOIN city AS ci ON c.Capital = ci.ID WHERE c.Region = ? ORDER BY ci.Population DESC";
-        List<City> cities = executeCityReportQuery(sql, true, regionName);
-        City.printReport(cities, "UC19: All Capital Cities in Region '" + regionName + "'", true);
+        printReport(UseCase.UC19, regionName, 0);
     }
 
-    // UC20: Top N populated capital cities in the world (around line 322)
+    // UC20: Top N populated capital cities in the world
     public void getTopNGlobalCapitals(int N) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.Population, ci.District FROM country AS c " +
-                "JOIN city AS ci ON c.Capital = ci.ID ORDER BY ci.Population DESC LIMIT ?";
-        List<City> cities = executeCityReportQuery(sql, true, N);
-        City.printReport(cities, "UC20: Top " + N + " Populated Capital Cities in the World", true);
+        printReport(UseCase.UC20, null, N);
     }
 
     // UC21: Top N populated capital cities in a continent
     public void getTopNContinentCapitals(String continentName, int N) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.Population, ci.District FROM country AS c " +
-                "JOIN city AS ci ON c.Capital = ci.ID WHERE c.Continent = ? ORDER BY ci.Population DESC LIMIT ?";
-        List<City> cities = executeCityReportQuery(sql, true, continentName, N);
-        City.printReport(cities, "UC21: Top " + N + " Populated Capital Cities in Continent '" + continentName + "'", true);
+        printReport(UseCase.UC21, continentName, N);
     }
 
     // UC22: Top N populated capital cities in a region
     public void getTopNRegionCapitals(String regionName, int N) {
-        String sql = "SELECT ci.Name, c.Name AS Country, ci.Population, ci.District FROM country AS c " +
-                "JOIN city AS ci ON c.Capital = ci.ID WHERE c.Region = ? ORDER BY ci.Population DESC LIMIT ?";
-        List<City> cities = executeCityReportQuery(sql, true, regionName, N);
-        City.printReport(cities, "UC22: Top " + N + " Populated Capital Cities in Region '" + regionName + "'", true);
+        printReport(UseCase.UC22, regionName, N);
     }
 
     // =========================================================================
     // IV. Population Distribution Reports (UC23 - UC25)
     // =========================================================================
 
-    private PopulationSummary mapToPopulationSummary(ResultSet rs) throws SQLException {
-        // Uses the 6-argument constructor: (name, totalPop, cityPop, cityPopPct, ruralPop, ruralPopPct)
-        return new PopulationSummary(
-                rs.getString("Name"),
-                rs.getLong("TotalPopulation"),
-                rs.getLong("CityPopulation"),
-                rs.getDouble("CityPopulationPercent"),
-                rs.getLong("RuralPopulation"),
-                rs.getDouble("RuralPopulationPercent")
-        );
-    }
-
-    /**
-     * Executes a population distribution query and prints the report.
-     */
-    private void executePopulationSummaryQuery(String groupColumn, String titlePrefix, String sql) {
-        List<PopulationSummary> summaries = new ArrayList<>();
-        if (con == null) return;
-
-        try (Statement stmt = con.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-
-            while (rs.next()) {
-                summaries.add(mapToPopulationSummary(rs));
-            }
-        } catch (SQLException e) {
-            System.err.println("SQL Error executing population distribution report (" + titlePrefix + "): " + e.getMessage());
-        }
-        PopulationSummary.printReport(summaries, titlePrefix + " Population Breakdown");
-    }
-
     // UC23: Continent Population Breakdown
     public void getPopulationDistributionByContinent() {
-        String sql = "SELECT c.Continent AS Name, " +
-                "SUM(c.Population) AS TotalPopulation, " +
-                "SUM(ci.CityPopulation) AS CityPopulation, " +
-                "SUM(c.Population) - SUM(ci.CityPopulation) AS RuralPopulation, " +
-                "CAST(SUM(ci.CityPopulation) / SUM(c.Population) * 100 AS DECIMAL(5,2)) AS CityPopulationPercent, " +
-                "CAST(((SUM(c.Population) - SUM(ci.CityPopulation)) / SUM(c.Population) * 100) AS DECIMAL(5,2)) AS RuralPopulationPercent " +
-                "FROM country AS c " +
-                "LEFT JOIN (SELECT CountryCode, SUM(Population) AS CityPopulation FROM city GROUP BY CountryCode) AS ci " +
-                "ON c.Code = ci.CountryCode " +
-                "GROUP BY c.Continent " +
-                "ORDER BY TotalPopulation DESC";
-        executePopulationSummaryQuery("c.Continent", "UC23: Continent", sql);
+        printReport(UseCase.UC23, null, 0);
     }
 
     // UC24: Region Population Breakdown
     public void getPopulationDistributionByRegion() {
-        String sql = "SELECT c.Region AS Name, " +
-                "SUM(c.Population) AS TotalPopulation, " +
-                "SUM(ci.CityPopulation) AS CityPopulation, " +
-                "SUM(c.Population) - SUM(ci.CityPopulation) AS RuralPopulation, " +
-                "CAST(SUM(ci.CityPopulation) / SUM(c.Population) * 100 AS DECIMAL(5,2)) AS CityPopulationPercent, " +
-                "CAST(((SUM(c.Population) - SUM(ci.CityPopulation)) / SUM(c.Population) * 100) AS DECIMAL(5,2)) AS RuralPopulationPercent " +
-                "FROM country AS c " +
-                "LEFT JOIN (SELECT CountryCode, SUM(Population) AS CityPopulation FROM city GROUP BY CountryCode) AS ci " +
-                "ON c.Code = ci.CountryCode " +
-                "GROUP BY c.Region " +
-                "ORDER BY TotalPopulation DESC";
-        executePopulationSummaryQuery("c.Region", "UC24: Region", sql);
+        printReport(UseCase.UC24, null, 0);
     }
 
     // UC25: Country Population Breakdown
     public void getPopulationDistributionByCountry() {
-        String sql = "SELECT c.Name AS Name, " +
-                "c.Population AS TotalPopulation, " +
-                "SUM(ci.Population) AS CityPopulation, " +
-                "c.Population - SUM(ci.Population) AS RuralPopulation, " +
-                "CAST(SUM(ci.Population) / c.Population * 100 AS DECIMAL(5,2)) AS CityPopulationPercent, " +
-                "CAST(((c.Population - SUM(ci.Population)) / c.Population * 100) AS DECIMAL(5,2)) AS RuralPopulationPercent " +
-                "FROM country AS c " +
-                "LEFT JOIN city AS ci ON c.Code = ci.CountryCode " +
-                "GROUP BY c.Code, c.Name, c.Population " +
-                "ORDER BY c.Population DESC";
-        executePopulationSummaryQuery("c.Name", "UC25: Country", sql);
+        printReport(UseCase.UC25, null, 0);
     }
 
     // =========================================================================
     // V. Aggregate Population Totals (UC26 - UC31)
     // =========================================================================
 
-    /**
-     * Helper method for single aggregate population results (UC26-UC31).
-     */
-    private long executeSinglePopulationQuery(String sql, String parameter, String ucNumber, String entityName) {
-        long population = 0;
-        if (con == null) return population;
-        String title = String.format("UC%s: %s Population%s", ucNumber, entityName, parameter != null ? " (" + parameter + ")" : "");
-
-        try (PreparedStatement pStmt = con.prepareStatement(sql)) {
-            if (parameter != null) {
-                pStmt.setString(1, parameter);
-            }
-            try (ResultSet rs = pStmt.executeQuery()) {
-                if (rs.next()) {
-                    population = rs.getLong(1);
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("SQL Error for " + title + ": " + e.getMessage());
-        }
-
-        NumberFormat nf = NumberFormat.getInstance(Locale.US);
-        System.out.println("\n=======================================================");
-        System.out.println(title);
-        System.out.println("Result: " + (population > 0 ? nf.format(population) : "Data Not Available"));
-        System.out.println("=======================================================");
-        return population;
-    }
-
     // UC26: World Population
     public long getWorldPopulation() {
-        return executeSinglePopulationQuery("SELECT SUM(Population) FROM country", null, "26", "World");
+        return printReport(UseCase.UC26, null, 0);
     }
 
     // UC27: Continent Population
     public long getContinentPopulation(String continentName) {
-        return executeSinglePopulationQuery("SELECT SUM(Population) FROM country WHERE Continent = ?", continentName, "27", "Continent");
+        return printReport(UseCase.UC27, continentName, 0);
     }
 
     // UC28: Region Population
     public long getRegionPopulation(String regionName) {
-        return executeSinglePopulationQuery("SELECT SUM(Population) FROM country WHERE Region = ?", regionName, "28", "Region");
+        return printReport(UseCase.UC28, regionName, 0);
     }
 
     // UC29: Country Population
     public long getCountryPopulation(String countryName) {
-        return executeSinglePopulationQuery("SELECT Population FROM country WHERE Name = ?", countryName, "29", "Country");
+        return printReport(UseCase.UC29, countryName, 0);
     }
 
     // UC30: District Population
     public long getDistrictPopulation(String districtName) {
-        return executeSinglePopulationQuery("SELECT SUM(Population) FROM city WHERE District = ?", districtName, "30", "District");
+        return printReport(UseCase.UC30, districtName, 0);
     }
 
     // UC31: City Population
     public long getCityPopulation(String cityName) {
-        return executeSinglePopulationQuery("SELECT Population FROM city WHERE Name = ?", cityName, "31", "City");
+        return printReport(UseCase.UC31, cityName, 0);
     }
 
     // =========================================================================
     // VI. Language Report (UC32)
     // =========================================================================
 
-    private LanguageSpeakers mapToLanguageSpeakers(ResultSet rs) throws SQLException {
-        // Uses the 3-argument constructor: (language, speakers (double), percentWorldPopulation)
-        return new LanguageSpeakers(
-                rs.getString("Language"),
-                rs.getDouble("Speakers"),
-                rs.getDouble("WorldPopulationPercent")
-        );
-    }
-
     // UC32: Global Language Speakers Report
     public void getMajorLanguageSpeakers() {
-        if (con == null) return;
-        String sql = "SELECT cl.Language, " +
-                "SUM(c.Population * (cl.Percentage / 100)) AS Speakers, " +
-                "(SUM(c.Population * (cl.Percentage / 100)) / (SELECT SUM(Population) FROM country) * 100) AS WorldPopulationPercent " +
-                "FROM countrylanguage AS cl " +
-                "JOIN country AS c ON cl.CountryCode = c.Code " +
-                "WHERE cl.Language IN ('Chinese', 'English', 'Hindi', 'Spanish', 'Arabic') " +
-                "GROUP BY cl.Language " +
-                "ORDER BY Speakers DESC";
+        printReport(UseCase.UC32, null, 0);
+    }
+
+    // Language queries beyond UC32, answered from the backend's LanguageIndex
+
+    /**
+     * Estimated speakers of any language in the world.
+     * @param language The language name.
+     * @return Speakers and share of the world population, or null if no country speaks it.
+     */
+    public LanguageSpeakers getLanguageSpeakers(String language) {
+        return backend.languages().speakers(language);
+    }
+
+    /**
+     * The languages with the most speakers in the world, a continent or a region.
+     * @param scope WORLD, CONTINENT or REGION.
+     * @param name The continent or region (ignored for WORLD).
+     * @param k Maximum number of languages.
+     * @return Up to k languages, most speakers first, with their share of the area's population.
+     */
+    public List<LanguageSpeakers> getTopLanguages(ReportScope scope, String name, int k) {
+        return backend.languages().topLanguages(scope, name, k);
+    }
 
-        List<LanguageSpeakers> speakers = executeReportQuery(sql, this::mapToLanguageSpeakers);
-        LanguageSpeakers.printReport(speakers, "UC32: Global Language Speakers Report (Chinese, English, Hindi, Spanish, Arabic)");
+    /**
+     * The countries where a language is spoken, most speakers first.
+     * @param language The language name.
+     * @return One row per country (empty if none).
+     */
+    public List<LanguageIndex.CountryShare> getLanguageCountries(String language) {
+        return backend.languages().countries(language);
     }
 
 
@@ -559,32 +1015,27 @@ public class App {
         System.out.println("# Running Demonstration Reports #");
         System.out.println("#####################################################");
 
-        // A. Country Reports
-        getGlobalCountryReport(); // UC01
-        getTopNCountriesByContinent(continent, N); // UC05
-
-        // B. City Reports
-        getGlobalCityReport(); // UC07
-        getCitiesByDistrict("California"); // UC11
-
-        // C. Capital City Reports
-        getTopNGlobalCapitals(N); // UC20
-
-        // D. Population Breakdown Reports
-        getPopulationDistributionByContinent(); // UC23
-
-
-
-        // E. Single Population Totals
-        // Declaring local variables to capture the return values resolves the "return value of the method is never used" warnings.
-        long worldPop = getWorldPopulation(); // UC26
-        long continentPop = getContinentPopulation(continent); // UC27
-        long regionPop = getRegionPopulation(region); // UC28
-        long countryPop = getCountryPopulation(country); // UC29
-        long districtPop = getDistrictPopulation(district); // UC30
-        long cityPop = getCityPopulation(city); // UC31
-
-        // F. Language Report
-        getMajorLanguageSpeakers(); // UC32
+        // Independent reports run side by side; output still appears in this order
+        ReportBatch batch = new ReportBatch()
+                // A. Country Reports
+                .add(UseCase.UC01, null, 0)
+                .add(UseCase.UC05, continent, N)
+                // B. City Reports
+                .add(UseCase.UC07, null, 0)
+                .add(UseCase.UC11, "California", 0)
+                // C. Capital City Reports
+                .add(UseCase.UC20, null, N)
+                // D. Population Breakdown Reports
+                .add(UseCase.UC23, null, 0)
+                // E. Single Population Totals
+                .add(UseCase.UC26, null, 0)
+                .add(UseCase.UC27, continent, 0)
+                .add(UseCase.UC28, region, 0)
+                .add(UseCase.UC29, country, 0)
+                .add(UseCase.UC30, district, 0)
+                .add(UseCase.UC31, city, 0)
+                // F. Language Report
+                .add(UseCase.UC32, null, 0);
+        batch.run(this, parallelism, System.out);
     }
 }
\ No newline at end of file
@@ -0,0 +1,250 @@
+package com.napier.sem;
+
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Asynchronous, data-returning view of the 32 reports: each method starts the report on an
+ * executor and returns a CompletableFuture of its rows (or, for UC26-UC31, its total) instead
+ * of printing it. Printing is a separate step ({@link #print(CompletableFuture, PrintStream)}),
+ * so callers can fan out many reports, compose or cache the results, and print or send them
+ * once they are all done.
+ * <p>
+ * Reports run through {@link App#report(UseCase, String, int)}, so they share the App's
+ * backend, cache and metrics. The executor's threads block on the database (JDBC has no
+ * non-blocking API); the callers' threads do not. Obtain one with {@link App#async()}.
+ */
+public class AsyncReports {
+    private final App app;
+    private final Executor executor;
+
+    /**
+     * @param app The application whose backend answers the reports.
+     * @param executor Where the reports run.
+     */
+    public AsyncReports(App app, Executor executor) {
+        this.app = app;
+        this.executor = executor;
+    }
+
+    /**
+     * Starts any report.
+     * @param useCase The report to run.
+     * @param name The continent/region/country/district/city name (ignored if the report takes none).
+     * @param n The N of Top-N reports (ignored otherwise).
+     * @return The report's result, completed on the executor.
+     */
+    public CompletableFuture<ReportResult> report(UseCase useCase, String name, int n) {
+        return CompletableFuture.supplyAsync(() -> app.report(useCase, name, n), executor);
+    }
+
+    /**
+     * Prints a report once it completes, as the usual console table.
+     * @param result A report started by {@link #report(UseCase, String, int)}.
+     * @param out Where the report is written.
+     * @return Completes once the report has been printed.
+     */
+    public static CompletableFuture<Void> print(CompletableFuture<ReportResult> result, PrintStream out) {
+        return result.thenAccept(r -> {
+            // Printing several reports to one stream must not interleave their lines
+            synchronized (out) {
+                r.print(out);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<List<T>> rows(UseCase useCase, String name, int n) {
+        return report(useCase, name, n).thenApply(r -> (List<T>) r.Rows);
+    }
+
+    private CompletableFuture<Long> total(UseCase useCase, String name, int n) {
+        return report(useCase, name, n).thenApply(r -> r.Total);
+    }
+
+    // =========================================================================
+    // I. Country Report Methods (UC01 - UC06)
+    // =========================================================================
+
+    // UC01: All countries in the world
+    public CompletableFuture<List<Country>> getGlobalCountryReport() {
+        return rows(UseCase.UC01, null, 0);
+    }
+
+    // UC02: All countries in a continent
+    public CompletableFuture<List<Country>> getCountriesByContinent(String continentName) {
+        return rows(UseCase.UC02, continentName, 0);
+    }
+
+    // UC03: All countries in a region
+    public CompletableFuture<List<Country>> getCountriesByRegion(String regionName) {
+        return rows(UseCase.UC03, regionName, 0);
+    }
+
+    // UC04: Top N populated countries in the world
+    public CompletableFuture<List<Country>> getTopNGlobalCountries(int N) {
+        return rows(UseCase.UC04, null, N);
+    }
+
+    // UC05: Top N populated countries in a continent
+    public CompletableFuture<List<Country>> getTopNCountriesByContinent(String continentName, int N) {
+        return rows(UseCase.UC05, continentName, N);
+    }
+
+    // UC06: Top N populated countries in a region
+    public CompletableFuture<List<Country>> getTopNCountriesByRegion(String regionName, int N) {
+        return rows(UseCase.UC06, regionName, N);
+    }
+
+    // =========================================================================
+    // II. City Report Methods (UC07 - UC16)
+    // =========================================================================
+
+    // UC07: All cities in the world
+    public CompletableFuture<List<City>> getGlobalCityReport() {
+        return rows(UseCase.UC07, null, 0);
+    }
+
+    // UC08: All cities in a continent
+    public CompletableFuture<List<City>> getCitiesByContinent(String continentName) {
+        return rows(UseCase.UC08, continentName, 0);
+    }
+
+    // UC09: All cities in a region
+    public CompletableFuture<List<City>> getCitiesByRegion(String regionName) {
+        return rows(UseCase.UC09, regionName, 0);
+    }
+
+    // UC10: All cities in a country
+    public CompletableFuture<List<City>> getCitiesByCountry(String countryName) {
+        return rows(UseCase.UC10, countryName, 0);
+    }
+
+    // UC11: All cities in a district
+    public CompletableFuture<List<City>> getCitiesByDistrict(String districtName) {
+        return rows(UseCase.UC11, districtName, 0);
+    }
+
+    // UC12: Top N populated cities in the world
+    public CompletableFuture<List<City>> getTopNGlobalCities(int N) {
+        return rows(UseCase.UC12, null, N);
+    }
+
+    // UC13: Top N populated cities in a continent
+    public CompletableFuture<List<City>> getTopNContinentCities(String continentName, int N) {
+        return rows(UseCase.UC13, continentName, N);
+    }
+
+    // UC14: Top N populated cities in a region
+    public CompletableFuture<List<City>> getTopNRegionCities(String regionName, int N) {
+        return rows(UseCase.UC14, regionName, N);
+    }
+
+    // UC15: Top N populated cities in a country
+    public CompletableFuture<List<City>> getTopNCountryCities(String countryName, int N) {
+        return rows(UseCase.UC15, countryName, N);
+    }
+
+    // UC16: Top N populated cities in a district
+    public CompletableFuture<List<City>> getTopNDistrictCities(String districtName, int N) {
+        return rows(UseCase.UC16, districtName, N);
+    }
+
+    // =========================================================================
+    // III. Capital City Reports (UC17 - UC22)
+    // =========================================================================
+
+    // UC17: All capital cities in the world
+    public CompletableFuture<List<City>> getGlobalCapitalCityReport() {
+        return rows(UseCase.UC17, null, 0);
+    }
+
+    // UC18: All capital cities in a continent
+    public CompletableFuture<List<City>> getCapitalCitiesByContinent(String continentName) {
+        return rows(UseCase.UC18, continentName, 0);
+    }
+
+    // UC19: All capital cities in a region
+    public CompletableFuture<List<City>> getCapitalCitiesByRegion(String regionName) {
+        return rows(UseCase.UC19, regionName, 0);
+    }
+
+    // UC20: Top N populated capital cities in the world
+    public CompletableFuture<List<City>> getTopNGlobalCapitals(int N) {
+        return rows(UseCase.UC20, null, N);
+    }
+
+    // UC21: Top N populated capital cities in a continent
+    public CompletableFuture<List<City>> getTopNContinentCapitals(String continentName, int N) {
+        return rows(UseCase.UC21, continentName, N);
+    }
+
+    // UC22: Top N populated capital cities in a region
+    public CompletableFuture<List<City>> getTopNRegionCapitals(String regionName, int N) {
+        return rows(UseCase.UC22, regionName, N);
+    }
+
+    // =========================================================================
+    // IV. Population Distribution Reports (UC23 - UC25)
+    // =========================================================================
+
+    // UC23: Continent Population Breakdown
+    public CompletableFuture<List<PopulationSummary>> getPopulationDistributionByContinent() {
+        return rows(UseCase.UC23, null, 0);
+    }
+
+    // UC24: Region Population Breakdown
+    public CompletableFuture<List<PopulationSummary>> getPopulationDistributionByRegion() {
+        return rows(UseCase.UC24, null, 0);
+    }
+
+    // UC25: Country Population Breakdown
+    public CompletableFuture<List<PopulationSummary>> getPopulationDistributionByCountry() {
+        return rows(UseCase.UC25, null, 0);
+    }
+
+    // =========================================================================
+    // V. Aggregate Population Totals (UC26 - UC31)
+    // =========================================================================
+
+    // UC26: World Population
+    public CompletableFuture<Long> getWorldPopulation() {
+        return total(UseCase.UC26, null, 0);
+    }
+
+    // UC27: Continent Population
+    public CompletableFuture<Long> getContinentPopulation(String continentName) {
+        return total(UseCase.UC27, continentName, 0);
+    }
+
+    // UC28: Region Population
+    public CompletableFuture<Long> getRegionPopulation(String regionName) {
+        return total(UseCase.UC28, regionName, 0);
+    }
+
+    // UC29: Country Population
+    public CompletableFuture<Long> getCountryPopulation(String countryName) {
+        return total(UseCase.UC29, countryName, 0);
+    }
+
+    // UC30: District Population
+    public CompletableFuture<Long> getDistrictPopulation(String districtName) {
+        return total(UseCase.UC30, districtName, 0);
+    }
+
+    // UC31: City Population
+    public CompletableFuture<Long> getCityPopulation(String cityName) {
+        return total(UseCase.UC31, cityName, 0);
+    }
+
+    // =========================================================================
+    // VI. Language Report (UC32)
+    // =========================================================================
+
+    // UC32: Global Language Speakers Report
+    public CompletableFuture<List<LanguageSpeakers>> getMajorLanguageSpeakers() {
+        return rows(UseCase.UC32, null, 0);
+    }
+}
@@ -0,0 +1,63 @@
+package com.napier.sem;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter between connection attempts.
+ * <p>
+ * The n-th delay is drawn uniformly from [0, min(max, initial * 2^n)], so clients that
+ * lost the database at the same moment (e.g. every app container during a MySQL restart)
+ * spread their retries out instead of reconnecting in lockstep.
+ */
+public class Backoff {
+    /** Default upper bound of the first delay. */
+    public static final long DEFAULT_INITIAL_MS = 100;
+    /** Default upper bound of any delay. */
+    public static final long DEFAULT_MAX_MS = 5_000;
+
+    private final long initialMillis;
+    private final long maxMillis;
+    private final Random random;
+    private int attempt;
+
+    /**
+     * Creates a backoff using DEFAULT_INITIAL_MS and DEFAULT_MAX_MS.
+     */
+    public Backoff() {
+        this(DEFAULT_INITIAL_MS, DEFAULT_MAX_MS, null);
+    }
+
+    /**
+     * @param initialMillis Upper bound of the first delay.
+     * @param maxMillis Upper bound of any delay.
+     * @param random Source of jitter, or null for ThreadLocalRandom.
+     */
+    public Backoff(long initialMillis, long maxMillis, Random random) {
+        if (initialMillis < 1 || maxMillis < initialMillis) {
+            throw new IllegalArgumentException("Invalid backoff: initial=" + initialMillis + ", max=" + maxMillis);
+        }
+        this.initialMillis = initialMillis;
+        this.maxMillis = maxMillis;
+        this.random = random;
+    }
+
+    /**
+     * @return The delay before the next attempt, in milliseconds.
+     */
+    public long nextDelayMillis() {
+        long cap = Math.min(maxMillis, initialMillis << Math.min(attempt, 30));
+        attempt++;
+        return random == null ? ThreadLocalRandom.current().nextLong(cap + 1) : (long) (random.nextDouble() * (cap + 1));
+    }
+
+    /** @return Number of delays handed out so far. */
+    public int getAttempts() {
+        return attempt;
+    }
+
+    /** Starts again from the initial delay (after a successful attempt). */
+    public void reset() {
+        attempt = 0;
+    }
+}
@@ -1,8 +1,7 @@
 package com.napier.sem;
 
+import java.io.PrintStream;
 import java.util.List;
-import java.text.NumberFormat;
-import java.util.Locale;
 
 /**
  * Represents a city record from the world database.
@@ -41,41 +40,83 @@ public class City {
      * Prints the report header for City Reports.
      */
     public static void printCityHeader() {
-        System.out.println("------------------------------------------------------------------------------------------------");
-        System.out.printf("| %-30s | %-30s | %-20s | %-15s |\n",
-                "Name", "Country", "District", "Population");
-        System.out.println("------------------------------------------------------------------------------------------------");
+        printCityHeader(System.out);
+    }
+
+    /**
+     * Prints the report header for City Reports to the given stream.
+     */
+    public static void printCityHeader(PrintStream out) {
+        TableRenderer table = new TableRenderer(out);
+        renderCityHeader(table);
+        table.flush();
+    }
+
+    /** Column widths of the City report: Name, Country, District, Population. */
+    static void renderCityHeader(TableRenderer table) {
+        table.line("------------------------------------------------------------------------------------------------");
+        table.beginRow().col("Name", 30).col("Country", 30).col("District", 20).col("Population", 15).endRow();
+        table.line("------------------------------------------------------------------------------------------------");
     }
 
     /**
      * Prints the report header for Capital City Reports.
      */
     public static void printCapitalHeader() {
-        System.out.println("-----------------------------------------------------------------------");
-        System.out.printf("| %-30s | %-30s | %-15s |\n",
-                "Name", "Country", "Population");
-        System.out.println("-----------------------------------------------------------------------");
+        printCapitalHeader(System.out);
+    }
+
+    /**
+     * Prints the report header for Capital City Reports to the given stream.
+     */
+    public static void printCapitalHeader(PrintStream out) {
+        TableRenderer table = new TableRenderer(out);
+        renderCapitalHeader(table);
+        table.flush();
+    }
+
+    /** Column widths of the Capital City report: Name, Country, Population. */
+    static void renderCapitalHeader(TableRenderer table) {
+        table.line("-----------------------------------------------------------------------");
+        table.beginRow().col("Name", 30).col("Country", 30).col("Population", 15).endRow();
+        table.line("-----------------------------------------------------------------------");
     }
 
     /**
      * Prints the details of a single City record.
      */
     public void print() {
-        NumberFormat nf = NumberFormat.getInstance(Locale.US);
+        print(System.out);
+    }
+
+    /**
+     * Prints the details of a single City record to the given stream.
+     */
+    public void print(PrintStream out) {
+        TableRenderer table = new TableRenderer(out);
+        render(table);
+        table.flush();
+    }
 
+    /**
+     * Appends this city as one table row.
+     */
+    void render(TableRenderer table) {
         if (this.isCapital) {
             // Capital City Format (Name, Country, Population)
-            System.out.printf("| %-30s | %-30s | %-15s |\n",
-                    this.Name,
-                    this.CountryName,
-                    nf.format(this.Population));
+            table.beginRow()
+                    .col(this.Name, 30)
+                    .col(this.CountryName, 30)
+                    .colGrouped(this.Population, 15)
+                    .endRow();
         } else {
             // Standard City Format (Name, Country, District, Population)
-            System.out.printf("| %-30s | %-30s | %-20s | %-15s |\n",
-                    this.Name,
-                    this.CountryName,
-                    this.District != null ? this.District : "N/A",
-                    nf.format(this.Population));
+            table.beginRow()
+                    .col(this.Name, 30)
+                    .col(this.CountryName, 30)
+                    .col(this.District != null ? this.District : "N/A", 20)
+                    .colGrouped(this.Population, 15)
+                    .endRow();
         }
     }
 
@@ -85,31 +126,68 @@ public class City {
      * @param title The title for the report.
      */
     public static void printReport(List<City> cities, String title, boolean isCapitalReport) {
-        if (cities == null || cities.isEmpty()) {
-            System.out.println("---------------------------------------------------");
-            System.out.println("No data found for the report: " + title);
-            System.out.println("---------------------------------------------------");
-            return;
+        printReport(cities, title, isCapitalReport, System.out);
+    }
+
+    /**
+     * Prints a formatted list of City objects to the given stream.
+     * @param cities The list of City objects to print.
+     * @param title The title for the report.
+     * @param out Where the report is written.
+     */
+    public static void printReport(List<City> cities, String title, boolean isCapitalReport, PrintStream out) {
+        RowSink<City> sink = reportSink(title, isCapitalReport, out);
+        if (cities != null) {
+            for (City city : cities) {
+                sink.accept(city);
+            }
         }
+        sink.end();
+    }
 
-        System.out.println("\n=====================================================================================================");
-        System.out.println(" " + title);
-        System.out.println("=====================================================================================================");
+    /**
+     * Returns a sink that writes a City report row by row as rows arrive: the title and
+     * header are written with the first row, the closing line (or the "No data" message) on end().
+     * The output is the same as printReport for the same rows.
+     * @param title The title for the report.
+     * @param isCapitalReport true for the capital city layout (no District column).
+     * @param out Where the report is written (console, file, socket...).
+     */
+    public static RowSink<City> reportSink(String title, boolean isCapitalReport, PrintStream out) {
+        TableRenderer table = new TableRenderer(out);
+        return new RowSink<City>() {
+            private boolean started = false;
 
-        if (isCapitalReport) {
-            printCapitalHeader();
-        } else {
-            printCityHeader();
-        }
+            @Override
+            public void accept(City city) {
+                if (!started) {
+                    started = true;
+                    table.line("\n=====================================================================================================");
+                    table.line(" " + title);
+                    table.line("=====================================================================================================");
 
-        for (City city : cities) {
-            city.print();
-        }
+                    if (isCapitalReport) {
+                        renderCapitalHeader(table);
+                    } else {
+                        renderCityHeader(table);
+                    }
+                }
+                city.render(table);
+            }
 
-        if (isCapitalReport) {
-            System.out.println("-----------------------------------------------------------------------");
-        } else {
-            System.out.println("------------------------------------------------------------------------------------------------");
-        }
+            @Override
+            public void end() {
+                if (!started) {
+                    table.line("---------------------------------------------------");
+                    table.line("No data found for the report: " + title);
+                    table.line("---------------------------------------------------");
+                } else if (isCapitalReport) {
+                    table.line("-----------------------------------------------------------------------");
+                } else {
+                    table.line("------------------------------------------------------------------------------------------------");
+                }
+                table.flush();
+            }
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,783 @@
+package com.napier.sem;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A small, self-contained JDBC connection pool used by {@link App}.
+ * Each report leases a connection for the duration of its query and returns it
+ * by calling {@code close()}, so several reports can run at the same time without
+ * opening a fresh physical connection each time.
+ * <p>
+ * Supports a minimum/maximum pool size, idle eviction, validation on borrow and in the
+ * background, and leak detection (connections held longer than a threshold are reported on System.err).
+ * <p>
+ * The pool survives database restarts: connections that failed or no longer validate are
+ * discarded, and while the database is unreachable a borrower keeps trying to open a new
+ * connection, with exponential backoff and jitter, for up to the borrow timeout.
+ * <p>
+ * Each physical connection also keeps its prepared statements open, keyed by SQL text:
+ * preparing the same SQL again on a later lease reuses the statement (only parameters are
+ * rebound), and closing it hands it back to the cache instead of closing it.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+    /** Default number of connections kept open even when idle. */
+    public static final int DEFAULT_MIN_SIZE = 2;
+    /** Default upper bound on open connections. */
+    public static final int DEFAULT_MAX_SIZE = 10;
+    /** Default time an idle connection above the minimum is kept before being closed. */
+    public static final long DEFAULT_IDLE_TIMEOUT_MS = 60_000;
+    /** Default time a lease may be held before it is reported as a possible leak. */
+    public static final long DEFAULT_LEAK_THRESHOLD_MS = 30_000;
+    /** Default time a caller waits for a free connection when the pool is exhausted. */
+    public static final long DEFAULT_BORROW_TIMEOUT_MS = 10_000;
+    /** Default number of prepared statements kept open per connection (the reports use fewer distinct SQL strings). */
+    public static final int DEFAULT_STATEMENT_CACHE_SIZE = 64;
+
+    /** Connections returned more recently than this are handed out again without a validation round trip. */
+    private static final long VALIDATION_BYPASS_MS = 500;
+    /** Timeout passed to {@link Connection#isValid(int)}. */
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /** Opens a new physical connection (DriverManager by default, replaceable for tests). */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection open() throws SQLException;
+    }
+
+    private final ConnectionFactory factory;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final long borrowTimeoutMillis;
+
+    /** Idle connections, most recently returned first (LIFO keeps the hottest connections in use). */
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    /** Connections currently leased out. */
+    private final Set<PooledConnection> leased = ConcurrentHashMap.newKeySet();
+    /** One permit per connection that may still be leased. */
+    private final Semaphore permits;
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+    /** How often idle connections are validated in the background. */
+    private final long validationIntervalMillis;
+    /** false from a failed connection attempt or validation until a connection succeeds again. */
+    private volatile boolean healthy = true;
+    /** When a connection last failed; idle connections returned before that are validated before reuse. */
+    private volatile long lastFailure = 0;
+
+    /** Prepared statements cached per connection; 0 disables statement caching. */
+    private volatile int statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+    /** prepareStatement calls answered from a connection's statement cache. */
+    private final AtomicLong statementReuses = new AtomicLong();
+    /** prepareStatement calls that had to prepare a new statement. */
+    private final AtomicLong statementPrepares = new AtomicLong();
+
+    /**
+     * Creates a pool against a JDBC URL using the default sizing and timeouts.
+     */
+    public ConnectionPool(String url, String user, String password) throws SQLException {
+        this(() -> DriverManager.getConnection(url, user, password),
+                DEFAULT_MIN_SIZE, DEFAULT_MAX_SIZE,
+                DEFAULT_IDLE_TIMEOUT_MS, DEFAULT_LEAK_THRESHOLD_MS, DEFAULT_BORROW_TIMEOUT_MS);
+    }
+
+    /**
+     * Creates a pool and eagerly opens {@code minSize} connections.
+     * @throws SQLException if the initial connections cannot be opened (e.g. the database is not up yet).
+     */
+    public ConnectionPool(ConnectionFactory factory, int minSize, int maxSize,
+                          long idleTimeoutMillis, long leakThresholdMillis, long borrowTimeoutMillis) throws SQLException {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.factory = factory;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        // Open the minimum up front so a dead database is detected by the caller immediately
+        try {
+            for (int i = 0; i < minSize; i++) {
+                idle.push(new PooledConnection(factory.open()));
+            }
+        } catch (SQLException e) {
+            closeAll(idle);
+            throw e;
+        }
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "connection-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1_000, Math.min(idleTimeoutMillis, leakThresholdMillis) / 2);
+        this.validationIntervalMillis = period;
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leases a connection from the pool. Calling {@code close()} on the returned
+     * connection hands it back to the pool instead of closing the socket.
+     * @return A validated connection.
+     * @throws SQLException if the pool is closed, exhausted for longer than the borrow timeout,
+     *                      or a new connection cannot be opened within the borrow timeout.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (closed) throw new SQLException("Connection pool is closed.");
+        long deadline = System.currentTimeMillis() + borrowTimeoutMillis;
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                        + "ms waiting for a pooled connection (max " + maxSize + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a pooled connection.", e);
+        }
+
+        try {
+            PooledConnection pc;
+            while (true) {
+                synchronized (idle) {
+                    pc = idle.poll();
+                }
+                if (pc == null) {
+                    pc = new PooledConnection(open(deadline));
+                    break;
+                }
+                if (isUsable(pc)) break;
+                closeQuietly(pc);
+            }
+            leased.add(pc);
+            return pc.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /** Not supported: the pool's credentials are fixed at construction. */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("ConnectionPool does not support per-call credentials.");
+    }
+
+    /**
+     * Closes all idle connections and stops housekeeping. Leased connections are
+     * closed as soon as they are returned.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        synchronized (idle) {
+            closeAll(idle);
+        }
+    }
+
+    /** @return Number of connections currently leased out. */
+    public int getActiveCount() {
+        return leased.size();
+    }
+
+    /** @return Number of open connections waiting in the pool. */
+    public int getIdleCount() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+
+    /** @return The maximum number of connections this pool will open. */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return false while the database is unreachable: from a failed connection attempt or
+     * background validation until a connection succeeds again.
+     */
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Whether an exception means the connection itself failed (SQLState class 08, or a
+     * recoverable/transient connection exception) rather than the statement.
+     */
+    public static boolean isConnectionFailure(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLRecoverableException || t instanceof SQLTransientConnectionException) return true;
+            if (t instanceof SQLException) {
+                String state = ((SQLException) t).getSQLState();
+                if (state != null && state.startsWith("08")) return true;
+            }
+        }
+        return false;
+    }
+
+    /** @return true once {@link #close()} has been called. */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Sets how many prepared statements each connection keeps open for reuse
+     * (least recently used ones are closed beyond that). 0 turns statement caching off.
+     */
+    public void setStatementCacheSize(int size) {
+        this.statementCacheSize = Math.max(0, size);
+    }
+
+    /** @return Number of prepared statements kept open per connection. */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+
+    /** @return Number of prepareStatement calls that reused a cached statement. */
+    public long getStatementReuseCount() {
+        return statementReuses.get();
+    }
+
+    /** @return Number of prepareStatement calls that prepared a new statement. */
+    public long getStatementPrepareCount() {
+        return statementPrepares.get();
+    }
+
+    // --- Internal lifecycle ---
+
+    /**
+     * Opens a physical connection. While the database is unreachable (e.g. restarting) it
+     * keeps trying with backoff until the deadline, so a report started during a restart
+     * waits for the database instead of failing straight away.
+     */
+    private Connection open(long deadline) throws SQLException {
+        Backoff backoff = new Backoff();
+        while (true) {
+            try {
+                Connection physical = factory.open();
+                healthy = true;
+                return physical;
+            } catch (SQLException e) {
+                if (!isConnectionFailure(e)) throw e;
+                healthy = false;
+                lastFailure = System.currentTimeMillis();
+                long wait = backoff.nextDelayMillis();
+                if (closed || System.currentTimeMillis() + wait > deadline) throw e;
+                try {
+                    Thread.sleep(wait);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Validation on borrow, skipped for connections that were returned a moment ago
+     * (unless a connection has failed since).
+     */
+    private boolean isUsable(PooledConnection pc) {
+        try {
+            if (pc.physical.isClosed()) return false;
+            if (System.currentTimeMillis() - pc.lastReturned < VALIDATION_BYPASS_MS
+                    && pc.lastReturned > lastFailure) return true;
+            return pc.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /** Called by a lease's {@code close()}: resets state and puts the connection back. */
+    private void giveBack(PooledConnection pc) {
+        leased.remove(pc);
+        try {
+            boolean reusable = !pc.broken && !pc.physical.isClosed();
+            if (reusable && !pc.physical.getAutoCommit()) {
+                pc.physical.rollback();
+                pc.physical.setAutoCommit(true);
+            }
+            if (reusable && !closed) {
+                pc.lastReturned = System.currentTimeMillis();
+                synchronized (idle) {
+                    idle.push(pc);
+                }
+            } else {
+                closeQuietly(pc);
+            }
+        } catch (SQLException e) {
+            closeQuietly(pc);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /** Periodic task: idle eviction, background validation, topping up to the minimum, and leak detection. */
+    private void houseKeep() {
+        validateIdle();
+        long now = System.currentTimeMillis();
+        List<PooledConnection> evicted = new ArrayList<>();
+        synchronized (idle) {
+            // Oldest returns sit at the tail of the deque
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && idle.size() + leased.size() > minSize) {
+                PooledConnection pc = it.next();
+                if (now - pc.lastReturned > idleTimeoutMillis) {
+                    it.remove();
+                    evicted.add(pc);
+                }
+            }
+        }
+        closeAll(evicted);
+
+        while (!closed && getIdleCount() + leased.size() < minSize) {
+            try {
+                PooledConnection pc = new PooledConnection(factory.open());
+                healthy = true;
+                synchronized (idle) {
+                    idle.push(pc);
+                }
+            } catch (SQLException e) {
+                if (isConnectionFailure(e)) {
+                    healthy = false;
+                    lastFailure = System.currentTimeMillis();
+                }
+                System.err.println("Connection pool: could not top up to minimum size: " + e.getMessage());
+                break;
+            }
+        }
+
+        for (PooledConnection pc : leased) {
+            Lease lease = pc.currentLease;
+            if (lease != null && !lease.leakReported && now - lease.borrowedAt > leakThresholdMillis) {
+                lease.leakReported = true;
+                System.err.println("Connection pool: possible connection leak, leased for "
+                        + (now - lease.borrowedAt) + "ms by " + lease.borrowSite());
+            }
+        }
+    }
+
+    /**
+     * Validates connections that have been idle for a validation interval, so connections a
+     * database restart (or wait_timeout) killed are dropped before a report borrows them.
+     * They are taken out of the pool while being checked, so no borrower can get one meanwhile.
+     */
+    private void validateIdle() {
+        long cutoff = System.currentTimeMillis() - validationIntervalMillis;
+        List<PooledConnection> stale = new ArrayList<>();
+        synchronized (idle) {
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext()) {
+                PooledConnection pc = it.next();
+                if (pc.lastReturned < cutoff) {
+                    it.remove();
+                    stale.add(pc);
+                }
+            }
+        }
+        int failed = 0;
+        List<PooledConnection> valid = new ArrayList<>();
+        for (PooledConnection pc : stale) {
+            boolean ok;
+            try {
+                ok = !pc.physical.isClosed() && pc.physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                ok = false;
+            }
+            if (ok) {
+                valid.add(pc);
+            } else {
+                failed++;
+                closeQuietly(pc);
+            }
+        }
+        synchronized (idle) {
+            // Back at the tail: these are the least recently used connections
+            for (PooledConnection pc : valid) {
+                if (closed) {
+                    closeQuietly(pc);
+                } else {
+                    idle.addLast(pc);
+                }
+            }
+        }
+        if (failed > 0) {
+            lastFailure = System.currentTimeMillis();
+            if (valid.isEmpty()) healthy = false;
+            System.err.println("Connection pool: dropped " + failed + " idle connection(s) that failed validation.");
+        } else if (!valid.isEmpty()) {
+            healthy = true;
+        }
+    }
+
+    private static void closeAll(Iterable<PooledConnection> connections) {
+        for (PooledConnection pc : connections) {
+            closeQuietly(pc);
+        }
+        if (connections instanceof Deque) {
+            ((Deque<?>) connections).clear();
+        }
+    }
+
+    private static void closeQuietly(PooledConnection pc) {
+        try {
+            pc.physical.close();
+        } catch (SQLException e) {
+            System.err.println("Connection pool: error closing connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool.
+     */
+    private final class PooledConnection {
+        final Connection physical;
+        volatile long lastReturned = System.currentTimeMillis();
+        volatile Lease currentLease;
+        /** Set when a statement on it failed with a connection error; it is closed when returned. */
+        volatile boolean broken;
+        /** Open statements keyed by prepareStatement arguments, least recently used first. */
+        final LinkedHashMap<List<Object>, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * prepareStatement through the cache: reuses an idle statement prepared with the same
+         * arguments, otherwise prepares one and caches it (evicting the least recently used).
+         */
+        PreparedStatement prepare(Lease lease, Connection handle, Method method, Object[] args) throws Throwable {
+            int limit = statementCacheSize;
+            List<Object> key = Arrays.asList(args);
+            synchronized (statements) {
+                CachedStatement cached = limit > 0 ? statements.get(key) : null;
+                if (cached != null && !cached.inUse) {
+                    cached.inUse = true;
+                    statementReuses.incrementAndGet();
+                    return cached.checkOut(lease, handle);
+                }
+            }
+
+            PreparedStatement statement = (PreparedStatement) invokePhysical(physical, method, args);
+            statementPrepares.incrementAndGet();
+            if (limit <= 0) return statement;
+            synchronized (statements) {
+                if (statements.containsKey(key)) {
+                    // The cached one is busy (same SQL prepared twice on one lease): hand out an uncached one
+                    return statement;
+                }
+                CachedStatement cached = new CachedStatement(this, key, statement);
+                cached.inUse = true;
+                statements.put(key, cached);
+                evictStatements(limit);
+                return cached.checkOut(lease, handle);
+            }
+        }
+
+        /** Called when a statement handle is closed: keeps the statement for reuse unless it failed. */
+        void release(CachedStatement cached) {
+            synchronized (statements) {
+                cached.inUse = false;
+                try {
+                    if (!cached.broken && !cached.physical.isClosed()) {
+                        cached.physical.clearParameters();
+                        if (statements.get(cached.key) == cached) return;
+                    }
+                } catch (SQLException e) {
+                    // Fall through and drop it
+                }
+                if (statements.get(cached.key) == cached) statements.remove(cached.key);
+            }
+            closeStatementQuietly(cached.physical);
+        }
+
+        /** Closes least recently used idle statements until at most limit are cached. */
+        private void evictStatements(int limit) {
+            Iterator<CachedStatement> it = statements.values().iterator();
+            while (statements.size() > limit && it.hasNext()) {
+                CachedStatement eldest = it.next();
+                if (!eldest.inUse) {
+                    it.remove();
+                    closeStatementQuietly(eldest.physical);
+                }
+            }
+        }
+
+        Connection lease() {
+            Lease lease = new Lease(this);
+            currentLease = lease;
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(), new Class<?>[]{Connection.class}, lease);
+        }
+    }
+
+    /**
+     * One borrow of a pooled connection. A fresh handle is created per lease so a stale
+     * reference kept after {@code close()} cannot interfere with the next borrower.
+     */
+    private final class Lease implements InvocationHandler {
+        final PooledConnection owner;
+        final long borrowedAt = System.currentTimeMillis();
+        /** Captured on borrow so leak reports can point at the offending caller. */
+        final Throwable borrowTrace = new Throwable();
+        volatile boolean returned = false;
+        volatile boolean leakReported = false;
+        /** Statements opened on this lease and not yet closed; guarded by this. */
+        final List<Statement> openStatements = new ArrayList<>();
+
+        Lease(PooledConnection owner) {
+            this.owner = owner;
+        }
+
+        String borrowSite() {
+            for (StackTraceElement e : borrowTrace.getStackTrace()) {
+                if (!e.getClassName().startsWith(ConnectionPool.class.getName())) {
+                    return e.toString();
+                }
+            }
+            return "unknown caller";
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (!returned) {
+                            // Before marking it returned, which makes the handles report closed
+                            closeOpenStatements();
+                            returned = true;
+                            owner.currentLease = null;
+                            giveBack(owner);
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || owner.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + owner.physical + (returned ? ", returned" : "") + "]";
+                case "unwrap":
+                    // Never hand out the physical connection: it would outlive the lease
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    throw new SQLException("A pooled connection is not a wrapper for " + ((Class<?>) args[0]).getName());
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                default:
+                    if (returned) {
+                        throw new SQLException("Connection has already been returned to the pool.");
+                    }
+                    Object result = method.getName().equals("prepareStatement")
+                            ? owner.prepare(this, (Connection) proxy, method, args)
+                            : invokePhysical(owner.physical, method, args);
+                    if (result instanceof Statement) track((Statement) result);
+                    return result;
+            }
+        }
+
+        /** Remembers a statement opened on this lease, forgetting the ones already closed. */
+        private synchronized void track(Statement statement) {
+            openStatements.removeIf(ConnectionPool::isClosedQuietly);
+            openStatements.add(statement);
+        }
+
+        /** Called on return: cached statements go back to the cache, the others are closed. */
+        private void closeOpenStatements() {
+            for (Statement statement : openStatements) {
+                if (isClosedQuietly(statement)) continue;
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    // The statement is dropped either way
+                }
+            }
+            openStatements.clear();
+        }
+    }
+
+    /**
+     * A prepared statement kept open on its connection between leases.
+     */
+    private static final class CachedStatement {
+        final PooledConnection owner;
+        final List<Object> key;
+        final PreparedStatement physical;
+        /** Guarded by owner.statements. */
+        boolean inUse;
+        /** Set when the statement threw, so it is closed instead of reused. */
+        volatile boolean broken;
+
+        CachedStatement(PooledConnection owner, List<Object> key, PreparedStatement physical) {
+            this.owner = owner;
+            this.key = key;
+            this.physical = physical;
+        }
+
+        /**
+         * A fresh handle per checkout, so a stale reference cannot use the statement after close()
+         * or after its lease has been returned.
+         */
+        PreparedStatement checkOut(Lease lease, Connection connection) {
+            return (PreparedStatement) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new StatementHandle(this, lease, connection));
+        }
+    }
+
+    /**
+     * The caller's view of a cached statement: close() gives the statement back to the cache.
+     * It is unusable once closed or once its lease has been returned.
+     */
+    private static final class StatementHandle implements InvocationHandler {
+        final CachedStatement cached;
+        final Lease lease;
+        final Connection connection;
+        volatile boolean closed = false;
+
+        StatementHandle(CachedStatement cached, Lease lease, Connection connection) {
+            this.cached = cached;
+            this.lease = lease;
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (closed) return null;
+                        closed = true;
+                    }
+                    cached.owner.release(cached);
+                    return null;
+                case "isClosed":
+                    return closed || lease.returned || cached.physical.isClosed();
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.physical + (closed ? ", closed" : "") + "]";
+                case "unwrap":
+                    // The physical statement would lead back to the physical connection
+                    if (((Class<?>) args[0]).isInstance(proxy)) return proxy;
+                    throw new SQLException("A cached statement is not a wrapper for " + ((Class<?>) args[0]).getName());
+                case "isWrapperFor":
+                    return ((Class<?>) args[0]).isInstance(proxy);
+                default:
+                    if (closed) throw new SQLException("Statement has already been closed.");
+                    if (lease.returned) throw new SQLException("Statement's connection has already been returned to the pool.");
+                    try {
+                        return method.invoke(cached.physical, args);
+                    } catch (InvocationTargetException e) {
+                        if (e.getCause() instanceof SQLException) {
+                            cached.broken = true;
+                            if (isConnectionFailure((SQLException) e.getCause())) cached.owner.broken = true;
+                        }
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+
+    private static Object invokePhysical(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static boolean isClosedQuietly(Statement statement) {
+        try {
+            return statement.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static void closeStatementQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            // The connection is usually gone already; nothing else to release
+        }
+    }
+
+    // --- DataSource boilerplate ---
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // Logging goes to System.err like the rest of the application
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("ConnectionPool does not use java.util.logging.");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException("ConnectionPool is not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
@@ -1,8 +1,7 @@
 package com.napier.sem;
 
+import java.io.PrintStream;
 import java.util.List;
-import java.util.Locale;
-import java.text.NumberFormat;
 
 /**
  * Represents a country record from the world database,
@@ -44,26 +43,54 @@ public class Country {
      * Prints the report header for Country Reports.
      */
     public static void printHeader() {
-        System.out.println("-------------------------------------------------------------------------------------------------------------------");
-        System.out.printf("| %-4s | %-40s | %-15s | %-20s | %-15s | %-15s |\n",
-                "Code", "Name", "Continent", "Region", "Population", "Capital");
-        System.out.println("-------------------------------------------------------------------------------------------------------------------");
+        printHeader(System.out);
+    }
+
+    /**
+     * Prints the report header for Country Reports to the given stream.
+     */
+    public static void printHeader(PrintStream out) {
+        TableRenderer table = new TableRenderer(out);
+        renderHeader(table);
+        table.flush();
+    }
+
+    /** Column widths of the Country report: Code, Name, Continent, Region, Population, Capital. */
+    static void renderHeader(TableRenderer table) {
+        table.line("-------------------------------------------------------------------------------------------------------------------");
+        table.beginRow().col("Code", 4).col("Name", 40).col("Continent", 15).col("Region", 20)
+                .col("Population", 15).col("Capital", 15).endRow();
+        table.line("-------------------------------------------------------------------------------------------------------------------");
     }
 
     /**
      * Prints the details of a single Country record.
      */
     public void print() {
-        // Use a NumberFormat to add commas to the population number
-        NumberFormat nf = NumberFormat.getInstance(Locale.US);
+        print(System.out);
+    }
 
-        System.out.printf("| %-4s | %-40s | %-15s | %-20s | %-15s | %-15s |\n",
-                this.Code,
-                this.Name,
-                this.Continent,
-                this.Region,
-                nf.format(this.Population),
-                this.Capital);
+    /**
+     * Prints the details of a single Country record to the given stream.
+     */
+    public void print(PrintStream out) {
+        TableRenderer table = new TableRenderer(out);
+        render(table);
+        table.flush();
+    }
+
+    /**
+     * Appends this country as one table row (population with thousands separators).
+     */
+    void render(TableRenderer table) {
+        table.beginRow()
+                .col(this.Code, 4)
+                .col(this.Name, 40)
+                .col(this.Continent, 15)
+                .col(this.Region, 20)
+                .colGrouped(this.Population, 15)
+                .col(this.Capital, 15)
+                .endRow();
     }
 
     /**
@@ -72,21 +99,60 @@ public class Country {
      * @param title The title for the report.
      */
     public static void printReport(List<Country> countries, String title) {
-        if (countries == null || countries.isEmpty()) {
-            System.out.println("---------------------------------------------------");
-            System.out.println("No countries found for the report: " + title);
-            System.out.println("---------------------------------------------------");
-            return;
+        printReport(countries, title, System.out);
+    }
+
+    /**
+     * Prints a formatted list of Country objects to the given stream.
+     * @param countries The list of Country objects to print.
+     * @param title The title for the report.
+     * @param out Where the report is written.
+     */
+    public static void printReport(List<Country> countries, String title, PrintStream out) {
+        RowSink<Country> sink = reportSink(title, out);
+        if (countries != null) {
+            for (Country country : countries) {
+                sink.accept(country);
+            }
         }
+        sink.end();
+    }
+
+    /**
+     * Returns a sink that writes a Country report row by row as rows arrive: the title and
+     * header are written with the first row, the closing line (or the "No countries" message) on end().
+     * The output is the same as printReport for the same rows.
+     * @param title The title for the report.
+     * @param out Where the report is written (console, file, socket...).
+     */
+    public static RowSink<Country> reportSink(String title, PrintStream out) {
+        TableRenderer table = new TableRenderer(out);
+        return new RowSink<Country>() {
+            private boolean started = false;
 
-        System.out.println("\n===================================================================================================================");
-        System.out.println(" " + title);
-        System.out.println("===================================================================================================================");
+            @Override
+            public void accept(Country country) {
+                if (!started) {
+                    started = true;
+                    table.line("\n===================================================================================================================");
+                    table.line(" " + title);
+                    table.line("===================================================================================================================");
+                    renderHeader(table);
+                }
+                country.render(table);
+            }
 
-        printHeader();
-        for (Country country : countries) {
-            country.print();
-        }
-        System.out.println("-------------------------------------------------------------------------------------------------------------------");
+            @Override
+            public void end() {
+                if (!started) {
+                    table.line("---------------------------------------------------");
+                    table.line("No countries found for the report: " + title);
+                    table.line("---------------------------------------------------");
+                } else {
+                    table.line("-------------------------------------------------------------------------------------------------------------------");
+                }
+                table.flush();
+            }
+        };
     }
-}
\ No newline at end of file
+}
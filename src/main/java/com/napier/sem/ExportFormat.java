@@ -0,0 +1,86 @@
+package com.napier.sem;
+
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.Locale;
+
+/**
+ * Machine-readable output formats for reports, as an alternative to the console table.
+ * Each format creates a {@link ReportExporter} writing to a byte channel.
+ */
+public enum ExportFormat {
+    /** RFC 4180 CSV: a header row with the field names, then one record per row. */
+    CSV("csv", "text/csv") {
+        @Override
+        public ReportExporter open(WritableByteChannel out) {
+            return new ReportExporter.Csv(out);
+        }
+    },
+    /** JSON Lines: one JSON object per row, with the field names of ReportResult.toJson(). */
+    JSONL("jsonl", "application/x-ndjson") {
+        @Override
+        public ReportExporter open(WritableByteChannel out) {
+            return new ReportExporter.JsonLines(out);
+        }
+    },
+    /** A Markdown heading with the report title, followed by a table. */
+    MARKDOWN("md", "text/markdown") {
+        @Override
+        public ReportExporter open(WritableByteChannel out) {
+            return new ReportExporter.Markdown(out);
+        }
+    };
+
+    private final String extension;
+    private final String contentType;
+
+    ExportFormat(String extension, String contentType) {
+        this.extension = extension;
+        this.contentType = contentType;
+    }
+
+    /**
+     * Creates an exporter writing this format.
+     * @param out Where the reports are written (not closed by the exporter).
+     */
+    public abstract ReportExporter open(WritableByteChannel out);
+
+    /** @return File name extension without the dot, e.g. "csv". */
+    public String extension() {
+        return extension;
+    }
+
+    /** @return HTTP content type, e.g. "text/csv". */
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * Parses a format name: "csv", "jsonl" (or "ndjson"), "md" (or "markdown"), case-insensitive.
+     * @return The format, or null if the name is not an export format.
+     */
+    public static ExportFormat parse(String name) {
+        if (name == null) return null;
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "csv":
+                return CSV;
+            case "jsonl":
+            case "ndjson":
+                return JSONL;
+            case "md":
+            case "markdown":
+                return MARKDOWN;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return The format a file name's extension stands for, or null (e.g. for ".txt").
+     */
+    public static ExportFormat forFile(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? null : parse(name.substring(dot + 1));
+    }
+}
@@ -0,0 +1,396 @@
+package com.napier.sem;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Speaker estimates for every language, precomputed once from countrylanguage joined to
+ * country.Population, for UC32 and the language queries built on it.
+ * <p>
+ * Speakers of a language in a country are Population * Percentage / 100, summed exactly in
+ * thousandths of a person (Percentage has one decimal). The index holds those sums per
+ * language for the world, every continent and every region, with each area's languages
+ * already ranked, plus each language's countries ranked by speakers. A query is therefore
+ * an array lookup or the first k entries of a ranking: no join and no scan of the rows.
+ * Language names compare like the SQL path (see WorldSnapshot.collationKey); the spelling
+ * reported is that of the first row, as GROUP BY does. Immutable once built.
+ */
+public final class LanguageIndex {
+    /** The languages of UC32. */
+    public static final List<String> MAJOR_LANGUAGES = List.of("Chinese", "English", "Hindi", "Spanish", "Arabic");
+
+    /** An index with no languages and no population. */
+    public static final LanguageIndex EMPTY = new Builder().build();
+
+    /** One country's speakers of a language (see {@link #countries(String)}). */
+    public static final class CountryShare {
+        /** Country name */
+        public final String Country;
+        /** Share of the country's population speaking the language, in percent */
+        public final double Percentage;
+        /** Estimated speakers in the country */
+        public final double Speakers;
+
+        CountryShare(String country, double percentage, double speakers) {
+            this.Country = country;
+            this.Percentage = percentage;
+            this.Speakers = speakers;
+        }
+    }
+
+    /** The world, a continent or a region: its population and its languages' speakers. */
+    private static final class Area {
+        final String name;
+        long population;
+        /** Speakers in thousandths, by language id. */
+        final long[] thousandths;
+        /** Whether the area has countrylanguage rows for a language, by language id. */
+        final boolean[] present;
+        /** Ids of the languages spoken in the area, most speakers first. */
+        int[] ranked;
+
+        Area(String name, int languages) {
+            this.name = name;
+            this.thousandths = new long[languages];
+            this.present = new boolean[languages];
+        }
+    }
+
+    private final String[] languageNames;
+    private final Map<String, Integer> languageIds;
+    private final Area world;
+    private final Map<String, Area> continents;
+    private final Map<String, Area> regions;
+    // Countries of each language, most speakers first: entries shareStart[id] .. shareStart[id + 1] - 1
+    private final int[] shareStart;
+    private final String[] shareCountry;
+    private final long[] sharePopulation;
+    private final int[] shareTenths;
+
+    private LanguageIndex(String[] languageNames, Map<String, Integer> languageIds, Area world,
+                          Map<String, Area> continents, Map<String, Area> regions,
+                          int[] shareStart, String[] shareCountry, long[] sharePopulation, int[] shareTenths) {
+        this.languageNames = languageNames;
+        this.languageIds = languageIds;
+        this.world = world;
+        this.continents = continents;
+        this.regions = regions;
+        this.shareStart = shareStart;
+        this.shareCountry = shareCountry;
+        this.sharePopulation = sharePopulation;
+        this.shareTenths = shareTenths;
+    }
+
+    /**
+     * Builds the index from a snapshot's country and countrylanguage rows.
+     * @param snapshot The loaded world tables.
+     * @return The index.
+     */
+    public static LanguageIndex of(WorldSnapshot snapshot) {
+        Builder builder = new Builder();
+        for (WorldSnapshot.CountryRow c : snapshot.countryRows()) {
+            builder.country(c.code, c.name, c.continent, c.region, c.population);
+        }
+        for (WorldSnapshot.LanguageRow l : snapshot.languageRows()) {
+            builder.language(l.country.code, l.language, l.percentTenths);
+        }
+        return builder.build();
+    }
+
+    // =========================================================================
+    // Building
+    // =========================================================================
+
+    /**
+     * Collects country and countrylanguage rows; countries must be added before their languages.
+     */
+    public static final class Builder {
+        private final Map<String, Integer> countryRows = new HashMap<>();
+        private final List<String> countryNames = new ArrayList<>();
+        private final List<String> countryContinents = new ArrayList<>();
+        private final List<String> countryRegions = new ArrayList<>();
+        private final List<Long> countryPopulations = new ArrayList<>();
+        private final List<String> languageNames = new ArrayList<>();
+        private final Map<String, Integer> languageIds = new HashMap<>();
+        /** (country row, language id, percentage in tenths) per countrylanguage row. */
+        private final List<int[]> rows = new ArrayList<>();
+
+        /**
+         * Adds a country row (again for the same code is ignored, e.g. from a LEFT JOIN).
+         */
+        public Builder country(String code, String name, String continent, String region, long population) {
+            if (countryRows.putIfAbsent(code, countryNames.size()) == null) {
+                countryNames.add(name);
+                countryContinents.add(continent);
+                countryRegions.add(region);
+                countryPopulations.add(population);
+            }
+            return this;
+        }
+
+        /**
+         * Adds a countrylanguage row.
+         * @param countryCode Code of a country already added.
+         * @param language Language name.
+         * @param percentTenths Percentage in tenths (12.5% is 125).
+         * @throws IllegalArgumentException if the country was not added.
+         */
+        public Builder language(String countryCode, String language, int percentTenths) {
+            Integer country = countryRows.get(countryCode);
+            if (country == null) throw new IllegalArgumentException("Unknown country code " + countryCode);
+            String key = StringDictionary.LANGUAGES.collationKey(language);
+            Integer id = languageIds.get(key);
+            if (id == null) {
+                id = languageNames.size();
+                languageIds.put(key, id);
+                languageNames.add(StringDictionary.LANGUAGES.intern(language));
+            }
+            rows.add(new int[]{country, id, percentTenths});
+            return this;
+        }
+
+        /** @return The index. */
+        public LanguageIndex build() {
+            int languages = languageNames.size();
+            Area world = new Area(null, languages);
+            Map<String, Area> continents = new HashMap<>();
+            Map<String, Area> regions = new HashMap<>();
+            Area[] continentOf = new Area[countryNames.size()];
+            Area[] regionOf = new Area[countryNames.size()];
+            for (int c = 0; c < countryNames.size(); c++) {
+                continentOf[c] = area(continents, countryContinents.get(c), languages);
+                regionOf[c] = area(regions, countryRegions.get(c), languages);
+                long population = countryPopulations.get(c);
+                world.population += population;
+                continentOf[c].population += population;
+                regionOf[c].population += population;
+            }
+
+            // Per area sums, and the countries of each language ordered by speakers
+            int[] shareStart = new int[languages + 1];
+            for (int[] row : rows) {
+                long speakers = countryPopulations.get(row[0]) * row[2];
+                for (Area area : new Area[]{world, continentOf[row[0]], regionOf[row[0]]}) {
+                    area.thousandths[row[1]] += speakers;
+                    area.present[row[1]] = true;
+                }
+                shareStart[row[1] + 1]++;
+            }
+            for (int id = 0; id < languages; id++) shareStart[id + 1] += shareStart[id];
+            int[][] byLanguage = rows.toArray(new int[0][]);
+            Arrays.sort(byLanguage, Comparator.<int[]>comparingInt(r -> r[1])
+                    .thenComparing(r -> -countryPopulations.get(r[0]) * r[2])
+                    .thenComparing(r -> WorldSnapshot.collationKey(countryNames.get(r[0]))));
+            String[] shareCountry = new String[byLanguage.length];
+            long[] sharePopulation = new long[byLanguage.length];
+            int[] shareTenths = new int[byLanguage.length];
+            for (int i = 0; i < byLanguage.length; i++) {
+                shareCountry[i] = countryNames.get(byLanguage[i][0]);
+                sharePopulation[i] = countryPopulations.get(byLanguage[i][0]);
+                shareTenths[i] = byLanguage[i][2];
+            }
+
+            String[] names = languageNames.toArray(new String[0]);
+            for (Area area : allAreas(world, continents, regions)) {
+                area.ranked = rank(area.thousandths, area.present, names);
+            }
+            return new LanguageIndex(names, new HashMap<>(languageIds), world, continents, regions,
+                    shareStart, shareCountry, sharePopulation, shareTenths);
+        }
+
+        private static Area area(Map<String, Area> areas, String name, int languages) {
+            return areas.computeIfAbsent(WorldSnapshot.collationKey(name), k -> new Area(name, languages));
+        }
+
+        private static List<Area> allAreas(Area world, Map<String, Area> continents, Map<String, Area> regions) {
+            List<Area> areas = new ArrayList<>(continents.values());
+            areas.addAll(regions.values());
+            areas.add(world);
+            return areas;
+        }
+
+        /** Language ids present in the area, most speakers first, then by name. */
+        private static int[] rank(long[] thousandths, boolean[] present, String[] names) {
+            List<Integer> ids = new ArrayList<>();
+            for (int id = 0; id < present.length; id++) {
+                if (present[id]) ids.add(id);
+            }
+            ids.sort(Comparator.<Integer>comparingLong(id -> -thousandths[id])
+                    .thenComparing(id -> StringDictionary.LANGUAGES.collationKey(names[id])));
+            return ids.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * Combines indexes built over disjoint sets of countries (e.g. one per continent shard)
+     * into the index of all of them: the same answers as one index built from all the rows.
+     * @param parts The indexes to combine.
+     * @return The combined index.
+     */
+    public static LanguageIndex merge(List<LanguageIndex> parts) {
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> ids = new HashMap<>();
+        for (LanguageIndex part : parts) {
+            for (String name : part.languageNames) {
+                if (ids.putIfAbsent(StringDictionary.LANGUAGES.collationKey(name), names.size()) == null) {
+                    names.add(name);
+                }
+            }
+        }
+        int languages = names.size();
+        Area world = new Area(null, languages);
+        Map<String, Area> continents = new HashMap<>();
+        Map<String, Area> regions = new HashMap<>();
+        // (part, share entry) per language, ranked below
+        List<List<int[]>> shares = new ArrayList<>(languages);
+        for (int id = 0; id < languages; id++) shares.add(new ArrayList<>());
+
+        for (int p = 0; p < parts.size(); p++) {
+            LanguageIndex part = parts.get(p);
+            int[] toMerged = new int[part.languageNames.length];
+            for (int id = 0; id < toMerged.length; id++) {
+                toMerged[id] = ids.get(StringDictionary.LANGUAGES.collationKey(part.languageNames[id]));
+                for (int i = part.shareStart[id]; i < part.shareStart[id + 1]; i++) {
+                    shares.get(toMerged[id]).add(new int[]{p, i});
+                }
+            }
+            addArea(world, part.world, toMerged);
+            for (Area a : part.continents.values()) addArea(Builder.area(continents, a.name, languages), a, toMerged);
+            for (Area a : part.regions.values()) addArea(Builder.area(regions, a.name, languages), a, toMerged);
+        }
+
+        int total = 0;
+        for (List<int[]> entries : shares) total += entries.size();
+        int[] shareStart = new int[languages + 1];
+        String[] shareCountry = new String[total];
+        long[] sharePopulation = new long[total];
+        int[] shareTenths = new int[total];
+        int next = 0;
+        for (int id = 0; id < languages; id++) {
+            List<int[]> entries = shares.get(id);
+            entries.sort(Comparator.<int[]>comparingLong(e -> -parts.get(e[0]).sharePopulation[e[1]] * parts.get(e[0]).shareTenths[e[1]])
+                    .thenComparing(e -> WorldSnapshot.collationKey(parts.get(e[0]).shareCountry[e[1]])));
+            shareStart[id] = next;
+            for (int[] e : entries) {
+                LanguageIndex part = parts.get(e[0]);
+                shareCountry[next] = part.shareCountry[e[1]];
+                sharePopulation[next] = part.sharePopulation[e[1]];
+                shareTenths[next] = part.shareTenths[e[1]];
+                next++;
+            }
+        }
+        shareStart[languages] = next;
+
+        String[] nameArray = names.toArray(new String[0]);
+        for (Area area : Builder.allAreas(world, continents, regions)) {
+            area.ranked = Builder.rank(area.thousandths, area.present, nameArray);
+        }
+        return new LanguageIndex(nameArray, ids, world, continents, regions,
+                shareStart, shareCountry, sharePopulation, shareTenths);
+    }
+
+    /** Adds one part's population and speakers to an area, mapping the part's language ids. */
+    private static void addArea(Area into, Area from, int[] toMerged) {
+        into.population += from.population;
+        for (int id = 0; id < toMerged.length; id++) {
+            if (!from.present[id]) continue;
+            into.thousandths[toMerged[id]] += from.thousandths[id];
+            into.present[toMerged[id]] = true;
+        }
+    }
+
+    // =========================================================================
+    // Queries
+    // =========================================================================
+
+    /**
+     * UC32 for any list of languages: world speakers of each one that has rows, most speakers first.
+     * @param languages Language names.
+     * @return One row per known language.
+     */
+    public List<LanguageSpeakers> speakers(List<String> languages) {
+        List<LanguageSpeakers> result = new ArrayList<>(languages.size());
+        boolean[] seen = new boolean[languageNames.length];
+        for (String language : languages) {
+            Integer id = languageIds.get(WorldSnapshot.collationKey(language));
+            if (id == null || seen[id]) continue;
+            seen[id] = true;
+            result.add(row(id, world));
+        }
+        result.sort(Comparator.comparingDouble(s -> -s.Speakers));
+        return result;
+    }
+
+    /**
+     * @param language A language name.
+     * @return Its world speakers and share of the world population, or null if no country speaks it.
+     */
+    public LanguageSpeakers speakers(String language) {
+        Integer id = languageIds.get(WorldSnapshot.collationKey(language));
+        return id == null ? null : row(id, world);
+    }
+
+    /**
+     * The languages with the most speakers in an area. The percentage in each row is the
+     * share of that area's population (the world's for WORLD).
+     * @param scope WORLD, CONTINENT or REGION.
+     * @param name The continent or region (ignored for WORLD).
+     * @param k Maximum number of languages.
+     * @return Up to k rows, most speakers first; empty if the area is unknown.
+     */
+    public List<LanguageSpeakers> topLanguages(ReportScope scope, String name, int k) {
+        Area area;
+        switch (scope) {
+            case WORLD:
+                area = world;
+                break;
+            case CONTINENT:
+                area = continents.get(WorldSnapshot.collationKey(name));
+                break;
+            case REGION:
+                area = regions.get(WorldSnapshot.collationKey(name));
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported language scope: " + scope);
+        }
+        if (area == null) return new ArrayList<>();
+        int count = Math.max(0, Math.min(k, area.ranked.length));
+        List<LanguageSpeakers> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) result.add(row(area.ranked[i], area));
+        return result;
+    }
+
+    /**
+     * The countries where a language is spoken, most speakers first.
+     * @param language A language name.
+     * @return One row per country; empty if no country speaks it.
+     */
+    public List<CountryShare> countries(String language) {
+        Integer id = languageIds.get(WorldSnapshot.collationKey(language));
+        if (id == null) return new ArrayList<>();
+        List<CountryShare> result = new ArrayList<>(shareStart[id + 1] - shareStart[id]);
+        for (int i = shareStart[id]; i < shareStart[id + 1]; i++) {
+            result.add(new CountryShare(shareCountry[i], shareTenths[i] / 10.0,
+                    BigDecimal.valueOf(sharePopulation[i] * shareTenths[i], 3).doubleValue()));
+        }
+        return result;
+    }
+
+    /** @return Number of distinct languages. */
+    public int getLanguageCount() {
+        return languageNames.length;
+    }
+
+    private LanguageSpeakers row(int id, Area area) {
+        BigDecimal speakers = BigDecimal.valueOf(area.thousandths[id], 3);
+        double pct = area.population == 0 ? 0 : speakers.divide(BigDecimal.valueOf(area.population), 9, RoundingMode.HALF_UP)
+                .movePointRight(2).doubleValue();
+        return new LanguageSpeakers(languageNames[id], speakers.doubleValue(), pct);
+    }
+}
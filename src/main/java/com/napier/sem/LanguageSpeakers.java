@@ -1,8 +1,7 @@
 package com.napier.sem;
 
-import java.text.NumberFormat;
+import java.io.PrintStream;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * Represents the data for the Global Language Speakers Report (UC32).
@@ -34,24 +33,51 @@ public class LanguageSpeakers {
      * Prints the report header for Language Speakers Report.
      */
     public static void printHeader() {
-        System.out.println("---------------------------------------------------------------------------------");
-        System.out.printf("| %-15s | %-25s | %-20s |\n",
-                "Language", "Total Speakers (Est.)", "World Pop (%)");
-        System.out.println("---------------------------------------------------------------------------------");
+        printHeader(System.out);
+    }
+
+    /**
+     * Prints the report header for Language Speakers Report to the given stream.
+     */
+    public static void printHeader(PrintStream out) {
+        TableRenderer table = new TableRenderer(out);
+        renderHeader(table);
+        table.flush();
+    }
+
+    /** Column widths: Language, Total Speakers, World Pop (%). */
+    static void renderHeader(TableRenderer table) {
+        table.line("---------------------------------------------------------------------------------");
+        table.beginRow().col("Language", 15).col("Total Speakers (Est.)", 25).col("World Pop (%)", 20).endRow();
+        table.line("---------------------------------------------------------------------------------");
     }
 
     /**
      * Prints the details of a single LanguageSpeakers record.
      */
     public void print() {
-        NumberFormat nf = NumberFormat.getInstance(Locale.US);
-        // Ensure speakers are formatted as a large integer (long) for clarity
-        String formattedSpeakers = nf.format((long) this.Speakers);
+        print(System.out);
+    }
 
-        System.out.printf("| %-15s | %-25s | %-20.4f |\n",
-                this.Language,
-                formattedSpeakers,
-                this.WorldPopulationPercent);
+    /**
+     * Prints the details of a single LanguageSpeakers record to the given stream.
+     */
+    public void print(PrintStream out) {
+        TableRenderer table = new TableRenderer(out);
+        render(table);
+        table.flush();
+    }
+
+    /**
+     * Appends this language as one table row.
+     */
+    void render(TableRenderer table) {
+        // Ensure speakers are formatted as a large integer (long) for clarity
+        table.beginRow()
+                .col(this.Language, 15)
+                .colGrouped((long) this.Speakers, 25)
+                .colDecimal(this.WorldPopulationPercent, 4, 20)
+                .endRow();
     }
 
     /**
@@ -60,21 +86,34 @@ public class LanguageSpeakers {
      * @param title The title for the report.
      */
     public static void printReport(List<LanguageSpeakers> speakers, String title) {
+        printReport(speakers, title, System.out);
+    }
+
+    /**
+     * Prints a formatted list of LanguageSpeakers objects to the given stream.
+     * @param speakers The list of LanguageSpeakers objects to print.
+     * @param title The title for the report.
+     * @param out Where the report is written.
+     */
+    public static void printReport(List<LanguageSpeakers> speakers, String title, PrintStream out) {
+        TableRenderer table = new TableRenderer(out);
         if (speakers == null || speakers.isEmpty()) {
-            System.out.println("---------------------------------------------------");
-            System.out.println("No data found for the report: " + title);
-            System.out.println("---------------------------------------------------");
+            table.line("---------------------------------------------------");
+            table.line("No data found for the report: " + title);
+            table.line("---------------------------------------------------");
+            table.flush();
             return;
         }
 
-        System.out.println("\n=================================================================================");
-        System.out.println(" " + title);
-        System.out.println("=================================================================================");
+        table.line("\n=================================================================================");
+        table.line(" " + title);
+        table.line("=================================================================================");
 
-        printHeader();
+        renderHeader(table);
         for (LanguageSpeakers speaker : speakers) {
-            speaker.print();
+            speaker.render(table);
         }
-        System.out.println("---------------------------------------------------------------------------------");
+        table.line("---------------------------------------------------------------------------------");
+        table.flush();
     }
-}
\ No newline at end of file
+}
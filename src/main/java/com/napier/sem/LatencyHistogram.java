@@ -0,0 +1,113 @@
+package com.napier.sem;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with log-linear buckets, in the style of HdrHistogram.
+ * <p>
+ * Values are recorded in microseconds. Values below 128 get a bucket each; above that every
+ * power of two is split into 64 equal buckets, so any recorded value is reported within about
+ * 1.6% of its true value, from 1 microsecond up to about 19 hours (longer values are clamped).
+ * Recording is one array increment, so it is cheap enough to do on every report.
+ */
+public final class LatencyHistogram {
+    /** log2 of the number of buckets per power of two. */
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** Values below this are counted exactly, one bucket per microsecond. */
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    /** Largest value tracked, in microseconds (2^36 us is about 19 hours). */
+    static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records one duration.
+     * @param nanos Elapsed time in nanoseconds (negative values count as 0).
+     */
+    public void recordNanos(long nanos) {
+        record(Math.max(0, nanos) / 1000);
+    }
+
+    /**
+     * Records one value.
+     * @param micros Elapsed time in microseconds.
+     */
+    public void record(long micros) {
+        long value = Math.min(Math.max(0, micros), MAX_VALUE);
+        counts.incrementAndGet(bucketIndex(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /** @return Number of recorded values. */
+    public long getCount() {
+        return count.get();
+    }
+
+    /** @return Sum of all recorded values, in microseconds. */
+    public long getSum() {
+        return sum.get();
+    }
+
+    /** @return Largest recorded value, in microseconds. */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value below which the given fraction of recorded values fall.
+     * @param percentile Between 0 and 100, e.g. 99.9.
+     * @return The upper bound of the bucket holding that value, in microseconds (never above
+     *         the largest recorded value); 0 when nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = count.get();
+        if (total == 0) return 0;
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(highestValueIn(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Clears all recorded values. Values recorded concurrently may be partly lost.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Maps a value to its bucket: exact below LINEAR_LIMIT, then SUB_BUCKETS per power of two.
+     */
+    static int bucketIndex(long value) {
+        if (value < LINEAR_LIMIT) return (int) value;
+        int shift = (64 - Long.numberOfLeadingZeros(value)) - (SUB_BUCKET_BITS + 1);
+        int top = (int) (value >>> shift); // between SUB_BUCKETS and 2 * SUB_BUCKETS - 1
+        return LINEAR_LIMIT + (shift - 1) * SUB_BUCKETS + (top - SUB_BUCKETS);
+    }
+
+    /**
+     * The largest value that maps to a bucket.
+     */
+    static long highestValueIn(int index) {
+        if (index < LINEAR_LIMIT) return index;
+        int shift = (index - LINEAR_LIMIT) / SUB_BUCKETS + 1;
+        long top = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+}
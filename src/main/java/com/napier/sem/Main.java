@@ -1,6 +1,13 @@
 package com.napier.sem;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
 
 
 /**
@@ -10,22 +17,131 @@ import java.util.Scanner;
 public class Main {
     /** Scanner for reading user input from the console. */
     private static final Scanner scanner = new Scanner(System.in);
+    /** Directory job file reports are written to unless --out is given. */
+    private static final String DEFAULT_OUTPUT_DIR = "reports";
 
+    /**
+     * Usage: {@code [location] [delay] [--snapshot] [--cache] [--stream] [--server[=port]] [--parallel=N] [--server-prepare] [--rollup] [--migrate] [--replica=HOST:PORT ...] [--max-lag=SECONDS] [--shard=CONTINENT[,CONTINENT...]@HOST:PORT ...] [--track-changes] [--jobs=FILE [--out=DIR]] [--snapshot-file=FILE] [--export-snapshot=FILE]}.
+     * --snapshot loads the world tables into memory once and answers reports from there.
+     * --cache keeps recent report results in memory (see ReportCache for the defaults).
+     * --stream writes full-list reports row by row as they are read.
+     * --server serves the reports over HTTP (default port 8080) instead of running the menu.
+     * --parallel=N runs up to N reports of a batch (e.g. the demonstration reports) at the same time.
+     * --server-prepare uses MySQL server-side prepared statements for the cached report statements.
+     * --rollup answers the population breakdowns and totals (UC23-UC30) from summary tables.
+     * --migrate applies pending SchemaMigrations (the report indexes) after connecting.
+     * --replica=HOST:PORT adds a read replica (repeatable): report queries are spread over the
+     * replicas no more than --max-lag seconds behind (default 5), falling back to the primary.
+     * --shard=Asia,Oceania@HOST:PORT names the MySQL instance holding those continents' rows
+     * (repeatable): reports then fan out over the instances and merge (see ShardedReportBackend).
+     * --track-changes keeps UC23-UC31 current by polling a trigger-filled change log.
+     * --jobs=FILE runs the reports listed in FILE (see ReportBatch.fromJobFile), each into its own
+     * file under --out (default "reports"), instead of running the menu.
+     * --snapshot-file=FILE serves the reports from a snapshot file without connecting to the database.
+     * --export-snapshot=FILE writes the world tables to a snapshot file for --snapshot-file, then exits.
+     */
     public static void main(String[] args) {
         // Create an instance of the App class
         App app = new App();
+        app.getMetrics().registerMBean();
+
+        // Separate --flags from the positional location/delay arguments
+        List<String> positional = new ArrayList<>();
+        App.Mode mode = App.Mode.LIVE_SQL;
+        int serverPort = -1;
+        boolean trackChanges = false;
+        boolean migrate = false;
+        List<String> replicas = new ArrayList<>();
+        long maxLag = ReplicaRouter.DEFAULT_MAX_LAG_SECONDS;
+        Map<String, String> shards = new LinkedHashMap<>();
+        Path jobFile = null;
+        Path outputDir = Path.of(DEFAULT_OUTPUT_DIR);
+        Path snapshotFile = null;
+        Path exportFile = null;
+        for (String arg : args) {
+            if (arg.equals("--snapshot")) {
+                mode = App.Mode.SNAPSHOT;
+            } else if (arg.equals("--cache")) {
+                app.enableCache(ReportCache.DEFAULT_MAX_BYTES, ReportCache.DEFAULT_TTL_MS);
+            } else if (arg.equals("--stream")) {
+                app.setStreaming(true);
+            } else if (arg.equals("--server")) {
+                serverPort = ReportServer.DEFAULT_PORT;
+            } else if (arg.startsWith("--server=")) {
+                serverPort = Integer.parseInt(arg.substring("--server=".length()));
+            } else if (arg.equals("--server-prepare")) {
+                app.setServerPreparedStatements(true);
+            } else if (arg.equals("--track-changes")) {
+                trackChanges = true;
+            } else if (arg.equals("--migrate")) {
+                migrate = true;
+            } else if (arg.startsWith("--replica=")) {
+                replicas.add(arg.substring("--replica=".length()));
+            } else if (arg.startsWith("--max-lag=")) {
+                maxLag = Long.parseLong(arg.substring("--max-lag=".length()));
+            } else if (arg.startsWith("--shard=")) {
+                String shard = arg.substring("--shard=".length());
+                int at = shard.lastIndexOf('@');
+                if (at <= 0) throw new IllegalArgumentException("Expected --shard=CONTINENT[,CONTINENT...]@HOST:PORT: " + arg);
+                for (String continent : shard.substring(0, at).split(",")) {
+                    shards.put(continent.trim(), shard.substring(at + 1));
+                }
+            } else if (arg.equals("--rollup")) {
+                app.setRollups(true);
+            } else if (arg.startsWith("--snapshot-file=")) {
+                snapshotFile = Path.of(arg.substring("--snapshot-file=".length()));
+            } else if (arg.startsWith("--export-snapshot=")) {
+                exportFile = Path.of(arg.substring("--export-snapshot=".length()));
+            } else if (arg.startsWith("--jobs=")) {
+                jobFile = Path.of(arg.substring("--jobs=".length()));
+            } else if (arg.startsWith("--out=")) {
+                outputDir = Path.of(arg.substring("--out=".length()));
+            } else if (arg.startsWith("--parallel=")) {
+                app.setParallelism(Integer.parseInt(arg.substring("--parallel=".length())));
+            } else {
+                positional.add(arg);
+            }
+        }
+
+        app.setReadReplicas(replicas, maxLag);
+
+        // A snapshot file needs no database: map it and skip connecting
+        if (snapshotFile != null) {
+            try {
+                app.useSnapshot(SnapshotFile.map(snapshotFile));
+            } catch (IOException e) {
+                System.err.println("Failed to map snapshot file, connecting to the database instead: " + e.getMessage());
+            }
+        }
 
         // FIX: Connect using command line arguments or default local Docker settings
-        if(args.length < 2) {
-            // Default: Connect to local Docker port 33060 with 30s delay
-            app.connect("localhost:3306", 30000);
+        if (app.isConnected()) {
+            // Already serving reports from the snapshot file
+        } else if (!shards.isEmpty()) {
+            // Partitioned: one instance per group of continents
+            app.connectShards(shards, positional.size() < 2 ? 30000 : Integer.parseInt(positional.get(1)));
+        } else if(positional.size() < 2) {
+            // Default: Connect to local Docker port 3306, waiting up to 30s for MySQL
+            app.connect("localhost:3306", 30000, mode);
         } else {
             // GitHub Actions/Docker Compose: Use provided arguments
-            app.connect(args[0], Integer.parseInt(args[1]));
+            app.connect(positional.get(0), Integer.parseInt(positional.get(1)), mode);
+        }
+        if (migrate && app.isConnected()) {
+            app.migrateSchema();
+        }
+        if (trackChanges) {
+            app.enableChangeTracking(PopulationChangeFeed.DEFAULT_POLL_MS);
         }
 
-        // Run the main menu loop if connection is successful
-        if (app.getCon() != null) {
+        // Export, run the job file, the HTTP server or the main menu loop if connection is successful
+        if (app.isConnected() && exportFile != null) {
+            app.exportSnapshot(exportFile);
+        } else if (app.isConnected() && jobFile != null) {
+            runJobs(app, jobFile, outputDir);
+        } else if (app.isConnected() && serverPort >= 0) {
+            runServer(app, serverPort);
+        } else if (app.isConnected()) {
             runMenu(app);
         } else {
             System.err.println("Failed to start application: Database connection failed.");
@@ -35,6 +151,51 @@ public class Main {
         app.disconnect();
     }
 
+    /**
+     * Runs every report of a job file, each into its own output file.
+     * @param app The connected application instance.
+     * @param jobFile The job file.
+     * @param outputDir Directory the reports are written to.
+     */
+    private static void runJobs(App app, Path jobFile, Path outputDir) {
+        ReportBatch batch;
+        try {
+            batch = ReportBatch.fromJobFile(jobFile, outputDir);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Failed to read job file " + jobFile + ": " + e.getMessage());
+            return;
+        }
+        int failed = batch.runToFiles(app, app.getParallelism());
+        System.out.println("Wrote " + (batch.size() - failed) + " of " + batch.size() + " reports to " + outputDir + ".");
+    }
+
+    /**
+     * Serves the reports over HTTP until the process is stopped (Ctrl+C / docker stop).
+     * @param app The connected application instance.
+     * @param port Port to listen on.
+     */
+    private static void runServer(App app, int port) {
+        ReportServer server;
+        try {
+            server = new ReportServer(app, port);
+        } catch (IOException e) {
+            System.err.println("Failed to start report server on port " + port + ": " + e.getMessage());
+            return;
+        }
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            stopped.countDown();
+        }));
+        server.start();
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.close();
+        }
+    }
+
     /**
      * Runs the main interactive menu loop.
      * @param app The application instance containing report methods.
@@ -0,0 +1,59 @@
+package com.napier.sem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * A MySQL named lock (GET_LOCK / RELEASE_LOCK) held by one connection, so that two processes
+ * do not change the same part of the schema at the same time. Release it with close() in a
+ * finally block around the work it guards.
+ */
+public final class NamedLock implements AutoCloseable {
+    private final Connection con;
+    private final String name;
+    private final String purpose;
+
+    private NamedLock(Connection con, String name, String purpose) {
+        this.con = con;
+        this.name = name;
+        this.purpose = purpose;
+    }
+
+    /**
+     * Waits for the named lock and takes it.
+     * @param con The connection that holds the lock until close().
+     * @param name The lock name, shared by every process doing the same work.
+     * @param timeoutSeconds How long to wait for another holder to release it.
+     * @param purpose What the lock guards, for error messages (e.g. "schema migration").
+     * @return The held lock.
+     * @throws SQLException if the lock is not free within the timeout or cannot be requested.
+     */
+    public static NamedLock acquire(Connection con, String name, int timeoutSeconds, String purpose) throws SQLException {
+        try (PreparedStatement pStmt = con.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pStmt.setString(1, name);
+            pStmt.setInt(2, timeoutSeconds);
+            try (ResultSet rs = pStmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != 1) {
+                    throw new SQLException("Timed out waiting for another " + purpose + ".");
+                }
+            }
+        }
+        return new NamedLock(con, name, purpose);
+    }
+
+    /**
+     * Releases the lock. A failure is reported but not thrown: MySQL releases the lock
+     * anyway when the connection closes.
+     */
+    @Override
+    public void close() {
+        try (PreparedStatement pStmt = con.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pStmt.setString(1, name);
+            pStmt.executeQuery().close();
+        } catch (SQLException e) {
+            System.err.println("Failed to release " + purpose + " lock: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.napier.sem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The city/non-city population breakdown at all three levels (UC23 continent, UC24 region,
+ * UC25 country), computed together from one pass over the countries and their city totals.
+ * <p>
+ * The figures match the UC23-UC25 SQL: a group without any city rows has NULL city figures,
+ * read back as 0, and percentages are rounded like MySQL's DECIMAL(5,2) (see WorldSnapshot.percent).
+ * Each list is largest total first; equal totals keep the order in which the countries were added.
+ */
+public final class PopulationBreakdown {
+    /** A breakdown with no rows at any level. */
+    public static final PopulationBreakdown EMPTY = new Builder().build();
+
+    /** UC23: by continent */
+    public final List<PopulationSummary> Continents;
+    /** UC24: by region */
+    public final List<PopulationSummary> Regions;
+    /** UC25: by country */
+    public final List<PopulationSummary> Countries;
+
+    /**
+     * Constructor for PopulationBreakdown object.
+     */
+    public PopulationBreakdown(List<PopulationSummary> continents, List<PopulationSummary> regions,
+                               List<PopulationSummary> countries) {
+        this.Continents = continents;
+        this.Regions = regions;
+        this.Countries = countries;
+    }
+
+    /**
+     * One level of the breakdown, as UC23-UC25 return it.
+     * @param groupBy CONTINENT, REGION or COUNTRY.
+     * @return A new list of the rows of that level.
+     */
+    public List<PopulationSummary> get(ReportScope groupBy) {
+        switch (groupBy) {
+            case CONTINENT: return new ArrayList<>(Continents);
+            case REGION: return new ArrayList<>(Regions);
+            case COUNTRY: return new ArrayList<>(Countries);
+            default: throw new IllegalArgumentException("Unsupported breakdown level: " + groupBy);
+        }
+    }
+
+    /** A continent, region or country being summed. */
+    private static final class Group {
+        final String name;
+        long total, city;
+        boolean hasCities;
+
+        Group(String name) {
+            this.name = name;
+        }
+
+        void add(long population, long cityPopulation, boolean withCities) {
+            total += population;
+            if (withCities) {
+                city += cityPopulation;
+                hasCities = true;
+            }
+        }
+
+        PopulationSummary toSummary() {
+            if (!hasCities) return new PopulationSummary(name, total, 0, 0, 0, 0);
+            return new PopulationSummary(name, total, city, WorldSnapshot.percent(city, total),
+                    total - city, WorldSnapshot.percent(total - city, total));
+        }
+    }
+
+    /**
+     * One-pass aggregator: add each country once with the sum of its cities' populations.
+     */
+    public static final class Builder {
+        private final List<Group> countries = new ArrayList<>();
+        private final Map<String, Group> continents = new LinkedHashMap<>();
+        private final Map<String, Group> regions = new LinkedHashMap<>();
+
+        /**
+         * Adds a country to its own row, its continent and its region.
+         * @param name Country name.
+         * @param continent Continent name.
+         * @param region Region name.
+         * @param population Country population.
+         * @param cityPopulation Sum of the populations of its cities (ignored if it has none).
+         * @param hasCities false if the country has no city rows.
+         * @return This builder, for chaining.
+         */
+        public Builder country(String name, String continent, String region, long population,
+                               long cityPopulation, boolean hasCities) {
+            Group country = new Group(name);
+            country.add(population, cityPopulation, hasCities);
+            countries.add(country);
+            continents.computeIfAbsent(StringDictionary.CONTINENTS.collationKey(continent), k -> new Group(continent))
+                    .add(population, cityPopulation, hasCities);
+            regions.computeIfAbsent(StringDictionary.REGIONS.collationKey(region), k -> new Group(region))
+                    .add(population, cityPopulation, hasCities);
+            return this;
+        }
+
+        /** @return The breakdown at all three levels. */
+        public PopulationBreakdown build() {
+            return new PopulationBreakdown(summaries(continents.values()), summaries(regions.values()),
+                    summaries(countries));
+        }
+
+        private static List<PopulationSummary> summaries(Iterable<Group> groups) {
+            List<Group> ordered = new ArrayList<>();
+            groups.forEach(ordered::add);
+            ordered.sort(Comparator.comparingLong(g -> -g.total));
+            List<PopulationSummary> result = new ArrayList<>(ordered.size());
+            for (Group g : ordered) result.add(g.toSummary());
+            return result;
+        }
+    }
+}
@@ -0,0 +1,407 @@
+package com.napier.sem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Change capture for the city and country tables, keeping a {@link PopulationTotals} current
+ * without reloading it.
+ * <p>
+ * {@link #install(Connection)} adds the population_changelog table and AFTER INSERT/UPDATE/DELETE
+ * triggers on city and country that log the old and new image of every row whose name,
+ * location or population changed. The feed loads the totals and the log position from one
+ * consistent snapshot, then polls the log by Id and applies only the new rows, so a refresh
+ * costs time proportional to the number of changed rows. After each poll that changed
+ * something, subscribers receive the ReportKeys (UC23-UC31) whose answer may have changed.
+ * <p>
+ * Ids are assigned when a row is inserted but become visible when its transaction commits,
+ * so a poll can see Id 12 before Id 11. Ids skipped this way are re-read until they appear,
+ * or until GAP_TIMEOUT_MS has passed (the transaction rolled back and the Id is never used).
+ * Two changes to the same row cannot arrive out of order (the second writer waits for the
+ * row lock, so its trigger runs after the first commits), and changes to different rows
+ * only add to and subtract from shared totals, so applying them in arrival order is exact.
+ */
+public class PopulationChangeFeed implements AutoCloseable {
+    /** Default time between polls. */
+    public static final long DEFAULT_POLL_MS = 1000;
+    /** Maximum log rows read per query. */
+    static final int BATCH_SIZE = 1000;
+    /** How long a missing Id is waited for before it is skipped. */
+    static final long GAP_TIMEOUT_MS = 10_000;
+    /** Ids below the log position re-checked at load time, for transactions still in flight. */
+    static final int LOAD_WINDOW = 1000;
+    /** Gaps are only tracked this far above the position; further Ids are tracked once it moves. */
+    static final int MAX_TRACKED_GAP = 100_000;
+    /** Log rows older than this are deleted by the feed. */
+    static final int RETENTION_HOURS = 24;
+
+    // =========================================================================
+    // Schema
+    // =========================================================================
+
+    private static final String CREATE_CHANGELOG = "CREATE TABLE IF NOT EXISTS population_changelog (" +
+            "Id BIGINT NOT NULL AUTO_INCREMENT, " +
+            "TableName ENUM('city','country') NOT NULL, " +
+            "OldKey CHAR(11) NULL, OldName CHAR(52) NULL, OldCountryCode CHAR(3) NULL, OldDistrict CHAR(20) NULL, " +
+            "OldContinent CHAR(13) NULL, OldRegion CHAR(26) NULL, OldPopulation BIGINT NULL, " +
+            "NewKey CHAR(11) NULL, NewName CHAR(52) NULL, NewCountryCode CHAR(3) NULL, NewDistrict CHAR(20) NULL, " +
+            "NewContinent CHAR(13) NULL, NewRegion CHAR(26) NULL, NewPopulation BIGINT NULL, " +
+            "ChangedAt TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+            "PRIMARY KEY (Id), KEY ChangedAt (ChangedAt)" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+
+    private static final String CITY_COLUMNS = "(TableName, OldKey, OldName, OldCountryCode, OldDistrict, OldPopulation, " +
+            "NewKey, NewName, NewCountryCode, NewDistrict, NewPopulation)";
+    private static final String COUNTRY_COLUMNS = "(TableName, OldKey, OldName, OldContinent, OldRegion, OldPopulation, " +
+            "NewKey, NewName, NewContinent, NewRegion, NewPopulation)";
+    private static final String OLD_CITY = "OLD.ID, OLD.Name, OLD.CountryCode, OLD.District, OLD.Population";
+    private static final String NEW_CITY = "NEW.ID, NEW.Name, NEW.CountryCode, NEW.District, NEW.Population";
+    private static final String OLD_COUNTRY = "OLD.Code, OLD.Name, OLD.Continent, OLD.Region, OLD.Population";
+    private static final String NEW_COUNTRY = "NEW.Code, NEW.Name, NEW.Continent, NEW.Region, NEW.Population";
+    private static final String NO_IMAGE = "NULL, NULL, NULL, NULL, NULL";
+
+    /** Trigger names and bodies; updates are only logged when a column the totals use changed. */
+    private static final String[][] TRIGGERS = {
+            {"population_changelog_city_insert", "AFTER INSERT ON city FOR EACH ROW " +
+                    "INSERT INTO population_changelog " + CITY_COLUMNS + " VALUES ('city', " + NO_IMAGE + ", " + NEW_CITY + ")"},
+            {"population_changelog_city_update", "AFTER UPDATE ON city FOR EACH ROW BEGIN " +
+                    "IF NOT (OLD.ID <=> NEW.ID AND CAST(OLD.Name AS BINARY) <=> CAST(NEW.Name AS BINARY) " +
+                    "AND OLD.CountryCode <=> NEW.CountryCode AND CAST(OLD.District AS BINARY) <=> CAST(NEW.District AS BINARY) " +
+                    "AND OLD.Population <=> NEW.Population) THEN " +
+                    "INSERT INTO population_changelog " + CITY_COLUMNS + " VALUES ('city', " + OLD_CITY + ", " + NEW_CITY + "); " +
+                    "END IF; END"},
+            {"population_changelog_city_delete", "AFTER DELETE ON city FOR EACH ROW " +
+                    "INSERT INTO population_changelog " + CITY_COLUMNS + " VALUES ('city', " + OLD_CITY + ", " + NO_IMAGE + ")"},
+            {"population_changelog_country_insert", "AFTER INSERT ON country FOR EACH ROW " +
+                    "INSERT INTO population_changelog " + COUNTRY_COLUMNS + " VALUES ('country', " + NO_IMAGE + ", " + NEW_COUNTRY + ")"},
+            {"population_changelog_country_update", "AFTER UPDATE ON country FOR EACH ROW BEGIN " +
+                    "IF NOT (OLD.Code <=> NEW.Code AND CAST(OLD.Name AS BINARY) <=> CAST(NEW.Name AS BINARY) " +
+                    "AND OLD.Continent <=> NEW.Continent AND CAST(OLD.Region AS BINARY) <=> CAST(NEW.Region AS BINARY) " +
+                    "AND OLD.Population <=> NEW.Population) THEN " +
+                    "INSERT INTO population_changelog " + COUNTRY_COLUMNS + " VALUES ('country', " + OLD_COUNTRY + ", " + NEW_COUNTRY + "); " +
+                    "END IF; END"},
+            {"population_changelog_country_delete", "AFTER DELETE ON country FOR EACH ROW " +
+                    "INSERT INTO population_changelog " + COUNTRY_COLUMNS + " VALUES ('country', " + OLD_COUNTRY + ", " + NO_IMAGE + ")"},
+    };
+
+    private static final String POLL_SQL = "SELECT Id, TableName, OldKey, OldName, OldCountryCode, OldDistrict, " +
+            "OldContinent, OldRegion, OldPopulation, NewKey, NewName, NewCountryCode, NewDistrict, " +
+            "NewContinent, NewRegion, NewPopulation " +
+            "FROM population_changelog WHERE Id > ? ORDER BY Id LIMIT " + BATCH_SIZE;
+
+    /**
+     * Creates the change-log table and the triggers that fill it, if they do not exist yet.
+     * @param con A connection to the world database with CREATE and TRIGGER rights.
+     * @throws SQLException if the schema cannot be created.
+     */
+    public static void install(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute(CREATE_CHANGELOG);
+            Set<String> existing = new HashSet<>();
+            try (ResultSet rs = statement.executeQuery("SELECT TRIGGER_NAME FROM information_schema.TRIGGERS " +
+                    "WHERE TRIGGER_SCHEMA = DATABASE() AND TRIGGER_NAME LIKE 'population\\_changelog\\_%'")) {
+                while (rs.next()) existing.add(rs.getString(1));
+            }
+            for (String[] trigger : TRIGGERS) {
+                if (!existing.contains(trigger[0])) {
+                    statement.execute("CREATE TRIGGER " + trigger[0] + " " + trigger[1]);
+                }
+            }
+        }
+    }
+
+    // =========================================================================
+    // Feed state
+    // =========================================================================
+
+    /** One row of population_changelog: a city or country row image before and/or after. */
+    static final class Change {
+        final long id;
+        final boolean city;
+        final String oldKey, newKey;
+        final PopulationTotals.CityImage oldCity, newCity;
+        final PopulationTotals.CountryImage oldCountry, newCountry;
+
+        Change(long id, String oldKey, PopulationTotals.CityImage oldCity, String newKey, PopulationTotals.CityImage newCity) {
+            this(id, true, oldKey, newKey, oldCity, newCity, null, null);
+        }
+
+        Change(long id, PopulationTotals.CountryImage oldCountry, PopulationTotals.CountryImage newCountry) {
+            this(id, false, null, null, null, null, oldCountry, newCountry);
+        }
+
+        private Change(long id, boolean city, String oldKey, String newKey,
+                       PopulationTotals.CityImage oldCity, PopulationTotals.CityImage newCity,
+                       PopulationTotals.CountryImage oldCountry, PopulationTotals.CountryImage newCountry) {
+            this.id = id;
+            this.city = city;
+            this.oldKey = oldKey;
+            this.newKey = newKey;
+            this.oldCity = oldCity;
+            this.newCity = newCity;
+            this.oldCountry = oldCountry;
+            this.newCountry = newCountry;
+        }
+
+        Set<ReportKey> applyTo(PopulationTotals totals) {
+            if (!city) return totals.applyCountry(oldCountry, newCountry);
+            Set<ReportKey> changed = new LinkedHashSet<>();
+            // ID changes are a delete of the old ID and an insert of the new one
+            if (oldCity != null) changed.addAll(totals.applyCity(Integer.parseInt(oldKey.trim()), oldCity, null));
+            if (newCity != null) changed.addAll(totals.applyCity(Integer.parseInt(newKey.trim()), null, newCity));
+            return changed;
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final PopulationTotals totals;
+    private final List<Consumer<Set<ReportKey>>> subscribers = new CopyOnWriteArrayList<>();
+
+    /** Every Id up to here has been applied or given up on. */
+    private long position;
+    /** Ids above position that have been applied. */
+    private final TreeSet<Long> appliedAbove = new TreeSet<>();
+    /** Ids above position still missing, with the time they were first found missing. */
+    private final Map<Long, Long> missingSince = new HashMap<>();
+    private long appliedCount;
+    private long lastPruneMillis;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Creates a feed that starts after log Id {@code position}, with the given Ids above it
+     * already reflected in the totals.
+     */
+    PopulationChangeFeed(ConnectionPool pool, PopulationTotals totals, long position, Set<Long> alreadyApplied) {
+        this.pool = pool;
+        this.totals = totals;
+        this.position = position;
+        this.appliedAbove.addAll(alreadyApplied);
+        this.lastPruneMillis = System.currentTimeMillis();
+        advance(System.currentTimeMillis());
+    }
+
+    /**
+     * Installs the change log if needed, then loads the totals and the log position from one
+     * consistent snapshot of the database.
+     * @param pool Pool to lease connections from, now and for every poll.
+     * @return A feed ready to poll; call start() to poll in the background.
+     * @throws SQLException if the schema cannot be installed or the data cannot be read.
+     */
+    public static PopulationChangeFeed open(ConnectionPool pool) throws SQLException {
+        try (Connection con = pool.getConnection();
+             Statement statement = con.createStatement()) {
+            install(con);
+            PopulationTotals totals = new PopulationTotals();
+            long maxId;
+            Set<Long> seen = new HashSet<>();
+            statement.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ");
+            statement.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+            try {
+                try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(Id), 0) FROM population_changelog")) {
+                    rs.next();
+                    maxId = rs.getLong(1);
+                }
+                try (ResultSet rs = statement.executeQuery(
+                        "SELECT Id FROM population_changelog WHERE Id > " + Math.max(0, maxId - LOAD_WINDOW))) {
+                    while (rs.next()) seen.add(rs.getLong(1));
+                }
+                try (ResultSet rs = statement.executeQuery("SELECT Code, Name, Continent, Region, Population FROM country")) {
+                    while (rs.next()) {
+                        totals.applyCountry(null, new PopulationTotals.CountryImage(rs.getString("Code"), rs.getString("Name"),
+                                rs.getString("Continent"), rs.getString("Region"), rs.getLong("Population")));
+                    }
+                }
+                try (ResultSet rs = statement.executeQuery("SELECT ID, Name, CountryCode, District, Population FROM city")) {
+                    while (rs.next()) {
+                        totals.applyCity(rs.getInt("ID"), null, new PopulationTotals.CityImage(rs.getString("Name"),
+                                rs.getString("CountryCode"), rs.getString("District"), rs.getLong("Population")));
+                    }
+                }
+            } finally {
+                statement.execute("COMMIT");
+            }
+            return new PopulationChangeFeed(pool, totals, Math.max(0, maxId - LOAD_WINDOW), seen);
+        }
+    }
+
+    /** @return The totals this feed keeps current. */
+    public PopulationTotals getTotals() {
+        return totals;
+    }
+
+    /**
+     * Registers a callback for changed report keys. It runs on the polling thread after each
+     * poll that applied at least one change; it should be quick (e.g. invalidate a cache).
+     */
+    public void subscribe(Consumer<Set<ReportKey>> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    /** @return Number of change-log rows applied since the feed was opened. */
+    public synchronized long getAppliedCount() {
+        return appliedCount;
+    }
+
+    /** @return The Id up to which every change-log row has been applied or skipped. */
+    public synchronized long getPosition() {
+        return position;
+    }
+
+    // =========================================================================
+    // Polling
+    // =========================================================================
+
+    /**
+     * Reads and applies every new change-log row, then notifies subscribers.
+     * @return The report keys that changed (empty if nothing changed).
+     * @throws SQLException if the log cannot be read; nothing is lost, the next poll retries.
+     */
+    public Set<ReportKey> poll() throws SQLException {
+        Set<ReportKey> changed = new LinkedHashSet<>();
+        try (Connection con = pool.getConnection()) {
+            while (true) {
+                List<Change> batch = read(con);
+                long applied = getAppliedCount();
+                changed.addAll(apply(batch, System.currentTimeMillis()));
+                // Stop when the log is drained or only rows behind an open gap are left
+                if (batch.size() < BATCH_SIZE || getAppliedCount() == applied) break;
+            }
+            prune(con);
+        }
+        if (!changed.isEmpty()) {
+            for (Consumer<Set<ReportKey>> subscriber : subscribers) {
+                subscriber.accept(changed);
+            }
+        }
+        return changed;
+    }
+
+    private List<Change> read(Connection con) throws SQLException {
+        List<Change> batch = new ArrayList<>();
+        try (PreparedStatement pStmt = con.prepareStatement(POLL_SQL)) {
+            pStmt.setLong(1, getPosition());
+            try (ResultSet rs = pStmt.executeQuery()) {
+                while (rs.next()) batch.add(mapToChange(rs));
+            }
+        }
+        return batch;
+    }
+
+    private static Change mapToChange(ResultSet rs) throws SQLException {
+        long id = rs.getLong("Id");
+        boolean hasOld = rs.getObject("OldPopulation") != null;
+        boolean hasNew = rs.getObject("NewPopulation") != null;
+        if ("city".equals(rs.getString("TableName"))) {
+            return new Change(id,
+                    rs.getString("OldKey"), hasOld ? new PopulationTotals.CityImage(rs.getString("OldName"),
+                            rs.getString("OldCountryCode"), rs.getString("OldDistrict"), rs.getLong("OldPopulation")) : null,
+                    rs.getString("NewKey"), hasNew ? new PopulationTotals.CityImage(rs.getString("NewName"),
+                            rs.getString("NewCountryCode"), rs.getString("NewDistrict"), rs.getLong("NewPopulation")) : null);
+        }
+        return new Change(id,
+                hasOld ? new PopulationTotals.CountryImage(rs.getString("OldKey").trim(), rs.getString("OldName"),
+                        rs.getString("OldContinent"), rs.getString("OldRegion"), rs.getLong("OldPopulation")) : null,
+                hasNew ? new PopulationTotals.CountryImage(rs.getString("NewKey").trim(), rs.getString("NewName"),
+                        rs.getString("NewContinent"), rs.getString("NewRegion"), rs.getLong("NewPopulation")) : null);
+    }
+
+    /**
+     * Applies the rows of a batch that were not applied before, and moves the position
+     * past every Id that is applied or has been missing for longer than GAP_TIMEOUT_MS.
+     * @param batch Change-log rows in Id order.
+     * @param now Current time in milliseconds.
+     * @return The report keys that changed.
+     */
+    synchronized Set<ReportKey> apply(List<Change> batch, long now) {
+        Set<ReportKey> changed = new LinkedHashSet<>();
+        for (Change change : batch) {
+            if (change.id <= position || !appliedAbove.add(change.id)) continue;
+            missingSince.remove(change.id);
+            changed.addAll(change.applyTo(totals));
+            appliedCount++;
+        }
+        advance(now);
+        return changed;
+    }
+
+    /** Moves the position forward over applied and abandoned Ids; records new gaps. */
+    private void advance(long now) {
+        if (appliedAbove.isEmpty()) return;
+        long end = Math.min(appliedAbove.last(), position + MAX_TRACKED_GAP);
+        for (long id = position + 1; id < end; id++) {
+            if (!appliedAbove.contains(id)) missingSince.putIfAbsent(id, now);
+        }
+        while (!appliedAbove.isEmpty()) {
+            long next = position + 1;
+            if (appliedAbove.remove(next)) {
+                position = next;
+                continue;
+            }
+            Long since = missingSince.get(next);
+            if (since == null || now - since < GAP_TIMEOUT_MS) break;
+            missingSince.remove(next);
+            position = next;
+        }
+    }
+
+    /** Deletes log rows older than the retention period, at most once an hour. */
+    private void prune(Connection con) throws SQLException {
+        long now = System.currentTimeMillis();
+        if (now - lastPruneMillis < TimeUnit.HOURS.toMillis(1)) return;
+        lastPruneMillis = now;
+        try (PreparedStatement pStmt = con.prepareStatement(
+                "DELETE FROM population_changelog WHERE ChangedAt < NOW(3) - INTERVAL ? HOUR AND Id <= ?")) {
+            pStmt.setInt(1, RETENTION_HOURS);
+            pStmt.setLong(2, getPosition());
+            pStmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Polls in the background on a daemon thread. Poll errors are reported on System.err
+     * and retried at the next interval.
+     * @param intervalMillis Time between polls.
+     */
+    public synchronized void start(long intervalMillis) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "population-change-feed");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                poll();
+            } catch (SQLException | RuntimeException e) {
+                System.err.println("Population change poll failed: " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops background polling.
+     */
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.napier.sem;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Population summary tables kept in the world schema, so the breakdown and total reports
+ * (UC23-UC30) read a few pre-aggregated rows instead of aggregating the whole city table.
+ * <p>
+ * Tables, each with TotalPopulation, CityPopulation (NULL when the area has no cities, as the
+ * original SUM over a LEFT JOIN gives) and the generated NonCityPopulation:
+ * <ul>
+ *   <li>rollup_continent, rollup_region - keyed by Name.</li>
+ *   <li>rollup_country - keyed by Code, with Name, Continent and Region.</li>
+ *   <li>rollup_district - keyed by Name; a district's population is the sum of its cities,
+ *       so total and city population are equal.</li>
+ * </ul>
+ * Names use the same utf8mb4 collation as the world tables, so {@code WHERE Name = ?} matches
+ * exactly what {@code WHERE Continent = ?} / {@code WHERE District = ?} matched before.
+ * <p>
+ * {@link #refresh(Connection)} rebuilds all four tables into *_new copies and swaps them in
+ * with a single RENAME TABLE, which MySQL applies atomically: readers see either the old
+ * or the new totals, never a mix.
+ */
+public class PopulationRollup {
+    /** The rollup tables, in refresh order (countries first, the others build on them). */
+    static final String[] TABLES = {"rollup_country", "rollup_continent", "rollup_region", "rollup_district"};
+
+    /** Named lock that keeps two processes from refreshing at the same time. */
+    private static final String LOCK_NAME = "world.population_rollup";
+    /** Seconds to wait for another refresh to finish. */
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private static final String POPULATION_COLUMNS = "TotalPopulation BIGINT NOT NULL, " +
+            "CityPopulation BIGINT NULL, " +
+            "NonCityPopulation BIGINT AS (TotalPopulation - CityPopulation) STORED";
+
+    private static final String CREATE_COUNTRY = "CREATE TABLE IF NOT EXISTS rollup_country (" +
+            "Code CHAR(3) NOT NULL, " +
+            "Name CHAR(52) NOT NULL, " +
+            "Continent CHAR(13) NOT NULL, " +
+            "Region CHAR(26) NOT NULL, " +
+            POPULATION_COLUMNS + ", " +
+            "PRIMARY KEY (Code), KEY Name (Name)" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+
+    private static final String CREATE_CONTINENT = "CREATE TABLE IF NOT EXISTS rollup_continent (" +
+            "Name CHAR(13) NOT NULL, " + POPULATION_COLUMNS + ", PRIMARY KEY (Name)" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+
+    private static final String CREATE_REGION = "CREATE TABLE IF NOT EXISTS rollup_region (" +
+            "Name CHAR(26) NOT NULL, " + POPULATION_COLUMNS + ", PRIMARY KEY (Name)" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+
+    private static final String CREATE_DISTRICT = "CREATE TABLE IF NOT EXISTS rollup_district (" +
+            "Name CHAR(20) NOT NULL, " + POPULATION_COLUMNS + ", PRIMARY KEY (Name)" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+
+    private static final String FILL_COUNTRY = "INSERT INTO rollup_country_new " +
+            "(Code, Name, Continent, Region, TotalPopulation, CityPopulation) " +
+            "SELECT c.Code, c.Name, c.Continent, c.Region, c.Population, ci.CityPopulation " +
+            "FROM country AS c " +
+            "LEFT JOIN (SELECT CountryCode, SUM(Population) AS CityPopulation FROM city GROUP BY CountryCode) AS ci " +
+            "ON c.Code = ci.CountryCode";
+
+    private static final String FILL_CONTINENT = "INSERT INTO rollup_continent_new (Name, TotalPopulation, CityPopulation) " +
+            "SELECT Continent, SUM(TotalPopulation), SUM(CityPopulation) FROM rollup_country_new GROUP BY Continent";
+
+    private static final String FILL_REGION = "INSERT INTO rollup_region_new (Name, TotalPopulation, CityPopulation) " +
+            "SELECT Region, SUM(TotalPopulation), SUM(CityPopulation) FROM rollup_country_new GROUP BY Region";
+
+    private static final String FILL_DISTRICT = "INSERT INTO rollup_district_new (Name, TotalPopulation, CityPopulation) " +
+            "SELECT District, SUM(Population), SUM(Population) FROM city GROUP BY District";
+
+    private PopulationRollup() {
+    }
+
+    /**
+     * Creates the rollup tables if they do not exist yet and fills them if they are empty.
+     * @param con A connection to the world database with CREATE/DROP rights.
+     * @throws SQLException if the tables cannot be created or filled.
+     */
+    public static void install(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute(CREATE_COUNTRY);
+            statement.execute(CREATE_CONTINENT);
+            statement.execute(CREATE_REGION);
+            statement.execute(CREATE_DISTRICT);
+            boolean empty;
+            try (ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM rollup_country")) {
+                empty = !rs.next() || rs.getLong(1) == 0;
+            }
+            if (!empty) return;
+        }
+        refresh(con);
+    }
+
+    /**
+     * Recomputes every rollup table from the country and city tables in one step.
+     * @param con A connection to the world database with CREATE/DROP rights.
+     * @throws SQLException if the refresh fails (the previous rollups then stay in place)
+     *         or another refresh holds the lock for longer than a minute.
+     */
+    public static void refresh(Connection con) throws SQLException {
+        NamedLock lock = NamedLock.acquire(con, LOCK_NAME, LOCK_TIMEOUT_SECONDS, "population rollup refresh");
+        try (Statement statement = con.createStatement()) {
+            // Build complete new copies next to the live tables
+            for (String table : TABLES) {
+                statement.execute("DROP TABLE IF EXISTS " + table + "_new");
+                statement.execute("CREATE TABLE " + table + "_new LIKE " + table);
+            }
+            statement.execute(FILL_COUNTRY);
+            statement.execute(FILL_CONTINENT);
+            statement.execute(FILL_REGION);
+            statement.execute(FILL_DISTRICT);
+
+            // Swap all four at once, then drop the old copies
+            StringBuilder rename = new StringBuilder("RENAME TABLE ");
+            for (int i = 0; i < TABLES.length; i++) {
+                if (i > 0) rename.append(", ");
+                rename.append(TABLES[i]).append(" TO ").append(TABLES[i]).append("_old, ")
+                        .append(TABLES[i]).append("_new TO ").append(TABLES[i]);
+            }
+            statement.execute(rename.toString());
+            for (String table : TABLES) {
+                statement.execute("DROP TABLE IF EXISTS " + table + "_old");
+            }
+        } finally {
+            lock.close();
+        }
+    }
+}
@@ -1,8 +1,7 @@
 package com.napier.sem;
 
-import java.text.NumberFormat;
+import java.io.PrintStream;
 import java.util.List;
-import java.util.Locale;
 
 /**
  * Represents the population distribution for a Continent, Region, or Country
@@ -44,25 +43,54 @@ public class PopulationSummary {
      * Prints the report header for Population Distribution Reports.
      */
     public static void printHeader() {
-        System.out.println("----------------------------------------------------------------------------------------------------------------------------------------------------");
-        System.out.printf("| %-25s | %-18s | %-18s | %-10s | %-18s | %-10s |\n",
-                "Entity", "Total Pop", "City Pop", "City %", "Non-City Pop", "Non-City %");
-        System.out.println("----------------------------------------------------------------------------------------------------------------------------------------------------");
+        printHeader(System.out);
+    }
+
+    /**
+     * Prints the report header for Population Distribution Reports to the given stream.
+     */
+    public static void printHeader(PrintStream out) {
+        TableRenderer table = new TableRenderer(out);
+        renderHeader(table);
+        table.flush();
+    }
+
+    /** Column widths: Entity, Total Pop, City Pop, City %, Non-City Pop, Non-City %. */
+    static void renderHeader(TableRenderer table) {
+        table.line("----------------------------------------------------------------------------------------------------------------------------------------------------");
+        table.beginRow().col("Entity", 25).col("Total Pop", 18).col("City Pop", 18).col("City %", 10)
+                .col("Non-City Pop", 18).col("Non-City %", 10).endRow();
+        table.line("----------------------------------------------------------------------------------------------------------------------------------------------------");
     }
 
     /**
      * Prints the details of a single PopulationSummary record.
      */
     public void print() {
-        NumberFormat nf = NumberFormat.getInstance(Locale.US);
+        print(System.out);
+    }
 
-        System.out.printf("| %-25s | %-18s | %-18s | %-10.2f | %-18s | %-10.2f |\n",
-                this.Name,
-                nf.format(this.TotalPopulation),
-                nf.format(this.CityPopulation),
-                this.CityPopulationPercent,
-                nf.format(this.RuralPopulation),
-                this.RuralPopulationPercent);
+    /**
+     * Prints the details of a single PopulationSummary record to the given stream.
+     */
+    public void print(PrintStream out) {
+        TableRenderer table = new TableRenderer(out);
+        render(table);
+        table.flush();
+    }
+
+    /**
+     * Appends this summary as one table row (percentages with 2 decimals).
+     */
+    void render(TableRenderer table) {
+        table.beginRow()
+                .col(this.Name, 25)
+                .colGrouped(this.TotalPopulation, 18)
+                .colGrouped(this.CityPopulation, 18)
+                .colDecimal(this.CityPopulationPercent, 2, 10)
+                .colGrouped(this.RuralPopulation, 18)
+                .colDecimal(this.RuralPopulationPercent, 2, 10)
+                .endRow();
     }
 
     /**
@@ -71,21 +99,34 @@ public class PopulationSummary {
      * @param title The title for the report.
      */
     public static void printReport(List<PopulationSummary> summaries, String title) {
+        printReport(summaries, title, System.out);
+    }
+
+    /**
+     * Prints a formatted list of PopulationSummary objects to the given stream.
+     * @param summaries The list of PopulationSummary objects to print.
+     * @param title The title for the report.
+     * @param out Where the report is written.
+     */
+    public static void printReport(List<PopulationSummary> summaries, String title, PrintStream out) {
+        TableRenderer table = new TableRenderer(out);
         if (summaries == null || summaries.isEmpty()) {
-            System.out.println("---------------------------------------------------");
-            System.out.println("No data found for the report: " + title);
-            System.out.println("---------------------------------------------------");
+            table.line("---------------------------------------------------");
+            table.line("No data found for the report: " + title);
+            table.line("---------------------------------------------------");
+            table.flush();
             return;
         }
 
-        System.out.println("\n====================================================================================================================================================");
-        System.out.println(" " + title);
-        System.out.println("====================================================================================================================================================");
+        table.line("\n====================================================================================================================================================");
+        table.line(" " + title);
+        table.line("====================================================================================================================================================");
 
-        printHeader();
+        renderHeader(table);
         for (PopulationSummary summary : summaries) {
-            summary.print();
+            summary.render(table);
         }
-        System.out.println("----------------------------------------------------------------------------------------------------------------------------------------------------");
+        table.line("----------------------------------------------------------------------------------------------------------------------------------------------------");
+        table.flush();
     }
-}
\ No newline at end of file
+}
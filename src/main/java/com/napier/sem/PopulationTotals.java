@@ -0,0 +1,328 @@
+package com.napier.sem;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * In-process population totals per country, continent, region, district and city that answer
+ * UC23-UC31, kept current by applying row-level changes instead of re-aggregating.
+ * <p>
+ * Each change is one row image before and/or after an insert, update or delete of a city or
+ * country row (see PopulationChangeFeed). Applying it only touches the totals of the areas
+ * the row belonged to, and reports the ReportKeys whose answer may have changed.
+ * Answers match the SQL path and WorldSnapshot: names compare with the collation key,
+ * a breakdown group without cities has NULL (0) city figures, and UC29/UC31 return the
+ * first matching row in primary key order. All methods are thread-safe.
+ */
+public class PopulationTotals {
+    /** The parts of a city row the totals depend on. */
+    public static final class CityImage {
+        final String name, countryCode, district;
+        final long population;
+
+        public CityImage(String name, String countryCode, String district, long population) {
+            this.name = name;
+            this.countryCode = countryCode;
+            this.district = district;
+            this.population = population;
+        }
+    }
+
+    /** The parts of a country row the totals depend on. */
+    public static final class CountryImage {
+        final String code, name, continent, region;
+        final long population;
+
+        public CountryImage(String code, String name, String continent, String region, long population) {
+            this.code = code;
+            this.name = name;
+            this.continent = continent;
+            this.region = region;
+            this.population = population;
+        }
+    }
+
+    /** Current state of one country, including the sum of its cities. */
+    private static final class CountryTotal {
+        final CountryImage row;
+        final String nameKey, continentKey, regionKey;
+        long cityPopulation;
+        int cityCount;
+
+        CountryTotal(CountryImage row) {
+            this.row = row;
+            this.nameKey = StringDictionary.COUNTRY_NAMES.collationKey(row.name);
+            this.continentKey = StringDictionary.CONTINENTS.collationKey(row.continent);
+            this.regionKey = StringDictionary.REGIONS.collationKey(row.region);
+        }
+    }
+
+    /** Running totals of a continent or region. */
+    private static final class Group {
+        final String name;
+        /** Codes of the member countries; the first one orders groups with equal totals. */
+        final TreeSet<String> codes = new TreeSet<>();
+        long total, city;
+        int cityCount;
+
+        Group(String name) {
+            this.name = name;
+        }
+
+        PopulationSummary toSummary() {
+            return summary(name, total, city, cityCount);
+        }
+    }
+
+    /** Countries by Code, so iteration is primary key order. */
+    private final TreeMap<String, CountryTotal> countries = new TreeMap<>();
+    private final Map<String, Group> continents = new HashMap<>();
+    private final Map<String, Group> regions = new HashMap<>();
+    /** Sum of city populations and number of cities per district key. */
+    private final Map<String, long[]> districts = new HashMap<>();
+    /** City populations per name key, by city ID. */
+    private final Map<String, TreeMap<Integer, Long>> cities = new HashMap<>();
+    private long world;
+
+    // =========================================================================
+    // Applying changes
+    // =========================================================================
+
+    /**
+     * Applies an insert (before == null), update or delete (after == null) of a country row.
+     * The country's cities move with it when its continent or region changes.
+     * @return The reports whose answer may have changed.
+     */
+    public synchronized Set<ReportKey> applyCountry(CountryImage before, CountryImage after) {
+        Set<ReportKey> changed = new LinkedHashSet<>();
+        long cityPopulation = 0;
+        int cityCount = 0;
+        if (before != null) {
+            CountryTotal old = countries.remove(before.code);
+            if (old != null) {
+                cityPopulation = old.cityPopulation;
+                cityCount = old.cityCount;
+                world -= old.row.population;
+                leave(continents, old.continentKey, old, cityPopulation, cityCount);
+                leave(regions, old.regionKey, old, cityPopulation, cityCount);
+                changedCountry(changed, old.row);
+            }
+        }
+        if (after != null) {
+            CountryTotal country = new CountryTotal(after);
+            if (before == null || !before.code.equals(after.code)) {
+                // A new code starts without cities; cities follow their CountryCode
+                cityPopulation = 0;
+                cityCount = 0;
+            }
+            country.cityPopulation = cityPopulation;
+            country.cityCount = cityCount;
+            countries.put(after.code, country);
+            world += after.population;
+            join(continents, country.continentKey, after.continent, country);
+            join(regions, country.regionKey, after.region, country);
+            changedCountry(changed, after);
+        }
+        return changed;
+    }
+
+    /**
+     * Applies an insert (before == null), update or delete (after == null) of a city row.
+     * @param id The city ID (primary key).
+     * @return The reports whose answer may have changed.
+     */
+    public synchronized Set<ReportKey> applyCity(int id, CityImage before, CityImage after) {
+        Set<ReportKey> changed = new LinkedHashSet<>();
+        if (before != null) updateCity(changed, id, before, -1);
+        if (after != null) updateCity(changed, id, after, 1);
+        return changed;
+    }
+
+    private void updateCity(Set<ReportKey> changed, int id, CityImage city, int sign) {
+        long delta = sign * city.population;
+        CountryTotal country = countries.get(city.countryCode);
+        if (country != null) {
+            country.cityPopulation += delta;
+            country.cityCount += sign;
+            Group continent = continents.get(country.continentKey);
+            continent.city += delta;
+            continent.cityCount += sign;
+            Group region = regions.get(country.regionKey);
+            region.city += delta;
+            region.cityCount += sign;
+        }
+
+        String districtKey = StringDictionary.DISTRICTS.collationKey(city.district);
+        long[] district = districts.computeIfAbsent(districtKey, k -> new long[2]);
+        district[0] += delta;
+        district[1] += sign;
+        if (district[1] == 0) districts.remove(districtKey);
+
+        String nameKey = WorldSnapshot.collationKey(city.name);
+        TreeMap<Integer, Long> sameName = cities.computeIfAbsent(nameKey, k -> new TreeMap<>());
+        if (sign > 0) {
+            sameName.put(id, city.population);
+        } else {
+            sameName.remove(id);
+            if (sameName.isEmpty()) cities.remove(nameKey);
+        }
+
+        changed.add(new ReportKey(UseCase.UC23, null));
+        changed.add(new ReportKey(UseCase.UC24, null));
+        changed.add(new ReportKey(UseCase.UC25, null));
+        changed.add(new ReportKey(UseCase.UC30, city.district));
+        changed.add(new ReportKey(UseCase.UC31, city.name));
+    }
+
+    private static void changedCountry(Set<ReportKey> changed, CountryImage country) {
+        changed.add(new ReportKey(UseCase.UC23, null));
+        changed.add(new ReportKey(UseCase.UC24, null));
+        changed.add(new ReportKey(UseCase.UC25, null));
+        changed.add(new ReportKey(UseCase.UC26, null));
+        changed.add(new ReportKey(UseCase.UC27, country.continent));
+        changed.add(new ReportKey(UseCase.UC28, country.region));
+        changed.add(new ReportKey(UseCase.UC29, country.name));
+        changed.add(new ReportKey(UseCase.UC32, null));
+    }
+
+    private static void join(Map<String, Group> groups, String key, String name, CountryTotal country) {
+        Group group = groups.computeIfAbsent(key, k -> new Group(name));
+        group.codes.add(country.row.code);
+        group.total += country.row.population;
+        group.city += country.cityPopulation;
+        group.cityCount += country.cityCount;
+    }
+
+    private static void leave(Map<String, Group> groups, String key, CountryTotal country, long cityPopulation, int cityCount) {
+        Group group = groups.get(key);
+        group.codes.remove(country.row.code);
+        group.total -= country.row.population;
+        group.city -= cityPopulation;
+        group.cityCount -= cityCount;
+        if (group.codes.isEmpty()) groups.remove(key);
+    }
+
+    // =========================================================================
+    // Answering UC23 - UC31
+    // =========================================================================
+
+    /** A summary row; NULL city figures (read back as 0) when there are no cities. */
+    private static PopulationSummary summary(String name, long total, long city, int cityCount) {
+        if (cityCount == 0) return new PopulationSummary(name, total, 0, 0, 0, 0);
+        return new PopulationSummary(name, total, city, WorldSnapshot.percent(city, total),
+                total - city, WorldSnapshot.percent(total - city, total));
+    }
+
+    /**
+     * UC23-UC25: city/non-city breakdown grouped by CONTINENT, REGION or COUNTRY, largest first.
+     */
+    public synchronized List<PopulationSummary> populationBreakdown(ReportScope groupBy) {
+        List<PopulationSummary> result = new ArrayList<>();
+        if (groupBy == ReportScope.COUNTRY) {
+            // Stable sort over Code order, as the snapshot does
+            List<CountryTotal> ordered = new ArrayList<>(countries.values());
+            ordered.sort(Comparator.comparingLong(c -> -c.row.population));
+            for (CountryTotal c : ordered) {
+                result.add(summary(c.row.name, c.row.population, c.cityPopulation, c.cityCount));
+            }
+            return result;
+        }
+        Map<String, Group> groups;
+        switch (groupBy) {
+            case CONTINENT: groups = continents; break;
+            case REGION: groups = regions; break;
+            default: throw new IllegalArgumentException("Unsupported breakdown level: " + groupBy);
+        }
+        List<Group> ordered = new ArrayList<>(groups.values());
+        ordered.sort(Comparator.<Group>comparingLong(g -> -g.total).thenComparing(g -> g.codes.first()));
+        for (Group g : ordered) result.add(g.toSummary());
+        return result;
+    }
+
+    /**
+     * UC23-UC25 at all three levels, from one consistent state of the totals.
+     */
+    public synchronized PopulationBreakdown populationBreakdowns() {
+        return new PopulationBreakdown(populationBreakdown(ReportScope.CONTINENT),
+                populationBreakdown(ReportScope.REGION), populationBreakdown(ReportScope.COUNTRY));
+    }
+
+    /**
+     * UC26-UC31: total population of the named area (name is ignored for WORLD).
+     */
+    public synchronized long population(ReportScope scope, String name) {
+        if (scope == ReportScope.WORLD) return world;
+        if (name == null) return 0;
+        String key = WorldSnapshot.collationKey(name);
+        switch (scope) {
+            case CONTINENT: {
+                Group group = continents.get(key);
+                return group == null ? 0 : group.total;
+            }
+            case REGION: {
+                Group group = regions.get(key);
+                return group == null ? 0 : group.total;
+            }
+            case COUNTRY:
+                for (CountryTotal c : countries.values()) {
+                    if (c.nameKey.equals(key)) return c.row.population;
+                }
+                return 0;
+            case DISTRICT: {
+                long[] district = districts.get(key);
+                return district == null ? 0 : district[0];
+            }
+            case CITY: {
+                TreeMap<Integer, Long> sameName = cities.get(key);
+                return sameName == null ? 0 : sameName.firstEntry().getValue();
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported report scope: " + scope);
+        }
+    }
+
+    /**
+     * UC31 with the city's ID: the lowest-ID city of that name, or null if there is none.
+     */
+    public synchronized ReportBackend.CityPopulation cityPopulation(String name) {
+        if (name == null) return null;
+        TreeMap<Integer, Long> sameName = cities.get(WorldSnapshot.collationKey(name));
+        if (sameName == null) return null;
+        Map.Entry<Integer, Long> first = sameName.firstEntry();
+        return new ReportBackend.CityPopulation(first.getKey(), first.getValue());
+    }
+
+    /**
+     * Wraps a backend so UC23-UC31 are answered from these totals and every other report
+     * from the wrapped backend.
+     * @param base The backend for the country, city, capital and language reports.
+     * @return The combined backend.
+     */
+    public ReportBackend over(ReportBackend base) {
+        PopulationTotals totals = this;
+        return new ReportBackend() {
+            @Override public List<Country> countries(ReportScope scope, String name) { return base.countries(scope, name); }
+            @Override public List<Country> topCountries(ReportScope scope, String name, int n) { return base.topCountries(scope, name, n); }
+            @Override public List<City> cities(ReportScope scope, String name) { return base.cities(scope, name); }
+            @Override public List<City> topCities(ReportScope scope, String name, int n) { return base.topCities(scope, name, n); }
+            @Override public List<City> capitals(ReportScope scope, String name) { return base.capitals(scope, name); }
+            @Override public List<City> topCapitals(ReportScope scope, String name, int n) { return base.topCapitals(scope, name, n); }
+            @Override public List<PopulationSummary> populationBreakdown(ReportScope groupBy) { return totals.populationBreakdown(groupBy); }
+            @Override public PopulationBreakdown populationBreakdowns() { return totals.populationBreakdowns(); }
+            @Override public long population(ReportScope scope, String name) { return totals.population(scope, name); }
+            @Override public CityPopulation cityPopulation(String name) { return totals.cityPopulation(name); }
+            @Override public LanguageIndex languages() { return base.languages(); }
+            @Override public void invalidate() { base.invalidate(); }
+            @Override public void streamCountries(ReportScope scope, String name, RowSink<Country> sink) { base.streamCountries(scope, name, sink); }
+            @Override public void streamCities(ReportScope scope, String name, RowSink<City> sink) { base.streamCities(scope, name, sink); }
+            @Override public void streamCapitals(ReportScope scope, String name, RowSink<City> sink) { base.streamCapitals(scope, name, sink); }
+        };
+    }
+}
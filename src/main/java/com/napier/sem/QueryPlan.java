@@ -0,0 +1,122 @@
+package com.napier.sem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * MySQL's EXPLAIN of a report query: one step per table read, in join order.
+ * <p>
+ * Used to check that the report queries are answered through the SchemaMigrations indexes:
+ * a step of type ALL is a full table scan, and "Using filesort" means the rows are sorted
+ * after being read instead of coming out of an index already in order.
+ */
+public final class QueryPlan {
+    /** One row of EXPLAIN output. */
+    public static final class Step {
+        /** Table (or derived table) read */
+        public final String Table;
+        /** Access type: const, eq_ref, ref, range, index, ALL, ... */
+        public final String Type;
+        /** Index used, or null */
+        public final String Key;
+        /** The Extra column, e.g. "Using index; Using filesort" (empty if none) */
+        public final String Extra;
+
+        Step(String table, String type, String key, String extra) {
+            this.Table = table;
+            this.Type = type;
+            this.Key = key;
+            this.Extra = extra == null ? "" : extra;
+        }
+
+        @Override
+        public String toString() {
+            return Table + " " + Type + (Key == null ? "" : " (" + Key + ")") + (Extra.isEmpty() ? "" : " " + Extra);
+        }
+    }
+
+    /** The query explained */
+    public final String Sql;
+    /** Its steps, in join order */
+    public final List<Step> Steps;
+
+    private QueryPlan(String sql, List<Step> steps) {
+        this.Sql = sql;
+        this.Steps = steps;
+    }
+
+    /**
+     * Explains a query with its parameters bound: strings in order, then an Integer for LIMIT.
+     * @param con A connection to the world database.
+     * @param sql The query.
+     * @param params Its parameters.
+     * @return The plan MySQL would use.
+     * @throws SQLException if the query cannot be explained.
+     */
+    public static QueryPlan explain(Connection con, String sql, Object... params) throws SQLException {
+        List<Step> steps = new ArrayList<>();
+        try (PreparedStatement pStmt = con.prepareStatement("EXPLAIN " + sql)) {
+            int index = 0;
+            for (Object param : params) {
+                if (param instanceof Integer) {
+                    pStmt.setInt(++index, (Integer) param);
+                } else {
+                    pStmt.setString(++index, (String) param);
+                }
+            }
+            try (ResultSet rs = pStmt.executeQuery()) {
+                while (rs.next()) {
+                    steps.add(new Step(rs.getString("table"), rs.getString("type"), rs.getString("key"),
+                            rs.getString("Extra")));
+                }
+            }
+        }
+        return new QueryPlan(sql, steps);
+    }
+
+    /**
+     * Explains the SQL the live backend runs for a use case.
+     * @param con A connection to the world database.
+     * @param useCase The report.
+     * @param name The name argument (ignored if the report takes none).
+     * @param n The N of Top-N reports (ignored if not taken).
+     * @param useRollups true for the PopulationRollup variant of UC23-UC30.
+     * @return The plan MySQL would use.
+     * @throws SQLException if the query cannot be explained.
+     */
+    public static QueryPlan explain(Connection con, UseCase useCase, String name, int n, boolean useRollups)
+            throws SQLException {
+        List<Object> params = new ArrayList<>(2);
+        if (useCase.takesName()) params.add(name);
+        if (useCase.takesN()) params.add(n);
+        return explain(con, SqlReportBackend.reportSql(useCase, useRollups), params.toArray());
+    }
+
+    /** @return The tables read by a full table scan (type ALL). */
+    public List<String> fullScans() {
+        List<String> tables = new ArrayList<>();
+        for (Step step : Steps) {
+            if ("ALL".equals(step.Type)) tables.add(step.Table);
+        }
+        return tables;
+    }
+
+    /** @return true if any step sorts its rows instead of reading them in index order. */
+    public boolean usesFilesort() {
+        for (Step step : Steps) {
+            if (step.Extra.contains("Using filesort")) return true;
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(Sql);
+        for (Step step : Steps) sb.append("\n  ").append(step);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,309 @@
+package com.napier.sem;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Spreads the read-only report queries over MySQL read replicas, each with its own
+ * ConnectionPool, falling back to the primary when no replica can serve.
+ * <p>
+ * Each lease goes to the eligible replica with the fewest leased connections (least
+ * outstanding requests); ties rotate round-robin. A replica is eligible unless:
+ * <ul>
+ *   <li>it was ejected: opening a connection to it failed, within the last eject period;</li>
+ *   <li>its pool has seen the database go away and no connection has succeeded since;</li>
+ *   <li>its last lag check found it more than the lag threshold behind the primary, or not
+ *       replicating at all (so reports never read data older than the threshold).</li>
+ * </ul>
+ * Every replica's lag is checked in the background (and once when the router is created);
+ * a successful check also readmits an ejected replica once its eject period is over.
+ * <p>
+ * The router owns the replica pools and closes them; the primary pool stays with its owner.
+ */
+public class ReplicaRouter implements DataSource, AutoCloseable {
+    /** Default lag threshold: replicas further behind are not read from. */
+    public static final long DEFAULT_MAX_LAG_SECONDS = 5;
+    /** Default time a failed replica is kept out of rotation. */
+    public static final long DEFAULT_EJECT_MS = 10_000;
+    /** Default interval between lag checks. */
+    public static final long DEFAULT_CHECK_INTERVAL_MS = 2_000;
+
+    /** Reads how far a replica is behind its source. */
+    @FunctionalInterface
+    public interface LagProbe {
+        /**
+         * @param con A connection to the replica.
+         * @return Seconds behind the source, or null if replication is not running.
+         */
+        Long lagSeconds(Connection con) throws SQLException;
+    }
+
+    /**
+     * MySQL 8 lag check: Seconds_Behind_Source from SHOW REPLICA STATUS. A server that is
+     * not configured as a replica returns no status and counts as up to date.
+     */
+    public static final LagProbe MYSQL_LAG = con -> {
+        try (Statement statement = con.createStatement();
+             ResultSet rs = statement.executeQuery("SHOW REPLICA STATUS")) {
+            if (!rs.next()) return 0L;
+            long lag = rs.getLong("Seconds_Behind_Source");
+            return rs.wasNull() ? null : lag;
+        }
+    };
+
+    /** One read replica and what the router knows about it. */
+    private static final class Replica {
+        final String name;
+        final ConnectionPool pool;
+        /** Not leased from before this System.nanoTime(); 0 when not ejected. */
+        volatile long ejectedUntil;
+        /** Lag seen by the last check: seconds, null if not replicating, -1 before the first check. */
+        volatile Long lagSeconds = -1L;
+        volatile boolean lagging;
+        final AtomicLong leases = new AtomicLong();
+
+        Replica(String name, ConnectionPool pool) {
+            this.name = name;
+            this.pool = pool;
+        }
+    }
+
+    private final ConnectionPool primary;
+    private final List<Replica> replicas;
+    private final LagProbe probe;
+    private final long maxLagSeconds;
+    private final long ejectNanos;
+    /** Where the round-robin tie break starts for the next lease. */
+    private final AtomicInteger next = new AtomicInteger();
+    /** Leases that fell back to the primary. */
+    private final AtomicLong primaryLeases = new AtomicLong();
+    private final ScheduledExecutorService checker;
+
+    /**
+     * Creates a router and checks every replica once.
+     * @param primary Pool of the primary, used when no replica is eligible (not closed by the router).
+     * @param replicas Replica pools by name (e.g. host:port), in rotation order.
+     * @param probe How lag is read (MYSQL_LAG for MySQL).
+     * @param maxLagSeconds Replicas further behind than this are not read from.
+     * @param ejectMillis How long a replica that failed to connect is skipped.
+     * @param checkIntervalMillis Interval of the background lag checks; 0 for none.
+     */
+    public ReplicaRouter(ConnectionPool primary, Map<String, ConnectionPool> replicas, LagProbe probe,
+                         long maxLagSeconds, long ejectMillis, long checkIntervalMillis) {
+        if (maxLagSeconds < 0 || ejectMillis < 0 || checkIntervalMillis < 0) {
+            throw new IllegalArgumentException("Invalid replica settings: maxLag=" + maxLagSeconds
+                    + ", eject=" + ejectMillis + ", checkInterval=" + checkIntervalMillis);
+        }
+        this.primary = primary;
+        List<Replica> list = new ArrayList<>(replicas.size());
+        replicas.forEach((name, pool) -> list.add(new Replica(name, pool)));
+        this.replicas = Collections.unmodifiableList(list);
+        this.probe = probe;
+        this.maxLagSeconds = maxLagSeconds;
+        this.ejectNanos = TimeUnit.MILLISECONDS.toNanos(ejectMillis);
+
+        checkReplicas();
+        if (checkIntervalMillis > 0) {
+            checker = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "replica-lag-checker");
+                t.setDaemon(true);
+                return t;
+            });
+            checker.scheduleWithFixedDelay(this::checkReplicas, checkIntervalMillis, checkIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            checker = null;
+        }
+    }
+
+    /**
+     * Leases a connection from the least busy eligible replica. A replica that fails to
+     * connect is ejected and the next one is tried; the primary serves if none can.
+     * @return A pooled connection; {@code close()} hands it back to its pool.
+     * @throws SQLException if the primary has to serve and cannot.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        List<Replica> tried = new ArrayList<>(2);
+        Replica replica;
+        while ((replica = pick(tried)) != null) {
+            try {
+                Connection con = replica.pool.getConnection();
+                replica.leases.incrementAndGet();
+                return con;
+            } catch (SQLException e) {
+                // A replica that is only busy stays in rotation; one that cannot be reached is ejected
+                if (ConnectionPool.isConnectionFailure(e)) eject(replica, e);
+                tried.add(replica);
+            }
+        }
+        primaryLeases.incrementAndGet();
+        return primary.getConnection();
+    }
+
+    /** Not supported: the pools' credentials are fixed at construction. */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("ReplicaRouter does not support per-call credentials.");
+    }
+
+    /** The eligible replica with the fewest leased connections, not counting those already tried. */
+    private Replica pick(List<Replica> tried) {
+        int n = replicas.size();
+        if (n == 0) return null;
+        long now = System.nanoTime();
+        int start = Math.floorMod(next.getAndIncrement(), n);
+        Replica best = null;
+        int bestActive = Integer.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            Replica r = replicas.get((start + i) % n);
+            if (tried.contains(r) || !isEligible(r, now)) continue;
+            int active = r.pool.getActiveCount();
+            if (active < bestActive) {
+                best = r;
+                bestActive = active;
+            }
+        }
+        return best;
+    }
+
+    private static boolean isEligible(Replica r, long now) {
+        return now - r.ejectedUntil >= 0 && !r.lagging && r.pool.isHealthy() && !r.pool.isClosed();
+    }
+
+    private void eject(Replica r, SQLException cause) {
+        boolean wasIn = r.ejectedUntil == 0;
+        r.ejectedUntil = System.nanoTime() + ejectNanos;
+        if (wasIn) {
+            System.err.println("Replica " + r.name + " ejected for " + TimeUnit.NANOSECONDS.toMillis(ejectNanos)
+                    + "ms: " + cause.getMessage());
+        }
+    }
+
+    /**
+     * Reads every replica's lag: a replica over the threshold (or not replicating) stops
+     * serving until a later check finds it caught up, and one that cannot be reached is ejected.
+     * Runs in the background every check interval.
+     */
+    void checkReplicas() {
+        for (Replica r : replicas) {
+            Long lag;
+            try (Connection con = r.pool.getConnection()) {
+                lag = probe.lagSeconds(con);
+            } catch (SQLException e) {
+                eject(r, e);
+                continue;
+            }
+            boolean lagging = lag == null || lag > maxLagSeconds;
+            if (lagging != r.lagging) {
+                System.err.println("Replica " + r.name + (lagging
+                        ? " is " + (lag == null ? "not replicating" : lag + "s behind") + ", not reading from it."
+                        : " caught up (" + lag + "s behind), reading from it again."));
+            }
+            r.lagSeconds = lag;
+            r.lagging = lagging;
+            if (r.ejectedUntil != 0 && System.nanoTime() - r.ejectedUntil >= 0) {
+                r.ejectedUntil = 0;
+                System.out.println("Replica " + r.name + " is reachable again.");
+            }
+        }
+    }
+
+    /** @return Number of replicas that would be leased from right now. */
+    public int getEligibleReplicaCount() {
+        long now = System.nanoTime();
+        int count = 0;
+        for (Replica r : replicas) {
+            if (isEligible(r, now)) count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return Per replica (by name): leases so far, and its state ("ok", "ejected", "lagging"
+     * or "down"), e.g. {@code "replica1:3306" -> "ok, 120 leases, 0s behind"}.
+     */
+    public Map<String, String> getReplicaStatus() {
+        long now = System.nanoTime();
+        Map<String, String> status = new LinkedHashMap<>();
+        for (Replica r : replicas) {
+            String state = isEligible(r, now) ? "ok"
+                    : now - r.ejectedUntil < 0 ? "ejected"
+                    : r.lagging ? "lagging"
+                    : "down";
+            Long lag = r.lagSeconds;
+            status.put(r.name, state + ", " + r.leases.get() + " leases, "
+                    + (lag == null ? "not replicating" : lag < 0 ? "lag unknown" : lag + "s behind"));
+        }
+        return status;
+    }
+
+    /** @return Number of leases served by the primary because no replica was eligible. */
+    public long getPrimaryLeaseCount() {
+        return primaryLeases.get();
+    }
+
+    /**
+     * Stops the lag checks and closes the replica pools (not the primary's).
+     */
+    @Override
+    public void close() {
+        if (checker != null) checker.shutdownNow();
+        for (Replica r : replicas) r.pool.close();
+    }
+
+    // --- DataSource boilerplate ---
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+        // Logging goes to System.err like the rest of the application
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException("ReplicaRouter does not use java.util.logging.");
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) return iface.cast(this);
+        throw new SQLException("ReplicaRouter is not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) {
+        return iface.isInstance(this);
+    }
+}
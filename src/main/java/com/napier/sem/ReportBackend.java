@@ -0,0 +1,118 @@
+package com.napier.sem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Source of report data for App. Each method answers one family of use cases
+ * and returns the rows in report order; App is responsible for printing them.
+ * <p>
+ * Implementations: {@link SqlReportBackend} (live queries against MySQL),
+ * {@link WorldSnapshot} (in-memory copy of the world tables) and
+ * {@link ShardedReportBackend} (continent shards queried in parallel and merged).
+ */
+public interface ReportBackend {
+
+    /** UC01-UC03: countries in the scope (WORLD, CONTINENT or REGION), largest population first. */
+    List<Country> countries(ReportScope scope, String name);
+
+    /** UC04-UC06: the N most populated countries in the scope. */
+    List<Country> topCountries(ReportScope scope, String name, int n);
+
+    /** UC07-UC11: cities in the scope (WORLD, CONTINENT, REGION, COUNTRY or DISTRICT), largest first. */
+    List<City> cities(ReportScope scope, String name);
+
+    /** UC12-UC16: the N most populated cities in the scope. */
+    List<City> topCities(ReportScope scope, String name, int n);
+
+    /** UC17-UC19: capital cities in the scope (WORLD, CONTINENT or REGION), largest first. */
+    List<City> capitals(ReportScope scope, String name);
+
+    /** UC20-UC22: the N most populated capital cities in the scope. */
+    List<City> topCapitals(ReportScope scope, String name, int n);
+
+    /** UC23-UC25: city/non-city breakdown grouped by CONTINENT, REGION or COUNTRY. */
+    List<PopulationSummary> populationBreakdown(ReportScope groupBy);
+
+    /**
+     * UC23-UC25 at all three levels at once. The default asks for each level separately;
+     * backends that can compute them in one pass override it.
+     */
+    default PopulationBreakdown populationBreakdowns() {
+        return new PopulationBreakdown(populationBreakdown(ReportScope.CONTINENT),
+                populationBreakdown(ReportScope.REGION), populationBreakdown(ReportScope.COUNTRY));
+    }
+
+    /** UC26-UC31: total population of the named area (name is ignored for WORLD). */
+    long population(ReportScope scope, String name);
+
+    /**
+     * UC31 with the row it was read from: the lowest-ID city of that name, or null if there
+     * is none. A partitioned backend compares IDs to pick the same city as a single database.
+     * The default has no IDs and reports a nonzero population under ID Integer.MAX_VALUE.
+     */
+    default CityPopulation cityPopulation(String name) {
+        long population = population(ReportScope.CITY, name);
+        return population == 0 ? null : new CityPopulation(Integer.MAX_VALUE, population);
+    }
+
+    /** A city's ID and population, see cityPopulation(). */
+    final class CityPopulation {
+        /** city.ID */
+        public final int ID;
+        /** city.Population */
+        public final long Population;
+
+        public CityPopulation(int id, long population) {
+            this.ID = id;
+            this.Population = population;
+        }
+    }
+
+    /**
+     * Drops data the backend read once and keeps for several reports, so the next report reads
+     * the tables again (e.g. after the data was edited). The default keeps nothing.
+     */
+    default void invalidate() {
+    }
+
+    /** Speaker estimates per language, continent, region and country (built once per backend). */
+    LanguageIndex languages();
+
+    /** UC32: estimated speakers of Chinese, English, Hindi, Spanish and Arabic, answered from languages(). */
+    default List<LanguageSpeakers> majorLanguageSpeakers() {
+        return languages().speakers(LanguageIndex.MAJOR_LANGUAGES);
+    }
+
+    /**
+     * Streaming form of countries(): pushes each row into the sink as it is produced.
+     * The default collects the list first; backends that can do better override it.
+     * The caller is responsible for calling sink.end().
+     */
+    default void streamCountries(ReportScope scope, String name, RowSink<Country> sink) {
+        countries(scope, name).forEach(sink::accept);
+    }
+
+    /** Streaming form of cities(); see streamCountries. */
+    default void streamCities(ReportScope scope, String name, RowSink<City> sink) {
+        cities(scope, name).forEach(sink::accept);
+    }
+
+    /** Streaming form of capitals(); see streamCountries. */
+    default void streamCapitals(ReportScope scope, String name, RowSink<City> sink) {
+        capitals(scope, name).forEach(sink::accept);
+    }
+
+    /** Backend used while the application is not connected: every report is empty. */
+    ReportBackend DISCONNECTED = new ReportBackend() {
+        public List<Country> countries(ReportScope scope, String name) { return new ArrayList<>(); }
+        public List<Country> topCountries(ReportScope scope, String name, int n) { return new ArrayList<>(); }
+        public List<City> cities(ReportScope scope, String name) { return new ArrayList<>(); }
+        public List<City> topCities(ReportScope scope, String name, int n) { return new ArrayList<>(); }
+        public List<City> capitals(ReportScope scope, String name) { return new ArrayList<>(); }
+        public List<City> topCapitals(ReportScope scope, String name, int n) { return new ArrayList<>(); }
+        public List<PopulationSummary> populationBreakdown(ReportScope groupBy) { return new ArrayList<>(); }
+        public long population(ReportScope scope, String name) { return 0; }
+        public LanguageIndex languages() { return LanguageIndex.EMPTY; }
+    };
+}
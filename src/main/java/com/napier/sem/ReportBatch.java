@@ -0,0 +1,382 @@
+package com.napier.sem;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A list of independent reports that run at the same time, up to a parallelism limit.
+ * <p>
+ * Each report prints into its own buffer, and the buffers are written to the output in the
+ * order the reports were added as soon as all earlier ones are done. The output is therefore
+ * the same as running the reports one after another, with no interleaving between reports,
+ * while the batch takes roughly as long as its slowest report instead of the sum of all.
+ * With live SQL every running report leases its own connection from the pool.
+ * <p>
+ * A batch can also come from a job file and write each report to its own file
+ * (see {@link #fromJobFile(Path, Path)} and {@link #runToFiles(App, int)}).
+ */
+public class ReportBatch {
+    /** Default number of reports run at the same time. */
+    public static final int DEFAULT_PARALLELISM = 4;
+    /** Buffer size of each report output file. */
+    private static final int FILE_BUFFER_SIZE = 64 * 1024;
+
+    /** One report of the batch. */
+    private static final class Job {
+        final UseCase useCase;
+        final String name;
+        final int n;
+        /** File written by runToFiles(), or null. */
+        final Path output;
+
+        Job(UseCase useCase, String name, int n, Path output) {
+            this.useCase = useCase;
+            this.name = name;
+            this.n = n;
+            this.output = output;
+        }
+    }
+
+    private final List<Job> jobs = new ArrayList<>();
+
+    /**
+     * Adds a report to the batch.
+     * @param useCase The report to run.
+     * @param name The continent/region/country/district/city name (ignored if the report takes none).
+     * @param n The N of Top-N reports (ignored otherwise).
+     * @return This batch, for chaining.
+     */
+    public ReportBatch add(UseCase useCase, String name, int n) {
+        return add(useCase, name, n, null);
+    }
+
+    /**
+     * Adds a report that runToFiles() writes to its own file.
+     * @param useCase The report to run.
+     * @param name The continent/region/country/district/city name (ignored if the report takes none).
+     * @param n The N of Top-N reports (ignored otherwise).
+     * @param output The file to write the report to (parent directories are created).
+     * @return This batch, for chaining.
+     */
+    public ReportBatch add(UseCase useCase, String name, int n, Path output) {
+        jobs.add(new Job(useCase, name, n, output));
+        return this;
+    }
+
+    /** @return Number of reports in the batch. */
+    public int size() {
+        return jobs.size();
+    }
+
+    /**
+     * Runs every report of the batch and writes their output in order.
+     * A report that fails is reported on System.err and the rest of the batch continues.
+     * @param app The application to run the reports on.
+     * @param parallelism Maximum number of reports running at the same time; 1 runs them
+     *                    one after another on the calling thread, writing straight to out.
+     * @param out Where the reports are written.
+     * @return The population total of each report (UC26-UC31), 0 for the others, in batch order.
+     */
+    public long[] run(App app, int parallelism, PrintStream out) {
+        long[] totals = new long[jobs.size()];
+        if (parallelism <= 1 || jobs.size() <= 1) {
+            for (int i = 0; i < jobs.size(); i++) {
+                Job job = jobs.get(i);
+                try {
+                    totals[i] = app.printReport(job.useCase, job.name, job.n, out);
+                } catch (RuntimeException e) {
+                    System.err.println("Report " + job.useCase + " failed: " + e.getMessage());
+                }
+            }
+            return totals;
+        }
+
+        ExecutorService executor = newExecutor(Math.min(parallelism, jobs.size()));
+        try {
+            List<Future<Long>> results = new ArrayList<>(jobs.size());
+            List<ByteArrayOutputStream> buffers = new ArrayList<>(jobs.size());
+            for (Job job : jobs) {
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                buffers.add(buffer);
+                results.add(executor.submit(() -> {
+                    try (PrintStream reportOut = new PrintStream(buffer)) {
+                        return app.printReport(job.useCase, job.name, job.n, reportOut);
+                    }
+                }));
+            }
+
+            // Write each report once it and every report before it are done
+            for (int i = 0; i < jobs.size(); i++) {
+                try {
+                    totals[i] = results.get(i).get();
+                } catch (ExecutionException e) {
+                    System.err.println("Report " + jobs.get(i).useCase + " failed: " + e.getCause().getMessage());
+                }
+                byte[] report = buffers.get(i).toByteArray();
+                buffers.set(i, null);
+                out.write(report, 0, report.length);
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Report batch interrupted.");
+        } finally {
+            executor.shutdownNow();
+        }
+        return totals;
+    }
+
+    /**
+     * Runs every report of the batch and writes each one to its own output file.
+     * The queries run ahead of the writing: while report k is being written, the queries
+     * of up to {@code parallelism} later reports are already running. Reports are written
+     * in batch order on the calling thread. A report that fails is reported on System.err
+     * and the rest of the batch continues.
+     * @param app The application to run the reports on.
+     * @param parallelism Maximum number of queries running at the same time.
+     * @return Number of reports that failed.
+     * @throws IllegalStateException if a report was added without an output file.
+     */
+    public int runToFiles(App app, int parallelism) {
+        for (Job job : jobs) {
+            if (job.output == null) throw new IllegalStateException("Report " + job.useCase + " has no output file.");
+        }
+        int window = Math.max(1, parallelism);
+        ExecutorService executor = newExecutor(Math.min(window, Math.max(1, jobs.size())));
+        int failures = 0;
+        try {
+            List<Future<ReportResult>> results = new ArrayList<>(jobs.size());
+            for (int i = 0; i < jobs.size(); i++) {
+                // Keep the next `window` queries running while this report is written
+                while (results.size() < jobs.size() && results.size() <= i + window) {
+                    Job next = jobs.get(results.size());
+                    results.add(executor.submit(() -> app.report(next.useCase, next.name, next.n)));
+                }
+                Job job = jobs.get(i);
+                try {
+                    ReportResult result = results.get(i).get();
+                    results.set(i, null);
+                    write(app, job, result);
+                } catch (ExecutionException e) {
+                    failures++;
+                    System.err.println("Report " + job.useCase + " failed: " + e.getCause().getMessage());
+                } catch (IOException e) {
+                    failures++;
+                    System.err.println("Failed to write report " + job.useCase + " to " + job.output + ": " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Report batch interrupted.");
+        } finally {
+            executor.shutdownNow();
+        }
+        return failures;
+    }
+
+    private static void write(App app, Job job, ReportResult result) throws IOException {
+        Path parent = job.output.toAbsolutePath().getParent();
+        if (parent != null) Files.createDirectories(parent);
+        long start = System.nanoTime();
+        ExportFormat format = ExportFormat.forFile(job.output);
+        if (format != null) {
+            try (FileChannel out = FileChannel.open(job.output, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                format.open(out).write(result);
+            }
+            app.getMetrics().record(job.useCase, ReportMetrics.Phase.RENDER, System.nanoTime() - start);
+            return;
+        }
+        try (PrintStream out = new PrintStream(new BufferedOutputStream(Files.newOutputStream(job.output), FILE_BUFFER_SIZE),
+                false, StandardCharsets.UTF_8)) {
+            result.print(out);
+            out.flush();
+            if (out.checkError()) throw new IOException("write error");
+        }
+        app.getMetrics().record(job.useCase, ReportMetrics.Phase.RENDER, System.nanoTime() - start);
+    }
+
+    // =========================================================================
+    // Job files
+    // =========================================================================
+
+    /**
+     * Reads a job file: one report per line, as the use case and its arguments.
+     * <pre>
+     * # Blank lines and lines starting with # are ignored
+     * uc01
+     * uc13 continent=Asia n=10
+     * 27 continent="North America" out=totals/north-america.txt
+     * uc07 format=csv
+     * </pre>
+     * The name argument is given by its parameter name (continent, region, country, district,
+     * city) or as {@code name=}; values with spaces are quoted. Each report is written to
+     * {@code out=} (relative to the output directory), or by default to e.g.
+     * {@code uc13-asia-10.txt} in the output directory; a default name already taken by an
+     * earlier report gets a number ({@code uc01-2.txt}). Files ending in .csv, .jsonl or .md are
+     * written in that export format (see ExportFormat) instead of as the console table;
+     * {@code format=text|csv|jsonl|md} picks the format and the default file extension, and
+     * must agree with the extension of {@code out=}.
+     * @param jobFile The job file (UTF-8).
+     * @param outputDir Directory the report files are written to.
+     * @return The batch, ready for runToFiles().
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if a line is not a valid report or writes a file an earlier
+     *         line already writes, naming the line.
+     */
+    public static ReportBatch fromJobFile(Path jobFile, Path outputDir) throws IOException {
+        return parseJobs(Files.readAllLines(jobFile, StandardCharsets.UTF_8), outputDir);
+    }
+
+    /**
+     * Parses job file lines; see fromJobFile.
+     */
+    static ReportBatch parseJobs(List<String> lines, Path outputDir) {
+        ReportBatch batch = new ReportBatch();
+        Set<Path> outputs = new HashSet<>();
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            try {
+                parseJob(batch, line, outputDir, outputs);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": " + e.getMessage(), e);
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Parses one job line and adds it to the batch.
+     * @param outputs The files of the jobs added so far; the new job's file is added.
+     */
+    private static void parseJob(ReportBatch batch, String line, Path outputDir, Set<Path> outputs) {
+        List<String> tokens = tokenize(line);
+        UseCase useCase = ReportServer.parseUseCase(tokens.get(0));
+        if (useCase == null) throw new IllegalArgumentException("Unknown report: " + tokens.get(0));
+
+        String name = null;
+        String nText = null;
+        String out = null;
+        ExportFormat format = null;
+        boolean text = false;
+        for (String token : tokens.subList(1, tokens.size())) {
+            int eq = token.indexOf('=');
+            if (eq < 0) throw new IllegalArgumentException("Expected key=value: " + token);
+            String key = token.substring(0, eq).toLowerCase(Locale.ROOT);
+            String value = token.substring(eq + 1);
+            if (key.equals("n")) {
+                nText = value;
+            } else if (key.equals("out")) {
+                out = value;
+            } else if (key.equals("format")) {
+                format = ExportFormat.parse(value);
+                text = value.equalsIgnoreCase("text");
+                if (format == null && !text) {
+                    throw new IllegalArgumentException("Unknown format: " + value);
+                }
+            } else if (useCase.takesName() && (key.equals("name") || key.equals(useCase.nameParameter()))) {
+                name = value;
+            } else {
+                throw new IllegalArgumentException("Unexpected argument '" + key + "' for " + useCase);
+            }
+        }
+        if (useCase.takesName() && (name == null || name.isEmpty())) {
+            throw new IllegalArgumentException("Missing argument '" + useCase.nameParameter() + "' for " + useCase);
+        }
+        int n = 0;
+        if (useCase.takesN()) {
+            try {
+                n = Integer.parseInt(nText == null ? "" : nText);
+            } catch (NumberFormatException e) {
+                n = -1;
+            }
+            if (n < 1) throw new IllegalArgumentException("Argument 'n' must be a positive integer for " + useCase);
+        }
+        if (out != null && format != null && ExportFormat.forFile(Path.of(out)) != format) {
+            throw new IllegalArgumentException("File " + out + " does not end in ." + format.extension());
+        }
+        if (out != null && text && ExportFormat.forFile(Path.of(out)) != null) {
+            throw new IllegalArgumentException("File " + out + " ends in ." + ExportFormat.forFile(Path.of(out)).extension()
+                    + ", which is not written as text");
+        }
+
+        Path output;
+        if (out != null) {
+            output = outputDir.resolve(out).normalize();
+            if (outputs.contains(output)) throw new IllegalArgumentException("File " + out + " is already written by an earlier report");
+        } else {
+            String extension = format != null ? format.extension() : "txt";
+            output = outputDir.resolve(defaultFileName(useCase, name, n, 1, extension)).normalize();
+            for (int copy = 2; outputs.contains(output); copy++) {
+                output = outputDir.resolve(defaultFileName(useCase, name, n, copy, extension)).normalize();
+            }
+        }
+        outputs.add(output);
+        batch.add(useCase, name, n, output);
+    }
+
+    /** Splits on whitespace; double quotes group a value with spaces ("North America"). */
+    private static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+        for (int i = 0; i < line.length(); i++) {
+            char ch = line.charAt(i);
+            if (ch == '"') {
+                quoted = !quoted;
+                inToken = true;
+            } else if (Character.isWhitespace(ch) && !quoted) {
+                if (inToken) tokens.add(token.toString());
+                token.setLength(0);
+                inToken = false;
+            } else {
+                token.append(ch);
+                inToken = true;
+            }
+        }
+        if (quoted) throw new IllegalArgumentException("Unterminated quote");
+        if (inToken) tokens.add(token.toString());
+        return tokens;
+    }
+
+    /** e.g. "uc13-north-america-10.txt", or "uc13-north-america-10-2.txt" for copy 2. */
+    static String defaultFileName(UseCase useCase, String name, int n, int copy, String extension) {
+        StringBuilder file = new StringBuilder(useCase.name().toLowerCase(Locale.ROOT));
+        if (useCase.takesName()) {
+            file.append('-');
+            String slug = WorldSnapshot.collationKey(name).replaceAll("[^a-z0-9]+", "-").replaceAll("^-|-$", "");
+            file.append(slug.isEmpty() ? "x" : slug);
+        }
+        if (useCase.takesN()) file.append('-').append(n);
+        if (copy > 1) file.append('-').append(copy);
+        return file.append('.').append(extension).toString();
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        AtomicInteger count = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "report-batch-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+}
@@ -0,0 +1,267 @@
+package com.napier.sem;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Result cache for report queries, keyed by use case number and parameters.
+ * <p>
+ * Entries expire after a fixed time-to-live, and the least recently used entries are
+ * evicted once the estimated size of all cached results exceeds the byte bound.
+ * Empty results (and zero totals) are never cached, because the SQL backend reports
+ * query errors as empty results. Cached lists are read-only.
+ */
+public class ReportCache {
+    /** Default upper bound on the estimated size of cached results (64 MB). */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+    /** Default time-to-live of a cached result (5 minutes). */
+    public static final long DEFAULT_TTL_MS = 5 * 60 * 1000;
+
+    private final long maxBytes;
+    private final long ttlMillis;
+
+    /** Access-ordered map: iteration starts at the least recently used entry. */
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long sizeBytes = 0;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+    /** Bumped by every invalidation, so a query that overlapped one does not store its result. */
+    private long generation = 0;
+
+    /** Identifies one report invocation: UC number plus its arguments. */
+    private static final class Key {
+        final int ucNumber;
+        final Object[] params;
+
+        Key(int ucNumber, Object[] params) {
+            this.ucNumber = ucNumber;
+            this.params = params;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return ucNumber == other.ucNumber && Arrays.equals(params, other.params);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * ucNumber + Arrays.hashCode(params);
+        }
+    }
+
+    private static final class Entry {
+        final Object value;
+        final long bytes;
+        final long expiresAt;
+
+        Entry(Object value, long bytes, long expiresAt) {
+            this.value = value;
+            this.bytes = bytes;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Creates a cache with the default size bound and TTL.
+     */
+    public ReportCache() {
+        this(DEFAULT_MAX_BYTES, DEFAULT_TTL_MS);
+    }
+
+    /**
+     * @param maxBytes Upper bound on the estimated size of all cached results.
+     * @param ttlMillis How long a result stays valid after it was loaded.
+     */
+    public ReportCache(long maxBytes, long ttlMillis) {
+        this.maxBytes = maxBytes;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Returns the cached result for (ucNumber, params), or runs the query and caches its result.
+     * The query runs outside the cache lock, so concurrent misses on the same key may both query.
+     * If the cache is invalidated while the query runs, its result is returned but not cached.
+     * @param ucNumber Use case number (1-32).
+     * @param query Produces the result on a miss.
+     * @param params Report arguments (names and N); null is allowed.
+     * @return The cached or freshly loaded result.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(int ucNumber, Supplier<T> query, Object... params) {
+        Key key = new Key(ucNumber, params.clone());
+        long now = System.currentTimeMillis();
+        long loadGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                hits++;
+                return (T) entry.value;
+            }
+            if (entry != null) remove(key);
+            misses++;
+            loadGeneration = generation;
+        }
+
+        T value = query.get();
+        if (isEmpty(value)) return value;
+        if (value instanceof List) {
+            value = (T) Collections.unmodifiableList((List<?>) value);
+        }
+        long bytes = estimateBytes(value);
+        if (bytes > maxBytes) return value;
+
+        synchronized (this) {
+            if (generation != loadGeneration) return value;
+            Entry previous = entries.put(key, new Entry(value, bytes, now + ttlMillis));
+            if (previous != null) sizeBytes -= previous.bytes;
+            sizeBytes += bytes;
+            evictToFit();
+        }
+        return value;
+    }
+
+    /**
+     * Drops every cached result of one use case (e.g. after its data changed).
+     * @param ucNumber Use case number (1-32).
+     */
+    public synchronized void invalidate(int ucNumber) {
+        generation++;
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            if (e.getKey().ucNumber == ucNumber) {
+                sizeBytes -= e.getValue().bytes;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops the cached result of one report invocation.
+     */
+    public synchronized void invalidate(int ucNumber, Object... params) {
+        generation++;
+        remove(new Key(ucNumber, params));
+    }
+
+    /**
+     * Drops the cached results a change notification refers to: every invocation of the
+     * report whose name argument matches the key (compared like MySQL, so "asia" and
+     * "Asia" both go), or all of its invocations when the report takes no name.
+     * @param key A changed report, e.g. from PopulationChangeFeed.
+     */
+    public synchronized void invalidate(ReportKey key) {
+        generation++;
+        int ucNumber = key.Report.number();
+        boolean byName = key.Report.takesName();
+        Iterator<Map.Entry<Key, Entry>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<Key, Entry> e = it.next();
+            Key cached = e.getKey();
+            if (cached.ucNumber != ucNumber) continue;
+            if (byName && !(cached.params.length > 0 && cached.params[0] instanceof String
+                    && key.matchesName((String) cached.params[0]))) continue;
+            sizeBytes -= e.getValue().bytes;
+            it.remove();
+        }
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    /** @return Number of requests answered from the cache. */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /** @return Number of requests that had to run the query. */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /** @return Number of entries evicted to stay under the byte bound. */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /** @return Estimated size in bytes of all cached results. */
+    public synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /** @return Number of cached results (including expired ones not yet removed). */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    private void remove(Key key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) sizeBytes -= removed.bytes;
+    }
+
+    /** Evicts least recently used entries until the size bound holds. */
+    private void evictToFit() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (sizeBytes > maxBytes && it.hasNext()) {
+            sizeBytes -= it.next().bytes;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static boolean isEmpty(Object value) {
+        if (value == null) return true;
+        if (value instanceof List) return ((List<?>) value).isEmpty();
+        if (value instanceof Long) return (Long) value == 0;
+        return false;
+    }
+
+    // =========================================================================
+    // Size estimation (64-bit JVM with compressed references)
+    // =========================================================================
+
+    private static long stringBytes(String s) {
+        // String object + byte[] header + Latin-1 content
+        return s == null ? 0 : 24 + 16 + s.length();
+    }
+
+    /**
+     * Estimates the heap footprint of a cached report result.
+     */
+    static long estimateBytes(Object value) {
+        if (!(value instanceof List)) return 16;
+        List<?> rows = (List<?>) value;
+        long bytes = 16 + 16 + 4L * rows.size(); // wrapper + list + reference array
+        for (Object row : rows) {
+            if (row instanceof City) {
+                City c = (City) row;
+                bytes += 32 + stringBytes(c.Name) + stringBytes(c.CountryName) + stringBytes(c.District);
+            } else if (row instanceof Country) {
+                Country c = (Country) row;
+                bytes += 40 + stringBytes(c.Code) + stringBytes(c.Name) + stringBytes(c.Continent)
+                        + stringBytes(c.Region) + stringBytes(c.Capital);
+            } else if (row instanceof PopulationSummary) {
+                bytes += 56 + stringBytes(((PopulationSummary) row).Name);
+            } else if (row instanceof LanguageSpeakers) {
+                bytes += 32 + stringBytes(((LanguageSpeakers) row).Language);
+            } else {
+                bytes += 64;
+            }
+        }
+        return bytes;
+    }
+}
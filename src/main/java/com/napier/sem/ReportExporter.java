@@ -0,0 +1,574 @@
+package com.napier.sem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes reports in a machine-readable format (see {@link ExportFormat}) to a byte channel.
+ * <p>
+ * Output is encoded as UTF-8 straight into one reusable buffer that is written to the channel
+ * whenever it fills up, so rows go out as they are produced and no String is built per row
+ * or per field. Field names and delimiters are encoded once per report, and the repeating
+ * text columns (continent, region, country, district) are escaped and encoded once per
+ * distinct value: the rows share dictionary instances (see StringDictionary), so a cache
+ * keyed by identity finds them without hashing the text.
+ * <p>
+ * A format plugs in by extending this class and implementing the header, field and row hooks;
+ * the base class walks the rows of each report kind. An exporter can write several reports
+ * one after another and never closes its channel. Not thread-safe; use one per output.
+ */
+public abstract class ReportExporter {
+    /** Size of the output buffer; the channel is written when it is full. */
+    private static final int BUFFER_SIZE = 64 * 1024;
+    /** Distinct repeating values whose encoded bytes are kept, per exporter. */
+    private static final int MAX_CACHED_VALUES = 4_096;
+    /** Worst case output bytes per input char (a JSON \\u00XX escape). */
+    private static final int MAX_BYTES_PER_CHAR = 6;
+
+    /** The fields of each report kind. */
+    private static final Map<UseCase.Kind, Columns> COLUMNS = new EnumMap<>(UseCase.Kind.class);
+
+    static {
+        // name:Label, then :n for numbers or :r for text columns whose values repeat between rows
+        COLUMNS.put(UseCase.Kind.COUNTRIES, new Columns("code:Code", "name:Name", "continent:Continent:r",
+                "region:Region:r", "population:Population:n", "capital:Capital"));
+        COLUMNS.put(UseCase.Kind.CITIES, new Columns("name:Name", "country:Country:r", "district:District:r",
+                "population:Population:n"));
+        COLUMNS.put(UseCase.Kind.CAPITALS, new Columns("name:Name", "country:Country:r", "population:Population:n"));
+        COLUMNS.put(UseCase.Kind.BREAKDOWN, new Columns("name:Name", "totalPopulation:Total Population:n",
+                "cityPopulation:City Population:n", "cityPopulationPercent:City %:n",
+                "nonCityPopulation:Non-City Population:n", "nonCityPopulationPercent:Non-City %:n"));
+        COLUMNS.put(UseCase.Kind.LANGUAGES, new Columns("language:Language", "speakers:Speakers:n",
+                "worldPopulationPercent:World Population %:n"));
+        COLUMNS.put(UseCase.Kind.POPULATION, new Columns("population:Population:n"));
+    }
+
+    /**
+     * The fields of one report kind: field names (CSV header, JSON keys), display labels
+     * (Markdown header), and which fields are numbers.
+     */
+    public static final class Columns {
+        private final String[] names;
+        private final String[] labels;
+        private final boolean[] numeric;
+        private final boolean[] repeating;
+
+        private Columns(String... specs) {
+            names = new String[specs.length];
+            labels = new String[specs.length];
+            numeric = new boolean[specs.length];
+            repeating = new boolean[specs.length];
+            for (int i = 0; i < specs.length; i++) {
+                String[] parts = specs[i].split(":");
+                names[i] = parts[0];
+                labels[i] = parts[1];
+                numeric[i] = parts.length > 2 && parts[2].equals("n");
+                repeating[i] = parts.length > 2 && parts[2].equals("r");
+            }
+        }
+
+        /** @return Number of fields. */
+        public int size() {
+            return names.length;
+        }
+
+        /** @return Field name, e.g. "cityPopulation". */
+        public String name(int column) {
+            return names[column];
+        }
+
+        /** @return Display label, e.g. "City Population". */
+        public String label(int column) {
+            return labels[column];
+        }
+
+        /** @return true if the field holds a number. */
+        public boolean isNumeric(int column) {
+            return numeric[column];
+        }
+    }
+
+    private final WritableByteChannel out;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] digits = new byte[20];
+    private final Map<String, byte[]> encoded = new IdentityHashMap<>();
+    private Columns columns;
+    private long written;
+
+    /**
+     * @param out Where the reports are written.
+     */
+    protected ReportExporter(WritableByteChannel out) {
+        this.out = out;
+    }
+
+    // =========================================================================
+    // Reports
+    // =========================================================================
+
+    /**
+     * Writes a complete report and flushes it to the channel.
+     * @param result The report data.
+     * @throws IOException if the channel cannot be written.
+     */
+    @SuppressWarnings("unchecked")
+    public void write(ReportResult result) throws IOException {
+        begin(result.Report, result.Title);
+        if (result.Report.kind() == UseCase.Kind.POPULATION) {
+            beginRow();
+            number(0, result.Total);
+            endRow();
+        } else {
+            for (Object row : (List<Object>) result.Rows) row(result.Report.kind(), row);
+        }
+        end();
+    }
+
+    /**
+     * Starts a report whose rows arrive one at a time, e.g. from App.streamCities:
+     * the header is written now, each row as it is accepted, and the report is flushed on end().
+     * Write errors surface from the sink as UncheckedIOException.
+     * @param useCase The report the rows belong to.
+     * @param title The report title.
+     * @throws IOException if the header cannot be written.
+     */
+    public <T> RowSink<T> sink(UseCase useCase, String title) throws IOException {
+        begin(useCase, title);
+        return new RowSink<T>() {
+            @Override
+            public void accept(T row) {
+                try {
+                    row(useCase.kind(), row);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            @Override
+            public void end() {
+                try {
+                    ReportExporter.this.end();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Writes everything buffered so far to the channel.
+     * @throws IOException if the channel cannot be written.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        written += buffer.remaining();
+        while (buffer.hasRemaining()) out.write(buffer);
+        buffer.clear();
+    }
+
+    private void begin(UseCase useCase, String title) throws IOException {
+        columns = COLUMNS.get(useCase.kind());
+        written = -buffer.position();
+        header(title, columns);
+    }
+
+    private void end() throws IOException {
+        footer();
+        flush();
+        ReportMetrics.renderedBytes(written);
+    }
+
+    private void row(UseCase.Kind kind, Object row) throws IOException {
+        beginRow();
+        if (row instanceof Country) {
+            Country c = (Country) row;
+            text(0, c.Code);
+            text(1, c.Name);
+            text(2, c.Continent);
+            text(3, c.Region);
+            number(4, c.Population);
+            text(5, c.Capital);
+        } else if (row instanceof City) {
+            City c = (City) row;
+            text(0, c.Name);
+            text(1, c.CountryName);
+            if (kind == UseCase.Kind.CAPITALS) {
+                number(2, c.Population);
+            } else {
+                text(2, c.District);
+                number(3, c.Population);
+            }
+        } else if (row instanceof PopulationSummary) {
+            PopulationSummary s = (PopulationSummary) row;
+            text(0, s.Name);
+            number(1, s.TotalPopulation);
+            number(2, s.CityPopulation);
+            decimal(3, s.CityPopulationPercent);
+            number(4, s.RuralPopulation);
+            decimal(5, s.RuralPopulationPercent);
+        } else if (row instanceof LanguageSpeakers) {
+            LanguageSpeakers l = (LanguageSpeakers) row;
+            text(0, l.Language);
+            number(1, (long) l.Speakers);
+            decimal(2, l.WorldPopulationPercent);
+        }
+        endRow();
+    }
+
+    // =========================================================================
+    // Fields
+    // =========================================================================
+
+    private void text(int column, String value) throws IOException {
+        field(column);
+        if (value == null) {
+            putNull();
+            return;
+        }
+        if (!columns.repeating[column]) {
+            putText(value);
+            return;
+        }
+        byte[] bytes = encoded.get(value);
+        if (bytes != null) {
+            put(bytes);
+            return;
+        }
+        // Encode into the buffer once, then keep a copy of the bytes for the next rows
+        long worstCase = (long) value.length() * MAX_BYTES_PER_CHAR + 2;
+        if (worstCase > buffer.capacity()) {
+            putText(value);
+            return;
+        }
+        if (buffer.remaining() < worstCase) flush();
+        int start = buffer.position();
+        putText(value);
+        if (encoded.size() < MAX_CACHED_VALUES) {
+            encoded.put(value, Arrays.copyOfRange(buffer.array(), start, buffer.position()));
+        }
+    }
+
+    private void number(int column, long value) throws IOException {
+        field(column);
+        putLong(value);
+    }
+
+    private void decimal(int column, double value) throws IOException {
+        field(column);
+        // Same digits as ReportResult.toJson; only the breakdown and language reports have decimals
+        putAscii(Double.toString(value));
+    }
+
+    // =========================================================================
+    // Format hooks
+    // =========================================================================
+
+    /**
+     * Writes whatever precedes the rows of a report (title, column names).
+     */
+    protected abstract void header(String title, Columns columns) throws IOException;
+
+    /** Writes whatever precedes the first field of a row. */
+    protected abstract void beginRow() throws IOException;
+
+    /** Writes whatever precedes the value of a field (delimiter, key). */
+    protected abstract void field(int column) throws IOException;
+
+    /** Writes a non-null text value, quoted and escaped as the format requires. */
+    protected abstract void putText(String value) throws IOException;
+
+    /** Writes a null text value. */
+    protected abstract void putNull() throws IOException;
+
+    /** Writes whatever ends a row. */
+    protected abstract void endRow() throws IOException;
+
+    /** Writes whatever follows the rows of a report. */
+    protected void footer() throws IOException {
+    }
+
+    // =========================================================================
+    // Output helpers
+    // =========================================================================
+
+    /** Writes pre-encoded bytes. */
+    protected final void put(byte[] bytes) throws IOException {
+        if (buffer.remaining() < bytes.length) {
+            flush();
+            if (bytes.length > buffer.capacity()) {
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+                written += bytes.length;
+                while (large.hasRemaining()) out.write(large);
+                return;
+            }
+        }
+        buffer.put(bytes);
+    }
+
+    /** Writes one ASCII character. */
+    protected final void put(char ascii) throws IOException {
+        if (!buffer.hasRemaining()) flush();
+        buffer.put((byte) ascii);
+    }
+
+    /** Writes a string known to be ASCII (numbers, fixed syntax). */
+    protected final void putAscii(String ascii) throws IOException {
+        for (int i = 0; i < ascii.length(); i++) put(ascii.charAt(i));
+    }
+
+    /** Writes characters [from, to) of a string as UTF-8, without creating a byte array. */
+    protected final void putUtf8(String s, int from, int to) throws IOException {
+        for (int i = from; i < to; i++) {
+            char ch = s.charAt(i);
+            if (buffer.remaining() < 4) flush();
+            if (ch < 0x80) {
+                buffer.put((byte) ch);
+            } else if (ch < 0x800) {
+                buffer.put((byte) (0xC0 | ch >> 6)).put((byte) (0x80 | ch & 0x3F));
+            } else if (Character.isHighSurrogate(ch) && i + 1 < to && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(ch, s.charAt(++i));
+                buffer.put((byte) (0xF0 | cp >> 18)).put((byte) (0x80 | cp >> 12 & 0x3F))
+                        .put((byte) (0x80 | cp >> 6 & 0x3F)).put((byte) (0x80 | cp & 0x3F));
+            } else if (Character.isSurrogate(ch)) {
+                // Unpaired surrogate: '?' like String.getBytes(UTF_8)
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | ch >> 12)).put((byte) (0x80 | ch >> 6 & 0x3F)).put((byte) (0x80 | ch & 0x3F));
+            }
+        }
+    }
+
+    /** Writes a long in decimal. */
+    protected final void putLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            putAscii(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            put('-');
+            value = -value;
+        }
+        int pos = digits.length;
+        do {
+            digits[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        if (buffer.remaining() < digits.length - pos) flush();
+        buffer.put(digits, pos, digits.length - pos);
+    }
+
+    /** Encodes text once, e.g. a field name or delimiter, for use with {@link #put(byte[])}. */
+    protected static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // =========================================================================
+    // Formats
+    // =========================================================================
+
+    /** RFC 4180 CSV with a header row and CRLF line ends. */
+    static final class Csv extends ReportExporter {
+        private static final byte[] CRLF = utf8("\r\n");
+
+        Csv(WritableByteChannel out) {
+            super(out);
+        }
+
+        @Override
+        protected void header(String title, Columns columns) throws IOException {
+            for (int i = 0; i < columns.size(); i++) {
+                if (i > 0) put(',');
+                putText(columns.name(i));
+            }
+            put(CRLF);
+        }
+
+        @Override
+        protected void beginRow() {
+        }
+
+        @Override
+        protected void field(int column) throws IOException {
+            if (column > 0) put(',');
+        }
+
+        @Override
+        protected void putText(String value) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < value.length() && !quote; i++) {
+                char ch = value.charAt(i);
+                quote = ch == ',' || ch == '"' || ch == '\r' || ch == '\n';
+            }
+            if (!quote) {
+                putUtf8(value, 0, value.length());
+                return;
+            }
+            put('"');
+            int run = 0;
+            for (int i = 0; i < value.length(); i++) {
+                if (value.charAt(i) == '"') {
+                    // Double the quote: write up to and including it, then write it again
+                    putUtf8(value, run, i + 1);
+                    put('"');
+                    run = i + 1;
+                }
+            }
+            putUtf8(value, run, value.length());
+            put('"');
+        }
+
+        @Override
+        protected void putNull() {
+        }
+
+        @Override
+        protected void endRow() throws IOException {
+            put(CRLF);
+        }
+    }
+
+    /** One JSON object per row, one row per line. */
+    static final class JsonLines extends ReportExporter {
+        private static final byte[] ROW_END = utf8("}\n");
+        private static final byte[] NULL = utf8("null");
+        private static final char[] HEX = "0123456789abcdef".toCharArray();
+        /** {"name": for the first field, ,"name": for the others; encoded once per report. */
+        private byte[][] keys;
+
+        JsonLines(WritableByteChannel out) {
+            super(out);
+        }
+
+        @Override
+        protected void header(String title, Columns columns) {
+            keys = new byte[columns.size()][];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = utf8((i == 0 ? "{\"" : ",\"") + columns.name(i) + "\":");
+            }
+        }
+
+        @Override
+        protected void beginRow() {
+        }
+
+        @Override
+        protected void field(int column) throws IOException {
+            put(keys[column]);
+        }
+
+        @Override
+        protected void putText(String value) throws IOException {
+            put('"');
+            int run = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                if (ch >= 0x20 && ch != '"' && ch != '\\') continue;
+                putUtf8(value, run, i);
+                run = i + 1;
+                put('\\');
+                switch (ch) {
+                    case '"': put('"'); break;
+                    case '\\': put('\\'); break;
+                    case '\n': put('n'); break;
+                    case '\r': put('r'); break;
+                    case '\t': put('t'); break;
+                    default:
+                        put('u');
+                        put('0');
+                        put('0');
+                        put(HEX[ch >> 4]);
+                        put(HEX[ch & 0xF]);
+                }
+            }
+            putUtf8(value, run, value.length());
+            put('"');
+        }
+
+        @Override
+        protected void putNull() throws IOException {
+            put(NULL);
+        }
+
+        @Override
+        protected void endRow() throws IOException {
+            put(ROW_END);
+        }
+    }
+
+    /** "## title", a blank line, then a pipe table (numbers right-aligned), then a blank line. */
+    static final class Markdown extends ReportExporter {
+        private static final byte[] ROW_START = utf8("| ");
+        private static final byte[] CELL = utf8(" | ");
+        private static final byte[] ROW_END = utf8(" |\n");
+
+        Markdown(WritableByteChannel out) {
+            super(out);
+        }
+
+        @Override
+        protected void header(String title, Columns columns) throws IOException {
+            put(utf8("## "));
+            putText(title);
+            put(utf8("\n\n"));
+            StringBuilder line = new StringBuilder("|");
+            StringBuilder rule = new StringBuilder("|");
+            for (int i = 0; i < columns.size(); i++) {
+                line.append(' ').append(columns.label(i).replace("|", "\\|")).append(" |");
+                rule.append(columns.isNumeric(i) ? " ---: |" : " --- |");
+            }
+            put(utf8(line.append('\n').append(rule).append('\n').toString()));
+        }
+
+        @Override
+        protected void beginRow() throws IOException {
+            put(ROW_START);
+        }
+
+        @Override
+        protected void field(int column) throws IOException {
+            if (column > 0) put(CELL);
+        }
+
+        @Override
+        protected void putText(String value) throws IOException {
+            int run = 0;
+            for (int i = 0; i < value.length(); i++) {
+                char ch = value.charAt(i);
+                boolean special = ch == '|' || ch == '\\' || ch == '*' || ch == '_' || ch == '`';
+                if (!special && ch != '\n' && ch != '\r') continue;
+                putUtf8(value, run, i);
+                run = i + 1;
+                if (special) {
+                    put('\\');
+                    put(ch);
+                } else {
+                    // A line break would end the table row
+                    put(' ');
+                }
+            }
+            putUtf8(value, run, value.length());
+        }
+
+        @Override
+        protected void putNull() {
+        }
+
+        @Override
+        protected void endRow() throws IOException {
+            put(ROW_END);
+        }
+
+        @Override
+        protected void footer() throws IOException {
+            put('\n');
+        }
+    }
+}
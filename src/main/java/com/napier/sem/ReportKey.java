@@ -0,0 +1,52 @@
+package com.napier.sem;
+
+import java.util.Objects;
+
+/**
+ * Identifies the output of one report invocation for change notifications: a use case plus
+ * its name argument (null for reports that take none). Names compare like MySQL's default
+ * collation, so "asia" and "Asia" are the same key, as they are the same report.
+ */
+public final class ReportKey {
+    /** The report. */
+    public final UseCase Report;
+    /** The continent/region/country/district/city name, or null. */
+    public final String Name;
+    private final String nameKey;
+
+    /**
+     * @param report The report.
+     * @param name The name argument, or null for reports that take none.
+     */
+    public ReportKey(UseCase report, String name) {
+        this.Report = report;
+        this.Name = name;
+        this.nameKey = WorldSnapshot.collationKey(name);
+    }
+
+    /**
+     * Checks whether a report invocation with the given name argument is this key.
+     * @param name The name the report was run with.
+     * @return true if it names the same area.
+     */
+    public boolean matchesName(String name) {
+        return Objects.equals(nameKey, WorldSnapshot.collationKey(name));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ReportKey)) return false;
+        ReportKey other = (ReportKey) o;
+        return Report == other.Report && Objects.equals(nameKey, other.nameKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Report.hashCode() + Objects.hashCode(nameKey);
+    }
+
+    @Override
+    public String toString() {
+        return Name == null ? Report.name() : Report.name() + "(" + Name + ")";
+    }
+}
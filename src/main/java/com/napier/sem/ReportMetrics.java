@@ -0,0 +1,354 @@
+package com.napier.sem;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Per-use-case report metrics: latency histograms for each phase of a report, plus rows
+ * returned, bytes rendered and failed executions.
+ * <p>
+ * A report execution is opened with {@link #start(UseCase)} on the thread that runs it.
+ * Code further down (the SQL backend, the table renderer) records into the open execution
+ * through the static methods without knowing which use case it is serving; they do nothing
+ * when no execution is open. Phases:
+ * <ul>
+ *   <li>ACQUIRE - waiting for a pooled connection (live SQL only).</li>
+ *   <li>QUERY - executing the statement; for snapshot reports and cache hits, the whole lookup.</li>
+ *   <li>MAPPING - reading the result set into model objects (live SQL only).</li>
+ *   <li>RENDER - writing the table, text or JSON output.</li>
+ *   <li>TOTAL - the whole execution.</li>
+ * </ul>
+ * Everything is exposed through JMX ({@link #registerMBean()}) and as Prometheus text
+ * ({@link #toPrometheus()}, served by ReportServer at /metrics).
+ */
+public class ReportMetrics implements ReportMetricsMXBean {
+    /** JMX name the metrics are registered under. */
+    public static final String OBJECT_NAME = "com.napier.sem:type=ReportMetrics";
+
+    /** The timed phases of a report execution. */
+    public enum Phase {
+        ACQUIRE, QUERY, MAPPING, RENDER, TOTAL;
+
+        /** @return The lowercase name used in Prometheus labels and JMX operations. */
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** Quantiles exported to Prometheus for each histogram. */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final int USE_CASES = UseCase.values().length;
+    private static final int PHASES = Phase.values().length;
+
+    /** The execution open on each thread, if any. */
+    private static final ThreadLocal<Execution> CURRENT = new ThreadLocal<>();
+
+    /** Histograms indexed by use case ordinal * PHASES + phase ordinal, created on first use. */
+    private final AtomicReferenceArray<LatencyHistogram> histograms = new AtomicReferenceArray<>(USE_CASES * PHASES);
+    private final AtomicLongArray rows = new AtomicLongArray(USE_CASES);
+    private final AtomicLongArray bytes = new AtomicLongArray(USE_CASES);
+    private final AtomicLongArray errors = new AtomicLongArray(USE_CASES);
+
+    /**
+     * One report execution on one thread. Closing it records the total latency and, if it
+     * failed, one error. Opening an execution while one is already open on the thread joins
+     * the open one (e.g. printReport calling report), so nothing is counted twice.
+     */
+    public final class Execution implements AutoCloseable {
+        private final UseCase useCase;
+        private final long startNanos = System.nanoTime();
+        private int depth = 1;
+        private boolean queryTimed;
+        private boolean failed;
+
+        private Execution(UseCase useCase) {
+            this.useCase = useCase;
+        }
+
+        /**
+         * Records the duration of one phase.
+         * @param phase The phase.
+         * @param nanos Elapsed time in nanoseconds.
+         */
+        public void record(Phase phase, long nanos) {
+            if (phase == Phase.QUERY) queryTimed = true;
+            histogram(useCase, phase).recordNanos(nanos);
+        }
+
+        /**
+         * Records the query phase unless the backend already did (used for backends
+         * without finer-grained timing, and for cache hits).
+         */
+        void recordQueryIfUntimed(long nanos) {
+            if (!queryTimed) record(Phase.QUERY, nanos);
+        }
+
+        private ReportMetrics owner() {
+            return ReportMetrics.this;
+        }
+
+        /** Marks the execution as failed; it counts as one error when closed. */
+        public void fail() {
+            failed = true;
+        }
+
+        @Override
+        public void close() {
+            if (--depth > 0) return;
+            CURRENT.remove();
+            record(Phase.TOTAL, System.nanoTime() - startNanos);
+            if (failed) errors.incrementAndGet(useCase.ordinal());
+        }
+    }
+
+    /**
+     * Opens an execution of a report on the calling thread; close it when the report is done.
+     * @param useCase The report being run.
+     * @return The execution (the already open one if this thread is inside another).
+     */
+    public Execution start(UseCase useCase) {
+        Execution current = CURRENT.get();
+        if (current != null) {
+            current.depth++;
+            return current;
+        }
+        Execution execution = new Execution(useCase);
+        CURRENT.set(execution);
+        return execution;
+    }
+
+    /**
+     * Records a phase duration of a use case outside of an execution, e.g. for output
+     * written after the report itself has finished.
+     */
+    public void record(UseCase useCase, Phase phase, long nanos) {
+        histogram(useCase, phase).recordNanos(nanos);
+    }
+
+    // =========================================================================
+    // Recording from inside an execution
+    // =========================================================================
+
+    /**
+     * Records a phase duration into the execution open on this thread (no-op if none).
+     */
+    static void phase(Phase phase, long nanos) {
+        Execution current = CURRENT.get();
+        if (current != null) current.record(phase, nanos);
+    }
+
+    /**
+     * Adds rows returned to the execution open on this thread (no-op if none).
+     */
+    static void rows(long count) {
+        Execution current = CURRENT.get();
+        if (current != null) current.owner().rows.addAndGet(current.useCase.ordinal(), count);
+    }
+
+    /**
+     * Adds rendered output, counted in UTF-8 bytes, to the execution open on this thread (no-op if none).
+     */
+    static void rendered(CharSequence text) {
+        Execution current = CURRENT.get();
+        if (current != null) current.owner().bytes.addAndGet(current.useCase.ordinal(), utf8Length(text));
+    }
+
+    /**
+     * Adds output already encoded as UTF-8 to the execution open on this thread (no-op if none).
+     */
+    static void renderedBytes(long bytes) {
+        Execution current = CURRENT.get();
+        if (current != null) current.owner().bytes.addAndGet(current.useCase.ordinal(), bytes);
+    }
+
+    /**
+     * Marks the execution open on this thread as failed (no-op if none).
+     */
+    static void error() {
+        Execution current = CURRENT.get();
+        if (current != null) current.fail();
+    }
+
+    /** Length of a string once encoded as UTF-8, without encoding it. */
+    static long utf8Length(CharSequence text) {
+        long length = text.length();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                // Two bytes up to U+07FF, three above; a surrogate pair (2 chars) is four
+                length += c < 0x800 || Character.isSurrogate(c) ? 1 : 2;
+            }
+        }
+        return length;
+    }
+
+    private LatencyHistogram histogram(UseCase useCase, Phase phase) {
+        int index = useCase.ordinal() * PHASES + phase.ordinal();
+        LatencyHistogram histogram = histograms.get(index);
+        if (histogram == null) {
+            histograms.compareAndSet(index, null, new LatencyHistogram());
+            histogram = histograms.get(index);
+        }
+        return histogram;
+    }
+
+    /** The histogram if anything was recorded into it, else null. */
+    private LatencyHistogram recorded(UseCase useCase, Phase phase) {
+        LatencyHistogram histogram = histograms.get(useCase.ordinal() * PHASES + phase.ordinal());
+        return histogram == null || histogram.getCount() == 0 ? null : histogram;
+    }
+
+    // =========================================================================
+    // Reading
+    // =========================================================================
+
+    /**
+     * @return The latency histogram of one phase of a use case (empty if it never ran).
+     */
+    public LatencyHistogram getHistogram(UseCase useCase, Phase phase) {
+        return histogram(useCase, phase);
+    }
+
+    @Override
+    public long getReportCount() {
+        long count = 0;
+        for (UseCase useCase : UseCase.values()) {
+            LatencyHistogram total = recorded(useCase, Phase.TOTAL);
+            if (total != null) count += total.getCount();
+        }
+        return count;
+    }
+
+    @Override
+    public long getErrorCount() {
+        long count = 0;
+        for (int i = 0; i < USE_CASES; i++) {
+            count += errors.get(i);
+        }
+        return count;
+    }
+
+    @Override
+    public Map<String, Long> getP99Micros() {
+        Map<String, Long> p99 = new LinkedHashMap<>();
+        for (UseCase useCase : UseCase.values()) {
+            LatencyHistogram total = recorded(useCase, Phase.TOTAL);
+            if (total != null) p99.put(useCase.name(), total.getValueAtPercentile(99));
+        }
+        return p99;
+    }
+
+    @Override
+    public String getPrometheusText() {
+        return toPrometheus();
+    }
+
+    @Override
+    public long percentileMicros(int useCase, String phase, double percentile) {
+        return histogram(UseCase.of(useCase), Phase.valueOf(phase.toUpperCase(Locale.ROOT)))
+                .getValueAtPercentile(percentile);
+    }
+
+    @Override
+    public long rowCount(int useCase) {
+        return rows.get(UseCase.of(useCase).ordinal());
+    }
+
+    @Override
+    public long renderedBytes(int useCase) {
+        return bytes.get(UseCase.of(useCase).ordinal());
+    }
+
+    @Override
+    public long errorCount(int useCase) {
+        return errors.get(UseCase.of(useCase).ordinal());
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < histograms.length(); i++) {
+            LatencyHistogram histogram = histograms.get(i);
+            if (histogram != null) histogram.reset();
+        }
+        for (int i = 0; i < USE_CASES; i++) {
+            rows.set(i, 0);
+            bytes.set(i, 0);
+            errors.set(i, 0);
+        }
+    }
+
+    /**
+     * Writes every metric of the use cases that have run in the Prometheus text format (0.0.4):
+     * report_phase_seconds (summary with quantiles 0.5, 0.9, 0.99, 0.999), report_rows_total,
+     * report_rendered_bytes_total and report_errors_total, labelled uc="13".
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder(4096);
+        text.append("# HELP report_phase_seconds Report latency by use case and phase.\n");
+        text.append("# TYPE report_phase_seconds summary\n");
+        for (UseCase useCase : UseCase.values()) {
+            for (Phase phase : Phase.values()) {
+                LatencyHistogram histogram = recorded(useCase, phase);
+                if (histogram == null) continue;
+                String labels = "uc=\"" + useCase.number() + "\",phase=\"" + phase.label() + "\"";
+                for (double quantile : QUANTILES) {
+                    text.append("report_phase_seconds{").append(labels).append(",quantile=\"").append(quantile).append("\"} ");
+                    appendSeconds(text, histogram.getValueAtPercentile(quantile * 100)).append('\n');
+                }
+                text.append("report_phase_seconds_sum{").append(labels).append("} ");
+                appendSeconds(text, histogram.getSum()).append('\n');
+                text.append("report_phase_seconds_count{").append(labels).append("} ").append(histogram.getCount()).append('\n');
+            }
+        }
+        appendCounter(text, "report_rows_total", "Rows returned by use case.", rows);
+        appendCounter(text, "report_rendered_bytes_total", "Bytes of report output written by use case.", bytes);
+        appendCounter(text, "report_errors_total", "Failed report executions by use case.", errors);
+        return text.toString();
+    }
+
+    private void appendCounter(StringBuilder text, String name, String help, AtomicLongArray values) {
+        text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(name).append(" counter\n");
+        for (UseCase useCase : UseCase.values()) {
+            if (recorded(useCase, Phase.TOTAL) == null) continue;
+            text.append(name).append("{uc=\"").append(useCase.number()).append("\"} ")
+                    .append(values.get(useCase.ordinal())).append('\n');
+        }
+    }
+
+    /** Appends microseconds as decimal seconds, e.g. 1234 as 0.001234. */
+    private static StringBuilder appendSeconds(StringBuilder text, long micros) {
+        text.append(micros / 1_000_000).append('.');
+        String fraction = Long.toString(micros % 1_000_000);
+        for (int i = fraction.length(); i < 6; i++) {
+            text.append('0');
+        }
+        return text.append(fraction);
+    }
+
+    // =========================================================================
+    // JMX
+    // =========================================================================
+
+    /**
+     * Registers these metrics with the platform MBean server under OBJECT_NAME, replacing any
+     * metrics registered before. Failures are reported on System.err.
+     */
+    public void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) server.unregisterMBean(name);
+            server.registerMBean(this, name);
+        } catch (JMException e) {
+            System.err.println("Failed to register report metrics with JMX: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.napier.sem;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link ReportMetrics}, registered as {@code com.napier.sem:type=ReportMetrics}.
+ * Latencies are in microseconds; phase names are acquire, query, mapping, render and total.
+ */
+public interface ReportMetricsMXBean {
+    /** @return Number of report executions finished, all use cases together. */
+    long getReportCount();
+
+    /** @return Number of report executions that failed, all use cases together. */
+    long getErrorCount();
+
+    /** @return p99 total latency per use case that has run, keyed "UC13". */
+    Map<String, Long> getP99Micros();
+
+    /** @return Every metric in the Prometheus text exposition format. */
+    String getPrometheusText();
+
+    /**
+     * @param useCase Use case number (1-32).
+     * @param phase acquire, query, mapping, render or total.
+     * @param percentile Between 0 and 100, e.g. 99.
+     * @return The latency at that percentile, in microseconds.
+     */
+    long percentileMicros(int useCase, String phase, double percentile);
+
+    /** @return Rows returned by a use case so far. */
+    long rowCount(int useCase);
+
+    /** @return UTF-8 bytes of report output written for a use case so far. */
+    long renderedBytes(int useCase);
+
+    /** @return Failed executions of a use case so far. */
+    long errorCount(int useCase);
+
+    /** Clears every histogram and counter. */
+    void reset();
+}
@@ -0,0 +1,160 @@
+package com.napier.sem;
+
+import java.io.PrintStream;
+import java.text.NumberFormat;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The data of one report run: its use case, title, and either the result rows
+ * or (UC26-UC31) the population total. Can be printed as the usual console table
+ * or written as JSON.
+ */
+public class ReportResult {
+    /** The use case that produced this result */
+    public final UseCase Report;
+    /** Report title, e.g. "UC13: Top 5 Populated Cities in Continent 'Asia'" */
+    public final String Title;
+    /** Result rows (Country, City, PopulationSummary or LanguageSpeakers); empty for UC26-UC31 */
+    public final List<?> Rows;
+    /** Population total for UC26-UC31; 0 for the list reports */
+    public final long Total;
+
+    /**
+     * Constructor for ReportResult object.
+     */
+    public ReportResult(UseCase report, String title, List<?> rows, long total) {
+        this.Report = report;
+        this.Title = title;
+        this.Rows = rows != null ? rows : Collections.emptyList();
+        this.Total = total;
+    }
+
+    /**
+     * Prints the result as the console report for its use case.
+     * @param out Where the report is written.
+     */
+    @SuppressWarnings("unchecked")
+    public void print(PrintStream out) {
+        switch (Report.kind()) {
+            case COUNTRIES:
+                Country.printReport((List<Country>) Rows, Title, out);
+                break;
+            case CITIES:
+                City.printReport((List<City>) Rows, Title, false, out);
+                break;
+            case CAPITALS:
+                City.printReport((List<City>) Rows, Title, true, out);
+                break;
+            case BREAKDOWN:
+                PopulationSummary.printReport((List<PopulationSummary>) Rows, Title, out);
+                break;
+            case LANGUAGES:
+                LanguageSpeakers.printReport((List<LanguageSpeakers>) Rows, Title, out);
+                break;
+            case POPULATION:
+                NumberFormat nf = NumberFormat.getInstance(Locale.US);
+                out.println("\n=======================================================");
+                out.println(Title);
+                out.println("Result: " + (Total > 0 ? nf.format(Total) : "Data Not Available"));
+                out.println("=======================================================");
+                break;
+        }
+    }
+
+    /**
+     * Writes the result as one JSON object:
+     * {"useCase":13,"title":"...","rows":[...]} or, for UC26-UC31, {"useCase":26,"title":"...","population":...}.
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder(128 + Rows.size() * 96);
+        json.append("{\"useCase\":").append(Report.number()).append(",\"title\":");
+        appendString(json, Title);
+        if (Report.kind() == UseCase.Kind.POPULATION) {
+            json.append(",\"population\":").append(Total).append('}');
+            return json.toString();
+        }
+        json.append(",\"rows\":[");
+        for (int i = 0; i < Rows.size(); i++) {
+            if (i > 0) json.append(',');
+            appendRow(json, Rows.get(i));
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Appends one report row as a JSON object with lower camel case field names.
+     */
+    static void appendRow(StringBuilder json, Object row) {
+        if (row instanceof Country) {
+            Country c = (Country) row;
+            json.append("{\"code\":");
+            appendString(json, c.Code);
+            json.append(",\"name\":");
+            appendString(json, c.Name);
+            json.append(",\"continent\":");
+            appendString(json, c.Continent);
+            json.append(",\"region\":");
+            appendString(json, c.Region);
+            json.append(",\"population\":").append(c.Population);
+            json.append(",\"capital\":");
+            appendString(json, c.Capital);
+        } else if (row instanceof City) {
+            City c = (City) row;
+            json.append("{\"name\":");
+            appendString(json, c.Name);
+            json.append(",\"country\":");
+            appendString(json, c.CountryName);
+            json.append(",\"district\":");
+            appendString(json, c.District);
+            json.append(",\"population\":").append(c.Population);
+        } else if (row instanceof PopulationSummary) {
+            PopulationSummary s = (PopulationSummary) row;
+            json.append("{\"name\":");
+            appendString(json, s.Name);
+            json.append(",\"totalPopulation\":").append(s.TotalPopulation);
+            json.append(",\"cityPopulation\":").append(s.CityPopulation);
+            json.append(",\"cityPopulationPercent\":").append(s.CityPopulationPercent);
+            json.append(",\"nonCityPopulation\":").append(s.RuralPopulation);
+            json.append(",\"nonCityPopulationPercent\":").append(s.RuralPopulationPercent);
+        } else if (row instanceof LanguageSpeakers) {
+            LanguageSpeakers l = (LanguageSpeakers) row;
+            json.append("{\"language\":");
+            appendString(json, l.Language);
+            json.append(",\"speakers\":").append((long) l.Speakers);
+            json.append(",\"worldPopulationPercent\":").append(l.WorldPopulationPercent);
+        } else {
+            json.append('{');
+        }
+        json.append('}');
+    }
+
+    /**
+     * Appends a JSON string literal (or null), escaping quotes, backslashes and control characters.
+     */
+    static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (ch < 0x20) {
+                        json.append(String.format("\\u%04x", (int) ch));
+                    } else {
+                        json.append(ch);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
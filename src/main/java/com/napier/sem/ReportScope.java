@@ -0,0 +1,20 @@
+package com.napier.sem;
+
+/**
+ * The geographic level a report is filtered or grouped by
+ * (e.g. "all cities in a continent" uses CONTINENT).
+ */
+public enum ReportScope {
+    /** No filter: the whole world. */
+    WORLD,
+    /** Filter on country.Continent. */
+    CONTINENT,
+    /** Filter on country.Region. */
+    REGION,
+    /** Filter on country.Name. */
+    COUNTRY,
+    /** Filter on city.District. */
+    DISTRICT,
+    /** Filter on city.Name (UC31 only). */
+    CITY
+}
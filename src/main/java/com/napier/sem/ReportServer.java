@@ -0,0 +1,391 @@
+package com.napier.sem;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP server exposing every report use case, using the JDK's built-in server.
+ * <p>
+ * Endpoints:
+ * <ul>
+ *   <li>{@code GET /reports} - the list of use cases and their parameters (JSON).</li>
+ *   <li>{@code GET /reports/uc13?continent=Asia&n=10} - one report, as JSON by default or as the
+ *       console text table with {@code format=text} (or an {@code Accept: text/plain} header),
+ *       or as {@code format=csv}, {@code jsonl} or {@code markdown} (see ExportFormat); any other
+ *       {@code format} is a 400.</li>
+ *   <li>{@code GET /languages?continent=Asia&k=10} - the k languages with the most speakers in the world,
+ *       a continent ({@code continent=}) or a region ({@code region=}); k defaults to 10 (JSON). For a
+ *       continent or region the share is of its population, as {@code areaPopulationPercent}.</li>
+ *   <li>{@code GET /languages?language=English} - speakers of one language and its countries (JSON).</li>
+ *   <li>{@code GET /health} - 200 when reports can be answered, 503 when not connected or the database is down.</li>
+ *   <li>{@code GET /metrics} - per-use-case latency, row, byte and error metrics in the
+ *       Prometheus text format (see ReportMetrics).</li>
+ * </ul>
+ * Each request runs on its own virtual thread when the JVM supports them (Java 21+);
+ * on older JVMs a fixed pool of platform threads is used instead.
+ */
+public class ReportServer implements AutoCloseable {
+    /** Default listening port. */
+    public static final int DEFAULT_PORT = 8080;
+    /** Pending connections the OS queues before refusing new clients. */
+    private static final int BACKLOG = 4096;
+    /** Worker threads used when virtual threads are not available. */
+    private static final int FALLBACK_THREADS = Math.max(64, Runtime.getRuntime().availableProcessors() * 16);
+
+    private final App app;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * Creates the server; call start() to accept requests.
+     * @param app The application whose reports are served (must stay connected while serving).
+     * @param port Port to listen on (0 picks a free port).
+     * @throws IOException if the port cannot be bound.
+     */
+    public ReportServer(App app, int port) throws IOException {
+        this.app = app;
+        this.server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this.executor = newExecutor();
+        server.setExecutor(executor);
+        server.createContext("/reports", this::handleReports);
+        server.createContext("/health", this::handleHealth);
+        server.createContext("/metrics", this::handleMetrics);
+        server.createContext("/languages", this::handleLanguages);
+    }
+
+    /**
+     * Starts accepting requests in the background.
+     */
+    public void start() {
+        server.start();
+        System.out.println("Report server listening on port " + getPort() + ".");
+    }
+
+    /** @return The port the server is bound to. */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops accepting requests, waits up to a second for running ones, and stops the worker threads.
+     */
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * One virtual thread per request when available (Java 21+), looked up reflectively
+     * because the build targets Java 17.
+     */
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger count = new AtomicInteger();
+            ThreadFactory factory = r -> {
+                Thread t = new Thread(r, "report-server-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            };
+            return Executors.newFixedThreadPool(FALLBACK_THREADS, factory);
+        }
+    }
+
+    // =========================================================================
+    // Handlers
+    // =========================================================================
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        if (!app.isConnected()) {
+            send(exchange, 503, "text/plain", "Not connected\n");
+        } else if (!app.isDatabaseAvailable()) {
+            send(exchange, 503, "text/plain", "Database unavailable\n");
+        } else {
+            send(exchange, 200, "text/plain", "OK\n");
+        }
+    }
+
+    private void handleMetrics(HttpExchange exchange) throws IOException {
+        try {
+            send(exchange, 200, "text/plain; version=0.0.4", app.getMetrics().toPrometheus());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleReports(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Only GET is supported.");
+                return;
+            }
+            String path = exchange.getRequestURI().getPath();
+            if (path.equals("/reports") || path.equals("/reports/")) {
+                send(exchange, 200, "application/json", index());
+                return;
+            }
+
+            UseCase useCase = parseUseCase(path.substring("/reports/".length()));
+            if (useCase == null) {
+                sendError(exchange, 404, "Unknown report: " + path);
+                return;
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            String name = null;
+            if (useCase.takesName()) {
+                name = query.get(useCase.nameParameter());
+                if (name == null || name.isEmpty()) {
+                    sendError(exchange, 400, "Missing parameter '" + useCase.nameParameter() + "'.");
+                    return;
+                }
+            }
+            int n = 0;
+            if (useCase.takesN()) {
+                try {
+                    n = Integer.parseInt(query.getOrDefault("n", ""));
+                } catch (NumberFormatException e) {
+                    n = -1;
+                }
+                if (n < 1) {
+                    sendError(exchange, 400, "Parameter 'n' must be a positive integer.");
+                    return;
+                }
+            }
+            String formatName = query.get("format");
+            ExportFormat format = ExportFormat.parse(formatName);
+            if (formatName != null && format == null
+                    && !formatName.equalsIgnoreCase("json") && !formatName.equalsIgnoreCase("text")) {
+                sendError(exchange, 400, "Unknown format '" + formatName + "': use json, text, csv, jsonl or markdown.");
+                return;
+            }
+            if (!app.isConnected()) {
+                sendError(exchange, 503, "Reports are not available: not connected.");
+                return;
+            }
+
+            try (ReportMetrics.Execution execution = app.getMetrics().start(useCase)) {
+                try {
+                    ReportResult result = app.report(useCase, name, n);
+                    long start = System.nanoTime();
+                    if (format != null) {
+                        sendExport(exchange, result, format);
+                    } else if (wantsText(exchange, query)) {
+                        sendText(exchange, result);
+                    } else {
+                        String json = result.toJson();
+                        ReportMetrics.rendered(json);
+                        send(exchange, 200, "application/json", json);
+                    }
+                    execution.record(ReportMetrics.Phase.RENDER, System.nanoTime() - start);
+                } catch (RuntimeException | IOException e) {
+                    execution.fail();
+                    throw e;
+                }
+            }
+        } catch (RuntimeException e) {
+            sendFailure(exchange, e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleLanguages(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, 405, "Only GET is supported.");
+                return;
+            }
+            if (!app.isConnected()) {
+                sendError(exchange, 503, "Reports are not available: not connected.");
+                return;
+            }
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+
+            String language = query.get("language");
+            if (language != null) {
+                LanguageSpeakers speakers = app.getLanguageSpeakers(language);
+                if (speakers == null) {
+                    sendError(exchange, 404, "Unknown language: " + language);
+                    return;
+                }
+                StringBuilder json = new StringBuilder();
+                ReportResult.appendRow(json, speakers);
+                json.setLength(json.length() - 1);
+                json.append(",\"countries\":[");
+                List<LanguageIndex.CountryShare> countries = app.getLanguageCountries(language);
+                for (int i = 0; i < countries.size(); i++) {
+                    LanguageIndex.CountryShare share = countries.get(i);
+                    if (i > 0) json.append(',');
+                    json.append("{\"country\":");
+                    ReportResult.appendString(json, share.Country);
+                    json.append(",\"percentage\":").append(share.Percentage)
+                            .append(",\"speakers\":").append((long) share.Speakers).append('}');
+                }
+                send(exchange, 200, "application/json", json.append("]}").toString());
+                return;
+            }
+
+            ReportScope scope = ReportScope.WORLD;
+            String name = null;
+            if (query.containsKey("continent")) {
+                scope = ReportScope.CONTINENT;
+                name = query.get("continent");
+            } else if (query.containsKey("region")) {
+                scope = ReportScope.REGION;
+                name = query.get("region");
+            }
+            int k;
+            try {
+                k = Integer.parseInt(query.getOrDefault("k", "10"));
+            } catch (NumberFormatException e) {
+                k = -1;
+            }
+            if (k < 1) {
+                sendError(exchange, 400, "Parameter 'k' must be a positive integer.");
+                return;
+            }
+            StringBuilder json = new StringBuilder("[");
+            List<LanguageSpeakers> top = app.getTopLanguages(scope, name, k);
+            for (int i = 0; i < top.size(); i++) {
+                if (i > 0) json.append(',');
+                if (scope == ReportScope.WORLD) {
+                    ReportResult.appendRow(json, top.get(i));
+                } else {
+                    // topLanguages gives the share of the area's population, not the world's
+                    LanguageSpeakers l = top.get(i);
+                    json.append("{\"language\":");
+                    ReportResult.appendString(json, l.Language);
+                    json.append(",\"speakers\":").append((long) l.Speakers)
+                            .append(",\"areaPopulationPercent\":").append(l.WorldPopulationPercent).append('}');
+                }
+            }
+            send(exchange, 200, "application/json", json.append(']').toString());
+        } catch (RuntimeException e) {
+            sendFailure(exchange, e);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /** Lists every use case with the parameters it takes. */
+    private static String index() {
+        StringBuilder json = new StringBuilder("[");
+        for (UseCase uc : UseCase.values()) {
+            if (uc.ordinal() > 0) json.append(',');
+            json.append("{\"useCase\":").append(uc.number())
+                    .append(",\"path\":\"/reports/uc").append(uc.number()).append('"')
+                    .append(",\"parameters\":[");
+            if (uc.takesName()) json.append('"').append(uc.nameParameter()).append('"');
+            if (uc.takesName() && uc.takesN()) json.append(',');
+            if (uc.takesN()) json.append("\"n\"");
+            json.append("],\"kind\":\"").append(uc.kind().name().toLowerCase(Locale.ROOT)).append("\"}");
+        }
+        return json.append(']').toString();
+    }
+
+    /** Parses "uc13" or "13" (case-insensitive); null if it is not a use case. */
+    static UseCase parseUseCase(String id) {
+        String digits = id.toLowerCase(Locale.ROOT);
+        if (digits.startsWith("uc")) digits = digits.substring(2);
+        try {
+            return UseCase.of(Integer.parseInt(digits));
+        } catch (IllegalArgumentException e) {
+            // Also covers NumberFormatException
+            return null;
+        }
+    }
+
+    /** Decodes "a=1&b=x%20y" into a map; the first value of a repeated key wins. */
+    static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) return params;
+        for (String pair : rawQuery.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = URLDecoder.decode(eq < 0 ? pair : pair.substring(0, eq), StandardCharsets.UTF_8);
+            String value = eq < 0 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            params.putIfAbsent(key.toLowerCase(Locale.ROOT), value);
+        }
+        return params;
+    }
+
+    private static boolean wantsText(HttpExchange exchange, Map<String, String> query) {
+        String format = query.get("format");
+        if (format != null) return format.equalsIgnoreCase("text");
+        String accept = exchange.getRequestHeaders().getFirst("Accept");
+        return accept != null && accept.contains("text/plain") && !accept.contains("application/json");
+    }
+
+    // =========================================================================
+    // Responses
+    // =========================================================================
+
+    /** Writes the console table with chunked transfer encoding, so large reports are not buffered whole. */
+    private static void sendText(HttpExchange exchange, ReportResult result) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (PrintStream out = new PrintStream(exchange.getResponseBody(), false, StandardCharsets.UTF_8)) {
+            result.print(out);
+        }
+    }
+
+    /** Writes the report as CSV, JSON Lines or Markdown with chunked transfer encoding. */
+    private static void sendExport(HttpExchange exchange, ReportResult result, ExportFormat format) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", format.contentType() + "; charset=utf-8");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream body = exchange.getResponseBody()) {
+            format.open(Channels.newChannel(body)).write(result);
+        }
+    }
+
+    /**
+     * Answers a request that failed with a 500, unless the response headers are already out
+     * (a streamed report failed part way): then the failure is only logged, and closing the
+     * exchange cuts the response short.
+     */
+    private static void sendFailure(HttpExchange exchange, RuntimeException e) throws IOException {
+        System.err.println("Report server request failed: " + e.getMessage());
+        if (exchange.getResponseCode() == -1) sendError(exchange, 500, "Internal error.");
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        ReportResult.appendString(json, message);
+        send(exchange, status, "application/json", json.append('}').toString());
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType + "; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.napier.sem;
+
+/**
+ * Receives report rows one at a time as they are produced, so a report can be
+ * written out without first collecting every row into a list.
+ * @param <T> The row type (Country, City, ...).
+ */
+@FunctionalInterface
+public interface RowSink<T> {
+    /**
+     * Called once per row, in report order.
+     */
+    void accept(T row);
+
+    /**
+     * Called once after the last row (also when there were no rows at all).
+     */
+    default void end() {
+    }
+}
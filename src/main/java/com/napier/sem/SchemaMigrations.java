@@ -0,0 +1,124 @@
+package com.napier.sem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Versioned changes to the world schema, applied in order and recorded in schema_migrations
+ * so each one runs exactly once per database.
+ * <p>
+ * The world dump only indexes the primary keys, city.CountryCode and countrylanguage.CountryCode,
+ * so every report that filters by name scans the whole table. The migrations add the indexes the
+ * report queries need (see QueryPlan for how their plans are checked):
+ * <ul>
+ *   <li>1 - city(District, Population) for UC11, UC16 and UC30; city(Name, Population) for UC31.</li>
+ *   <li>2 - country(Continent, Population) and country(Region, Population) for UC02-UC06 and UC27-UC28;
+ *       country(Name, Population) for UC10, UC15 and UC29.</li>
+ *   <li>3 - city(Population), city(CountryCode, Population), country(Population) and country(Capital),
+ *       so the world reports and joins read rows in population order instead of sorting them.</li>
+ * </ul>
+ * Each index leads with the filtered column and ends with Population, so the filtered rows come
+ * out already ordered and the population totals are read from the index alone.
+ */
+public class SchemaMigrations {
+    /** One schema version: its number, what it does and its DDL. */
+    static final class Migration {
+        final int version;
+        final String description;
+        final List<String> statements;
+
+        Migration(int version, String description, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.statements = List.of(statements);
+        }
+    }
+
+    /** Every migration, oldest first. Append new versions; never edit one that has shipped. */
+    static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "city lookup indexes",
+                    "ALTER TABLE city ADD INDEX DistrictPopulation (District, Population), " +
+                            "ADD INDEX NamePopulation (Name, Population)"),
+            new Migration(2, "country lookup indexes",
+                    "ALTER TABLE country ADD INDEX ContinentPopulation (Continent, Population), " +
+                            "ADD INDEX RegionPopulation (Region, Population), " +
+                            "ADD INDEX NamePopulation (Name, Population)"),
+            new Migration(3, "population order indexes",
+                    "ALTER TABLE city ADD INDEX Population (Population), " +
+                            "ADD INDEX CountryCodePopulation (CountryCode, Population)",
+                    "ALTER TABLE country ADD INDEX Population (Population), ADD INDEX Capital (Capital)")
+    );
+
+    /** Named lock that keeps two processes from migrating at the same time. */
+    private static final String LOCK_NAME = "world.schema_migrations";
+    /** Seconds to wait for another migration run to finish. */
+    private static final int LOCK_TIMEOUT_SECONDS = 60;
+
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS schema_migrations (" +
+            "Version INT NOT NULL, " +
+            "Description VARCHAR(100) NOT NULL, " +
+            "AppliedAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, " +
+            "PRIMARY KEY (Version)" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4";
+
+    private SchemaMigrations() {
+    }
+
+    /** @return The version the schema reaches once every migration has been applied. */
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    /**
+     * Reads the schema version of a database.
+     * @param con A connection to the world database.
+     * @return The highest applied migration, or 0 if none has been applied.
+     * @throws SQLException if schema_migrations cannot be created or read.
+     */
+    public static int currentVersion(Connection con) throws SQLException {
+        try (Statement statement = con.createStatement()) {
+            statement.execute(CREATE_TABLE);
+            try (ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(Version), 0) FROM schema_migrations")) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    /**
+     * Applies every migration newer than the database's version, oldest first.
+     * MySQL commits DDL immediately, so each migration is recorded as soon as its statements
+     * have run; a failure leaves the earlier ones applied and the next run resumes from there.
+     * @param con A connection to the world database with ALTER/CREATE rights.
+     * @return The number of migrations applied (0 if the schema was already current).
+     * @throws SQLException if a migration fails or another run holds the lock for longer than a minute.
+     */
+    public static int migrate(Connection con) throws SQLException {
+        NamedLock lock = NamedLock.acquire(con, LOCK_NAME, LOCK_TIMEOUT_SECONDS, "schema migration");
+        try {
+            int current = currentVersion(con);
+            int applied = 0;
+            for (Migration migration : MIGRATIONS) {
+                if (migration.version <= current) continue;
+                try (Statement statement = con.createStatement()) {
+                    for (String sql : migration.statements) {
+                        statement.execute(sql);
+                    }
+                }
+                try (PreparedStatement pStmt = con.prepareStatement(
+                        "INSERT INTO schema_migrations (Version, Description) VALUES (?, ?)")) {
+                    pStmt.setInt(1, migration.version);
+                    pStmt.setString(2, migration.description);
+                    pStmt.executeUpdate();
+                }
+                applied++;
+            }
+            return applied;
+        } finally {
+            lock.close();
+        }
+    }
+}
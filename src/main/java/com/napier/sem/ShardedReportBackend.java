@@ -0,0 +1,341 @@
+package com.napier.sem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Report backend over world data partitioned by continent: each shard (typically a
+ * SqlReportBackend on its own MySQL instance) holds the country, city and countrylanguage
+ * rows of one or more continents.
+ * <p>
+ * A report scoped to a continent goes only to the shard that owns it. Every other report
+ * is sent to all shards in parallel (scatter) and their answers are merged (gather):
+ * <ul>
+ *   <li>full lists (UC01, UC07, UC17, ...) - k-way merge of the shards' sorted lists;</li>
+ *   <li>Top-N (UC04, UC12, UC20, ...) - each shard's top N through a heap bounded to N rows;</li>
+ *   <li>totals and breakdowns (UC23-UC26, UC28-UC30) - summed per name;</li>
+ *   <li>city population (UC31) - the matching city with the lowest ID on any shard;</li>
+ *   <li>languages (UC32) - the shards' language indexes merged (see LanguageIndex.merge).</li>
+ * </ul>
+ * Regions, countries and districts lie within one continent, so for them the other shards
+ * simply contribute nothing. Equal populations keep the shards' order. Continents not
+ * assigned to any shard have no rows.
+ */
+public class ShardedReportBackend implements ReportBackend, AutoCloseable {
+    /** Distinct shards, in the order first assigned. */
+    private final List<ReportBackend> shards;
+    /** Owning shard by continent collation key. */
+    private final Map<String, ReportBackend> byContinent = new LinkedHashMap<>();
+    /** Runs the per-shard queries of a scatter at the same time. */
+    private final ExecutorService executor;
+    /** The shards' language indexes merged, kept until invalidate() like a shard's own index. */
+    private final SharedLoad<MergedLanguages> mergedLanguages =
+            new SharedLoad<>(this::mergeLanguages, m -> m.complete, SqlReportBackend.SHARED_TTL_MS);
+
+    /** A merged language index, and whether every shard contributed to it. */
+    private static final class MergedLanguages {
+        final LanguageIndex index;
+        final boolean complete;
+
+        MergedLanguages(LanguageIndex index, boolean complete) {
+            this.index = index;
+            this.complete = complete;
+        }
+    }
+
+    /** Largest population first. */
+    private static final Comparator<Country> COUNTRY_ORDER = Comparator.comparingLong(c -> -c.Population);
+    private static final Comparator<City> CITY_ORDER = Comparator.comparingLong(c -> -c.Population);
+
+    /**
+     * @param shardsByContinent The shard holding each continent's rows (one shard may hold several).
+     */
+    public ShardedReportBackend(Map<String, ReportBackend> shardsByContinent) {
+        Map<ReportBackend, Boolean> distinct = new IdentityHashMap<>();
+        List<ReportBackend> list = new ArrayList<>();
+        shardsByContinent.forEach((continent, shard) -> {
+            byContinent.put(WorldSnapshot.collationKey(continent), shard);
+            if (distinct.put(shard, Boolean.TRUE) == null) list.add(shard);
+        });
+        if (list.isEmpty()) throw new IllegalArgumentException("At least one shard is required.");
+        this.shards = List.copyOf(list);
+        this.executor = Executors.newFixedThreadPool(shards.size(), r -> {
+            Thread t = new Thread(r, "shard-query");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /** @return Number of distinct shards. */
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    /** Stops the scatter threads (the shards themselves are closed by their owner). */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /** Drops the merged language index and what every shard keeps (see ReportBackend.invalidate()). */
+    @Override
+    public void invalidate() {
+        shards.forEach(ReportBackend::invalidate);
+        mergedLanguages.invalidate();
+    }
+
+    // =========================================================================
+    // Scatter and gather
+    // =========================================================================
+
+    /**
+     * Runs a query on every shard at the same time.
+     * @return The answers, in shard order.
+     */
+    private <T> List<T> scatter(Function<ReportBackend, T> query) {
+        List<T> results = new ArrayList<>(shards.size());
+        if (shards.size() == 1) {
+            results.add(query.apply(shards.get(0)));
+            return results;
+        }
+        List<Future<T>> futures = new ArrayList<>(shards.size());
+        for (ReportBackend shard : shards) {
+            futures.add(executor.submit(() -> query.apply(shard)));
+        }
+        try {
+            for (Future<T> future : futures) results.add(future.get());
+        } catch (InterruptedException e) {
+            futures.forEach(f -> f.cancel(true));
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the shards.", e);
+        } catch (ExecutionException e) {
+            futures.forEach(f -> f.cancel(true));
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Shard query failed.", e.getCause());
+        }
+        return results;
+    }
+
+    /** The shard owning a continent, or null if none does. */
+    private ReportBackend owner(String continent) {
+        return continent == null ? null : byContinent.get(WorldSnapshot.collationKey(continent));
+    }
+
+    /**
+     * Merges lists that are each sorted by the comparator into one sorted list,
+     * reading the head of every list through a heap of k entries.
+     */
+    static <T> List<T> mergeSorted(List<List<T>> lists, Comparator<T> order) {
+        int total = 0;
+        for (List<T> list : lists) total += list.size();
+        List<T> merged = new ArrayList<>(total);
+        // {list, position}; ties go to the earlier list
+        PriorityQueue<int[]> heads = new PriorityQueue<>(Math.max(1, lists.size()),
+                Comparator.<int[], T>comparing(h -> lists.get(h[0]).get(h[1]), order).thenComparingInt(h -> h[0]));
+        for (int i = 0; i < lists.size(); i++) {
+            if (!lists.get(i).isEmpty()) heads.add(new int[]{i, 0});
+        }
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<T> list = lists.get(head[0]);
+            merged.add(list.get(head[1]));
+            if (++head[1] < list.size()) heads.add(head);
+        }
+        return merged;
+    }
+
+    /**
+     * The n largest rows over all lists, largest first, kept in a min-heap that never holds
+     * more than n rows.
+     */
+    static <T> List<T> mergeTop(List<List<T>> lists, int n, ToLongFunction<T> population) {
+        if (n <= 0) return new ArrayList<>();
+        // {list, position}: the smallest of the current top n (and, among equals, the latest) on top
+        Comparator<int[]> smallestFirst = Comparator.<int[]>comparingLong(h -> population.applyAsLong(lists.get(h[0]).get(h[1])))
+                .thenComparing(Comparator.<int[]>comparingInt(h -> h[0]).thenComparingInt(h -> h[1]).reversed());
+        int total = 0;
+        for (List<T> list : lists) total += list.size();
+        PriorityQueue<int[]> top = new PriorityQueue<>(Math.min(n, total) + 1, smallestFirst);
+        for (int i = 0; i < lists.size(); i++) {
+            List<T> list = lists.get(i);
+            for (int j = 0; j < list.size(); j++) {
+                int[] entry = {i, j};
+                if (top.size() < n) {
+                    top.add(entry);
+                } else if (smallestFirst.compare(entry, top.peek()) > 0) {
+                    top.poll();
+                    top.add(entry);
+                } else {
+                    // Each list is sorted: nothing further down it can make the top n
+                    break;
+                }
+            }
+        }
+        List<T> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            int[] entry = top.poll();
+            result.add(lists.get(entry[0]).get(entry[1]));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Sums breakdown rows that have the same name (an area split over shards), recomputing the
+     * percentages; the result is largest total first, ties in shard order.
+     */
+    static List<PopulationSummary> mergeSummaries(List<List<PopulationSummary>> lists) {
+        Map<String, long[]> sums = new LinkedHashMap<>();
+        Map<String, String> names = new LinkedHashMap<>();
+        for (List<PopulationSummary> list : lists) {
+            for (PopulationSummary s : list) {
+                String key = WorldSnapshot.collationKey(s.Name);
+                names.putIfAbsent(key, s.Name);
+                // {total, city, has cities}; a row without cities has zero city and non-city figures
+                long[] sum = sums.computeIfAbsent(key, k -> new long[3]);
+                sum[0] += s.TotalPopulation;
+                sum[1] += s.CityPopulation;
+                if (s.CityPopulation != 0 || s.RuralPopulation != 0) sum[2] = 1;
+            }
+        }
+        List<PopulationSummary> merged = new ArrayList<>(sums.size());
+        sums.forEach((key, sum) -> merged.add(sum[2] == 0
+                ? new PopulationSummary(names.get(key), sum[0], 0, 0, 0, 0)
+                : new PopulationSummary(names.get(key), sum[0], sum[1], WorldSnapshot.percent(sum[1], sum[0]),
+                        sum[0] - sum[1], WorldSnapshot.percent(sum[0] - sum[1], sum[0]))));
+        merged.sort(Comparator.comparingLong(s -> -s.TotalPopulation));
+        return merged;
+    }
+
+    // =========================================================================
+    // Reports
+    // =========================================================================
+
+    @Override
+    public List<Country> countries(ReportScope scope, String name) {
+        if (scope == ReportScope.CONTINENT) {
+            ReportBackend shard = owner(name);
+            return shard == null ? new ArrayList<>() : shard.countries(scope, name);
+        }
+        return mergeSorted(scatter(s -> s.countries(scope, name)), COUNTRY_ORDER);
+    }
+
+    @Override
+    public List<Country> topCountries(ReportScope scope, String name, int n) {
+        if (scope == ReportScope.CONTINENT) {
+            ReportBackend shard = owner(name);
+            return shard == null ? new ArrayList<>() : shard.topCountries(scope, name, n);
+        }
+        return mergeTop(scatter(s -> s.topCountries(scope, name, n)), n, c -> c.Population);
+    }
+
+    @Override
+    public List<City> cities(ReportScope scope, String name) {
+        if (scope == ReportScope.CONTINENT) {
+            ReportBackend shard = owner(name);
+            return shard == null ? new ArrayList<>() : shard.cities(scope, name);
+        }
+        return mergeSorted(scatter(s -> s.cities(scope, name)), CITY_ORDER);
+    }
+
+    @Override
+    public List<City> topCities(ReportScope scope, String name, int n) {
+        if (scope == ReportScope.CONTINENT) {
+            ReportBackend shard = owner(name);
+            return shard == null ? new ArrayList<>() : shard.topCities(scope, name, n);
+        }
+        return mergeTop(scatter(s -> s.topCities(scope, name, n)), n, c -> c.Population);
+    }
+
+    @Override
+    public List<City> capitals(ReportScope scope, String name) {
+        if (scope == ReportScope.CONTINENT) {
+            ReportBackend shard = owner(name);
+            return shard == null ? new ArrayList<>() : shard.capitals(scope, name);
+        }
+        return mergeSorted(scatter(s -> s.capitals(scope, name)), CITY_ORDER);
+    }
+
+    @Override
+    public List<City> topCapitals(ReportScope scope, String name, int n) {
+        if (scope == ReportScope.CONTINENT) {
+            ReportBackend shard = owner(name);
+            return shard == null ? new ArrayList<>() : shard.topCapitals(scope, name, n);
+        }
+        return mergeTop(scatter(s -> s.topCapitals(scope, name, n)), n, c -> c.Population);
+    }
+
+    @Override
+    public List<PopulationSummary> populationBreakdown(ReportScope groupBy) {
+        return mergeSummaries(scatter(s -> s.populationBreakdown(groupBy)));
+    }
+
+    @Override
+    public PopulationBreakdown populationBreakdowns() {
+        List<PopulationBreakdown> parts = scatter(ReportBackend::populationBreakdowns);
+        List<List<PopulationSummary>> continents = new ArrayList<>();
+        List<List<PopulationSummary>> regions = new ArrayList<>();
+        List<List<PopulationSummary>> countries = new ArrayList<>();
+        for (PopulationBreakdown part : parts) {
+            continents.add(part.Continents);
+            regions.add(part.Regions);
+            countries.add(part.Countries);
+        }
+        return new PopulationBreakdown(mergeSummaries(continents), mergeSummaries(regions), mergeSummaries(countries));
+    }
+
+    @Override
+    public long population(ReportScope scope, String name) {
+        if (scope == ReportScope.CONTINENT) {
+            ReportBackend shard = owner(name);
+            return shard == null ? 0 : shard.population(scope, name);
+        }
+        if (scope == ReportScope.CITY) {
+            CityPopulation city = cityPopulation(name);
+            return city == null ? 0 : city.Population;
+        }
+        List<Long> totals = scatter(s -> s.population(scope, name));
+        long sum = 0;
+        for (long total : totals) sum += total;
+        return sum;
+    }
+
+    /**
+     * Not a sum: of the cities with that name on any shard, the one with the lowest ID, which
+     * is the row a single database returns.
+     */
+    @Override
+    public CityPopulation cityPopulation(String name) {
+        CityPopulation lowest = null;
+        for (CityPopulation city : scatter(s -> s.cityPopulation(name))) {
+            if (city != null && (lowest == null || city.ID < lowest.ID)) lowest = city;
+        }
+        return lowest;
+    }
+
+    /**
+     * The shards' language indexes merged into one. The merge is kept until invalidate(), so
+     * the shards are asked only once; a merge missing a shard whose index failed is not kept.
+     */
+    @Override
+    public LanguageIndex languages() {
+        return mergedLanguages.get().index;
+    }
+
+    private MergedLanguages mergeLanguages() {
+        List<LanguageIndex> parts = scatter(ReportBackend::languages);
+        return new MergedLanguages(LanguageIndex.merge(parts), !parts.contains(LanguageIndex.EMPTY));
+    }
+}
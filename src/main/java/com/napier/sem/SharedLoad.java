@@ -0,0 +1,99 @@
+package com.napier.sem;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * A value read from the database once and shared by several reports, such as the combined
+ * UC23-UC25 breakdown that serves all three reports.
+ * <p>
+ * The value is loaded on first use and kept until {@link #invalidate()} or until it is older
+ * than its time-to-live. Callers arriving while it loads wait for that load instead of starting
+ * their own; no lock is held while loading. A load whose result fails the keep test (the SQL
+ * backend reports query errors as empty results) or that overlapped an invalidate() is returned
+ * to its callers but not kept.
+ */
+public class SharedLoad<T> {
+    private final Supplier<T> loader;
+    private final Predicate<T> keep;
+    private final long ttlNanos;
+
+    /** The kept value and when it was loaded (System.nanoTime()); guarded by this. */
+    private T value;
+    private long loadedAt;
+    /** The load in progress, or null; guarded by this. */
+    private FutureTask<T> loading;
+    /** Bumped by every invalidate(), so a load that overlapped one is not kept; guarded by this. */
+    private long generation;
+
+    /**
+     * @param loader Reads the value.
+     * @param keep Whether a loaded value may be kept.
+     * @param ttlMillis How long a loaded value is kept at most.
+     */
+    public SharedLoad(Supplier<T> loader, Predicate<T> keep, long ttlMillis) {
+        this.loader = loader;
+        this.keep = keep;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+    }
+
+    /**
+     * @return The kept value, or a freshly loaded one.
+     */
+    public T get() {
+        FutureTask<T> task;
+        long loadGeneration;
+        boolean owner = false;
+        synchronized (this) {
+            if (value != null && System.nanoTime() - loadedAt < ttlNanos) return value;
+            if (loading == null) {
+                loading = new FutureTask<>(loader::get);
+                owner = true;
+            }
+            task = loading;
+            loadGeneration = generation;
+        }
+        if (!owner) return await(task);
+
+        task.run();
+        T result;
+        try {
+            result = await(task);
+        } finally {
+            synchronized (this) {
+                if (loading == task) loading = null;
+            }
+        }
+        synchronized (this) {
+            if (generation == loadGeneration && keep.test(result)) {
+                value = result;
+                loadedAt = System.nanoTime();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops the kept value; the next get() loads it again. A load already in progress is
+     * returned to the callers waiting for it but not kept.
+     */
+    public synchronized void invalidate() {
+        generation++;
+        value = null;
+        loading = null;
+    }
+
+    private static <T> T await(FutureTask<T> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shared load.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new IllegalStateException("Shared load failed.", e.getCause());
+        }
+    }
+}
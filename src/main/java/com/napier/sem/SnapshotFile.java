@@ -0,0 +1,233 @@
+package com.napier.sem;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary file holding the city, country and countrylanguage tables column by column,
+ * so a WorldSnapshot can be opened at startup without a database.
+ * <p>
+ * Opening the file memory-maps it read-only and copies its columns into an ordinary
+ * WorldSnapshot on the heap; reports are answered from that copy, not from the mapped pages.
+ * Processes opening the same file therefore do not share the snapshot's memory. What the file
+ * does save is parsing: startup reads fixed-width columns and a string table instead of the SQL
+ * dump or a database. Layout (big-endian):
+ * <pre>
+ * header   magic "WSNP", version, country/city/language/string counts, body length, CRC32 of body
+ * strings  int[strings + 1] start offsets, then the UTF-8 bytes, padded to 8 bytes
+ * longs    country Population, city Population
+ * ints     country Code, Name, Continent, Region (string ids), Capital (city ID, 0 for none)
+ *          city ID, Name (string id), Country (country row), District (string id)
+ *          language Country (country row), Language (string id), Percentage (tenths)
+ * </pre>
+ * Strings are stored once each (continent, region, district and language names repeat),
+ * and rows are in primary key order. Files are replaced atomically, so a process that
+ * is still loading the old file keeps reading a consistent copy.
+ */
+public final class SnapshotFile {
+    /** "WSNP". */
+    static final int MAGIC = 0x57534E50;
+    /** Format version written by this build; other versions are rejected. */
+    public static final int VERSION = 1;
+    static final int HEADER_BYTES = 8 * Integer.BYTES;
+
+    private SnapshotFile() {
+    }
+
+    // =========================================================================
+    // Writing
+    // =========================================================================
+
+    /**
+     * Writes a snapshot to a file, replacing it atomically if it exists.
+     * @param snapshot The snapshot to export.
+     * @param file The file to write.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(WorldSnapshot snapshot, Path file) throws IOException {
+        WorldSnapshot.CountryRow[] countries = snapshot.countryRows();
+        WorldSnapshot.CityRow[] cities = snapshot.cityRows();
+        WorldSnapshot.LanguageRow[] languages = snapshot.languageRows();
+
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        Map<String, Integer> countryRow = new LinkedHashMap<>();
+        for (int i = 0; i < countries.length; i++) {
+            WorldSnapshot.CountryRow c = countries[i];
+            countryRow.put(c.code, i);
+            intern(strings, c.code);
+            intern(strings, c.name);
+            intern(strings, c.continent);
+            intern(strings, c.region);
+        }
+        for (WorldSnapshot.CityRow c : cities) {
+            intern(strings, c.name);
+            intern(strings, c.district);
+        }
+        for (WorldSnapshot.LanguageRow l : languages) {
+            intern(strings, l.language);
+        }
+        byte[][] encoded = new byte[strings.size()][];
+        int stringBytes = 0;
+        int id = 0;
+        for (String s : strings.keySet()) {
+            encoded[id] = s.getBytes(StandardCharsets.UTF_8);
+            stringBytes += encoded[id++].length;
+        }
+
+        int bodyLength = align8((strings.size() + 1) * Integer.BYTES + stringBytes)
+                + (countries.length + cities.length) * Long.BYTES
+                + (countries.length * 5 + cities.length * 4 + languages.length * 3) * Integer.BYTES;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + bodyLength);
+        buffer.position(HEADER_BYTES);
+
+        int offset = 0;
+        for (byte[] bytes : encoded) {
+            buffer.putInt(offset);
+            offset += bytes.length;
+        }
+        buffer.putInt(offset);
+        for (byte[] bytes : encoded) buffer.put(bytes);
+        while (buffer.position() % 8 != 0) buffer.put((byte) 0);
+
+        for (WorldSnapshot.CountryRow c : countries) buffer.putLong(c.population);
+        for (WorldSnapshot.CityRow c : cities) buffer.putLong(c.population);
+        for (WorldSnapshot.CountryRow c : countries) buffer.putInt(strings.get(c.code));
+        for (WorldSnapshot.CountryRow c : countries) buffer.putInt(strings.get(c.name));
+        for (WorldSnapshot.CountryRow c : countries) buffer.putInt(strings.get(c.continent));
+        for (WorldSnapshot.CountryRow c : countries) buffer.putInt(strings.get(c.region));
+        for (WorldSnapshot.CountryRow c : countries) buffer.putInt(c.capitalId);
+        for (WorldSnapshot.CityRow c : cities) buffer.putInt(c.id);
+        for (WorldSnapshot.CityRow c : cities) buffer.putInt(strings.get(c.name));
+        for (WorldSnapshot.CityRow c : cities) buffer.putInt(countryRow.get(c.country.code));
+        for (WorldSnapshot.CityRow c : cities) buffer.putInt(strings.get(c.district));
+        for (WorldSnapshot.LanguageRow l : languages) buffer.putInt(countryRow.get(l.country.code));
+        for (WorldSnapshot.LanguageRow l : languages) buffer.putInt(strings.get(l.language));
+        for (WorldSnapshot.LanguageRow l : languages) buffer.putInt(l.percentTenths);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER_BYTES, bodyLength);
+        buffer.position(0);
+        buffer.putInt(MAGIC).putInt(VERSION)
+                .putInt(countries.length).putInt(cities.length).putInt(languages.length).putInt(strings.size())
+                .putInt(bodyLength).putInt((int) crc.getValue());
+
+        // Write beside the target and rename over it: readers never see a half-written file
+        Path absolute = file.toAbsolutePath();
+        Path parent = absolute.getParent();
+        if (parent != null) Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, absolute.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temp, buffer.array());
+            Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void intern(Map<String, Integer> strings, String s) {
+        strings.putIfAbsent(s, strings.size());
+    }
+
+    private static int align8(int length) {
+        return (length + 7) & ~7;
+    }
+
+    // =========================================================================
+    // Reading
+    // =========================================================================
+
+    /**
+     * Memory-maps a snapshot file and copies its columns into a new heap snapshot; the mapping
+     * is not used once this returns.
+     * @param file A file written by {@link #write(WorldSnapshot, Path)}.
+     * @return The snapshot.
+     * @throws IOException if the file cannot be read, is of another version or is corrupt.
+     */
+    public static WorldSnapshot map(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES || channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        return read(buffer, file);
+    }
+
+    private static WorldSnapshot read(ByteBuffer buffer, Path file) throws IOException {
+        if (buffer.getInt(0) != MAGIC) throw new IOException("Not a snapshot file: " + file);
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot file version " + version + " (expected " + VERSION + "): " + file);
+        }
+        int countryCount = buffer.getInt(8);
+        int cityCount = buffer.getInt(12);
+        int languageCount = buffer.getInt(16);
+        int stringCount = buffer.getInt(20);
+        int bodyLength = buffer.getInt(24);
+        if (bodyLength != buffer.capacity() - HEADER_BYTES) throw new IOException("Truncated snapshot file: " + file);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(HEADER_BYTES, bodyLength));
+        if ((int) crc.getValue() != buffer.getInt(28)) throw new IOException("Corrupt snapshot file (checksum mismatch): " + file);
+
+        // String table
+        int offsets = HEADER_BYTES;
+        int bytes = offsets + (stringCount + 1) * Integer.BYTES;
+        String[] strings = new String[stringCount];
+        byte[] scratch = new byte[256];
+        for (int i = 0; i < stringCount; i++) {
+            int start = buffer.getInt(offsets + i * Integer.BYTES);
+            int length = buffer.getInt(offsets + (i + 1) * Integer.BYTES) - start;
+            if (scratch.length < length) scratch = new byte[length];
+            buffer.get(bytes + start, scratch, 0, length);
+            strings[i] = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        int position = HEADER_BYTES + align8((stringCount + 1) * Integer.BYTES + buffer.getInt(offsets + stringCount * Integer.BYTES));
+
+        // Columns
+        LongBuffer countryPopulation = longs(buffer, position, countryCount);
+        position += countryCount * Long.BYTES;
+        LongBuffer cityPopulation = longs(buffer, position, cityCount);
+        position += cityCount * Long.BYTES;
+        IntBuffer ints = buffer.slice(position, buffer.capacity() - position).asIntBuffer();
+        int countryCode = 0, countryName = countryCount, continent = 2 * countryCount, region = 3 * countryCount,
+                capital = 4 * countryCount;
+        int cityId = 5 * countryCount, cityName = cityId + cityCount, cityCountry = cityName + cityCount,
+                district = cityCountry + cityCount;
+        int languageCountry = district + cityCount, language = languageCountry + languageCount,
+                percentage = language + languageCount;
+
+        WorldSnapshot.Loader loader = new WorldSnapshot.Loader();
+        String[] codes = new String[countryCount];
+        for (int i = 0; i < countryCount; i++) {
+            codes[i] = strings[ints.get(countryCode + i)];
+            loader.addCountry(codes[i], strings[ints.get(countryName + i)], strings[ints.get(continent + i)],
+                    strings[ints.get(region + i)], countryPopulation.get(i), ints.get(capital + i));
+        }
+        for (int i = 0; i < cityCount; i++) {
+            loader.addCity(ints.get(cityId + i), strings[ints.get(cityName + i)], codes[ints.get(cityCountry + i)],
+                    strings[ints.get(district + i)], cityPopulation.get(i));
+        }
+        for (int i = 0; i < languageCount; i++) {
+            loader.addLanguage(codes[ints.get(languageCountry + i)], strings[ints.get(language + i)], ints.get(percentage + i));
+        }
+        return loader.build();
+    }
+
+    private static LongBuffer longs(ByteBuffer buffer, int position, int count) {
+        return buffer.slice(position, count * Long.BYTES).asLongBuffer();
+    }
+}
@@ -0,0 +1,522 @@
+package com.napier.sem;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Live-SQL report backend: every report is answered by querying MySQL through
+ * the connection pool, leasing one connection per query. Given a ReplicaRouter
+ * instead of a pool, the queries are spread over the read replicas.
+ */
+public class SqlReportBackend implements ReportBackend {
+    /** Pool (or ReplicaRouter) that report queries lease connections from. */
+    private final DataSource pool;
+    /** When true, UC23-UC30 read the PopulationRollup tables instead of aggregating country and city. */
+    private final boolean useRollups;
+    /** How long a shared load is kept at most, so edits made outside this application show up. */
+    static final long SHARED_TTL_MS = ReportCache.DEFAULT_TTL_MS;
+    /** UC23-UC25 at all three levels, read by one query and shared by the three reports. */
+    private final SharedLoad<PopulationBreakdown> breakdown =
+            new SharedLoad<>(this::readBreakdowns, b -> !b.Countries.isEmpty(), SHARED_TTL_MS);
+    /** Speakers per language and area, read by one query and shared by UC32 and the language queries. */
+    private final SharedLoad<LanguageIndex> languageIndex =
+            new SharedLoad<>(this::readLanguages, index -> index != LanguageIndex.EMPTY, SHARED_TTL_MS);
+
+    // --- Functional Interface for mapping ResultSet to objects ---
+    @FunctionalInterface
+    private interface ResultSetMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    // --- SQL building blocks (UC01 - UC22) ---
+    private static final String COUNTRY_SELECT =
+            "SELECT c.Code, c.Name, c.Continent, c.Region, c.Population, cap.Name AS Capital " +
+            "FROM country AS c JOIN city AS cap ON c.Capital = cap.ID ";
+    private static final String COUNTRY_ORDER = "ORDER BY c.Population DESC";
+
+    private static final String CITY_SELECT =
+            "SELECT ci.Name, c.Name AS Country, ci.District, ci.Population " +
+            "FROM city AS ci JOIN country AS c ON ci.CountryCode = c.Code ";
+    private static final String CAPITAL_SELECT =
+            "SELECT ci.Name, c.Name AS Country, ci.Population, ci.District FROM country AS c " +
+            "JOIN city AS ci ON c.Capital = ci.ID ";
+    private static final String CITY_ORDER = "ORDER BY ci.Population DESC";
+
+    private static final String LIMIT = " LIMIT ?";
+
+    // --- UC23 - UC25 ---
+    // One row per country with the sum of its cities: city is scanned once for all of UC23-UC25
+    private static final String BREAKDOWN_SQL = "SELECT c.Name, c.Continent, c.Region, c.Population, ci.CityPopulation " +
+            "FROM country AS c " +
+            "LEFT JOIN (SELECT CountryCode, SUM(Population) AS CityPopulation FROM city GROUP BY CountryCode) AS ci " +
+            "ON c.Code = ci.CountryCode " +
+            "ORDER BY c.Code";
+
+    // --- UC23 - UC25 from the rollup tables (see PopulationRollup) ---
+    private static String rollupBreakdownSql(String table) {
+        return "SELECT Name, TotalPopulation, CityPopulation, NonCityPopulation AS RuralPopulation, " +
+                "CAST(CityPopulation / TotalPopulation * 100 AS DECIMAL(5,2)) AS CityPopulationPercent, " +
+                "CAST(NonCityPopulation / TotalPopulation * 100 AS DECIMAL(5,2)) AS RuralPopulationPercent " +
+                "FROM " + table + " " +
+                "ORDER BY TotalPopulation DESC";
+    }
+
+    private static final String CONTINENT_ROLLUP_SQL = rollupBreakdownSql("rollup_continent");
+    private static final String REGION_ROLLUP_SQL = rollupBreakdownSql("rollup_region");
+    private static final String COUNTRY_ROLLUP_SQL = rollupBreakdownSql("rollup_country");
+
+    // --- UC31 with the city's ID (see cityPopulation) ---
+    private static final String CITY_POPULATION_SQL = "SELECT ID, Population FROM city WHERE Name = ? ORDER BY ID LIMIT 1";
+
+    // --- UC32: every countrylanguage row with its country, read once into a LanguageIndex ---
+    private static final String LANGUAGE_INDEX_SQL = "SELECT c.Code, c.Name, c.Continent, c.Region, c.Population, " +
+            "cl.Language, cl.Percentage " +
+            "FROM country AS c LEFT JOIN countrylanguage AS cl ON cl.CountryCode = c.Code " +
+            "ORDER BY c.Code, cl.Language";
+
+    /**
+     * Creates a backend that leases connections from the given pool.
+     * @param pool The connection pool or ReplicaRouter (must be open).
+     */
+    public SqlReportBackend(DataSource pool) {
+        this(pool, false);
+    }
+
+    /**
+     * Creates a backend that leases connections from the given pool.
+     * @param pool The connection pool or ReplicaRouter (must be open).
+     * @param useRollups true to answer UC23-UC30 from the PopulationRollup tables
+     *                   (which must have been installed).
+     */
+    public SqlReportBackend(DataSource pool, boolean useRollups) {
+        this.pool = pool;
+        this.useRollups = useRollups;
+    }
+
+    /**
+     * Executes a generic SQL query and maps the results using a provided mapper.
+     */
+    private <T> List<T> executeReportQuery(String sql, ResultSetMapper<T> mapper, Object... params) {
+        List<T> results = new ArrayList<>();
+
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try (Connection con = pool.getConnection()) {
+                long acquired = System.nanoTime();
+                ReportMetrics.phase(ReportMetrics.Phase.ACQUIRE, acquired - start);
+                try (PreparedStatement pStmt = con.prepareStatement(sql)) {
+                    // Handle LIMIT parameter (N) which is an integer
+                    // N should always be the last parameter if present, otherwise string parameters first.
+                    int strParamCount = 0;
+                    int limitParam = -1;
+
+                    for (Object param : params) {
+                        if (param == null || param instanceof String) {
+                            // A null name binds SQL NULL, which matches no rows
+                            strParamCount++;
+                            pStmt.setString(strParamCount, (String) param);
+                        } else if (param instanceof Integer) {
+                            limitParam = (int) param;
+                        }
+                    }
+
+                    // Set integer/LIMIT parameter last
+                    if (limitParam != -1) {
+                        // Assuming LIMIT is the last placeholder (?)
+                        pStmt.setInt(strParamCount + 1, limitParam);
+                    }
+
+                    try (ResultSet rs = pStmt.executeQuery()) {
+                        long executed = System.nanoTime();
+                        ReportMetrics.phase(ReportMetrics.Phase.QUERY, executed - acquired);
+                        while (rs.next()) {
+                            results.add(mapper.map(rs));
+                        }
+                        ReportMetrics.phase(ReportMetrics.Phase.MAPPING, System.nanoTime() - executed);
+                    }
+                }
+            } catch (SQLException e) {
+                // A connection lost mid-query (e.g. MySQL restarted) is retried once on a fresh one
+                if (attempt == 1 && ConnectionPool.isConnectionFailure(e)) {
+                    results.clear();
+                    continue;
+                }
+                ReportMetrics.error();
+                System.err.println("SQL Error executing report: " + e.getMessage());
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Executes a query with MySQL Connector/J row streaming and pushes each mapped row
+     * into the sink as it arrives, so memory use does not grow with the row count.
+     * The leased connection is held until the last row has been consumed. Unlike the other
+     * queries it is not retried after a lost connection, as rows may already have been written.
+     */
+    private <T> void streamReportQuery(String sql, ResultSetMapper<T> mapper, RowSink<T> sink, Object... params) {
+        long start = System.nanoTime();
+        try (Connection con = pool.getConnection()) {
+            long acquired = System.nanoTime();
+            ReportMetrics.phase(ReportMetrics.Phase.ACQUIRE, acquired - start);
+            try (PreparedStatement pStmt = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                // Integer.MIN_VALUE is Connector/J's signal to stream rows instead of buffering the result
+                pStmt.setFetchSize(Integer.MIN_VALUE);
+                int index = 0;
+                for (Object param : params) {
+                    pStmt.setString(++index, (String) param);
+                }
+
+                try (ResultSet rs = pStmt.executeQuery()) {
+                    long executed = System.nanoTime();
+                    ReportMetrics.phase(ReportMetrics.Phase.QUERY, executed - acquired);
+                    // Mapping here includes writing each row to the sink, as the two interleave
+                    while (rs.next()) {
+                        sink.accept(mapper.map(rs));
+                    }
+                    ReportMetrics.phase(ReportMetrics.Phase.MAPPING, System.nanoTime() - executed);
+                }
+            }
+        } catch (SQLException e) {
+            ReportMetrics.error();
+            System.err.println("SQL Error streaming report: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns the WHERE clause for a scope, or an empty string for WORLD.
+     */
+    private static String where(ReportScope scope) {
+        switch (scope) {
+            case WORLD: return "";
+            case CONTINENT: return "WHERE c.Continent = ? ";
+            case REGION: return "WHERE c.Region = ? ";
+            case COUNTRY: return "WHERE c.Name = ? ";
+            case DISTRICT: return "WHERE ci.District = ? ";
+            default: throw new IllegalArgumentException("Unsupported report scope: " + scope);
+        }
+    }
+
+    /**
+     * Builds the parameter list: the scope name (unless WORLD) followed by N if present.
+     */
+    private static Object[] params(ReportScope scope, String name, Integer n) {
+        List<Object> params = new ArrayList<>(2);
+        if (scope != ReportScope.WORLD) params.add(name);
+        if (n != null) params.add(n);
+        return params.toArray();
+    }
+
+    private static String countrySql(ReportScope scope, boolean top) {
+        return COUNTRY_SELECT + where(scope) + COUNTRY_ORDER + (top ? LIMIT : "");
+    }
+
+    private static String citySql(ReportScope scope, boolean top) {
+        return CITY_SELECT + where(scope) + CITY_ORDER + (top ? LIMIT : "");
+    }
+
+    private static String capitalSql(ReportScope scope, boolean top) {
+        return CAPITAL_SELECT + where(scope) + CITY_ORDER + (top ? LIMIT : "");
+    }
+
+    /**
+     * Returns the SQL this backend runs for a use case, e.g. to EXPLAIN it (see QueryPlan).
+     * Its parameters are the name (unless the report takes none) followed by N for Top-N reports.
+     * @param useCase The report.
+     * @param useRollups true for the SQL used when reading the PopulationRollup tables.
+     */
+    static String reportSql(UseCase useCase, boolean useRollups) {
+        ReportScope scope = useCase.scope();
+        switch (useCase.kind()) {
+            case COUNTRIES: return countrySql(scope, useCase.takesN());
+            case CITIES: return citySql(scope, useCase.takesN());
+            case CAPITALS: return capitalSql(scope, useCase.takesN());
+            case BREAKDOWN:
+                if (!useRollups) return BREAKDOWN_SQL;
+                switch (scope) {
+                    case CONTINENT: return CONTINENT_ROLLUP_SQL;
+                    case REGION: return REGION_ROLLUP_SQL;
+                    default: return COUNTRY_ROLLUP_SQL;
+                }
+            case POPULATION: return useRollups ? rollupPopulationSql(scope) : populationSql(scope);
+            default: return LANGUAGE_INDEX_SQL;
+        }
+    }
+
+    // =========================================================================
+    // I. Country Reports (UC01 - UC06)
+    // =========================================================================
+
+    private Country mapToCountry(ResultSet rs) throws SQLException {
+        // Uses the public field constructor: (Code, Name, Continent, Region, Population, Capital)
+        // Continent and Region repeat on every row: keep one shared instance of each value
+        return new Country(
+                rs.getString("Code"),
+                rs.getString("Name"),
+                StringDictionary.CONTINENTS.intern(rs.getString("Continent")),
+                StringDictionary.REGIONS.intern(rs.getString("Region")),
+                rs.getLong("Population"),
+                rs.getString("Capital")
+        );
+    }
+
+    /** Rejects scopes that do not apply to country and capital reports. */
+    private static void requireCountryScope(ReportScope scope) {
+        if (scope != ReportScope.WORLD && scope != ReportScope.CONTINENT && scope != ReportScope.REGION) {
+            throw new IllegalArgumentException("Unsupported report scope: " + scope);
+        }
+    }
+
+    @Override
+    public List<Country> countries(ReportScope scope, String name) {
+        requireCountryScope(scope);
+        return executeReportQuery(countrySql(scope, false), this::mapToCountry,
+                params(scope, name, null));
+    }
+
+    @Override
+    public List<Country> topCountries(ReportScope scope, String name, int n) {
+        requireCountryScope(scope);
+        return executeReportQuery(countrySql(scope, true), this::mapToCountry,
+                params(scope, name, n));
+    }
+
+    @Override
+    public void streamCountries(ReportScope scope, String name, RowSink<Country> sink) {
+        requireCountryScope(scope);
+        streamReportQuery(countrySql(scope, false), this::mapToCountry, sink,
+                params(scope, name, null));
+    }
+
+    // =========================================================================
+    // II. City and Capital City Reports (UC07 - UC22)
+    // =========================================================================
+
+    private City mapToCity(ResultSet rs, boolean isCapital) throws SQLException {
+        // Uses the City constructor: (Name, Country, District, Population, isCapital)
+        // Country and District repeat across rows: keep one shared instance of each value
+        return new City(
+                rs.getString("Name"),
+                StringDictionary.COUNTRY_NAMES.intern(rs.getString("Country")),
+                StringDictionary.DISTRICTS.intern(rs.getString("District")),
+                rs.getLong("Population"),
+                isCapital
+        );
+    }
+
+    private List<City> executeCityReportQuery(String sql, boolean isCapital, Object... params) {
+        // Use executeReportQuery with a lambda that calls the specific mapper
+        return executeReportQuery(sql, (rs) -> mapToCity(rs, isCapital), params);
+    }
+
+    @Override
+    public List<City> cities(ReportScope scope, String name) {
+        return executeCityReportQuery(citySql(scope, false), false, params(scope, name, null));
+    }
+
+    @Override
+    public List<City> topCities(ReportScope scope, String name, int n) {
+        return executeCityReportQuery(citySql(scope, true), false, params(scope, name, n));
+    }
+
+    @Override
+    public List<City> capitals(ReportScope scope, String name) {
+        requireCountryScope(scope);
+        return executeCityReportQuery(capitalSql(scope, false), true, params(scope, name, null));
+    }
+
+    @Override
+    public List<City> topCapitals(ReportScope scope, String name, int n) {
+        requireCountryScope(scope);
+        return executeCityReportQuery(capitalSql(scope, true), true, params(scope, name, n));
+    }
+
+    @Override
+    public void streamCities(ReportScope scope, String name, RowSink<City> sink) {
+        streamReportQuery(citySql(scope, false), rs -> mapToCity(rs, false), sink,
+                params(scope, name, null));
+    }
+
+    @Override
+    public void streamCapitals(ReportScope scope, String name, RowSink<City> sink) {
+        requireCountryScope(scope);
+        streamReportQuery(capitalSql(scope, false), rs -> mapToCity(rs, true), sink,
+                params(scope, name, null));
+    }
+
+    // =========================================================================
+    // III. Population Distribution Reports (UC23 - UC25)
+    // =========================================================================
+
+    private PopulationSummary mapToPopulationSummary(ResultSet rs) throws SQLException {
+        // Uses the 6-argument constructor: (name, totalPop, cityPop, cityPopPct, ruralPop, ruralPopPct)
+        return new PopulationSummary(
+                rs.getString("Name"),
+                rs.getLong("TotalPopulation"),
+                rs.getLong("CityPopulation"),
+                rs.getDouble("CityPopulationPercent"),
+                rs.getLong("RuralPopulation"),
+                rs.getDouble("RuralPopulationPercent")
+        );
+    }
+
+    private Object[] mapToBreakdownRow(ResultSet rs) throws SQLException {
+        long cityPopulation = rs.getLong("CityPopulation");
+        // NULL city population: the country has no city rows
+        boolean hasCities = !rs.wasNull();
+        return new Object[]{rs.getString("Name"), rs.getString("Continent"), rs.getString("Region"),
+                rs.getLong("Population"), cityPopulation, hasCities};
+    }
+
+    @Override
+    public List<PopulationSummary> populationBreakdown(ReportScope groupBy) {
+        if (useRollups) {
+            switch (groupBy) {
+                case CONTINENT: return executeReportQuery(CONTINENT_ROLLUP_SQL, this::mapToPopulationSummary);
+                case REGION: return executeReportQuery(REGION_ROLLUP_SQL, this::mapToPopulationSummary);
+                case COUNTRY: return executeReportQuery(COUNTRY_ROLLUP_SQL, this::mapToPopulationSummary);
+                default: throw new IllegalArgumentException("Unsupported breakdown level: " + groupBy);
+            }
+        }
+        return populationBreakdowns().get(groupBy);
+    }
+
+    /**
+     * UC23-UC25 from one query: the per-country city totals are read once and summed by
+     * continent and region in process. The result is kept (see SharedLoad) until invalidate()
+     * or for SHARED_TTL_MS, so UC23, UC24 and UC25 run together read the tables once. With
+     * rollups each level is read from its rollup table, which is already cheap.
+     */
+    @Override
+    public PopulationBreakdown populationBreakdowns() {
+        if (useRollups) return ReportBackend.super.populationBreakdowns();
+        return breakdown.get();
+    }
+
+    private PopulationBreakdown readBreakdowns() {
+        PopulationBreakdown.Builder builder = new PopulationBreakdown.Builder();
+        for (Object[] row : executeReportQuery(BREAKDOWN_SQL, this::mapToBreakdownRow)) {
+            builder.country((String) row[0], (String) row[1], (String) row[2], (Long) row[3], (Long) row[4], (Boolean) row[5]);
+        }
+        return builder.build();
+    }
+
+    // =========================================================================
+    // IV. Aggregate Population Totals (UC26 - UC31)
+    // =========================================================================
+
+    /**
+     * Returns the single-value population query for a scope.
+     */
+    private static String populationSql(ReportScope scope) {
+        switch (scope) {
+            case WORLD: return "SELECT SUM(Population) FROM country";
+            case CONTINENT: return "SELECT SUM(Population) FROM country WHERE Continent = ?";
+            case REGION: return "SELECT SUM(Population) FROM country WHERE Region = ?";
+            case COUNTRY: return "SELECT Population FROM country WHERE Name = ?";
+            case DISTRICT: return "SELECT SUM(Population) FROM city WHERE District = ?";
+            case CITY: return "SELECT Population FROM city WHERE Name = ? ORDER BY ID LIMIT 1";
+            default: throw new IllegalArgumentException("Unsupported report scope: " + scope);
+        }
+    }
+
+    /**
+     * Returns the single-value population query for a scope, reading the rollup tables
+     * for every scope but CITY (a city's population is already a single row).
+     */
+    private static String rollupPopulationSql(ReportScope scope) {
+        switch (scope) {
+            case WORLD: return "SELECT SUM(TotalPopulation) FROM rollup_continent";
+            case CONTINENT: return "SELECT TotalPopulation FROM rollup_continent WHERE Name = ?";
+            case REGION: return "SELECT TotalPopulation FROM rollup_region WHERE Name = ?";
+            case COUNTRY: return "SELECT TotalPopulation FROM rollup_country WHERE Name = ?";
+            case DISTRICT: return "SELECT TotalPopulation FROM rollup_district WHERE Name = ?";
+            default: return populationSql(scope);
+        }
+    }
+
+    @Override
+    public long population(ReportScope scope, String name) {
+        long population = 0;
+
+        for (int attempt = 1; ; attempt++) {
+            long start = System.nanoTime();
+            try (Connection con = pool.getConnection()) {
+                long acquired = System.nanoTime();
+                ReportMetrics.phase(ReportMetrics.Phase.ACQUIRE, acquired - start);
+                try (PreparedStatement pStmt = con.prepareStatement(useRollups ? rollupPopulationSql(scope) : populationSql(scope))) {
+                    if (scope != ReportScope.WORLD) {
+                        pStmt.setString(1, name);
+                    }
+                    try (ResultSet rs = pStmt.executeQuery()) {
+                        if (rs.next()) {
+                            population = rs.getLong(1);
+                        }
+                    }
+                    ReportMetrics.phase(ReportMetrics.Phase.QUERY, System.nanoTime() - acquired);
+                }
+            } catch (SQLException e) {
+                // A connection lost mid-query (e.g. MySQL restarted) is retried once on a fresh one
+                if (attempt == 1 && ConnectionPool.isConnectionFailure(e)) {
+                    population = 0;
+                    continue;
+                }
+                ReportMetrics.error();
+                System.err.println("SQL Error executing " + scope + " population query: " + e.getMessage());
+            }
+            return population;
+        }
+    }
+
+    @Override
+    public CityPopulation cityPopulation(String name) {
+        List<CityPopulation> rows = executeReportQuery(CITY_POPULATION_SQL,
+                rs -> new CityPopulation(rs.getInt("ID"), rs.getLong("Population")), name);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    // =========================================================================
+    // V. Language Report (UC32)
+    // =========================================================================
+
+    private Object[] mapToLanguageRow(ResultSet rs) throws SQLException {
+        // Percentage is DECIMAL(4,1): held in tenths; Language is NULL for a country without languages
+        BigDecimal percentage = rs.getBigDecimal("Percentage");
+        return new Object[]{rs.getString("Code"), rs.getString("Name"), rs.getString("Continent"),
+                rs.getString("Region"), rs.getLong("Population"), rs.getString("Language"),
+                percentage == null ? 0 : percentage.movePointRight(1).intValueExact()};
+    }
+
+    /**
+     * Returns the language index, reading it with one query on first use and keeping it until
+     * invalidate() or for SHARED_TTL_MS (so edits to countrylanguage show up). If the query
+     * fails the error is reported, an empty index is returned and the next call tries again.
+     */
+    @Override
+    public LanguageIndex languages() {
+        return languageIndex.get();
+    }
+
+    private LanguageIndex readLanguages() {
+        List<Object[]> rows = executeReportQuery(LANGUAGE_INDEX_SQL, this::mapToLanguageRow);
+        if (rows.isEmpty()) return LanguageIndex.EMPTY;
+        LanguageIndex.Builder builder = new LanguageIndex.Builder();
+        for (Object[] row : rows) {
+            builder.country((String) row[0], (String) row[1], (String) row[2], (String) row[3], (Long) row[4]);
+            if (row[5] != null) builder.language((String) row[0], (String) row[5], (Integer) row[6]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Drops the shared breakdown and language index, so the next reports read the tables again.
+     */
+    @Override
+    public void invalidate() {
+        breakdown.invalidate();
+        languageIndex.invalidate();
+    }
+}
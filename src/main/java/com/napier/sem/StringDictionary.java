@@ -0,0 +1,117 @@
+package com.napier.sem;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Dictionary encoding for a low-cardinality string column (continents, regions, districts,
+ * country names): every distinct value gets one canonical String instance and a dense int code.
+ * <p>
+ * Rows that intern their values share those instances, so a large City or Country result holds
+ * a few hundred strings instead of one per row, and comparing two interned values usually ends
+ * at the identity check in String.equals. The collation key of each value (see
+ * WorldSnapshot.collationKey) is computed once and shared the same way.
+ * <p>
+ * A dictionary stops growing at its capacity; further new values are returned as they are
+ * (and get code -1), so unexpected data cannot turn it into a memory leak. Thread-safe.
+ */
+public final class StringDictionary {
+    /** Country.Continent (7 values in the world database). */
+    public static final StringDictionary CONTINENTS = new StringDictionary(64);
+    /** Country.Region (25 values). */
+    public static final StringDictionary REGIONS = new StringDictionary(256);
+    /** City.District (about 1,400 values). */
+    public static final StringDictionary DISTRICTS = new StringDictionary(16_384);
+    /** Country.Name as shown on city rows (239 values). */
+    public static final StringDictionary COUNTRY_NAMES = new StringDictionary(4_096);
+    /** CountryLanguage.Language (457 values). */
+    public static final StringDictionary LANGUAGES = new StringDictionary(4_096);
+
+    /** A value with its code and collation key. */
+    private static final class Entry {
+        final String value;
+        final String key;
+        final int code;
+
+        Entry(String value, int code) {
+            this.value = value;
+            this.key = WorldSnapshot.collationKey(value);
+            this.code = code;
+        }
+    }
+
+    private final int capacity;
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    /** Values by code; grows by doubling, guarded by this. */
+    private volatile Entry[] byCode = new Entry[16];
+
+    /**
+     * @param capacity Maximum number of distinct values encoded.
+     */
+    public StringDictionary(int capacity) {
+        this.capacity = capacity;
+    }
+
+    private Entry entry(String value) {
+        Entry entry = entries.get(value);
+        if (entry != null || entries.size() >= capacity) return entry;
+        synchronized (this) {
+            entry = entries.get(value);
+            if (entry == null && entries.size() < capacity) {
+                entry = new Entry(value, entries.size());
+                if (entry.code == byCode.length) byCode = Arrays.copyOf(byCode, byCode.length * 2);
+                byCode[entry.code] = entry;
+                entries.put(value, entry);
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * @param value A column value (may be null).
+     * @return The canonical instance equal to the value (the value itself if the dictionary is full).
+     */
+    public String intern(String value) {
+        if (value == null) return null;
+        Entry entry = entry(value);
+        return entry == null ? value : entry.value;
+    }
+
+    /**
+     * @param value A column value (not null: NULL has no code).
+     * @return Its dense code (0, 1, 2, ... in order of first use), or -1 if the dictionary is full.
+     * @throws IllegalArgumentException if the value is null.
+     */
+    public int code(String value) {
+        if (value == null) throw new IllegalArgumentException("NULL has no dictionary code.");
+        Entry entry = entry(value);
+        return entry == null ? -1 : entry.code;
+    }
+
+    /**
+     * @param code A code returned by {@link #code(String)}.
+     * @return The value it stands for.
+     * @throws IndexOutOfBoundsException if the code was never handed out.
+     */
+    public String value(int code) {
+        Entry[] table = byCode;
+        Entry entry = code >= 0 && code < table.length ? table[code] : null;
+        if (entry == null) throw new IndexOutOfBoundsException("Unknown code " + code);
+        return entry.value;
+    }
+
+    /**
+     * @param value A column value (may be null).
+     * @return The shared collation key of the value, computed once per distinct value.
+     */
+    public String collationKey(String value) {
+        if (value == null) return null;
+        Entry entry = entry(value);
+        return entry == null ? WorldSnapshot.collationKey(value) : entry.key;
+    }
+
+    /** @return Number of distinct values encoded. */
+    public int size() {
+        return entries.size();
+    }
+}
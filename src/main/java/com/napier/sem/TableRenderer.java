@@ -0,0 +1,195 @@
+package com.napier.sem;
+
+import java.io.PrintStream;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Shared fixed-width table writer used by the report models.
+ * <p>
+ * Rows are appended into one reusable buffer and written to the target stream in large
+ * chunks. Numbers are formatted straight into the buffer (thousands separators and fixed
+ * decimals) without creating a NumberFormat, Formatter or String per row. The output is
+ * byte-for-byte what the previous {@code printf("| %-30s | ... |\n")} code produced:
+ * {@code line()} ends with the platform line separator like println, rows end with '\n'
+ * like the printf format strings.
+ * <p>
+ * A renderer is not thread-safe; use one per report.
+ */
+public final class TableRenderer {
+    /** Buffered characters are written out once the buffer grows past this size. */
+    private static final int FLUSH_THRESHOLD = 32 * 1024;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    /** Largest scaled value handled by the fast decimal path; beyond it double precision is too coarse. */
+    private static final double MAX_FAST_DECIMAL = 1e9;
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1000, 10000, 100000, 1000000};
+
+    private final PrintStream out;
+    private final StringBuilder buffer = new StringBuilder(FLUSH_THRESHOLD + 1024);
+    private boolean firstCell = true;
+
+    /** printf("%f") uses the default FORMAT locale, so decimals must too to stay identical. */
+    private final Locale formatLocale = Locale.getDefault(Locale.Category.FORMAT);
+    private final char decimalSeparator;
+    private final boolean asciiDigits;
+
+    /**
+     * @param out Where the table is written (System.out, a file, a socket...).
+     */
+    public TableRenderer(PrintStream out) {
+        this.out = out;
+        DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(formatLocale);
+        this.decimalSeparator = symbols.getDecimalSeparator();
+        this.asciiDigits = symbols.getZeroDigit() == '0';
+    }
+
+    // =========================================================================
+    // Lines and rows
+    // =========================================================================
+
+    /**
+     * Appends text followed by the platform line separator (same bytes as println).
+     */
+    public TableRenderer line(String text) {
+        buffer.append(text).append(LINE_SEPARATOR);
+        return this;
+    }
+
+    /**
+     * Starts a table row: "| ".
+     */
+    public TableRenderer beginRow() {
+        buffer.append("| ");
+        firstCell = true;
+        return this;
+    }
+
+    /**
+     * Ends a table row: " |" and a newline. Flushes if the buffer is full.
+     */
+    public TableRenderer endRow() {
+        buffer.append(" |\n");
+        if (buffer.length() >= FLUSH_THRESHOLD) flush();
+        return this;
+    }
+
+    /**
+     * Appends a left-justified text cell (like %-Ns; longer values are not truncated, null prints "null").
+     */
+    public TableRenderer col(String value, int width) {
+        int start = startCell();
+        buffer.append(value);
+        return pad(start, width);
+    }
+
+    /**
+     * Appends a left-justified integer cell with US thousands separators
+     * (like NumberFormat.getInstance(Locale.US).format(value) in a %-Ns cell).
+     */
+    public TableRenderer colGrouped(long value, int width) {
+        int start = startCell();
+        appendGrouped(value);
+        return pad(start, width);
+    }
+
+    /**
+     * Appends a left-justified fixed-point cell (like %-N.Df).
+     */
+    public TableRenderer colDecimal(double value, int decimals, int width) {
+        int start = startCell();
+        appendFixed(value, decimals);
+        return pad(start, width);
+    }
+
+    /**
+     * Writes everything buffered so far to the target stream.
+     */
+    public void flush() {
+        if (buffer.length() == 0) return;
+        ReportMetrics.rendered(buffer);
+        // One write (and one encode) per chunk instead of one per cell
+        out.append(buffer);
+        buffer.setLength(0);
+        out.flush();
+    }
+
+    // =========================================================================
+    // Formatting helpers
+    // =========================================================================
+
+    private int startCell() {
+        if (!firstCell) buffer.append(" | ");
+        firstCell = false;
+        return buffer.length();
+    }
+
+    private TableRenderer pad(int start, int width) {
+        for (int i = buffer.length() - start; i < width; i++) {
+            buffer.append(' ');
+        }
+        return this;
+    }
+
+    /** Appends value with ',' every three digits, e.g. -1,234,567. */
+    private void appendGrouped(long value) {
+        if (value == Long.MIN_VALUE) {
+            buffer.append("-9,223,372,036,854,775,808");
+            return;
+        }
+        if (value < 0) {
+            buffer.append('-');
+            value = -value;
+        }
+        long divisor = 1;
+        int groups = 0;
+        while (value / divisor >= 1000) {
+            divisor *= 1000;
+            groups++;
+        }
+        buffer.append(value / divisor);
+        for (int g = 0; g < groups; g++) {
+            value %= divisor;
+            divisor /= 1000;
+            long part = value / divisor;
+            buffer.append(',');
+            if (part < 100) buffer.append('0');
+            if (part < 10) buffer.append('0');
+            buffer.append(part);
+        }
+    }
+
+    /**
+     * Appends value with a fixed number of decimals, rounding half-up on the decimal
+     * representation like java.util.Formatter. Values where double arithmetic cannot
+     * decide the rounding (exact ties, huge or non-finite values, non-ASCII digits)
+     * fall back to String.format, which is rare enough not to matter for allocation.
+     */
+    private void appendFixed(double value, int decimals) {
+        double magnitude = Math.abs(value);
+        long scale = decimals < POWERS_OF_TEN.length ? POWERS_OF_TEN[decimals] : 0;
+        double scaled = magnitude * scale;
+        if (scale == 0 || !asciiDigits || !(scaled < MAX_FAST_DECIMAL)) {
+            buffer.append(String.format(formatLocale, "%." + decimals + "f", value));
+            return;
+        }
+        long whole = (long) scaled;
+        double fraction = scaled - whole;
+        if (Math.abs(fraction - 0.5) < 1e-6) {
+            buffer.append(String.format(formatLocale, "%." + decimals + "f", value));
+            return;
+        }
+        if (fraction > 0.5) whole++;
+
+        // Formatter prints a minus sign for any negative value, including -0.0 and values rounding to zero
+        if (Double.doubleToRawLongBits(value) < 0) buffer.append('-');
+        buffer.append(whole / scale);
+        if (decimals > 0) {
+            buffer.append(decimalSeparator);
+            long fractionDigits = whole % scale;
+            for (long p = scale / 10; p > 1 && fractionDigits < p; p /= 10) {
+                buffer.append('0');
+            }
+            buffer.append(fractionDigits);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.napier.sem;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Precomputed population-descending orderings of one kind of row (countries, cities
+ * or capitals), partitioned by report scope (world, continent, region, country, district).
+ * <p>
+ * A Top-N query reads the first N entries of its partition, so it costs O(N)
+ * regardless of table size and never sorts. The index is immutable once built.
+ * @param <T> The row type being indexed.
+ */
+public final class TopNIndex<T> {
+    /** Every row, largest population first. */
+    private final List<T> world;
+    /** scope -> partition key -> rows of that partition, largest population first. */
+    private final Map<ReportScope, Map<String, List<T>>> partitions = new EnumMap<>(ReportScope.class);
+
+    /**
+     * Creates an index over rows that are already in population-descending order.
+     * @param byPopulation All rows, largest population first.
+     */
+    public TopNIndex(List<T> byPopulation) {
+        this.world = Collections.unmodifiableList(new ArrayList<>(byPopulation));
+    }
+
+    /**
+     * Adds a partitioning of the rows. Each partition keeps the order of the world list,
+     * so no sort is needed. Rows with a null key are left out.
+     * @param scope The scope this partitioning answers.
+     * @param key Extracts the partition key (e.g. the collation key of the continent).
+     * @return This index, for chaining.
+     */
+    public TopNIndex<T> partitionBy(ReportScope scope, Function<T, String> key) {
+        Map<String, List<T>> byKey = new HashMap<>();
+        for (T row : world) {
+            String k = key.apply(row);
+            if (k != null) byKey.computeIfAbsent(k, x -> new ArrayList<>()).add(row);
+        }
+        byKey.replaceAll((k, rows) -> Collections.unmodifiableList(new ArrayList<>(rows)));
+        partitions.put(scope, byKey);
+        return this;
+    }
+
+    /**
+     * Returns every row of a partition, largest population first.
+     * @param scope WORLD or a scope added with partitionBy.
+     * @param key The partition key (ignored for WORLD).
+     * @return The partition (read-only), or an empty list if there is no such partition.
+     */
+    public List<T> partition(ReportScope scope, String key) {
+        if (scope == ReportScope.WORLD) return world;
+        Map<String, List<T>> byKey = partitions.get(scope);
+        if (byKey == null) throw new IllegalArgumentException("Index is not partitioned by " + scope);
+        List<T> rows = key == null ? null : byKey.get(key);
+        return rows == null ? Collections.emptyList() : rows;
+    }
+
+    /**
+     * Returns the N most populated rows of a partition, converted with mapper.
+     * @param n Number of rows wanted; values below 1 give an empty list.
+     */
+    public <R> List<R> top(ReportScope scope, String key, int n, Function<T, R> mapper) {
+        List<T> rows = partition(scope, key);
+        int count = Math.max(0, Math.min(n, rows.size()));
+        List<R> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(mapper.apply(rows.get(i)));
+        }
+        return result;
+    }
+}
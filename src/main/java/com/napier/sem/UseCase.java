@@ -0,0 +1,147 @@
+package com.napier.sem;
+
+import java.util.Locale;
+
+/**
+ * The 32 report use cases: what each one returns, the geographic level it filters or
+ * groups by, whether it takes N, and its report title.
+ * <p>
+ * App.report(), the HTTP server and ReportBatch dispatch through this table instead
+ * of a hand-written method per use case.
+ */
+public enum UseCase {
+    // I. Country Reports
+    UC01(Kind.COUNTRIES, ReportScope.WORLD, false, "All Countries in the World"),
+    UC02(Kind.COUNTRIES, ReportScope.CONTINENT, false, "All Countries in Continent '{name}'"),
+    UC03(Kind.COUNTRIES, ReportScope.REGION, false, "All Countries in Region '{name}'"),
+    UC04(Kind.COUNTRIES, ReportScope.WORLD, true, "Top {n} Populated Countries in the World"),
+    UC05(Kind.COUNTRIES, ReportScope.CONTINENT, true, "Top {n} Populated Countries in Continent '{name}'"),
+    UC06(Kind.COUNTRIES, ReportScope.REGION, true, "Top {n} Populated Countries in Region '{name}'"),
+
+    // II. City Reports
+    UC07(Kind.CITIES, ReportScope.WORLD, false, "All Cities in the World"),
+    UC08(Kind.CITIES, ReportScope.CONTINENT, false, "All Cities in Continent '{name}'"),
+    UC09(Kind.CITIES, ReportScope.REGION, false, "All Cities in Region '{name}'"),
+    UC10(Kind.CITIES, ReportScope.COUNTRY, false, "All Cities in Country '{name}'"),
+    UC11(Kind.CITIES, ReportScope.DISTRICT, false, "All Cities in District '{name}'"),
+    UC12(Kind.CITIES, ReportScope.WORLD, true, "Top {n} Populated Cities in the World"),
+    UC13(Kind.CITIES, ReportScope.CONTINENT, true, "Top {n} Populated Cities in Continent '{name}'"),
+    UC14(Kind.CITIES, ReportScope.REGION, true, "Top {n} Populated Cities in Region '{name}'"),
+    UC15(Kind.CITIES, ReportScope.COUNTRY, true, "Top {n} Populated Cities in Country '{name}'"),
+    UC16(Kind.CITIES, ReportScope.DISTRICT, true, "Top {n} Populated Cities in District '{name}'"),
+
+    // III. Capital City Reports
+    UC17(Kind.CAPITALS, ReportScope.WORLD, false, "All Capital Cities in the World"),
+    UC18(Kind.CAPITALS, ReportScope.CONTINENT, false, "All Capital Cities in Continent '{name}'"),
+    UC19(Kind.CAPITALS, ReportScope.REGION, false, "All Capital Cities in Region '{name}'"),
+    UC20(Kind.CAPITALS, ReportScope.WORLD, true, "Top {n} Populated Capital Cities in the World"),
+    UC21(Kind.CAPITALS, ReportScope.CONTINENT, true, "Top {n} Populated Capital Cities in Continent '{name}'"),
+    UC22(Kind.CAPITALS, ReportScope.REGION, true, "Top {n} Populated Capital Cities in Region '{name}'"),
+
+    // IV. Population Distribution Reports (scope is the grouping level, no filter)
+    UC23(Kind.BREAKDOWN, ReportScope.CONTINENT, false, "Continent Population Breakdown"),
+    UC24(Kind.BREAKDOWN, ReportScope.REGION, false, "Region Population Breakdown"),
+    UC25(Kind.BREAKDOWN, ReportScope.COUNTRY, false, "Country Population Breakdown"),
+
+    // V. Aggregate Population Totals (the name is appended in brackets when given)
+    UC26(Kind.POPULATION, ReportScope.WORLD, false, "World Population"),
+    UC27(Kind.POPULATION, ReportScope.CONTINENT, false, "Continent Population"),
+    UC28(Kind.POPULATION, ReportScope.REGION, false, "Region Population"),
+    UC29(Kind.POPULATION, ReportScope.COUNTRY, false, "Country Population"),
+    UC30(Kind.POPULATION, ReportScope.DISTRICT, false, "District Population"),
+    UC31(Kind.POPULATION, ReportScope.CITY, false, "City Population"),
+
+    // VI. Language Report
+    UC32(Kind.LANGUAGES, ReportScope.WORLD, false, "Global Language Speakers Report (Chinese, English, Hindi, Spanish, Arabic)");
+
+    /** The shape of a report's result. */
+    public enum Kind {
+        /** List of Country rows. */
+        COUNTRIES,
+        /** List of City rows (city layout). */
+        CITIES,
+        /** List of City rows (capital layout). */
+        CAPITALS,
+        /** List of PopulationSummary rows. */
+        BREAKDOWN,
+        /** A single population total. */
+        POPULATION,
+        /** List of LanguageSpeakers rows. */
+        LANGUAGES
+    }
+
+    private final Kind kind;
+    private final ReportScope scope;
+    private final boolean topN;
+    private final String label;
+
+    UseCase(Kind kind, ReportScope scope, boolean topN, String label) {
+        this.kind = kind;
+        this.scope = scope;
+        this.topN = topN;
+        this.label = label;
+    }
+
+    /**
+     * Looks up a use case by number.
+     * @param number 1-32.
+     * @throws IllegalArgumentException if there is no such use case.
+     */
+    public static UseCase of(int number) {
+        if (number < 1 || number > values().length) {
+            throw new IllegalArgumentException("Report number out of range (1-32): " + number);
+        }
+        return values()[number - 1];
+    }
+
+    /** @return The use case number (1-32). */
+    public int number() {
+        return ordinal() + 1;
+    }
+
+    /** @return The shape of the result. */
+    public Kind kind() {
+        return kind;
+    }
+
+    /** @return The level filtered on (or grouped by, for UC23-UC25). */
+    public ReportScope scope() {
+        return scope;
+    }
+
+    /** @return true if the report takes N (Top-N reports). */
+    public boolean takesN() {
+        return topN;
+    }
+
+    /** @return true if the report takes a continent/region/country/district/city name. */
+    public boolean takesName() {
+        return scope != ReportScope.WORLD && kind != Kind.BREAKDOWN;
+    }
+
+    /**
+     * @return The name of the name argument ("continent", "region", ...), or null if the report takes none.
+     */
+    public String nameParameter() {
+        return takesName() ? scope.name().toLowerCase(Locale.ROOT) : null;
+    }
+
+    /** @return true for the full-list reports that can be written row by row (UC01-03, UC07-11, UC17-19). */
+    public boolean isStreamable() {
+        return !topN && (kind == Kind.COUNTRIES || kind == Kind.CITIES || kind == Kind.CAPITALS);
+    }
+
+    /**
+     * Builds the report title exactly as the console reports print it, e.g.
+     * "UC13: Top 5 Populated Cities in Continent 'Asia'".
+     * @param name The continent/region/country/district/city name (ignored if not taken).
+     * @param n The N of Top-N reports (ignored if not taken).
+     */
+    public String title(String name, int n) {
+        String prefix = String.format(Locale.ROOT, "UC%02d: ", number());
+        if (kind == Kind.POPULATION) {
+            return prefix + label + (name != null ? " (" + name + ")" : "");
+        }
+        return prefix + label.replace("{n}", String.valueOf(n)).replace("{name}", String.valueOf(name));
+    }
+}
@@ -0,0 +1,401 @@
+package com.napier.sem;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * The country and city tables held column by column in primitive arrays, for scans and
+ * aggregates that touch millions of rows without creating an object per row.
+ * <p>
+ * A row is an index into the columns (countries in Code order, cities in ID order, as in
+ * WorldSnapshot). Low-cardinality strings are stored as ids into per-table dictionaries,
+ * the 3-letter country code is packed into an int, and the foreign key from city to country
+ * is the country's row index. Scans return row indices ({@code int[]}), aggregates return
+ * primitive totals, and only the rows a report finally prints become City or Country objects.
+ * <p>
+ * Name filters compare like the SQL path (see WorldSnapshot.collationKey): the name is resolved
+ * once to the dictionary ids it matches, after which each row costs an array lookup.
+ * Immutable once built, so it can be shared between threads.
+ */
+public final class WorldColumns {
+    private final StringDictionary countryNames = new StringDictionary(Integer.MAX_VALUE);
+    private final StringDictionary continents = new StringDictionary(Integer.MAX_VALUE);
+    private final StringDictionary regions = new StringDictionary(Integer.MAX_VALUE);
+    private final StringDictionary districts = new StringDictionary(Integer.MAX_VALUE);
+
+    // Country columns
+    private final int[] countryCode;
+    private final int[] countryName;
+    private final int[] continent;
+    private final int[] region;
+    private final int[] countryPopulation;
+    /** City row of the capital, or -1. */
+    private final int[] capital;
+
+    // City columns
+    private final int[] cityId;
+    private final String[] cityName;
+    /** Collation keys of the city names, for UC31 lookups. */
+    private final String[] cityNameKey;
+    /** Country row of the city. */
+    private final int[] cityCountry;
+    private final int[] district;
+    private final int[] cityPopulation;
+
+    private WorldColumns(int countries, int cities) {
+        countryCode = new int[countries];
+        countryName = new int[countries];
+        continent = new int[countries];
+        region = new int[countries];
+        countryPopulation = new int[countries];
+        capital = new int[countries];
+        cityId = new int[cities];
+        cityName = new String[cities];
+        cityNameKey = new String[cities];
+        cityCountry = new int[cities];
+        district = new int[cities];
+        cityPopulation = new int[cities];
+    }
+
+    /**
+     * Builds the columns from a snapshot's rows.
+     * @param snapshot The loaded world tables.
+     * @return The columns.
+     * @throws IllegalArgumentException if a population does not fit an int, a code is not 3 ASCII characters
+     *         or a name, continent, region or district is NULL.
+     */
+    public static WorldColumns of(WorldSnapshot snapshot) {
+        WorldSnapshot.CountryRow[] countries = snapshot.countryRows();
+        WorldSnapshot.CityRow[] cities = snapshot.cityRows();
+        WorldColumns columns = new WorldColumns(countries.length, cities.length);
+
+        Map<WorldSnapshot.CountryRow, Integer> countryRow = new IdentityHashMap<>();
+        Map<WorldSnapshot.CityRow, Integer> cityRow = new IdentityHashMap<>();
+        for (int i = 0; i < cities.length; i++) {
+            WorldSnapshot.CityRow c = cities[i];
+            cityRow.put(c, i);
+            columns.cityId[i] = c.id;
+            columns.cityName[i] = c.name;
+            columns.cityNameKey[i] = c.nameKey;
+            columns.district[i] = columns.districts.code(c.district);
+            columns.cityPopulation[i] = toInt(c.population, "city " + c.id);
+        }
+        for (int i = 0; i < countries.length; i++) {
+            WorldSnapshot.CountryRow c = countries[i];
+            countryRow.put(c, i);
+            columns.countryCode[i] = packCode(c.code);
+            columns.countryName[i] = columns.countryNames.code(c.name);
+            columns.continent[i] = columns.continents.code(c.continent);
+            columns.region[i] = columns.regions.code(c.region);
+            columns.countryPopulation[i] = toInt(c.population, "country " + c.code);
+            columns.capital[i] = c.capital == null ? -1 : cityRow.get(c.capital);
+        }
+        for (int i = 0; i < cities.length; i++) {
+            columns.cityCountry[i] = countryRow.get(cities[i].country);
+        }
+        return columns;
+    }
+
+    /**
+     * A synthetic copy with every city repeated {@code times} times (IDs offset per copy,
+     * same countries), for sizing and benchmarking beyond the 4,079 real cities.
+     * @param times Number of copies, at least 1.
+     * @return The enlarged columns.
+     */
+    public WorldColumns repeat(int times) {
+        if (times < 1) throw new IllegalArgumentException("times must be at least 1: " + times);
+        int cities = getCityCount();
+        WorldColumns copy = new WorldColumns(getCountryCount(), Math.multiplyExact(cities, times));
+        copyDictionary(countryNames, copy.countryNames);
+        copyDictionary(continents, copy.continents);
+        copyDictionary(regions, copy.regions);
+        copyDictionary(districts, copy.districts);
+        System.arraycopy(countryCode, 0, copy.countryCode, 0, countryCode.length);
+        System.arraycopy(countryName, 0, copy.countryName, 0, countryName.length);
+        System.arraycopy(continent, 0, copy.continent, 0, continent.length);
+        System.arraycopy(region, 0, copy.region, 0, region.length);
+        System.arraycopy(countryPopulation, 0, copy.countryPopulation, 0, countryPopulation.length);
+        System.arraycopy(capital, 0, copy.capital, 0, capital.length);
+        int idStride = cities == 0 ? 0 : Arrays.stream(cityId).max().getAsInt();
+        for (int t = 0; t < times; t++) {
+            int base = t * cities;
+            for (int i = 0; i < cities; i++) {
+                copy.cityId[base + i] = cityId[i] + t * idStride;
+            }
+            System.arraycopy(cityName, 0, copy.cityName, base, cities);
+            System.arraycopy(cityNameKey, 0, copy.cityNameKey, base, cities);
+            System.arraycopy(cityCountry, 0, copy.cityCountry, base, cities);
+            System.arraycopy(district, 0, copy.district, base, cities);
+            System.arraycopy(cityPopulation, 0, copy.cityPopulation, base, cities);
+        }
+        return copy;
+    }
+
+    private static void copyDictionary(StringDictionary from, StringDictionary to) {
+        for (int i = 0; i < from.size(); i++) to.code(from.value(i));
+    }
+
+    private static int toInt(long population, String row) {
+        if (population < 0 || population > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Population of " + row + " does not fit a column: " + population);
+        }
+        return (int) population;
+    }
+
+    // =========================================================================
+    // Country codes
+    // =========================================================================
+
+    /**
+     * Packs a 3-letter country code into an int ("GBR" is 'G' << 16 | 'B' << 8 | 'R').
+     * Packed codes sort in the same order as the strings.
+     */
+    public static int packCode(String code) {
+        if (code == null || code.length() != 3) throw new IllegalArgumentException("Not a 3-letter country code: " + code);
+        int packed = 0;
+        for (int i = 0; i < 3; i++) {
+            char ch = code.charAt(i);
+            if (ch > 0x7F) throw new IllegalArgumentException("Not a 3-letter country code: " + code);
+            packed = packed << 8 | ch;
+        }
+        return packed;
+    }
+
+    /** Reverses {@link #packCode(String)}. */
+    public static String unpackCode(int packed) {
+        return new String(new char[]{(char) (packed >>> 16 & 0xFF), (char) (packed >>> 8 & 0xFF), (char) (packed & 0xFF)});
+    }
+
+    // =========================================================================
+    // Scans
+    // =========================================================================
+
+    /** @return Number of country rows. */
+    public int getCountryCount() {
+        return countryCode.length;
+    }
+
+    /** @return Number of city rows. */
+    public int getCityCount() {
+        return cityId.length;
+    }
+
+    /**
+     * @param predicate Tested with each country row index.
+     * @return The matching country rows, in row order.
+     */
+    public int[] filterCountries(IntPredicate predicate) {
+        return filter(getCountryCount(), predicate);
+    }
+
+    /**
+     * @param predicate Tested with each city row index.
+     * @return The matching city rows, in row order.
+     */
+    public int[] filterCities(IntPredicate predicate) {
+        return filter(getCityCount(), predicate);
+    }
+
+    private static int[] filter(int rows, IntPredicate predicate) {
+        int[] matches = new int[Math.min(rows, 1024)];
+        int count = 0;
+        for (int row = 0; row < rows; row++) {
+            if (predicate.test(row)) {
+                if (count == matches.length) matches = Arrays.copyOf(matches, Math.min(rows, count * 2));
+                matches[count++] = row;
+            }
+        }
+        return count == matches.length ? matches : Arrays.copyOf(matches, count);
+    }
+
+    /**
+     * Countries in a scope, as a predicate over country rows.
+     * @param scope WORLD, CONTINENT, REGION or COUNTRY.
+     * @param name The continent/region/country name (ignored for WORLD).
+     */
+    public IntPredicate countryIn(ReportScope scope, String name) {
+        switch (scope) {
+            case WORLD:
+                return row -> true;
+            case CONTINENT: {
+                boolean[] ids = matching(continents, name);
+                return row -> ids[continent[row]];
+            }
+            case REGION: {
+                boolean[] ids = matching(regions, name);
+                return row -> ids[region[row]];
+            }
+            case COUNTRY: {
+                boolean[] ids = matching(countryNames, name);
+                return row -> ids[countryName[row]];
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported country scope: " + scope);
+        }
+    }
+
+    /**
+     * Cities in a scope, as a predicate over city rows.
+     * @param scope WORLD, CONTINENT, REGION, COUNTRY, DISTRICT or CITY.
+     * @param name The name of the area (ignored for WORLD).
+     */
+    public IntPredicate cityIn(ReportScope scope, String name) {
+        switch (scope) {
+            case WORLD:
+                return row -> true;
+            case CONTINENT:
+            case REGION:
+            case COUNTRY: {
+                // Resolve the scope to a flag per country once; each city is then one lookup
+                boolean[] countries = new boolean[getCountryCount()];
+                IntPredicate country = countryIn(scope, name);
+                for (int i = 0; i < countries.length; i++) countries[i] = country.test(i);
+                return row -> countries[cityCountry[row]];
+            }
+            case DISTRICT: {
+                boolean[] ids = matching(districts, name);
+                return row -> ids[district[row]];
+            }
+            case CITY: {
+                String key = WorldSnapshot.collationKey(name);
+                return row -> key != null && key.equals(cityNameKey[row]);
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported city scope: " + scope);
+        }
+    }
+
+    /** Flags the dictionary ids whose value equals the name under the SQL collation. */
+    private static boolean[] matching(StringDictionary dictionary, String name) {
+        boolean[] ids = new boolean[dictionary.size()];
+        String key = WorldSnapshot.collationKey(name);
+        if (key == null) return ids;
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = key.equals(dictionary.collationKey(dictionary.value(id)));
+        }
+        return ids;
+    }
+
+    // =========================================================================
+    // Aggregates
+    // =========================================================================
+
+    /** @return Sum of Population over the given country rows. */
+    public long sumCountryPopulation(int[] rows) {
+        long total = 0;
+        for (int row : rows) total += countryPopulation[row];
+        return total;
+    }
+
+    /** @return Sum of Population over the given city rows. */
+    public long sumCityPopulation(int[] rows) {
+        long total = 0;
+        for (int row : rows) total += cityPopulation[row];
+        return total;
+    }
+
+    /** @return Sum of Population over the countries matching the predicate, without collecting them. */
+    public long sumCountryPopulation(IntPredicate predicate) {
+        long total = 0;
+        for (int row = 0; row < countryPopulation.length; row++) {
+            if (predicate.test(row)) total += countryPopulation[row];
+        }
+        return total;
+    }
+
+    /** @return Sum of Population over the cities matching the predicate, without collecting them. */
+    public long sumCityPopulation(IntPredicate predicate) {
+        long total = 0;
+        for (int row = 0; row < cityPopulation.length; row++) {
+            if (predicate.test(row)) total += cityPopulation[row];
+        }
+        return total;
+    }
+
+    /**
+     * City population grouped by country.
+     * @return Sum of city populations indexed by country row.
+     */
+    public long[] cityPopulationByCountry() {
+        long[] totals = new long[getCountryCount()];
+        for (int row = 0; row < cityPopulation.length; row++) {
+            totals[cityCountry[row]] += cityPopulation[row];
+        }
+        return totals;
+    }
+
+    /**
+     * The first row (in row order) matching the predicate, as SQL's unordered
+     * {@code SELECT ... WHERE Name = ?} returns it.
+     * @return The row, or -1.
+     */
+    public static int first(int rows, IntPredicate predicate) {
+        for (int row = 0; row < rows; row++) {
+            if (predicate.test(row)) return row;
+        }
+        return -1;
+    }
+
+    /**
+     * Orders city rows largest population first, keeping row order between equal populations,
+     * and keeps the first n.
+     * @param rows City rows (not modified).
+     * @param n Maximum number of rows to keep.
+     * @return The top rows.
+     */
+    public int[] topCities(int[] rows, int n) {
+        // Sort (inverted population, row) pairs packed into longs: no boxing, no comparator
+        long[] keys = new long[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            keys[i] = (long) (Integer.MAX_VALUE - cityPopulation[rows[i]]) << 32 | rows[i];
+        }
+        Arrays.sort(keys);
+        int[] top = new int[Math.min(n, keys.length)];
+        for (int i = 0; i < top.length; i++) top[i] = (int) keys[i];
+        return top;
+    }
+
+    // =========================================================================
+    // Row access
+    // =========================================================================
+
+    /** @return Population of a country row. */
+    public int countryPopulation(int row) {
+        return countryPopulation[row];
+    }
+
+    /** @return Population of a city row. */
+    public int cityPopulation(int row) {
+        return cityPopulation[row];
+    }
+
+    /** @return Country row of a city row. */
+    public int cityCountry(int row) {
+        return cityCountry[row];
+    }
+
+    /** @return Packed country code of a country row. */
+    public int countryCode(int row) {
+        return countryCode[row];
+    }
+
+    /** @return City row of a country's capital, or -1. */
+    public int capital(int row) {
+        return capital[row];
+    }
+
+    /** Materializes a city row for printing. */
+    public City toCity(int row, boolean isCapital) {
+        return new City(cityName[row], countryNames.value(countryName[cityCountry[row]]),
+                districts.value(district[row]), cityPopulation[row], isCapital);
+    }
+
+    /** Materializes a country row for printing. */
+    public Country toCountry(int row) {
+        return new Country(unpackCode(countryCode[row]), countryNames.value(countryName[row]),
+                continents.value(continent[row]), regions.value(region[row]), countryPopulation[row],
+                capital[row] < 0 ? null : cityName[capital[row]]);
+    }
+}
@@ -0,0 +1,587 @@
+package com.napier.sem;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory copy of the world database (city, country and countrylanguage tables)
+ * that answers every report without a round trip to MySQL.
+ * <p>
+ * The snapshot is loaded once and is read-only afterwards, so it can be shared
+ * freely between threads. Results match the SQL path: string filters compare like
+ * MySQL's default utf8mb4 collation (case- and accent-insensitive) and percentages
+ * are rounded the way MySQL rounds DECIMAL arithmetic.
+ */
+public class WorldSnapshot implements ReportBackend {
+    /** Countries in Code order (the table's primary key order). */
+    private final CountryRow[] countries;
+    /** Cities in ID order (the table's primary key order). */
+    private final CityRow[] cities;
+    /** countrylanguage rows in (CountryCode, Language) order. */
+    private final LanguageRow[] languages;
+
+    /** Countries that have a capital, by world/continent/region, largest population first. */
+    private final TopNIndex<CountryRow> countryIndex;
+    /** All cities, by world/continent/region/country/district, largest population first. */
+    private final TopNIndex<CityRow> cityIndex;
+    /** Capital cities, by world/continent/region, largest population first. */
+    private final TopNIndex<CityRow> capitalIndex;
+    /** Speakers per language and area, for UC32 and the language queries. */
+    private final LanguageIndex languageIndex;
+    /** UC23-UC25, all three levels computed together at load time. */
+    private final PopulationBreakdown breakdown;
+    /** The same rows as primitive columns, for the UC26-UC31 totals; null if a population does not fit. */
+    private final WorldColumns columns;
+
+    // =========================================================================
+    // Row types
+    // =========================================================================
+
+    /** One row of the country table plus the derived values reports need. */
+    static final class CountryRow {
+        final String code, name, continent, region;
+        final String nameKey, continentKey, regionKey;
+        final long population;
+        final int capitalId;
+        CityRow capital;
+        /** Sum of city populations, only meaningful when hasCities is true. */
+        long cityPopulation;
+        boolean hasCities;
+
+        CountryRow(String code, String name, String continent, String region, long population, int capitalId) {
+            this.code = code;
+            this.name = StringDictionary.COUNTRY_NAMES.intern(name);
+            this.continent = StringDictionary.CONTINENTS.intern(continent);
+            this.region = StringDictionary.REGIONS.intern(region);
+            this.nameKey = StringDictionary.COUNTRY_NAMES.collationKey(name);
+            this.continentKey = StringDictionary.CONTINENTS.collationKey(continent);
+            this.regionKey = StringDictionary.REGIONS.collationKey(region);
+            this.population = population;
+            this.capitalId = capitalId;
+        }
+    }
+
+    /** One row of the city table. */
+    static final class CityRow {
+        final int id;
+        final String name, district;
+        final String nameKey, districtKey;
+        final long population;
+        CountryRow country;
+
+        CityRow(int id, String name, String district, long population) {
+            this.id = id;
+            this.name = name;
+            this.district = StringDictionary.DISTRICTS.intern(district);
+            this.nameKey = collationKey(name);
+            this.districtKey = StringDictionary.DISTRICTS.collationKey(district);
+            this.population = population;
+        }
+    }
+
+    /** One row of the countrylanguage table; percentage is held in tenths (DECIMAL(4,1)). */
+    static final class LanguageRow {
+        final CountryRow country;
+        final String language;
+        final int percentTenths;
+
+        LanguageRow(CountryRow country, String language, int percentTenths) {
+            this.country = country;
+            this.language = StringDictionary.LANGUAGES.intern(language);
+            this.percentTenths = percentTenths;
+        }
+    }
+
+    /**
+     * Collects raw table rows and resolves the foreign keys between them.
+     */
+    static final class Loader {
+        private final List<CountryRow> countries = new ArrayList<>();
+        private final List<Object[]> cities = new ArrayList<>();
+        private final List<Object[]> languages = new ArrayList<>();
+
+        /** @param capitalId City ID of the capital, or 0 when the country has none. */
+        void addCountry(String code, String name, String continent, String region, long population, int capitalId) {
+            countries.add(new CountryRow(code, name, continent, region, population, capitalId));
+        }
+
+        void addCity(int id, String name, String countryCode, String district, long population) {
+            cities.add(new Object[]{new CityRow(id, name, district, population), countryCode});
+        }
+
+        void addLanguage(String countryCode, String language, int percentTenths) {
+            languages.add(new Object[]{countryCode, language, percentTenths});
+        }
+
+        WorldSnapshot build() {
+            CountryRow[] countryArray = countries.toArray(new CountryRow[0]);
+            Arrays.sort(countryArray, Comparator.comparing(c -> c.code));
+            Map<String, CountryRow> byCode = new HashMap<>();
+            for (CountryRow c : countryArray) byCode.put(c.code, c);
+
+            CityRow[] cityArray = new CityRow[cities.size()];
+            for (int i = 0; i < cityArray.length; i++) {
+                CityRow city = (CityRow) cities.get(i)[0];
+                city.country = byCode.get((String) cities.get(i)[1]);
+                if (city.country == null) {
+                    throw new IllegalStateException("City " + city.id + " references unknown country " + cities.get(i)[1]);
+                }
+                cityArray[i] = city;
+            }
+            Arrays.sort(cityArray, Comparator.comparingInt(c -> c.id));
+
+            LanguageRow[] languageArray = new LanguageRow[languages.size()];
+            for (int i = 0; i < languageArray.length; i++) {
+                Object[] raw = languages.get(i);
+                CountryRow country = byCode.get((String) raw[0]);
+                if (country == null) {
+                    throw new IllegalStateException("Language row references unknown country " + raw[0]);
+                }
+                languageArray[i] = new LanguageRow(country, (String) raw[1], (Integer) raw[2]);
+            }
+            return new WorldSnapshot(countryArray, cityArray, languageArray);
+        }
+    }
+
+    private WorldSnapshot(CountryRow[] countries, CityRow[] cities, LanguageRow[] languages) {
+        this.countries = countries;
+        this.cities = cities;
+        this.languages = languages;
+
+        Map<Integer, CityRow> byId = new HashMap<>();
+        for (CityRow city : cities) {
+            byId.put(city.id, city);
+            city.country.cityPopulation += city.population;
+            city.country.hasCities = true;
+        }
+        for (CountryRow country : countries) {
+            country.capital = byId.get(country.capitalId);
+        }
+
+        // Stable sorts keep primary key order between equal populations
+        Comparator<CountryRow> countryOrder = Comparator.comparingLong(c -> -c.population);
+        Comparator<CityRow> cityOrder = Comparator.comparingLong(c -> -c.population);
+        countryIndex = new TopNIndex<>(Arrays.stream(countries).filter(c -> c.capital != null)
+                .sorted(countryOrder).collect(Collectors.toList()))
+                .partitionBy(ReportScope.CONTINENT, c -> c.continentKey)
+                .partitionBy(ReportScope.REGION, c -> c.regionKey);
+        cityIndex = new TopNIndex<>(Arrays.stream(cities).sorted(cityOrder).collect(Collectors.toList()))
+                .partitionBy(ReportScope.CONTINENT, c -> c.country.continentKey)
+                .partitionBy(ReportScope.REGION, c -> c.country.regionKey)
+                .partitionBy(ReportScope.COUNTRY, c -> c.country.nameKey)
+                .partitionBy(ReportScope.DISTRICT, c -> c.districtKey);
+        capitalIndex = new TopNIndex<>(Arrays.stream(countries).filter(c -> c.capital != null)
+                .map(c -> c.capital).sorted(cityOrder).collect(Collectors.toList()))
+                .partitionBy(ReportScope.CONTINENT, c -> c.country.continentKey)
+                .partitionBy(ReportScope.REGION, c -> c.country.regionKey);
+
+        WorldColumns built;
+        try {
+            built = WorldColumns.of(this);
+        } catch (IllegalArgumentException e) {
+            // Out-of-range data: answer the totals from the row objects instead
+            built = null;
+        }
+        columns = built;
+        languageIndex = LanguageIndex.of(this);
+        PopulationBreakdown.Builder breakdowns = new PopulationBreakdown.Builder();
+        for (CountryRow c : countries) {
+            breakdowns.country(c.name, c.continent, c.region, c.population, c.cityPopulation, c.hasCities);
+        }
+        breakdown = breakdowns.build();
+    }
+
+    // =========================================================================
+    // Loading
+    // =========================================================================
+
+    /**
+     * Loads the three world tables over an open connection.
+     * @param con A connection to the world database.
+     * @return The loaded snapshot.
+     */
+    public static WorldSnapshot load(Connection con) throws SQLException {
+        Loader loader = new Loader();
+        try (Statement stmt = con.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT Code, Name, Continent, Region, Population, Capital FROM country")) {
+                while (rs.next()) {
+                    loader.addCountry(rs.getString("Code"), rs.getString("Name"), rs.getString("Continent"),
+                            rs.getString("Region"), rs.getLong("Population"), rs.getInt("Capital"));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT ID, Name, CountryCode, District, Population FROM city")) {
+                while (rs.next()) {
+                    loader.addCity(rs.getInt("ID"), rs.getString("Name"), rs.getString("CountryCode"),
+                            rs.getString("District"), rs.getLong("Population"));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT CountryCode, Language, Percentage FROM countrylanguage ORDER BY CountryCode, Language")) {
+                while (rs.next()) {
+                    loader.addLanguage(rs.getString("CountryCode"), rs.getString("Language"),
+                            rs.getBigDecimal("Percentage").movePointRight(1).intValueExact());
+                }
+            }
+        }
+        return loader.build();
+    }
+
+    /** Matches one single-row INSERT statement from a mysqldump file. */
+    private static final Pattern INSERT = Pattern.compile("^INSERT INTO `(\\w+)` VALUES \\((.*)\\);$");
+
+    /**
+     * Loads a snapshot straight from a mysqldump file such as db/world-db/world.sql,
+     * without a running database (used for tests, benchmarks and offline exports).
+     * @param dumpFile Path to the dump (one INSERT per row).
+     * @return The loaded snapshot.
+     */
+    public static WorldSnapshot fromSqlDump(Path dumpFile) throws IOException {
+        Loader loader = new Loader();
+        for (String line : Files.readAllLines(dumpFile, StandardCharsets.UTF_8)) {
+            Matcher m = INSERT.matcher(line);
+            if (!m.matches()) continue;
+            List<String> v = parseValues(m.group(2));
+            switch (m.group(1)) {
+                case "country":
+                    loader.addCountry(v.get(0), v.get(1), v.get(2), v.get(3), Long.parseLong(v.get(6)),
+                            v.get(13) == null ? 0 : Integer.parseInt(v.get(13)));
+                    break;
+                case "city":
+                    loader.addCity(Integer.parseInt(v.get(0)), v.get(1), v.get(2), v.get(3), Long.parseLong(v.get(4)));
+                    break;
+                case "countrylanguage":
+                    loader.addLanguage(v.get(0), v.get(1), new BigDecimal(v.get(3)).movePointRight(1).intValueExact());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return loader.build();
+    }
+
+    /**
+     * Splits a mysqldump VALUES tuple into fields, unescaping quoted strings; NULL becomes null.
+     */
+    private static List<String> parseValues(String tuple) {
+        List<String> values = new ArrayList<>();
+        int i = 0;
+        while (i < tuple.length()) {
+            if (tuple.charAt(i) == '\'') {
+                StringBuilder sb = new StringBuilder();
+                i++;
+                while (tuple.charAt(i) != '\'') {
+                    char ch = tuple.charAt(i++);
+                    sb.append(ch == '\\' ? tuple.charAt(i++) : ch);
+                }
+                values.add(sb.toString());
+                i++; // closing quote
+            } else {
+                int end = tuple.indexOf(',', i);
+                if (end < 0) end = tuple.length();
+                String raw = tuple.substring(i, end);
+                values.add(raw.equals("NULL") ? null : raw);
+                i = end;
+            }
+            i++; // comma separator
+        }
+        return values;
+    }
+
+    // =========================================================================
+    // Matching and rounding helpers (mirror MySQL semantics)
+    // =========================================================================
+
+    /**
+     * Folds a string the way the utf8mb4_0900_ai_ci collation compares it:
+     * accents removed and lower-cased. Two strings are equal in SQL iff their keys are equal.
+     */
+    static String collationKey(String s) {
+        if (s == null) return null;
+        String folded = Normalizer.normalize(s, Normalizer.Form.NFD);
+        StringBuilder sb = new StringBuilder(folded.length());
+        for (int i = 0; i < folded.length(); i++) {
+            char ch = folded.charAt(i);
+            if (Character.getType(ch) != Character.NON_SPACING_MARK) sb.append(ch);
+        }
+        return sb.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Computes CAST(part / whole * 100 AS DECIMAL(5,2)) as MySQL does: the division is
+     * rounded half away from zero to 4 decimals, and the result saturates at +/-999.99.
+     * A zero divisor yields NULL in SQL, which JDBC reads as 0.
+     */
+    static double percent(long part, long whole) {
+        if (whole == 0) return 0;
+        long num = Math.abs(part) * 10000;
+        long den = Math.abs(whole);
+        long scaled = Math.min((num * 2 + den) / (den * 2), 99999);
+        return ((part < 0) != (whole < 0) ? -scaled : scaled) / 100.0;
+    }
+
+    /** Does the country match a CONTINENT/REGION/COUNTRY filter key? */
+    private static boolean matches(CountryRow c, ReportScope scope, String key) {
+        switch (scope) {
+            case WORLD: return true;
+            case CONTINENT: return key.equals(c.continentKey);
+            case REGION: return key.equals(c.regionKey);
+            case COUNTRY: return key.equals(c.nameKey);
+            default: throw new IllegalArgumentException("Unsupported report scope: " + scope);
+        }
+    }
+
+    /** Does the city match a scope filter key? */
+    private static boolean matches(CityRow city, ReportScope scope, String key) {
+        switch (scope) {
+            case DISTRICT: return key.equals(city.districtKey);
+            case CITY: return key.equals(city.nameKey);
+            default: return matches(city.country, scope, key);
+        }
+    }
+
+    private static void requireCountryScope(ReportScope scope) {
+        if (scope != ReportScope.WORLD && scope != ReportScope.CONTINENT && scope != ReportScope.REGION) {
+            throw new IllegalArgumentException("Unsupported report scope: " + scope);
+        }
+    }
+
+    // =========================================================================
+    // Row to model conversion
+    // =========================================================================
+
+    private static Country toCountry(CountryRow c) {
+        return new Country(c.code, c.name, c.continent, c.region, c.population, c.capital.name);
+    }
+
+    private static City toCity(CityRow c, boolean isCapital) {
+        return new City(c.name, c.country.name, c.district, c.population, isCapital);
+    }
+
+    // =========================================================================
+    // Country, city and capital reports (UC01 - UC22)
+    // =========================================================================
+
+    /*
+     * Each report reads the first rows of its TopNIndex partition; "all rows" reports
+     * read the whole partition. The partition key is the collation key of the name,
+     * so a null name finds no partition and matches nothing, like "= NULL" in SQL.
+     */
+
+    @Override
+    public List<Country> countries(ReportScope scope, String name) {
+        return topCountries(scope, name, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<Country> topCountries(ReportScope scope, String name, int n) {
+        requireCountryScope(scope);
+        return countryIndex.top(scope, collationKey(name), n, WorldSnapshot::toCountry);
+    }
+
+    @Override
+    public List<City> cities(ReportScope scope, String name) {
+        return topCities(scope, name, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<City> topCities(ReportScope scope, String name, int n) {
+        if (scope == ReportScope.CITY) throw new IllegalArgumentException("Unsupported report scope: " + scope);
+        return cityIndex.top(scope, collationKey(name), n, c -> toCity(c, false));
+    }
+
+    @Override
+    public List<City> capitals(ReportScope scope, String name) {
+        return topCapitals(scope, name, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<City> topCapitals(ReportScope scope, String name, int n) {
+        requireCountryScope(scope);
+        return capitalIndex.top(scope, collationKey(name), n, c -> toCity(c, true));
+    }
+
+    @Override
+    public void streamCountries(ReportScope scope, String name, RowSink<Country> sink) {
+        requireCountryScope(scope);
+        for (CountryRow c : countryIndex.partition(scope, collationKey(name))) sink.accept(toCountry(c));
+    }
+
+    @Override
+    public void streamCities(ReportScope scope, String name, RowSink<City> sink) {
+        for (CityRow c : cityIndex.partition(scope, collationKey(name))) sink.accept(toCity(c, false));
+    }
+
+    @Override
+    public void streamCapitals(ReportScope scope, String name, RowSink<City> sink) {
+        requireCountryScope(scope);
+        for (CityRow c : capitalIndex.partition(scope, collationKey(name))) sink.accept(toCity(c, true));
+    }
+
+    // =========================================================================
+    // Population breakdown (UC23 - UC25)
+    // =========================================================================
+
+    @Override
+    public PopulationBreakdown populationBreakdowns() {
+        return breakdown;
+    }
+
+    @Override
+    public List<PopulationSummary> populationBreakdown(ReportScope groupBy) {
+        return breakdown.get(groupBy);
+    }
+
+    // =========================================================================
+    // Aggregate population totals (UC26 - UC31)
+    // =========================================================================
+
+    @Override
+    public long population(ReportScope scope, String name) {
+        if (scope != ReportScope.WORLD && name == null) return 0;
+        if (columns != null) return columnPopulation(scope, name);
+        String key = collationKey(name);
+        long total = 0;
+        switch (scope) {
+            case WORLD:
+            case CONTINENT:
+            case REGION:
+                for (CountryRow c : countries) {
+                    if (matches(c, scope, key)) total += c.population;
+                }
+                return total;
+            case COUNTRY:
+                // SELECT Population ... WHERE Name = ?: first match in primary key order
+                for (CountryRow c : countries) {
+                    if (matches(c, scope, key)) return c.population;
+                }
+                return 0;
+            case DISTRICT:
+                for (CityRow c : cities) {
+                    if (matches(c, scope, key)) total += c.population;
+                }
+                return total;
+            case CITY:
+                for (CityRow c : cities) {
+                    if (matches(c, scope, key)) return c.population;
+                }
+                return 0;
+            default:
+                throw new IllegalArgumentException("Unsupported report scope: " + scope);
+        }
+    }
+
+    @Override
+    public CityPopulation cityPopulation(String name) {
+        String key = collationKey(name);
+        for (CityRow c : cities) {
+            if (matches(c, ReportScope.CITY, key)) return new CityPopulation(c.id, c.population);
+        }
+        return null;
+    }
+
+    /** population() over the primitive columns: one array pass, no per-row objects. */
+    private long columnPopulation(ReportScope scope, String name) {
+        switch (scope) {
+            case WORLD:
+            case CONTINENT:
+            case REGION:
+                return columns.sumCountryPopulation(columns.countryIn(scope, name));
+            case COUNTRY: {
+                // SELECT Population ... WHERE Name = ?: first match in primary key order
+                int row = WorldColumns.first(columns.getCountryCount(), columns.countryIn(scope, name));
+                return row < 0 ? 0 : columns.countryPopulation(row);
+            }
+            case DISTRICT:
+                return columns.sumCityPopulation(columns.cityIn(scope, name));
+            case CITY: {
+                int row = WorldColumns.first(columns.getCityCount(), columns.cityIn(scope, name));
+                return row < 0 ? 0 : columns.cityPopulation(row);
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported report scope: " + scope);
+        }
+    }
+
+    /** @return The snapshot as primitive columns, or null if its data does not fit them. */
+    public WorldColumns getColumns() {
+        return columns;
+    }
+
+    /**
+     * Seeds a PopulationTotals with this snapshot's country and city rows.
+     */
+    PopulationTotals toPopulationTotals() {
+        PopulationTotals totals = new PopulationTotals();
+        for (CountryRow c : countries) {
+            totals.applyCountry(null, new PopulationTotals.CountryImage(c.code, c.name, c.continent, c.region, c.population));
+        }
+        for (CityRow c : cities) {
+            totals.applyCity(c.id, null, new PopulationTotals.CityImage(c.name, c.country.code, c.district, c.population));
+        }
+        return totals;
+    }
+
+    // =========================================================================
+    // Language report (UC32)
+    // =========================================================================
+
+    @Override
+    public LanguageIndex languages() {
+        return languageIndex;
+    }
+
+    // =========================================================================
+    // Size information
+    // =========================================================================
+
+    /** @return Number of rows loaded from the country table. */
+    public int getCountryCount() {
+        return countries.length;
+    }
+
+    /** @return Number of rows loaded from the city table. */
+    public int getCityCount() {
+        return cities.length;
+    }
+
+    /** @return Number of rows loaded from the countrylanguage table. */
+    public int getLanguageRowCount() {
+        return languages.length;
+    }
+
+    /** Country rows in Code order, for SnapshotFile (not copied; must not be modified). */
+    CountryRow[] countryRows() {
+        return countries;
+    }
+
+    /** City rows in ID order, for SnapshotFile (not copied; must not be modified). */
+    CityRow[] cityRows() {
+        return cities;
+    }
+
+    /** countrylanguage rows in (CountryCode, Language) order, for SnapshotFile (not copied; must not be modified). */
+    LanguageRow[] languageRows() {
+        return languages;
+    }
+}
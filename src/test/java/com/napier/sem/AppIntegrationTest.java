@@ -2,6 +2,12 @@ package com.napier.sem;
 
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -68,4 +74,33 @@ public class AppIntegrationTest {
             fail("UC02 threw an exception during execution: " + e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Integration test for the population rollup tables (UC23-UC30).
+     * Verifies that the rollup-backed queries give the same answers as the live aggregations.
+     */
+    @Test
+    void testRollupsMatchLiveAggregation() throws SQLException {
+        assertNotNull(app.getPool(), "The application should be connected to the database.");
+        try (Connection con = app.getPool().getConnection()) {
+            PopulationRollup.install(con);
+            PopulationRollup.refresh(con);
+        }
+        ReportBackend live = new SqlReportBackend(app.getPool());
+        ReportBackend rollup = new SqlReportBackend(app.getPool(), true);
+
+        for (ReportScope level : new ReportScope[]{ReportScope.CONTINENT, ReportScope.REGION, ReportScope.COUNTRY}) {
+            Map<String, Long> expected = new HashMap<>();
+            for (PopulationSummary row : live.populationBreakdown(level)) expected.put(row.Name, row.CityPopulation);
+            Map<String, Long> actual = new HashMap<>();
+            for (PopulationSummary row : rollup.populationBreakdown(level)) actual.put(row.Name, row.CityPopulation);
+            assertEquals(expected, actual, "City population per " + level);
+        }
+        assertEquals(live.population(ReportScope.WORLD, null), rollup.population(ReportScope.WORLD, null));
+        assertEquals(live.population(ReportScope.CONTINENT, "asia"), rollup.population(ReportScope.CONTINENT, "asia"));
+        assertEquals(live.population(ReportScope.REGION, "Caribbean"), rollup.population(ReportScope.REGION, "Caribbean"));
+        assertEquals(live.population(ReportScope.COUNTRY, "France"), rollup.population(ReportScope.COUNTRY, "France"));
+        assertEquals(live.population(ReportScope.DISTRICT, "California"), rollup.population(ReportScope.DISTRICT, "California"));
+        assertEquals(0, rollup.population(ReportScope.DISTRICT, null));
+    }
+}
@@ -0,0 +1,69 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for AsyncReports, answered from the bundled world.sql snapshot.
+ */
+public class AsyncReportsTest {
+    static App app;
+
+    @BeforeAll
+    static void init() {
+        app = WorldFixture.app();
+    }
+
+    @AfterAll
+    static void stop() {
+        app.disconnect();
+    }
+
+    @Test
+    void testFanOutAndJoin() {
+        AsyncReports reports = app.async();
+        CompletableFuture<List<City>> largest = reports.getTopNGlobalCities(1);
+        CompletableFuture<List<Country>> europe = reports.getTopNCountriesByContinent("Europe", 3);
+        CompletableFuture<Long> world = reports.getWorldPopulation();
+        CompletableFuture<Long> uk = reports.getCountryPopulation("United Kingdom");
+        CompletableFuture<List<PopulationSummary>> continents = reports.getPopulationDistributionByContinent();
+
+        CompletableFuture.allOf(largest, europe, world, uk, continents).join();
+        assertEquals("Mumbai (Bombay)", largest.join().get(0).Name);
+        assertEquals(3, europe.join().size());
+        assertEquals(6078749450L, world.join());
+        assertEquals(59623400L, uk.join());
+        assertEquals(7, continents.join().size());
+
+        // Composes without blocking: UK share of the world, once both totals are in
+        double share = uk.thenCombine(world, (a, b) -> 100.0 * a / b).join();
+        assertEquals(0.98, share, 0.01);
+    }
+
+    @Test
+    void testPrintingIsASeparateStep() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<ReportResult> result = app.async(executor).report(UseCase.UC13, "Asia", 5);
+            ByteArrayOutputStream printed = new ByteArrayOutputStream();
+            AsyncReports.print(result, new PrintStream(printed, true, StandardCharsets.UTF_8)).join();
+
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            app.printReport(UseCase.UC13, "Asia", 5, new PrintStream(expected, true, StandardCharsets.UTF_8));
+            assertEquals(expected.toString(StandardCharsets.UTF_8), printed.toString(StandardCharsets.UTF_8));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
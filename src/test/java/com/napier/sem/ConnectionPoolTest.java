@@ -0,0 +1,256 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ConnectionPool, using in-process fake connections so no database is needed.
+ */
+public class ConnectionPoolTest {
+
+    /** Counts physical connections opened and closed by the pool. */
+    private final AtomicInteger opened = new AtomicInteger();
+    private final AtomicInteger closed = new AtomicInteger();
+
+    private Connection fakeConnection() {
+        boolean[] isClosed = {false};
+        opened.incrementAndGet();
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close": isClosed[0] = true; closed.incrementAndGet(); return null;
+                        case "isClosed": return isClosed[0];
+                        case "isValid": return !isClosed[0];
+                        case "getAutoCommit": return true;
+                        default: return null;
+                    }
+                });
+    }
+
+    @Test
+    void testPrefillsMinimumAndReusesReturnedConnections() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(this::fakeConnection, 2, 4, 60_000, 30_000, 100)) {
+            assertEquals(2, opened.get());
+            assertEquals(2, pool.getIdleCount());
+
+            Connection first = pool.getConnection();
+            assertEquals(1, pool.getActiveCount());
+            first.close();
+            assertTrue(first.isClosed(), "A returned lease should report closed to its holder.");
+            assertEquals(0, closed.get(), "Returning a lease must not close the physical connection.");
+
+            Connection second = pool.getConnection();
+            assertEquals(2, opened.get(), "A returned connection should be reused instead of opening a new one.");
+            second.close();
+        }
+        assertEquals(2, closed.get());
+    }
+
+    @Test
+    void testExhaustedPoolTimesOut() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(this::fakeConnection, 0, 1, 60_000, 30_000, 50)) {
+            Connection only = pool.getConnection();
+            assertThrows(SQLTimeoutException.class, pool::getConnection);
+            only.close();
+            pool.getConnection().close();
+        }
+    }
+
+    @Test
+    void testReturnedLeaseCannotBeUsed() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(this::fakeConnection, 1, 1, 60_000, 30_000, 100)) {
+            Connection lease = pool.getConnection();
+            lease.close();
+            lease.close(); // closing twice is harmless
+            assertThrows(SQLException.class, () -> lease.prepareStatement("SELECT 1"));
+        }
+    }
+
+    /** Counts physical statements prepared and closed on the fake connections. */
+    private final AtomicInteger prepared = new AtomicInteger();
+    private final AtomicInteger statementsClosed = new AtomicInteger();
+
+    private Connection fakeConnectionWithStatements() {
+        Connection connection = fakeConnection();
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (!method.getName().equals("prepareStatement")) return method.invoke(connection, args);
+                    prepared.incrementAndGet();
+                    boolean[] isClosed = {false};
+                    return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PreparedStatement.class},
+                            (statement, m, a) -> {
+                                switch (m.getName()) {
+                                    case "close": isClosed[0] = true; statementsClosed.incrementAndGet(); return null;
+                                    case "isClosed": return isClosed[0];
+                                    case "executeQuery":
+                                        if ("SELECT broken".equals(args[0])) throw new SQLException("syntax error");
+                                        return null;
+                                    default: return null;
+                                }
+                            });
+                });
+    }
+
+    @Test
+    void testStatementsAreReusedAcrossLeases() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(this::fakeConnectionWithStatements, 1, 1, 60_000, 30_000, 100)) {
+            for (int i = 0; i < 3; i++) {
+                try (Connection con = pool.getConnection();
+                     PreparedStatement statement = con.prepareStatement("SELECT ?")) {
+                    statement.setString(1, "x" + i);
+                    assertSame(con, statement.getConnection());
+                }
+            }
+            assertEquals(1, prepared.get(), "The statement should be prepared once and then reused.");
+            assertEquals(0, statementsClosed.get());
+            assertEquals(2, pool.getStatementReuseCount());
+            assertEquals(1, pool.getStatementPrepareCount());
+
+            // Same SQL twice on one lease: the second one is not cached
+            try (Connection con = pool.getConnection();
+                 PreparedStatement first = con.prepareStatement("SELECT ?");
+                 PreparedStatement second = con.prepareStatement("SELECT ?")) {
+                assertNotSame(first, second);
+            }
+            assertEquals(2, prepared.get());
+            assertEquals(1, statementsClosed.get());
+
+            // A closed handle cannot be used again
+            Connection con = pool.getConnection();
+            PreparedStatement statement = con.prepareStatement("SELECT ?");
+            statement.close();
+            assertThrows(SQLException.class, statement::executeQuery);
+            con.close();
+        }
+    }
+
+    @Test
+    void testFailedStatementsAreDroppedAndCacheIsBounded() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(this::fakeConnectionWithStatements, 1, 1, 60_000, 30_000, 100)) {
+            try (Connection con = pool.getConnection();
+                 PreparedStatement statement = con.prepareStatement("SELECT broken")) {
+                assertThrows(SQLException.class, statement::executeQuery);
+            }
+            assertEquals(1, statementsClosed.get(), "A statement that threw should be closed, not cached.");
+
+            pool.setStatementCacheSize(2);
+            try (Connection con = pool.getConnection()) {
+                for (String sql : new String[]{"SELECT 1", "SELECT 2", "SELECT 3"}) {
+                    con.prepareStatement(sql).close();
+                }
+            }
+            assertEquals(2, statementsClosed.get(), "Only the least recently used statement should be evicted.");
+        }
+    }
+
+    @Test
+    void testReturningLeaseReleasesItsOpenStatements() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(this::fakeConnectionWithStatements, 1, 1, 60_000, 30_000, 100)) {
+            Connection con = pool.getConnection();
+            PreparedStatement cached = con.prepareStatement("SELECT ?");
+            PreparedStatement uncached = con.prepareStatement("SELECT ?");
+            con.close();
+            assertTrue(cached.isClosed(), "A statement left open should be released with its lease.");
+            assertTrue(uncached.isClosed());
+            assertEquals(1, statementsClosed.get(), "Only the uncached statement should be closed.");
+
+            try (Connection next = pool.getConnection();
+                 PreparedStatement statement = next.prepareStatement("SELECT ?")) {
+                assertNotSame(cached, statement);
+            }
+            assertEquals(1, pool.getStatementReuseCount(), "The released statement should be reused by the next lease.");
+        }
+    }
+
+    @Test
+    void testStatementCannotBeUsedAfterItsLeaseIsReturned() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(this::fakeConnectionWithStatements, 1, 1, 60_000, 30_000, 100)) {
+            Connection con = pool.getConnection();
+            PreparedStatement statement = con.prepareStatement("SELECT ?");
+            con.close();
+            try (Connection next = pool.getConnection();
+                 PreparedStatement reused = next.prepareStatement("SELECT ?")) {
+                assertThrows(SQLException.class, () -> statement.setString(1, "stale"));
+                assertThrows(SQLException.class, statement::executeQuery);
+                reused.setString(1, "fresh");
+            }
+        }
+    }
+
+    @Test
+    void testUnwrapDoesNotExposeThePhysicalConnection() throws SQLException {
+        try (ConnectionPool pool = new ConnectionPool(this::fakeConnectionWithStatements, 1, 1, 60_000, 30_000, 100)) {
+            Connection con = pool.getConnection();
+            assertSame(con, con.unwrap(Connection.class));
+            assertTrue(con.isWrapperFor(Connection.class));
+            assertFalse(con.isWrapperFor(Runnable.class));
+            assertThrows(SQLException.class, () -> con.unwrap(Runnable.class));
+
+            PreparedStatement statement = con.prepareStatement("SELECT ?");
+            assertSame(statement, statement.unwrap(PreparedStatement.class));
+            assertThrows(SQLException.class, () -> statement.unwrap(Runnable.class));
+
+            con.close();
+            assertTrue(con.unwrap(Connection.class).isClosed(), "The unwrapped connection should be the returned lease.");
+        }
+    }
+
+    @Test
+    void testInvalidSizesRejected() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ConnectionPool(this::fakeConnection, 5, 2, 60_000, 30_000, 100));
+    }
+
+    @Test
+    void testWaitsForDatabaseToComeBack() throws SQLException {
+        AtomicInteger attempts = new AtomicInteger();
+        ConnectionPool.ConnectionFactory restarting = () -> {
+            if (attempts.incrementAndGet() <= 3) throw new SQLRecoverableException("Communications link failure", "08S01");
+            return fakeConnection();
+        };
+        try (ConnectionPool pool = new ConnectionPool(restarting, 0, 2, 60_000, 30_000, 5_000)) {
+            try (Connection con = pool.getConnection()) {
+                assertNotNull(con);
+            }
+            assertEquals(4, attempts.get());
+            assertTrue(pool.isHealthy());
+        }
+
+        // Errors that waiting cannot fix are not retried
+        AtomicInteger denied = new AtomicInteger();
+        ConnectionPool.ConnectionFactory wrongPassword = () -> {
+            denied.incrementAndGet();
+            throw new SQLException("Access denied for user 'root'", "28000");
+        };
+        try (ConnectionPool pool = new ConnectionPool(wrongPassword, 0, 2, 60_000, 30_000, 5_000)) {
+            assertThrows(SQLException.class, pool::getConnection);
+            assertEquals(1, denied.get());
+        }
+    }
+
+    @Test
+    void testBackoffGrowsExponentiallyWithJitter() {
+        Backoff backoff = new Backoff(100, 1_000, new Random(42));
+        long[] caps = {100, 200, 400, 800, 1_000, 1_000};
+        for (long cap : caps) {
+            long delay = backoff.nextDelayMillis();
+            assertTrue(delay >= 0 && delay <= cap, delay + " > " + cap);
+        }
+        assertEquals(caps.length, backoff.getAttempts());
+        backoff.reset();
+        assertTrue(backoff.nextDelayMillis() <= 100);
+
+        assertTrue(ConnectionPool.isConnectionFailure(new SQLException("wrapped", new SQLRecoverableException("reset"))));
+        assertFalse(ConnectionPool.isConnectionFailure(new SQLException("Unknown column", "42S22")));
+    }
+}
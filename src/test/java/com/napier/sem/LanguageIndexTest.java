@@ -0,0 +1,82 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LanguageIndex: answers must equal sums over the countrylanguage rows.
+ */
+public class LanguageIndexTest {
+    static WorldSnapshot snapshot;
+    static LanguageIndex index;
+
+    @BeforeAll
+    static void init() {
+        snapshot = WorldFixture.snapshot();
+        index = snapshot.languages();
+    }
+
+    /** Speakers in thousandths per language, by scanning the rows of one continent (null for all). */
+    private static Map<String, Long> scan(String continent) {
+        Map<String, Long> sums = new HashMap<>();
+        for (WorldSnapshot.LanguageRow row : snapshot.languageRows()) {
+            if (continent != null && !row.country.continent.equals(continent)) continue;
+            sums.merge(row.language, row.country.population * row.percentTenths, Long::sum);
+        }
+        return sums;
+    }
+
+    @Test
+    void testSpeakersMatchRowSums() {
+        Map<String, Long> world = scan(null);
+        assertEquals(world.size(), index.getLanguageCount());
+
+        List<LanguageSpeakers> major = snapshot.majorLanguageSpeakers();
+        assertEquals(List.of("Chinese", "Hindi", "Spanish", "English", "Arabic"),
+                major.stream().map(s -> s.Language).collect(Collectors.toList()));
+        for (LanguageSpeakers s : major) {
+            assertEquals(world.get(s.Language) / 1000.0, s.Speakers, 0.001);
+            assertEquals(100.0 * s.Speakers / 6078749450L, s.WorldPopulationPercent, 1e-6);
+        }
+
+        LanguageSpeakers portuguese = index.speakers("portuguese");
+        assertEquals("Portuguese", portuguese.Language);
+        assertEquals(world.get("Portuguese") / 1000.0, portuguese.Speakers, 0.001);
+        assertNull(index.speakers("Klingon"));
+
+        List<LanguageIndex.CountryShare> english = index.countries("English");
+        assertEquals("United States", english.get(0).Country);
+        assertEquals(86.2, english.get(0).Percentage, 1e-9);
+        double sum = english.stream().mapToDouble(c -> c.Speakers).sum();
+        assertEquals(index.speakers("English").Speakers, sum, 0.01);
+        assertTrue(index.countries("Klingon").isEmpty());
+    }
+
+    @Test
+    void testTopLanguagesPerArea() {
+        Map<String, Long> asia = scan("Asia");
+        List<String> expected = asia.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
+                .limit(5).map(Map.Entry::getKey).collect(Collectors.toList());
+        List<LanguageSpeakers> top = index.topLanguages(ReportScope.CONTINENT, "asia", 5);
+        assertEquals(expected, top.stream().map(s -> s.Language).collect(Collectors.toList()));
+        assertEquals("Chinese", top.get(0).Language);
+        // Percentages are of the continent's population
+        long asiaPopulation = snapshot.population(ReportScope.CONTINENT, "Asia");
+        assertEquals(100.0 * top.get(0).Speakers / asiaPopulation, top.get(0).WorldPopulationPercent, 1e-6);
+
+        assertEquals(index.topLanguages(ReportScope.WORLD, null, 3).get(0).Language, "Chinese");
+        assertEquals(1, index.topLanguages(ReportScope.REGION, "British Islands", 1).size());
+        assertEquals("English", index.topLanguages(ReportScope.REGION, "British Islands", 1).get(0).Language);
+        assertTrue(index.topLanguages(ReportScope.CONTINENT, "Atlantis", 5).isEmpty());
+        assertTrue(LanguageIndex.EMPTY.topLanguages(ReportScope.WORLD, null, 5).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> index.topLanguages(ReportScope.CITY, "Paris", 5));
+    }
+}
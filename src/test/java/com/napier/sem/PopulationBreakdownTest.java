@@ -0,0 +1,72 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PopulationBreakdown: the three levels must agree with each other and with the city rows.
+ */
+public class PopulationBreakdownTest {
+
+    @Test
+    void testBuilderGroupsAndOrders() {
+        PopulationBreakdown b = new PopulationBreakdown.Builder()
+                .country("A", "Asia", "East", 1000, 400, true)
+                .country("B", "asia", "West", 3000, 0, false)
+                .country("C", "Europe", "East", 1000, 1000, true)
+                .build();
+
+        assertEquals(List.of("B", "A", "C"), b.Countries.stream().map(s -> s.Name).toList());
+        PopulationSummary noCities = b.Countries.get(0);
+        assertEquals(3000, noCities.TotalPopulation);
+        assertEquals(0, noCities.CityPopulation);
+        assertEquals(0, noCities.RuralPopulation);
+
+        // Continent names group case-insensitively, keeping the first spelling
+        assertEquals(2, b.Continents.size());
+        PopulationSummary asia = b.Continents.get(0);
+        assertEquals("Asia", asia.Name);
+        assertEquals(4000, asia.TotalPopulation);
+        assertEquals(400, asia.CityPopulation);
+        assertEquals(10.0, asia.CityPopulationPercent, 1e-9);
+        assertEquals(3600, asia.RuralPopulation);
+
+        // Equal totals keep insertion order
+        assertEquals(List.of("West", "East"), b.Regions.stream().map(s -> s.Name).toList());
+        assertEquals(1400, b.Regions.get(1).CityPopulation);
+        assertTrue(PopulationBreakdown.EMPTY.get(ReportScope.REGION).isEmpty());
+    }
+
+    @Test
+    void testSnapshotLevelsAgree() {
+        WorldSnapshot snapshot = WorldFixture.snapshot();
+        PopulationBreakdown b = snapshot.populationBreakdowns();
+        assertEquals(snapshot.countryRows().length, b.Countries.size());
+
+        long cities = 0;
+        for (WorldSnapshot.CityRow c : snapshot.cityRows()) cities += c.population;
+        assertEquals(cities, b.Countries.stream().mapToLong(s -> s.CityPopulation).sum());
+        assertEquals(cities, b.Continents.stream().mapToLong(s -> s.CityPopulation).sum());
+        assertEquals(cities, b.Regions.stream().mapToLong(s -> s.CityPopulation).sum());
+        assertEquals(6078749450L, b.Continents.stream().mapToLong(s -> s.TotalPopulation).sum());
+
+        Map<String, Long> perContinent = new HashMap<>();
+        for (WorldSnapshot.CountryRow c : snapshot.countryRows()) {
+            perContinent.merge(c.continent, c.population, Long::sum);
+        }
+        for (PopulationSummary s : b.Continents) {
+            assertEquals(perContinent.get(s.Name), s.TotalPopulation, s.Name);
+        }
+        assertEquals("Asia", b.Continents.get(0).Name);
+
+        List<PopulationSummary> regions = snapshot.populationBreakdown(ReportScope.REGION);
+        regions.clear();
+        assertFalse(b.get(ReportScope.REGION).isEmpty(), "get() returns a copy");
+        assertThrows(IllegalArgumentException.class, () -> b.get(ReportScope.CITY));
+    }
+}
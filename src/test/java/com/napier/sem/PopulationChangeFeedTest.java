@@ -0,0 +1,123 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PopulationTotals and PopulationChangeFeed, seeded from the bundled world.sql snapshot.
+ */
+public class PopulationChangeFeedTest {
+    static WorldSnapshot snapshot;
+
+    @BeforeAll
+    static void init() {
+        snapshot = WorldFixture.snapshot();
+    }
+
+    private static List<String> rows(List<PopulationSummary> summaries) {
+        return summaries.stream().map(s -> s.Name + "/" + s.TotalPopulation + "/" + s.CityPopulation + "/"
+                + s.CityPopulationPercent + "/" + s.RuralPopulation + "/" + s.RuralPopulationPercent).collect(Collectors.toList());
+    }
+
+    @Test
+    void testTotalsMatchSnapshot() {
+        PopulationTotals totals = snapshot.toPopulationTotals();
+        for (ReportScope level : new ReportScope[]{ReportScope.CONTINENT, ReportScope.REGION, ReportScope.COUNTRY}) {
+            assertEquals(rows(snapshot.populationBreakdown(level)), rows(totals.populationBreakdown(level)), level.name());
+        }
+        String[][] lookups = {{"WORLD", null}, {"CONTINENT", "north america"}, {"REGION", "Caribbean"},
+                {"COUNTRY", "United Kingdom"}, {"DISTRICT", "California"}, {"CITY", "Edinburgh"},
+                {"CONTINENT", "Atlantis"}, {"DISTRICT", null}};
+        for (String[] lookup : lookups) {
+            ReportScope scope = ReportScope.valueOf(lookup[0]);
+            assertEquals(snapshot.population(scope, lookup[1]), totals.population(scope, lookup[1]), lookup[0] + " " + lookup[1]);
+        }
+    }
+
+    @Test
+    void testCityChangeUpdatesOnlyItsAreas() {
+        PopulationTotals totals = snapshot.toPopulationTotals();
+        long region = totals.population(ReportScope.REGION, "Southern and Central Asia");
+        long district = totals.population(ReportScope.DISTRICT, "Maharashtra");
+        long city = totals.population(ReportScope.CITY, "Mumbai (Bombay)");
+
+        // Mumbai (ID 1024) grows by 1000 and moves to a new district
+        PopulationTotals.CityImage before = new PopulationTotals.CityImage("Mumbai (Bombay)", "IND", "Maharashtra", city);
+        PopulationTotals.CityImage after = new PopulationTotals.CityImage("Mumbai (Bombay)", "IND", "Konkan", city + 1000);
+        Set<ReportKey> changed = totals.applyCity(1024, before, after);
+
+        assertTrue(changed.contains(new ReportKey(UseCase.UC30, "maharashtra")));
+        assertTrue(changed.contains(new ReportKey(UseCase.UC30, "Konkan")));
+        assertTrue(changed.contains(new ReportKey(UseCase.UC31, "Mumbai (Bombay)")));
+        assertTrue(changed.contains(new ReportKey(UseCase.UC24, null)));
+        assertFalse(changed.contains(new ReportKey(UseCase.UC26, null)), "City rows do not change country totals.");
+
+        assertEquals(region, totals.population(ReportScope.REGION, "Southern and Central Asia"));
+        assertEquals(district - city, totals.population(ReportScope.DISTRICT, "Maharashtra"));
+        assertEquals(city + 1000, totals.population(ReportScope.DISTRICT, "Konkan"));
+        assertEquals(city + 1000, totals.population(ReportScope.CITY, "mumbai (bombay)"));
+        PopulationSummary india = totals.populationBreakdown(ReportScope.COUNTRY).stream()
+                .filter(s -> s.Name.equals("India")).findFirst().orElseThrow();
+        PopulationSummary original = snapshot.populationBreakdown(ReportScope.COUNTRY).stream()
+                .filter(s -> s.Name.equals("India")).findFirst().orElseThrow();
+        assertEquals(original.CityPopulation + 1000, india.CityPopulation);
+
+        // A country moving continent takes its cities with it
+        totals.applyCountry(new PopulationTotals.CountryImage("GBR", "United Kingdom", "Europe", "British Islands", 59623400),
+                new PopulationTotals.CountryImage("GBR", "United Kingdom", "Oceania", "British Islands", 59623400));
+        assertEquals(snapshot.population(ReportScope.CONTINENT, "Oceania") + 59623400,
+                totals.population(ReportScope.CONTINENT, "Oceania"));
+    }
+
+    @Test
+    void testGapsWaitForLateCommitsThenTimeOut() {
+        PopulationTotals totals = snapshot.toPopulationTotals();
+        PopulationChangeFeed feed = new PopulationChangeFeed(null, totals, 0, Set.of());
+        long japan = totals.population(ReportScope.DISTRICT, "Osaka") + totals.population(ReportScope.DISTRICT, "Tokyo-to")
+                + totals.population(ReportScope.DISTRICT, "Kyoto");
+
+        // Id 2 is not committed yet when 1 and 3 are read
+        feed.apply(List.of(grow(1, 1532, "Tokyo", "Tokyo-to", 7980230, 1), grow(3, 1534, "Osaka", "Osaka", 2595674, 3)), 0);
+        assertEquals(1, feed.getPosition());
+        feed.apply(List.of(grow(3, 1534, "Osaka", "Osaka", 2595674, 3)), 100); // re-read: not applied twice
+        assertEquals(2595677, totals.population(ReportScope.CITY, "Osaka"));
+
+        feed.apply(List.of(grow(2, 1537, "Kioto", "Kyoto", 1461974, 2), grow(3, 1534, "Osaka", "Osaka", 2595674, 3)), 200);
+        assertEquals(3, feed.getPosition());
+        assertEquals(japan + 6, totals.population(ReportScope.DISTRICT, "Osaka") + totals.population(ReportScope.DISTRICT, "Tokyo-to")
+                + totals.population(ReportScope.DISTRICT, "Kyoto"));
+
+        // Id 4 rolled back and never appears
+        feed.apply(List.of(grow(5, 1532, "Tokyo", "Tokyo-to", 7980231, 1)), 1000);
+        assertEquals(3, feed.getPosition());
+        feed.apply(List.of(grow(5, 1532, "Tokyo", "Tokyo-to", 7980231, 1)), 1000 + PopulationChangeFeed.GAP_TIMEOUT_MS);
+        assertEquals(5, feed.getPosition());
+        assertEquals(4, feed.getAppliedCount());
+        assertEquals(7980232, totals.population(ReportScope.CITY, "Tokyo"));
+    }
+
+    /** A change-log row for an update growing a JPN city from {@code population} by {@code by}. */
+    private static PopulationChangeFeed.Change grow(long id, int cityId, String name, String district, long population, long by) {
+        return new PopulationChangeFeed.Change(id,
+                String.valueOf(cityId), new PopulationTotals.CityImage(name, "JPN", district, population),
+                String.valueOf(cityId), new PopulationTotals.CityImage(name, "JPN", district, population + by));
+    }
+
+    @Test
+    void testCacheInvalidationByReportKey() {
+        ReportCache cache = new ReportCache();
+        cache.get(27, () -> 1L, "asia");
+        cache.get(27, () -> 2L, "Europe");
+        cache.get(26, () -> 3L);
+        cache.invalidate(new ReportKey(UseCase.UC27, "Asia"));
+        assertEquals(2, cache.getEntryCount());
+        cache.invalidate(new ReportKey(UseCase.UC26, null));
+        assertEquals(1, cache.getEntryCount());
+    }
+}
@@ -0,0 +1,61 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PopulationRollup, recording the SQL it sends to a RecordingConnection.
+ */
+public class PopulationRollupTest {
+    private final RecordingConnection db = new RecordingConnection();
+    private final List<String> executed = db.executed;
+    /** Rows reported by SELECT COUNT(*) FROM rollup_country. */
+    private long existingRows = 0;
+
+    PopulationRollupTest() {
+        db.answer = sql -> sql.startsWith("SELECT COUNT(*)") ? existingRows : 1;
+    }
+
+    @Test
+    void testRefreshSwapsAllTablesInOneRename() throws SQLException {
+        PopulationRollup.refresh(db.connection());
+
+        assertEquals("SELECT GET_LOCK(?, ?)", executed.get(0));
+        assertEquals("SELECT RELEASE_LOCK(?)", executed.get(executed.size() - 1));
+        List<String> renames = executed.stream().filter(sql -> sql.startsWith("RENAME TABLE")).toList();
+        assertEquals(1, renames.size(), "All rollup tables must be swapped by a single statement.");
+        for (String table : PopulationRollup.TABLES) {
+            assertTrue(renames.get(0).contains(table + "_new TO " + table), renames.get(0));
+        }
+
+        int rename = executed.indexOf(renames.get(0));
+        for (int i = 0; i < executed.size(); i++) {
+            if (executed.get(i).startsWith("INSERT INTO")) assertTrue(i < rename, "Tables are filled before the swap.");
+            if (executed.get(i).startsWith("DROP TABLE IF EXISTS rollup_continent_old")) assertTrue(i > rename);
+        }
+    }
+
+    @Test
+    void testFailedRefreshKeepsLiveTablesAndReleasesLock() {
+        db.failOn = "INSERT INTO rollup_region_new";
+        assertThrows(SQLException.class, () -> PopulationRollup.refresh(db.connection()));
+        assertTrue(executed.stream().noneMatch(sql -> sql.startsWith("RENAME TABLE")));
+        assertEquals("SELECT RELEASE_LOCK(?)", executed.get(executed.size() - 1));
+    }
+
+    @Test
+    void testInstallOnlyFillsEmptyTables() throws SQLException {
+        existingRows = 239;
+        PopulationRollup.install(db.connection());
+        assertEquals(5, executed.size(), "Four CREATE TABLE IF NOT EXISTS and the row count: " + executed);
+
+        existingRows = 0;
+        executed.clear();
+        PopulationRollup.install(db.connection());
+        assertTrue(executed.stream().anyMatch(sql -> sql.startsWith("RENAME TABLE")));
+    }
+}
@@ -0,0 +1,84 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Integration test for the report query plans: after SchemaMigrations, EXPLAIN every report's
+ * SQL against the running database (Docker) and fail on full table scans and filesorts.
+ */
+public class QueryPlanIntegrationTest {
+    static App app;
+
+    @BeforeAll
+    static void init() {
+        app = new App();
+        app.connect(System.getProperty("db_host", "localhost:3306"), 30000);
+        assertTrue(app.migrateSchema(), "Schema migrations must apply.");
+    }
+
+    @AfterAll
+    static void stop() {
+        app.disconnect();
+    }
+
+    /** A name that exists at each level, so the plan is for a real lookup. */
+    private static String sampleName(ReportScope scope) {
+        switch (scope) {
+            case CONTINENT: return "Asia";
+            case REGION: return "Caribbean";
+            case COUNTRY: return "France";
+            case DISTRICT: return "California";
+            case CITY: return "Edinburgh";
+            default: return null;
+        }
+    }
+
+    /** World reports without N return or sum every row, so reading whole tables is what they do. */
+    private static boolean readsEveryRow(UseCase uc) {
+        return uc.scope() == ReportScope.WORLD && !uc.takesN() || uc.kind() == UseCase.Kind.BREAKDOWN;
+    }
+
+    /**
+     * Reports that filter on country columns but order by city population sort the matched
+     * cities: no single index holds both. They must still find those rows through an index.
+     */
+    private static boolean sortsJoinedRows(UseCase uc) {
+        return uc.kind() == UseCase.Kind.CAPITALS
+                || uc.kind() == UseCase.Kind.CITIES && uc.scope() != ReportScope.WORLD && uc.scope() != ReportScope.DISTRICT;
+    }
+
+    @Test
+    void testSchemaIsAtLatestVersion() throws SQLException {
+        try (Connection con = app.getPool().getConnection()) {
+            assertEquals(SchemaMigrations.latestVersion(), SchemaMigrations.currentVersion(con));
+            assertEquals(0, SchemaMigrations.migrate(con), "A second run applies nothing.");
+        }
+    }
+
+    @Test
+    void testNoReportScansOrSortsWholeTables() throws SQLException {
+        List<String> failures = new ArrayList<>();
+        try (Connection con = app.getPool().getConnection()) {
+            for (UseCase uc : UseCase.values()) {
+                if (readsEveryRow(uc)) continue;
+                QueryPlan plan = QueryPlan.explain(con, uc, sampleName(uc.scope()), 10, false);
+                if (!plan.fullScans().isEmpty()) {
+                    failures.add(uc + " full table scan of " + plan.fullScans() + ": " + plan);
+                }
+                if (plan.usesFilesort() && !sortsJoinedRows(uc)) {
+                    failures.add(uc + " filesort: " + plan);
+                }
+            }
+        }
+        assertTrue(failures.isEmpty(), String.join("\n", failures));
+    }
+}
@@ -0,0 +1,100 @@
+package com.napier.sem;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Fake JDBC connection for unit tests of classes that run SQL: records every SQL statement
+ * sent to it and answers each query with a single row, whose numeric columns hold one number
+ * and whose string columns hold their own column label.
+ */
+class RecordingConnection {
+    /** Every SQL statement executed, in order. */
+    final List<String> executed = new ArrayList<>();
+    /** The parameters bound to each executed statement, parallel to executed (empty for plain statements). */
+    final List<List<Object>> parameters = new ArrayList<>();
+    /** SQL starting with this prefix fails. */
+    String failOn = null;
+    /** The value of the single row a query returns, given the query's SQL. GET_LOCK succeeds by default. */
+    ToLongFunction<String> answer = sql -> 1;
+
+    /** @return A data source whose every getConnection() is a new connection recorded here. */
+    DataSource dataSource() {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> method.getName().equals("getConnection") ? connection() : null);
+    }
+
+    /** @return The number of executed statements starting with the prefix. */
+    long count(String prefix) {
+        synchronized (executed) {
+            return executed.stream().filter(sql -> sql.startsWith(prefix)).count();
+        }
+    }
+
+    /** @return A new connection whose statements are recorded here. */
+    Connection connection() {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "createStatement": return statement(Statement.class, null);
+                        case "prepareStatement": return statement(PreparedStatement.class, (String) args[0]);
+                        case "isClosed": return false;
+                        case "isValid":
+                        case "getAutoCommit": return true;
+                        default: return null;
+                    }
+                });
+    }
+
+    private Object statement(Class<?> type, String preparedSql) {
+        List<Object> bound = new ArrayList<>();
+        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "setInt":
+                        case "setLong":
+                        case "setString":
+                            bound.add(args[1]);
+                            return null;
+                        case "execute":
+                        case "executeQuery":
+                        case "executeUpdate":
+                            String sql = preparedSql != null ? preparedSql : (String) args[0];
+                            synchronized (executed) {
+                                executed.add(sql);
+                                parameters.add(new ArrayList<>(bound));
+                            }
+                            bound.clear();
+                            if (failOn != null && sql.startsWith(failOn)) throw new SQLException("failed: " + sql);
+                            if (method.getName().equals("execute")) return false;
+                            if (method.getName().equals("executeUpdate")) return 1;
+                            return resultSet(answer.applyAsLong(sql));
+                        case "isClosed": return false;
+                        default: return null;
+                    }
+                });
+    }
+
+    private ResultSet resultSet(long value) {
+        boolean[] read = {false};
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "next": return !read[0] && (read[0] = true);
+                        case "getInt": return (int) value;
+                        case "getLong": return value;
+                        case "getString": return args[0] instanceof String ? args[0] : null;
+                        case "wasNull": return false;
+                        default: return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,118 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReplicaRouter, over pools of in-process fake connections named after their node.
+ */
+public class ReplicaRouterTest {
+    /** Nodes whose connections fail to open. */
+    private final Map<String, Boolean> down = new HashMap<>();
+    /** Replication lag reported per node (seconds; null when not replicating). */
+    private final Map<String, Long> lag = new HashMap<>();
+
+    private Connection fakeConnection(String node) throws SQLException {
+        if (down.getOrDefault(node, false)) throw new SQLRecoverableException("Connection refused: " + node);
+        boolean[] isClosed = {false};
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close": isClosed[0] = true; return null;
+                        case "isClosed": return isClosed[0];
+                        case "isValid": return !isClosed[0] && !down.getOrDefault(node, false);
+                        case "getAutoCommit": return true;
+                        case "toString": return node;
+                        default: return null;
+                    }
+                });
+    }
+
+    /** The node a lease came from: a lease prints as PooledConnection[node] or PooledConnection[node, returned]. */
+    private static String node(Connection con) {
+        return con.toString().replaceAll("^PooledConnection\\[|(, returned)?]$", "");
+    }
+
+    private ConnectionPool pool(String node) throws SQLException {
+        return new ConnectionPool(() -> fakeConnection(node), 0, 4, 60_000, 30_000, 50);
+    }
+
+    private ReplicaRouter router(ConnectionPool primary, long ejectMillis) throws SQLException {
+        Map<String, ConnectionPool> replicas = new LinkedHashMap<>();
+        replicas.put("r1", pool("r1"));
+        replicas.put("r2", pool("r2"));
+        ReplicaRouter.LagProbe probe = con -> lag.getOrDefault(node(con), 0L);
+        return new ReplicaRouter(primary, replicas, probe, 5, ejectMillis, 0);
+    }
+
+    @Test
+    void testSpreadsLeasesOverLeastBusyReplicas() throws SQLException {
+        try (ConnectionPool primary = pool("primary"); ReplicaRouter router = router(primary, 60_000)) {
+            assertEquals(2, router.getEligibleReplicaCount());
+            Connection a = router.getConnection();
+            Connection b = router.getConnection();
+            assertNotEquals(node(a), node(b), "The second lease goes to the replica with nothing leased.");
+            a.close();
+
+            Connection c = router.getConnection();
+            assertEquals(node(a), node(c));
+            b.close();
+            c.close();
+
+            // With nothing outstanding, leases rotate
+            Map<String, Integer> counts = new HashMap<>();
+            for (int i = 0; i < 10; i++) {
+                try (Connection con = router.getConnection()) {
+                    counts.merge(node(con), 1, Integer::sum);
+                }
+            }
+            assertEquals(Map.of("r1", 5, "r2", 5), counts);
+            assertEquals(0, router.getPrimaryLeaseCount());
+        }
+    }
+
+    @Test
+    void testEjectsFailedAndLaggingReplicas() throws Exception {
+        down.put("r1", true);
+        try (ConnectionPool primary = pool("primary"); ReplicaRouter router = router(primary, 200)) {
+            for (int i = 0; i < 3; i++) {
+                try (Connection con = router.getConnection()) {
+                    assertEquals("r2", node(con));
+                }
+            }
+            assertTrue(router.getReplicaStatus().get("r1").startsWith("ejected"), router.getReplicaStatus().toString());
+
+            // r2 falls behind: nothing is left but the primary
+            lag.put("r2", 30L);
+            router.checkReplicas();
+            assertTrue(router.getReplicaStatus().get("r2").startsWith("lagging, "));
+            try (Connection con = router.getConnection()) {
+                assertEquals("primary", node(con));
+            }
+            assertEquals(1, router.getPrimaryLeaseCount());
+
+            lag.put("r2", null);
+            router.checkReplicas();
+            assertTrue(router.getReplicaStatus().get("r2").endsWith("not replicating"));
+
+            // Both recover: r1 returns once its eject period is over
+            down.put("r1", false);
+            lag.put("r2", 2L);
+            router.checkReplicas();
+            assertEquals(1, router.getEligibleReplicaCount(), "r1 is still within its eject period.");
+            Thread.sleep(250);
+            router.checkReplicas();
+            assertEquals(2, router.getEligibleReplicaCount());
+            assertEquals("ok, 3 leases, 2s behind", router.getReplicaStatus().get("r2"));
+        }
+    }
+}
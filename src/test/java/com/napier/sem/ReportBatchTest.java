@@ -0,0 +1,123 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReportBatch: parallel runs must print exactly what a sequential run prints.
+ */
+public class ReportBatchTest {
+    static App app;
+
+    @BeforeAll
+    static void init() {
+        app = WorldFixture.app();
+    }
+
+    @AfterAll
+    static void stop() {
+        app.disconnect();
+    }
+
+    private static ReportBatch batch() {
+        return new ReportBatch()
+                .add(UseCase.UC07, null, 0)
+                .add(UseCase.UC13, "Asia", 5)
+                .add(UseCase.UC23, null, 0)
+                .add(UseCase.UC26, null, 0)
+                .add(UseCase.UC29, "United Kingdom", 0)
+                .add(UseCase.UC32, null, 0);
+    }
+
+    @Test
+    void testParallelOutputMatchesSequentialOutput() {
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        long[] sequentialTotals = batch().run(app, 1, new PrintStream(sequential));
+
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+        long[] parallelTotals = batch().run(app, 4, new PrintStream(parallel));
+
+        assertEquals(sequential.toString(), parallel.toString());
+        assertArrayEquals(sequentialTotals, parallelTotals);
+        assertEquals(6078749450L, parallelTotals[3]);
+        assertEquals(59623400L, parallelTotals[4]);
+    }
+
+    @Test
+    void testReportsKeepBatchOrder() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ReportBatch()
+                .add(UseCase.UC25, null, 0)   // large report first
+                .add(UseCase.UC26, null, 0)   // fast report second
+                .run(app, 2, new PrintStream(out));
+        String text = out.toString();
+        assertTrue(text.indexOf("UC25:") < text.indexOf("UC26:"));
+        assertEquals(text.lastIndexOf("UC25:"), text.indexOf("UC25:"), "Each report is written once, in one piece.");
+    }
+
+    @Test
+    void testJobFileWritesEachReportToItsFile(@TempDir Path dir) throws Exception {
+        Path jobFile = dir.resolve("nightly.jobs");
+        Files.write(jobFile, List.of(
+                "# Nightly reports",
+                "uc13 continent=Asia n=5",
+                "",
+                "27 continent=\"North America\" out=totals/north-america.txt",
+                "UC23",
+                "uc29 name=\"United Kingdom\""), StandardCharsets.UTF_8);
+        ReportBatch batch = ReportBatch.fromJobFile(jobFile, dir.resolve("out"));
+        assertEquals(4, batch.size());
+
+        assertEquals(0, batch.runToFiles(app, 2));
+        assertEquals(printed(UseCase.UC13, "Asia", 5), Files.readString(dir.resolve("out/uc13-asia-5.txt")));
+        assertEquals(printed(UseCase.UC27, "North America", 0), Files.readString(dir.resolve("out/totals/north-america.txt")));
+        assertEquals(printed(UseCase.UC23, null, 0), Files.readString(dir.resolve("out/uc23.txt")));
+        assertEquals(printed(UseCase.UC29, "United Kingdom", 0), Files.readString(dir.resolve("out/uc29-united-kingdom.txt")));
+    }
+
+    @Test
+    void testRepeatedReportsGetTheirOwnDefaultFiles(@TempDir Path dir) {
+        ReportBatch batch = ReportBatch.parseJobs(List.of(
+                "uc26", "uc26", "uc26 out=uc26-3.txt", "uc26", "uc26 format=csv"), dir);
+        assertEquals(0, batch.runToFiles(app, 2));
+        for (String file : new String[]{"uc26.txt", "uc26-2.txt", "uc26-3.txt", "uc26-4.txt", "uc26.csv"}) {
+            assertTrue(Files.exists(dir.resolve(file)), file);
+        }
+    }
+
+    private static String printed(UseCase useCase, String name, int n) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream print = new PrintStream(out, true, StandardCharsets.UTF_8);
+        app.report(useCase, name, n).print(print);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testInvalidJobLinesNameTheLine() {
+        Path dir = Path.of("reports");
+        String[][] cases = {
+                {"uc33", "Line 2: Unknown report"},
+                {"uc13 continent=Asia", "Line 2: Argument 'n' must be"},
+                {"uc27", "Line 2: Missing argument 'continent'"},
+                {"uc26 country=France", "Line 2: Unexpected argument 'country'"},
+                {"uc27 continent=\"North", "Line 2: Unterminated quote"},
+                {"uc26 format=text out=world.csv", "Line 2: File world.csv ends in .csv"},
+                {"uc26 out=uc01.txt", "Line 2: File uc01.txt is already written by an earlier report"}};
+        for (String[] c : cases) {
+            IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                    () -> ReportBatch.parseJobs(List.of("uc01", c[0]), dir));
+            assertTrue(e.getMessage().startsWith(c[1]), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReportCache keying, LRU eviction, TTL and invalidation.
+ */
+public class ReportCacheTest {
+
+    private final AtomicInteger queries = new AtomicInteger();
+
+    private List<City> query(String name) {
+        queries.incrementAndGet();
+        List<City> cities = new ArrayList<>();
+        cities.add(new City(name, "Country", "District", 1000L, false));
+        return cities;
+    }
+
+    @Test
+    void testRepeatRequestIsAHit() {
+        ReportCache cache = new ReportCache();
+        List<City> first = cache.get(11, () -> query("A"), "California");
+        List<City> second = cache.get(11, () -> query("A"), "California");
+        assertSame(first, second);
+        assertEquals(1, queries.get());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // Different parameters or UC number are different keys
+        cache.get(11, () -> query("B"), "Texas");
+        cache.get(10, () -> query("C"), "California");
+        assertEquals(3, queries.get());
+        assertThrows(UnsupportedOperationException.class, () -> first.add(new City()));
+    }
+
+    @Test
+    void testEmptyResultsAreNotCached() {
+        ReportCache cache = new ReportCache();
+        cache.get(2, ArrayList::new, "Atlantis");
+        cache.get(2, ArrayList::new, "Atlantis");
+        cache.get(26, () -> 0L, (Object) null);
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvictedWhenOverBudget() {
+        long oneEntry = ReportCache.estimateBytes(query("X"));
+        ReportCache cache = new ReportCache(oneEntry * 2, 60_000);
+        cache.get(11, () -> query("X"), "a");
+        cache.get(11, () -> query("X"), "b");
+        cache.get(11, () -> query("X"), "a"); // touch "a" so "b" is the LRU entry
+        cache.get(11, () -> query("X"), "c");
+
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertTrue(cache.getSizeBytes() <= oneEntry * 2);
+        int before = queries.get();
+        cache.get(11, () -> query("X"), "a");
+        assertEquals(before, queries.get(), "Recently used entry should have survived eviction.");
+    }
+
+    @Test
+    void testExpiredEntriesAreReloaded() throws InterruptedException {
+        ReportCache cache = new ReportCache(ReportCache.DEFAULT_MAX_BYTES, 1);
+        cache.get(7, () -> query("A"));
+        Thread.sleep(5);
+        cache.get(7, () -> query("A"));
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void testInvalidation() {
+        ReportCache cache = new ReportCache();
+        cache.get(13, () -> query("A"), "Asia", 5);
+        cache.get(13, () -> query("A"), "Europe", 5);
+        cache.get(26, () -> 6078749450L, (Object) null);
+
+        cache.invalidate(13, "Asia", 5);
+        assertEquals(2, cache.getEntryCount());
+        cache.invalidate(13);
+        assertEquals(1, cache.getEntryCount());
+        cache.invalidateAll();
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getSizeBytes());
+    }
+
+    @Test
+    void testResultLoadedAcrossAnInvalidationIsNotCached() throws InterruptedException {
+        ReportCache cache = new ReportCache();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+        Thread slow = new Thread(() -> cache.get(11, () -> {
+            started.countDown();
+            try {
+                invalidated.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return query("Old");
+        }, "California"));
+        slow.start();
+        started.await();
+        cache.invalidateAll();
+        invalidated.countDown();
+        slow.join();
+
+        assertEquals(0, cache.getEntryCount(), "A result read before the invalidation must not be cached.");
+        List<City> fresh = cache.get(11, () -> query("New"), "California");
+        assertEquals("New", fresh.get(0).Name);
+        assertSame(fresh, cache.get(11, () -> query("Newer"), "California"));
+    }
+}
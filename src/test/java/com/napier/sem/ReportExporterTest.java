@@ -0,0 +1,110 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ReportExporter and the CSV, JSON Lines and Markdown formats.
+ */
+public class ReportExporterTest {
+    static App app;
+
+    @BeforeAll
+    static void init() {
+        app = WorldFixture.app();
+    }
+
+    @AfterAll
+    static void stop() {
+        app.disconnect();
+    }
+
+    private static String export(ExportFormat format, ReportResult result) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        format.open(Channels.newChannel(out)).write(result);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testQuotingAndEscaping() throws Exception {
+        ReportResult result = new ReportResult(UseCase.UC01, "UC01: A|B", List.of(
+                new Country("XAA", "Comma, \"Quoted\"", "Asia", "Region", 1234, null),
+                new Country("XAB", "Zürich\nLine_2", "Asia", "Region", -5, "São Tomé")), 0);
+
+        assertEquals("code,name,continent,region,population,capital\r\n"
+                + "XAA,\"Comma, \"\"Quoted\"\"\",Asia,Region,1234,\r\n"
+                + "XAB,\"Zürich\nLine_2\",Asia,Region,-5,São Tomé\r\n", export(ExportFormat.CSV, result));
+
+        assertEquals("{\"code\":\"XAA\",\"name\":\"Comma, \\\"Quoted\\\"\",\"continent\":\"Asia\",\"region\":\"Region\","
+                + "\"population\":1234,\"capital\":null}\n"
+                + "{\"code\":\"XAB\",\"name\":\"Zürich\\nLine_2\",\"continent\":\"Asia\",\"region\":\"Region\","
+                + "\"population\":-5,\"capital\":\"São Tomé\"}\n", export(ExportFormat.JSONL, result));
+
+        assertEquals("## UC01: A\\|B\n\n"
+                + "| Code | Name | Continent | Region | Population | Capital |\n"
+                + "| --- | --- | --- | --- | ---: | --- |\n"
+                + "| XAA | Comma, \"Quoted\" | Asia | Region | 1234 |  |\n"
+                + "| XAB | Zürich Line\\_2 | Asia | Region | -5 | São Tomé |\n\n", export(ExportFormat.MARKDOWN, result));
+
+        ReportResult total = new ReportResult(UseCase.UC26, "UC26: World Population", null, 6078749450L);
+        assertEquals("population\r\n6078749450\r\n", export(ExportFormat.CSV, total));
+        assertEquals("{\"population\":6078749450}\n", export(ExportFormat.JSONL, total));
+        assertEquals(ExportFormat.MARKDOWN, ExportFormat.parse("Markdown"));
+        assertEquals(ExportFormat.JSONL, ExportFormat.forFile(Path.of("out", "uc07.jsonl")));
+        assertNull(ExportFormat.forFile(Path.of("uc07.txt")));
+    }
+
+    @Test
+    void testStreamedExportMatchesReportData() throws Exception {
+        ReportResult cities = app.report(UseCase.UC07, null, 0);
+
+        ByteArrayOutputStream jsonl = new ByteArrayOutputStream();
+        app.exportReport(UseCase.UC07, null, 0, ExportFormat.JSONL, Channels.newChannel(jsonl));
+        String[] lines = jsonl.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(cities.Rows.size(), lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            StringBuilder expected = new StringBuilder();
+            ReportResult.appendRow(expected, cities.Rows.get(i));
+            assertEquals(expected.toString(), lines[i]);
+        }
+
+        // Larger than the exporter's buffer, so the rows go out in several writes
+        ByteArrayOutputStream csv = new ByteArrayOutputStream();
+        app.exportReport(UseCase.UC07, null, 0, ExportFormat.CSV, Channels.newChannel(csv));
+        assertTrue(csv.size() > 64 * 1024);
+        assertEquals(cities.Rows.size() + 1, csv.toString(StandardCharsets.UTF_8).split("\r\n").length);
+
+        ByteArrayOutputStream md = new ByteArrayOutputStream();
+        assertEquals(6078749450L, app.exportReport(UseCase.UC26, null, 0, ExportFormat.MARKDOWN, Channels.newChannel(md)));
+        assertTrue(md.toString(StandardCharsets.UTF_8).endsWith("| ---: |\n| 6078749450 |\n\n"));
+    }
+
+    @Test
+    void testJobFileFormats(@TempDir Path dir) throws Exception {
+        ReportBatch batch = ReportBatch.parseJobs(Arrays.asList(
+                "uc13 continent=Asia n=3 format=csv",
+                "uc32 out=languages.jsonl"), dir);
+        assertEquals(0, batch.runToFiles(app, 2));
+
+        List<String> csv = Files.readAllLines(dir.resolve("uc13-asia-3.csv"));
+        assertEquals(List.of("name,country,district,population", "Mumbai (Bombay),India,Maharashtra,10500000",
+                "Seoul,South Korea,Seoul,9981619", "Shanghai,China,Shanghai,9696300"), csv);
+        assertEquals(app.report(UseCase.UC32, null, 0).Rows.size(), Files.readAllLines(dir.resolve("languages.jsonl")).size());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> ReportBatch.parseJobs(List.of("uc01 format=xml"), dir));
+        assertEquals("Line 1: Unknown format: xml", e.getMessage());
+    }
+}
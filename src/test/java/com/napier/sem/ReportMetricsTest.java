@@ -0,0 +1,95 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LatencyHistogram and the per-use-case ReportMetrics, using the bundled world.sql snapshot.
+ */
+public class ReportMetricsTest {
+    static WorldSnapshot snapshot;
+
+    @BeforeAll
+    static void init() {
+        snapshot = WorldFixture.snapshot();
+    }
+
+    @Test
+    void testHistogramPercentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(100_000, histogram.getMax());
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            long exact = (long) (p * 1000);
+            long reported = histogram.getValueAtPercentile(p);
+            assertTrue(reported >= exact && reported <= exact * 1.016 + 1, p + "th percentile: " + reported);
+        }
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+
+        // Buckets are contiguous: each starts right after the previous one ends
+        for (int i = 1; i < LatencyHistogram.bucketIndex(LatencyHistogram.MAX_VALUE); i++) {
+            assertEquals(i, LatencyHistogram.bucketIndex(LatencyHistogram.highestValueIn(i - 1) + 1));
+            assertEquals(i, LatencyHistogram.bucketIndex(LatencyHistogram.highestValueIn(i)));
+        }
+
+        histogram.reset();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    void testPrintedReportIsRecordedOnce() {
+        App app = WorldFixture.app();
+        ReportMetrics metrics = app.getMetrics();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        app.printReport(UseCase.UC13, "Asia", 5, new PrintStream(out, true, StandardCharsets.UTF_8));
+        app.report(UseCase.UC26, null, 0);
+
+        // printReport opens the execution and report() joins it
+        assertEquals(1, metrics.getHistogram(UseCase.UC13, ReportMetrics.Phase.TOTAL).getCount());
+        assertEquals(1, metrics.getHistogram(UseCase.UC13, ReportMetrics.Phase.QUERY).getCount());
+        assertEquals(1, metrics.getHistogram(UseCase.UC13, ReportMetrics.Phase.RENDER).getCount());
+        assertEquals(0, metrics.getHistogram(UseCase.UC13, ReportMetrics.Phase.ACQUIRE).getCount());
+        assertEquals(5, metrics.rowCount(13));
+        assertEquals(out.size(), metrics.renderedBytes(13));
+        assertEquals(1, metrics.rowCount(26));
+        assertEquals(2, metrics.getReportCount());
+        assertEquals(0, metrics.getErrorCount());
+        assertEquals(2, metrics.getP99Micros().size());
+
+        String text = metrics.toPrometheus();
+        assertTrue(text.contains("report_phase_seconds_count{uc=\"13\",phase=\"total\"} 1\n"), text);
+        assertTrue(text.contains("report_phase_seconds{uc=\"13\",phase=\"query\",quantile=\"0.99\"} 0."), text);
+        assertTrue(text.contains("report_rows_total{uc=\"13\"} 5\n"), text);
+        assertFalse(text.contains("uc=\"12\""), "Use cases that never ran are not exported.");
+
+        metrics.reset();
+        assertEquals(0, metrics.getReportCount());
+    }
+
+    @Test
+    void testFailedExecutionCountsOneError() {
+        App app = new App();
+        ReportMetrics metrics = app.getMetrics();
+        try (ReportMetrics.Execution outer = metrics.start(UseCase.UC32)) {
+            try (ReportMetrics.Execution inner = metrics.start(UseCase.UC32)) {
+                assertSame(outer, inner);
+                ReportMetrics.error();
+            }
+            outer.fail();
+        }
+        assertEquals(1, metrics.errorCount(32));
+        assertEquals(1, metrics.getReportCount());
+        ReportMetrics.error(); // no open execution: ignored
+        assertEquals(1, metrics.getErrorCount());
+    }
+}
@@ -0,0 +1,93 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the HTTP report server, serving the bundled world.sql snapshot on a free port.
+ */
+public class ReportServerTest {
+    static App app;
+    static ReportServer server;
+    static HttpClient client;
+
+    @BeforeAll
+    static void init() throws Exception {
+        app = WorldFixture.app();
+        server = new ReportServer(app, 0);
+        server.start();
+        client = HttpClient.newHttpClient();
+    }
+
+    @AfterAll
+    static void stop() {
+        server.close();
+        app.disconnect();
+    }
+
+    private HttpResponse<String> get(String pathAndQuery) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + pathAndQuery)).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testJsonReport() throws Exception {
+        HttpResponse<String> response = get("/reports/uc13?continent=Asia&n=2");
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("{\"useCase\":13,\"title\":\"UC13: Top 2 Populated Cities in Continent 'Asia'\",\"rows\":[{\"name\":\"Mumbai (Bombay)\""),
+                response.body());
+
+        HttpResponse<String> total = get("/reports/UC27?continent=" + "North%20America");
+        assertTrue(total.body().contains("\"population\":482993000"), total.body());
+
+        String metrics = get("/metrics").body();
+        assertTrue(metrics.contains("report_rows_total{uc=\"13\"} "), metrics);
+        assertTrue(metrics.contains("report_phase_seconds_count{uc=\"27\",phase=\"render\"} "), metrics);
+    }
+
+    @Test
+    void testTopLanguagesNameTheirShare() throws Exception {
+        String world = get("/languages?k=1").body();
+        assertTrue(world.startsWith("[{\"language\":\"Chinese\","), world);
+        assertTrue(world.contains("\"worldPopulationPercent\":"), world);
+
+        String region = get("/languages?region=Western%20Europe&k=2").body();
+        assertTrue(region.startsWith("[{\"language\":\"German\","), region);
+        assertTrue(region.contains("\"areaPopulationPercent\":") && !region.contains("worldPopulationPercent"), region);
+    }
+
+    @Test
+    void testTextReportMatchesConsoleOutput() throws Exception {
+        HttpResponse<String> response = get("/reports/uc10?country=Netherlands&format=text");
+        assertEquals(200, response.statusCode());
+
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        app.report(UseCase.UC10, "Netherlands", 0).print(new PrintStream(console, true, StandardCharsets.UTF_8));
+        assertEquals(console.toString(StandardCharsets.UTF_8), response.body());
+    }
+
+    @Test
+    void testBadRequests() throws Exception {
+        assertEquals(404, get("/reports/uc33").statusCode());
+        assertEquals(400, get("/reports/uc13?continent=Asia").statusCode());
+        assertEquals(400, get("/reports/uc13?continent=Asia&n=zero").statusCode());
+        assertEquals(400, get("/reports/uc02").statusCode());
+        HttpResponse<String> unknownFormat = get("/reports/uc01?format=foo");
+        assertEquals(400, unknownFormat.statusCode());
+        assertTrue(unknownFormat.body().contains("Unknown format 'foo'"), unknownFormat.body());
+        assertEquals(200, get("/reports/uc27?continent=Asia&format=JSON").statusCode());
+        assertEquals(200, get("/reports").statusCode());
+        assertEquals(200, get("/health").statusCode());
+    }
+}
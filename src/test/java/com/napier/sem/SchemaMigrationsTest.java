@@ -0,0 +1,58 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SchemaMigrations, recording the SQL it sends to a RecordingConnection.
+ */
+public class SchemaMigrationsTest {
+    private final RecordingConnection db = new RecordingConnection();
+    /** Version reported by SELECT MAX(Version). */
+    private int version = 0;
+
+    SchemaMigrationsTest() {
+        db.answer = sql -> sql.startsWith("SELECT GET_LOCK") ? 1 : version;
+    }
+
+    /** Versions recorded by INSERT INTO schema_migrations. */
+    private List<Integer> recorded() {
+        List<Integer> versions = new ArrayList<>();
+        for (int i = 0; i < db.executed.size(); i++) {
+            if (db.executed.get(i).startsWith("INSERT INTO schema_migrations")) versions.add((Integer) db.parameters.get(i).get(0));
+        }
+        return versions;
+    }
+
+    @Test
+    void testAppliesOnlyPendingMigrationsInOrder() throws SQLException {
+        assertEquals(SchemaMigrations.MIGRATIONS.size(), SchemaMigrations.migrate(db.connection()));
+        assertEquals(List.of(1, 2, 3), recorded());
+        assertEquals("SELECT GET_LOCK(?, ?)", db.executed.get(0));
+        assertEquals("SELECT RELEASE_LOCK(?)", db.executed.get(db.executed.size() - 1));
+        assertTrue(db.executed.get(1).startsWith("CREATE TABLE IF NOT EXISTS schema_migrations"));
+
+        db.executed.clear();
+        db.parameters.clear();
+        version = 2;
+        assertEquals(1, SchemaMigrations.migrate(db.connection()));
+        assertEquals(List.of(3), recorded());
+        assertTrue(db.executed.stream().noneMatch(sql -> sql.contains("DistrictPopulation")));
+
+        version = SchemaMigrations.latestVersion();
+        assertEquals(0, SchemaMigrations.migrate(db.connection()));
+    }
+
+    @Test
+    void testFailedMigrationIsNotRecordedAndReleasesLock() {
+        db.failOn = "ALTER TABLE country ADD INDEX ContinentPopulation";
+        assertThrows(SQLException.class, () -> SchemaMigrations.migrate(db.connection()));
+        assertEquals(List.of(1), recorded(), "Version 1 stays applied; version 2 is retried next run.");
+        assertEquals("SELECT RELEASE_LOCK(?)", db.executed.get(db.executed.size() - 1));
+    }
+}
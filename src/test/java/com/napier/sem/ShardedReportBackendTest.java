@@ -0,0 +1,192 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ShardedReportBackend: the world snapshot split into continent shards must
+ * answer every report like the whole snapshot does.
+ */
+public class ShardedReportBackendTest {
+    static WorldSnapshot world;
+    static ShardedReportBackend sharded;
+
+    /** The part of a snapshot whose countries are on the given continents. */
+    private static WorldSnapshot shard(WorldSnapshot snapshot, Set<String> continents) {
+        WorldSnapshot.Loader loader = new WorldSnapshot.Loader();
+        for (WorldSnapshot.CountryRow c : snapshot.countryRows()) {
+            if (continents.contains(c.continent)) {
+                loader.addCountry(c.code, c.name, c.continent, c.region, c.population, c.capitalId);
+            }
+        }
+        for (WorldSnapshot.CityRow c : snapshot.cityRows()) {
+            if (continents.contains(c.country.continent)) {
+                loader.addCity(c.id, c.name, c.country.code, c.district, c.population);
+            }
+        }
+        for (WorldSnapshot.LanguageRow l : snapshot.languageRows()) {
+            if (continents.contains(l.country.continent)) {
+                loader.addLanguage(l.country.code, l.language, l.percentTenths);
+            }
+        }
+        return loader.build();
+    }
+
+    @BeforeAll
+    static void init() {
+        world = WorldFixture.snapshot();
+        WorldSnapshot asia = shard(world, Set.of("Asia"));
+        WorldSnapshot europeAfrica = shard(world, Set.of("Europe", "Africa"));
+        WorldSnapshot rest = shard(world, Set.of("North America", "South America", "Oceania", "Antarctica"));
+        Map<String, ReportBackend> shards = new LinkedHashMap<>();
+        shards.put("Asia", asia);
+        shards.put("Europe", europeAfrica);
+        shards.put("Africa", europeAfrica);
+        for (String continent : List.of("North America", "South America", "Oceania", "Antarctica")) {
+            shards.put(continent, rest);
+        }
+        sharded = new ShardedReportBackend(shards);
+    }
+
+    @AfterAll
+    static void stop() {
+        sharded.close();
+    }
+
+    private static List<Long> countryPopulations(List<Country> rows) {
+        return rows.stream().map(c -> c.Population).collect(Collectors.toList());
+    }
+
+    private static List<Long> cityPopulations(List<City> rows) {
+        return rows.stream().map(c -> c.Population).collect(Collectors.toList());
+    }
+
+    private static Map<String, String> summaries(List<PopulationSummary> rows) {
+        Map<String, String> byName = new LinkedHashMap<>();
+        for (PopulationSummary s : rows) {
+            byName.put(s.Name, s.TotalPopulation + "/" + s.CityPopulation + "/" + s.CityPopulationPercent
+                    + "/" + s.RuralPopulation + "/" + s.RuralPopulationPercent);
+        }
+        return byName;
+    }
+
+    @Test
+    void testListsAndTopNMatchUnshardedSnapshot() {
+        assertEquals(3, sharded.getShardCount());
+        for (ReportScope scope : new ReportScope[]{ReportScope.WORLD, ReportScope.CONTINENT, ReportScope.REGION}) {
+            String name = scope == ReportScope.CONTINENT ? "europe" : "Caribbean";
+            List<Country> all = sharded.countries(scope, name);
+            assertEquals(countryPopulations(world.countries(scope, name)), countryPopulations(all), scope + " countries");
+            assertEquals(world.countries(scope, name).stream().map(c -> c.Code).collect(Collectors.toSet()),
+                    all.stream().map(c -> c.Code).collect(Collectors.toSet()));
+            assertEquals(cityPopulations(world.cities(scope, name)), cityPopulations(sharded.cities(scope, name)));
+            assertEquals(cityPopulations(world.capitals(scope, name)), cityPopulations(sharded.capitals(scope, name)));
+            for (int n : new int[]{0, 1, 7, 100000}) {
+                assertEquals(countryPopulations(world.topCountries(scope, name, n)),
+                        countryPopulations(sharded.topCountries(scope, name, n)), scope + " top " + n);
+                assertEquals(cityPopulations(world.topCities(scope, name, n)), cityPopulations(sharded.topCities(scope, name, n)));
+                assertEquals(cityPopulations(world.topCapitals(scope, name, n)), cityPopulations(sharded.topCapitals(scope, name, n)));
+            }
+        }
+        assertEquals(world.cities(ReportScope.DISTRICT, "California").size(), sharded.cities(ReportScope.DISTRICT, "California").size());
+        assertEquals(List.of("Mumbai (Bombay)", "Seoul", "São Paulo"),
+                sharded.topCities(ReportScope.WORLD, null, 3).stream().map(c -> c.Name).collect(Collectors.toList()));
+        assertTrue(sharded.countries(ReportScope.CONTINENT, "Atlantis").isEmpty());
+
+        // k-way and bounded merges keep shard order between equal populations
+        List<List<Integer>> lists = List.of(List.of(9, 5, 5), List.of(7, 5), List.of());
+        assertEquals(List.of(9, 7, 5, 5, 5), ShardedReportBackend.mergeSorted(lists, (a, b) -> b - a));
+        assertEquals(List.of(9, 7, 5), ShardedReportBackend.mergeTop(lists, 3, i -> i));
+    }
+
+    @Test
+    void testTotalsBreakdownsAndLanguagesMatchUnshardedSnapshot() {
+        assertEquals(6078749450L, sharded.population(ReportScope.WORLD, null));
+        assertEquals(world.population(ReportScope.CONTINENT, "Asia"), sharded.population(ReportScope.CONTINENT, "asia"));
+        assertEquals(world.population(ReportScope.REGION, "Caribbean"), sharded.population(ReportScope.REGION, "Caribbean"));
+        assertEquals(world.population(ReportScope.COUNTRY, "France"), sharded.population(ReportScope.COUNTRY, "France"));
+        assertEquals(world.population(ReportScope.DISTRICT, "California"), sharded.population(ReportScope.DISTRICT, "California"));
+        assertEquals(world.population(ReportScope.CITY, "Edinburgh"), sharded.population(ReportScope.CITY, "Edinburgh"));
+
+        PopulationBreakdown all = sharded.populationBreakdowns();
+        for (ReportScope level : new ReportScope[]{ReportScope.CONTINENT, ReportScope.REGION, ReportScope.COUNTRY}) {
+            assertEquals(summaries(world.populationBreakdown(level)), summaries(all.get(level)), level.toString());
+            assertEquals(summaries(world.populationBreakdown(level)), summaries(sharded.populationBreakdown(level)));
+        }
+
+        List<LanguageSpeakers> expected = world.majorLanguageSpeakers();
+        List<LanguageSpeakers> actual = sharded.majorLanguageSpeakers();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).Language, actual.get(i).Language);
+            assertEquals(expected.get(i).Speakers, actual.get(i).Speakers, 0);
+            assertEquals(expected.get(i).WorldPopulationPercent, actual.get(i).WorldPopulationPercent, 0);
+        }
+        LanguageIndex merged = sharded.languages();
+        assertSame(merged, sharded.languages(), "Unchanged shard indexes are not merged again.");
+        assertEquals(world.languages().getLanguageCount(), merged.getLanguageCount());
+        assertEquals(world.languages().topLanguages(ReportScope.REGION, "Western Europe", 5).stream().map(s -> s.Language).collect(Collectors.toList()),
+                merged.topLanguages(ReportScope.REGION, "Western Europe", 5).stream().map(s -> s.Language).collect(Collectors.toList()));
+        assertEquals(world.languages().countries("English").stream().map(c -> c.Country).collect(Collectors.toList()),
+                merged.countries("English").stream().map(c -> c.Country).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testMergedLanguageIndexAsksEachSqlShardOnce() {
+        RecordingConnection asia = new RecordingConnection();
+        RecordingConnection europe = new RecordingConnection();
+        Map<String, ReportBackend> shards = new LinkedHashMap<>();
+        shards.put("Asia", new SqlReportBackend(asia.dataSource()));
+        shards.put("Europe", new SqlReportBackend(europe.dataSource()));
+        try (ShardedReportBackend backend = new ShardedReportBackend(shards)) {
+            LanguageIndex merged = backend.languages();
+            assertSame(merged, backend.languages());
+            backend.majorLanguageSpeakers();
+            assertEquals(1, asia.count("SELECT c.Code"));
+            assertEquals(1, europe.count("SELECT c.Code"));
+
+            backend.invalidate();
+            assertNotSame(merged, backend.languages());
+            assertEquals(2, asia.count("SELECT c.Code"));
+            assertEquals(2, europe.count("SELECT c.Code"));
+        }
+    }
+
+    @Test
+    void testCityPopulationTakesLowestIdWhateverTheShardOrder() {
+        // Hamilton is city 191 (Bermuda), 1821 (Canada) and 3501 (New Zealand)
+        Map<String, ReportBackend> oceaniaFirst = new LinkedHashMap<>();
+        oceaniaFirst.put("Oceania", shard(world, Set.of("Oceania")));
+        oceaniaFirst.put("North America", shard(world, Set.of("North America")));
+        try (ShardedReportBackend backend = new ShardedReportBackend(oceaniaFirst)) {
+            assertEquals(1200, world.population(ReportScope.CITY, "Hamilton"));
+            assertEquals(1200, backend.population(ReportScope.CITY, "Hamilton"));
+            assertEquals(191, backend.cityPopulation("hamilton").ID);
+            assertNull(backend.cityPopulation("Atlantis"));
+        }
+
+        // A city with no inhabitants is still a match
+        WorldSnapshot.Loader empty = new WorldSnapshot.Loader();
+        empty.addCountry("AAA", "Emptyland", "Europe", "Nowhere", 0, 1);
+        empty.addCity(1, "Twin", "AAA", "Nowhere", 0);
+        WorldSnapshot.Loader full = new WorldSnapshot.Loader();
+        full.addCountry("BBB", "Fullland", "Asia", "Somewhere", 500, 2);
+        full.addCity(2, "Twin", "BBB", "Somewhere", 500);
+        Map<String, ReportBackend> shards = new LinkedHashMap<>();
+        shards.put("Asia", full.build());
+        shards.put("Europe", empty.build());
+        try (ShardedReportBackend backend = new ShardedReportBackend(shards)) {
+            assertEquals(0, backend.population(ReportScope.CITY, "Twin"));
+            assertEquals(1, backend.cityPopulation("Twin").ID);
+        }
+    }
+}
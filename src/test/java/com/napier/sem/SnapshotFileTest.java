@@ -0,0 +1,88 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SnapshotFile: a mapped file must answer every report exactly like the snapshot it was written from.
+ */
+public class SnapshotFileTest {
+    static WorldSnapshot snapshot;
+
+    @BeforeAll
+    static void init() {
+        snapshot = WorldFixture.snapshot();
+    }
+
+    private static String printAll(WorldSnapshot backend) {
+        App app = new App();
+        app.useSnapshot(backend);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PrintStream print = new PrintStream(out, true, StandardCharsets.UTF_8);
+        for (UseCase useCase : UseCase.values()) {
+            String name;
+            switch (useCase.scope()) {
+                case CONTINENT: name = "Europe"; break;
+                case REGION: name = "Caribbean"; break;
+                case COUNTRY: name = "Brazil"; break;
+                case DISTRICT: name = "São Paulo"; break;
+                case CITY: name = "Edinburgh"; break;
+                default: name = null; break;
+            }
+            app.printReport(useCase, name, 10, print);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void testMappedFileAnswersEveryReport(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("world.snap");
+        SnapshotFile.write(snapshot, file);
+        WorldSnapshot mapped = SnapshotFile.map(file);
+
+        assertEquals(snapshot.getCountryCount(), mapped.getCountryCount());
+        assertEquals(snapshot.getCityCount(), mapped.getCityCount());
+        assertEquals(snapshot.getLanguageRowCount(), mapped.getLanguageRowCount());
+        assertEquals(printAll(snapshot), printAll(mapped));
+
+        // Rewriting replaces the file in one step
+        SnapshotFile.write(mapped, file);
+        assertEquals(6078749450L, SnapshotFile.map(file).population(ReportScope.WORLD, null));
+    }
+
+    @Test
+    void testRejectsOtherVersionsAndCorruptFiles(@TempDir Path dir) throws Exception {
+        Path file = dir.resolve("world.snap");
+        SnapshotFile.write(snapshot, file);
+        byte[] good = Files.readAllBytes(file);
+
+        byte[] newer = good.clone();
+        ByteBuffer.wrap(newer).putInt(4, SnapshotFile.VERSION + 1);
+        Files.write(file, newer);
+        IOException e = assertThrows(IOException.class, () -> SnapshotFile.map(file));
+        assertTrue(e.getMessage().startsWith("Unsupported snapshot file version"), e.getMessage());
+
+        byte[] corrupt = good.clone();
+        corrupt[corrupt.length - 1] ^= 1;
+        Files.write(file, corrupt);
+        e = assertThrows(IOException.class, () -> SnapshotFile.map(file));
+        assertTrue(e.getMessage().contains("checksum"), e.getMessage());
+
+        Files.write(file, Arrays.copyOf(good, good.length - 8));
+        assertThrows(IOException.class, () -> SnapshotFile.map(file));
+        Files.writeString(file, "-- MySQL dump");
+        assertThrows(IOException.class, () -> SnapshotFile.map(file));
+    }
+}
@@ -0,0 +1,81 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for what SqlReportBackend reads once and shares between reports, counting the
+ * queries it sends to a RecordingConnection.
+ */
+public class SqlReportBackendTest {
+    /** Prefix of the single UC23-UC25 breakdown query. */
+    private static final String BREAKDOWN_QUERY = "SELECT c.Name, c.Continent, c.Region, c.Population, ci.CityPopulation";
+    /** Prefix of the language index query. */
+    private static final String LANGUAGE_QUERY = "SELECT c.Code, c.Name, c.Continent, c.Region, c.Population, cl.Language";
+
+    private final RecordingConnection db = new RecordingConnection();
+    private final SqlReportBackend backend = new SqlReportBackend(db.dataSource());
+
+    /** Runs UC23, UC24 and UC25 at the same time, like a parallel report batch. */
+    private List<List<PopulationSummary>> runBreakdownPack() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<List<PopulationSummary>>> results = new ArrayList<>();
+            for (ReportScope level : new ReportScope[]{ReportScope.CONTINENT, ReportScope.REGION, ReportScope.COUNTRY}) {
+                results.add(executor.submit(() -> backend.populationBreakdown(level)));
+            }
+            List<List<PopulationSummary>> rows = new ArrayList<>();
+            for (Future<List<PopulationSummary>> result : results) rows.add(result.get());
+            return rows;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testBreakdownPackReadsTheTablesOnce() throws Exception {
+        List<List<PopulationSummary>> pack = runBreakdownPack();
+        assertEquals("Continent", pack.get(0).get(0).Name);
+        assertEquals("Region", pack.get(1).get(0).Name);
+        assertEquals("Name", pack.get(2).get(0).Name);
+        assertEquals(1, db.count(BREAKDOWN_QUERY), "UC23-UC25 share one breakdown query.");
+
+        runBreakdownPack();
+        assertEquals(1, db.count(BREAKDOWN_QUERY), "A later pack reuses the kept breakdown.");
+
+        backend.invalidate();
+        runBreakdownPack();
+        assertEquals(2, db.count(BREAKDOWN_QUERY), "After invalidate() the tables are read again.");
+    }
+
+    @Test
+    void testLanguageIndexIsReadOnceUntilInvalidated() {
+        LanguageIndex index = backend.languages();
+        assertNotNull(index.speakers("Language"));
+        backend.majorLanguageSpeakers();
+        backend.languages().topLanguages(ReportScope.CONTINENT, "Continent", 3);
+        backend.languages().countries("Language");
+        assertSame(index, backend.languages());
+        assertEquals(1, db.count(LANGUAGE_QUERY), "The language queries share one index.");
+
+        backend.invalidate();
+        assertNotSame(index, backend.languages());
+        assertEquals(2, db.count(LANGUAGE_QUERY));
+    }
+
+    @Test
+    void testFailedBreakdownIsNotKept() {
+        db.failOn = BREAKDOWN_QUERY;
+        assertTrue(backend.populationBreakdown(ReportScope.CONTINENT).isEmpty());
+        db.failOn = null;
+        assertFalse(backend.populationBreakdown(ReportScope.CONTINENT).isEmpty());
+        assertEquals(2, db.count(BREAKDOWN_QUERY));
+    }
+}
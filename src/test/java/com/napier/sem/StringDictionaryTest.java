@@ -0,0 +1,62 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StringDictionary.
+ */
+public class StringDictionaryTest {
+
+    @Test
+    void testCanonicalInstancesAndCodes() {
+        StringDictionary dictionary = new StringDictionary(3);
+        String first = dictionary.intern(new String("Southern Europe"));
+        assertSame(first, dictionary.intern(new String("Southern Europe")));
+        assertEquals(0, dictionary.code("Southern Europe"));
+        assertEquals(1, dictionary.code("Caribbean"));
+        assertEquals("Caribbean", dictionary.value(1));
+        assertEquals("sao paulo", dictionary.collationKey("São Paulo"));
+        assertSame(dictionary.collationKey("São Paulo"), dictionary.collationKey(new String("São Paulo")));
+        assertNull(dictionary.intern(null));
+        assertNull(dictionary.collationKey(null));
+        assertThrows(IllegalArgumentException.class, () -> dictionary.code(null));
+
+        // Full: new values pass through unencoded
+        String extra = new String("Micronesia");
+        assertSame(extra, dictionary.intern(extra));
+        assertEquals(-1, dictionary.code("Micronesia"));
+        assertEquals(3, dictionary.size());
+        assertThrows(IndexOutOfBoundsException.class, () -> dictionary.value(7));
+    }
+
+    @Test
+    void testReportRowsShareColumnValues() {
+        WorldSnapshot snapshot = WorldFixture.snapshot();
+        List<City> cities = snapshot.cities(ReportScope.WORLD, null);
+        List<Country> countries = snapshot.countries(ReportScope.WORLD, null);
+
+        Set<String> districts = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<String> distinctDistricts = new HashSet<>();
+        for (City c : cities) {
+            districts.add(c.District);
+            distinctDistricts.add(c.District);
+        }
+        assertEquals(distinctDistricts.size(), districts.size(), "Equal districts should be one instance.");
+
+        Set<String> continents = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<String> distinctContinents = new HashSet<>();
+        for (Country c : countries) {
+            continents.add(c.Continent);
+            distinctContinents.add(c.Continent);
+        }
+        assertEquals(distinctContinents.size(), continents.size(), "Equal continents should be one instance.");
+    }
+}
@@ -0,0 +1,87 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.text.NumberFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TableRenderer: every cell must match what the old printf/NumberFormat code wrote.
+ */
+public class TableRendererTest {
+
+    private static String render(Consumer<TableRenderer> rows) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TableRenderer table = new TableRenderer(new PrintStream(bytes));
+        rows.accept(table);
+        table.flush();
+        return bytes.toString();
+    }
+
+    @Test
+    void testTextAndGroupedCellsMatchPrintf() {
+        NumberFormat nf = NumberFormat.getInstance(Locale.US);
+        long[] values = {0, 7, 999, 1000, 1001, 65000, 1234567, 59623400, 6078749450L, -1, -1000, -1234567, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long v : values) {
+            String expected = String.format("| %-30s | %-15s |\n", "Name", nf.format(v));
+            assertEquals(expected, render(t -> t.beginRow().col("Name", 30).colGrouped(v, 15).endRow()), "value " + v);
+        }
+        // Values longer than the width are not truncated; null prints like %s
+        assertEquals(String.format("| %-4s | %-4s |\n", "Longer", null),
+                render(t -> t.beginRow().col("Longer", 4).col(null, 4).endRow()));
+    }
+
+    @Test
+    void testDecimalCellsMatchPrintf() {
+        double[] values = {0, -0.0, 18.83, 81.17, 0.005, 0.015, 1.005, 2.675, 99.995, 999.99, -0.001, -12.345,
+                19.6067225, 0.00005, 1e12, Double.NaN, Double.POSITIVE_INFINITY};
+        for (double v : values) {
+            assertEquals(String.format("| %-10.2f |\n", v), render(t -> t.beginRow().colDecimal(v, 2, 10).endRow()), "value " + v);
+            assertEquals(String.format("| %-20.4f |\n", v), render(t -> t.beginRow().colDecimal(v, 4, 20).endRow()), "value " + v);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            double v = random.nextInt(100000) / 1000.0 * (random.nextBoolean() ? 1 : -1) + random.nextDouble() / 1e6;
+            assertEquals(String.format("%-10.2f", v), render(t -> t.beginRow().colDecimal(v, 2, 10).endRow()).substring(2, 12), "value " + v);
+        }
+    }
+
+    @Test
+    void testReportsMatchLegacyPrintfLayout() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PopulationSummary.printReport(List.of(new PopulationSummary("Asia", 3705025700L, 697604103L, 18.83, 3007421597L, 81.17)),
+                "UC23", new PrintStream(bytes));
+        String nl = System.lineSeparator();
+        String rule = "-".repeat(148);
+        String expected = nl + "=".repeat(148) + nl + " UC23" + nl + "=".repeat(148) + nl
+                + rule + nl
+                + String.format("| %-25s | %-18s | %-18s | %-10s | %-18s | %-10s |\n", "Entity", "Total Pop", "City Pop", "City %", "Non-City Pop", "Non-City %")
+                + rule + nl
+                + String.format("| %-25s | %-18s | %-18s | %-10.2f | %-18s | %-10.2f |\n", "Asia", "3,705,025,700", "697,604,103", 18.83, "3,007,421,597", 81.17)
+                + rule + nl;
+        assertEquals(expected, bytes.toString());
+
+        bytes.reset();
+        new LanguageSpeakers("Chinese", 1191843539.0, 19.6067225).print(new PrintStream(bytes));
+        assertEquals(String.format("| %-15s | %-25s | %-20.4f |\n", "Chinese", "1,191,843,539", 19.6067225), bytes.toString());
+    }
+
+    @Test
+    void testLargeReportsAreFlushedInChunks() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        TableRenderer table = new TableRenderer(new PrintStream(bytes));
+        for (int i = 0; i < 5000; i++) {
+            table.beginRow().col("City" + i, 30).colGrouped(i, 15).endRow();
+        }
+        assertTrue(bytes.size() > 0, "Buffer should have been written before the final flush.");
+        table.flush();
+        assertEquals(5000, bytes.toString().split("\n").length);
+    }
+}
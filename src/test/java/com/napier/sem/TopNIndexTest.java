@@ -0,0 +1,51 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TopNIndex partitioning and Top-N reads.
+ */
+public class TopNIndexTest {
+
+    /** Cities already in population-descending order, as the index expects. */
+    private final List<City> cities = List.of(
+            new City("Seoul", "South Korea", "Seoul", 9981619L, false),
+            new City("Shanghai", "China", "Shanghai", 9696300L, false),
+            new City("Peking", "China", "Peking", 7472000L, false),
+            new City("Chongqing", "China", "Chongqing", 6351600L, false));
+
+    private final TopNIndex<City> index = new TopNIndex<>(cities)
+            .partitionBy(ReportScope.COUNTRY, c -> c.CountryName);
+
+    @Test
+    void testTopReadsFirstEntriesOfPartition() {
+        List<City> top = index.top(ReportScope.COUNTRY, "China", 2, Function.identity());
+        assertEquals(2, top.size());
+        assertEquals("Shanghai", top.get(0).Name);
+        assertEquals("Peking", top.get(1).Name);
+    }
+
+    @Test
+    void testWorldPartitionAndOversizedN() {
+        assertEquals(4, index.top(ReportScope.WORLD, null, 100, Function.identity()).size());
+        assertEquals(1, index.partition(ReportScope.COUNTRY, "South Korea").size());
+    }
+
+    @Test
+    void testMissingKeysAndNonPositiveN() {
+        assertTrue(index.partition(ReportScope.COUNTRY, "Atlantis").isEmpty());
+        assertTrue(index.partition(ReportScope.COUNTRY, null).isEmpty());
+        assertTrue(index.top(ReportScope.COUNTRY, "China", 0, Function.identity()).isEmpty());
+        assertTrue(index.top(ReportScope.WORLD, null, -3, Function.identity()).isEmpty());
+    }
+
+    @Test
+    void testUnindexedScopeRejected() {
+        assertThrows(IllegalArgumentException.class, () -> index.partition(ReportScope.DISTRICT, "Seoul"));
+    }
+}
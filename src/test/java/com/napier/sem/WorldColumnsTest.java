@@ -0,0 +1,64 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for WorldColumns: scans and aggregates over the columns must agree with the snapshot rows.
+ */
+public class WorldColumnsTest {
+    static WorldSnapshot snapshot;
+    static WorldColumns columns;
+
+    @BeforeAll
+    static void init() {
+        snapshot = WorldFixture.snapshot();
+        columns = WorldColumns.of(snapshot);
+    }
+
+    @Test
+    void testAggregatesMatchSnapshot() {
+        assertNotNull(snapshot.getColumns());
+        assertEquals(6078749450L, columns.sumCountryPopulation(columns.countryIn(ReportScope.WORLD, null)));
+        assertEquals(6078749450L, snapshot.population(ReportScope.WORLD, null));
+        assertEquals(59623400L, snapshot.population(ReportScope.COUNTRY, "united kingdom"));
+        assertEquals(0L, snapshot.population(ReportScope.COUNTRY, "Atlantis"));
+
+        int[] europe = columns.filterCountries(columns.countryIn(ReportScope.CONTINENT, "Europe"));
+        long europeTotal = snapshot.countries(ReportScope.CONTINENT, "Europe").stream().mapToLong(c -> c.Population).sum();
+        assertEquals(europeTotal, columns.sumCountryPopulation(europe));
+
+        long saoPaulo = snapshot.cities(ReportScope.DISTRICT, "São Paulo").stream().mapToLong(c -> c.Population).sum();
+        assertEquals(saoPaulo, columns.sumCityPopulation(columns.cityIn(ReportScope.DISTRICT, "sao paulo")));
+        assertEquals(Arrays.stream(columns.cityPopulationByCountry()).sum(),
+                columns.sumCityPopulation(columns.cityIn(ReportScope.WORLD, null)));
+
+        int gbr = WorldColumns.first(columns.getCountryCount(), row -> columns.countryCode(row) == WorldColumns.packCode("GBR"));
+        assertEquals("GBR", WorldColumns.unpackCode(columns.countryCode(gbr)));
+        assertEquals("London", columns.toCountry(gbr).Capital);
+        assertThrows(IllegalArgumentException.class, () -> WorldColumns.packCode("GB"));
+    }
+
+    @Test
+    void testTopCitiesMatchSnapshotAndScaleWithRepeat() {
+        int[] asia = columns.filterCities(columns.cityIn(ReportScope.CONTINENT, "Asia"));
+        List<String> expected = snapshot.topCities(ReportScope.CONTINENT, "Asia", 10).stream()
+                .map(c -> c.Name).collect(Collectors.toList());
+        List<String> actual = Arrays.stream(columns.topCities(asia, 10))
+                .mapToObj(row -> columns.toCity(row, false).Name).collect(Collectors.toList());
+        assertEquals(expected, actual);
+
+        WorldColumns large = columns.repeat(100);
+        assertEquals(100 * columns.getCityCount(), large.getCityCount());
+        assertEquals(columns.getCountryCount(), large.getCountryCount());
+        assertEquals(100 * columns.sumCityPopulation(columns.cityIn(ReportScope.WORLD, null)),
+                large.sumCityPopulation(large.cityIn(ReportScope.WORLD, null)));
+        assertEquals(100 * asia.length, large.filterCities(large.cityIn(ReportScope.CONTINENT, "Asia")).length);
+    }
+}
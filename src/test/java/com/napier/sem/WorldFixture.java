@@ -0,0 +1,38 @@
+package com.napier.sem;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * The bundled world.sql dump as a snapshot, parsed once per test run and shared by every test
+ * class that answers reports from it. WorldSnapshot is never modified after loading, so the
+ * test classes cannot disturb each other through it.
+ */
+final class WorldFixture {
+    /** Loaded when a test first asks for it. */
+    private static final WorldSnapshot SNAPSHOT = load();
+
+    private WorldFixture() {
+    }
+
+    private static WorldSnapshot load() {
+        try {
+            return WorldSnapshot.fromSqlDump(Path.of("db", "world-db", "world.sql"));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load the world.sql test fixture.", e);
+        }
+    }
+
+    /** @return The shared world snapshot. */
+    static WorldSnapshot snapshot() {
+        return SNAPSHOT;
+    }
+
+    /** @return A new App serving reports from the shared snapshot; disconnect it when done. */
+    static App app() {
+        App app = new App();
+        app.useSnapshot(SNAPSHOT);
+        return app;
+    }
+}
@@ -0,0 +1,142 @@
+package com.napier.sem;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the in-memory WorldSnapshot backend, loaded from the bundled
+ * db/world-db/world.sql dump so no running database is needed.
+ * Expected values are the ones the SQL reports return against the same data.
+ */
+public class WorldSnapshotTest {
+    static WorldSnapshot snapshot;
+
+    @BeforeAll
+    static void init() {
+        snapshot = WorldFixture.snapshot();
+    }
+
+    @Test
+    void testLoadsAllRows() {
+        assertEquals(239, snapshot.getCountryCount());
+        assertEquals(4079, snapshot.getCityCount());
+        assertEquals(984, snapshot.getLanguageRowCount());
+    }
+
+    @Test
+    void testCountryReports() {
+        // UC01 joins on the capital, so the 7 countries without one are excluded
+        List<Country> world = snapshot.countries(ReportScope.WORLD, null);
+        assertEquals(232, world.size());
+        assertEquals("China", world.get(0).Name);
+        assertEquals("Peking", world.get(0).Capital);
+
+        List<Country> top = snapshot.topCountries(ReportScope.CONTINENT, "Europe", 3);
+        assertEquals(3, top.size());
+        assertEquals("Russian Federation", top.get(0).Name);
+        assertTrue(top.get(0).Population >= top.get(1).Population);
+    }
+
+    @Test
+    void testCityAndCapitalReports() {
+        assertEquals("Mumbai (Bombay)", snapshot.topCities(ReportScope.WORLD, null, 1).get(0).Name);
+        assertEquals(4079, snapshot.cities(ReportScope.WORLD, null).size());
+        assertEquals("Seoul", snapshot.topCapitals(ReportScope.WORLD, null, 1).get(0).Name);
+        assertTrue(snapshot.capitals(ReportScope.REGION, "Eastern Asia").get(0).isCapital);
+
+        for (City city : snapshot.cities(ReportScope.DISTRICT, "California")) {
+            assertEquals("California", city.District);
+        }
+    }
+
+    @Test
+    void testFiltersCompareLikeMySqlCollation() {
+        // utf8mb4_0900_ai_ci is case- and accent-insensitive
+        assertEquals(3705025700L, snapshot.population(ReportScope.CONTINENT, "asia"));
+        assertEquals(snapshot.population(ReportScope.CITY, "São Paulo"), snapshot.population(ReportScope.CITY, "sao paulo"));
+        // "= NULL" matches nothing
+        assertTrue(snapshot.countries(ReportScope.CONTINENT, null).isEmpty());
+        assertEquals(0, snapshot.population(ReportScope.REGION, null));
+    }
+
+    @Test
+    void testTopNWithNonPositiveNIsEmpty() {
+        assertTrue(snapshot.topCities(ReportScope.WORLD, null, 0).isEmpty());
+        assertTrue(snapshot.topCountries(ReportScope.WORLD, null, -1).isEmpty());
+    }
+
+    @Test
+    void testPopulationTotals() {
+        assertEquals(6078749450L, snapshot.population(ReportScope.WORLD, null));
+        assertEquals(59623400L, snapshot.population(ReportScope.COUNTRY, "United Kingdom"));
+        assertEquals(0, snapshot.population(ReportScope.COUNTRY, "Atlantis"));
+    }
+
+    @Test
+    void testPopulationBreakdownMatchesSqlRounding() {
+        List<PopulationSummary> continents = snapshot.populationBreakdown(ReportScope.CONTINENT);
+        assertEquals(7, continents.size());
+        PopulationSummary asia = continents.get(0);
+        assertEquals("Asia", asia.Name);
+        assertEquals(697604103L, asia.CityPopulation);
+        assertEquals(18.83, asia.CityPopulationPercent);
+        assertEquals(81.17, asia.RuralPopulationPercent);
+
+        // Antarctica has no cities and no people: NULL figures read back as 0
+        PopulationSummary antarctica = continents.get(continents.size() - 1);
+        assertEquals("Antarctica", antarctica.Name);
+        assertEquals(0.0, antarctica.CityPopulationPercent);
+
+        assertEquals(239, snapshot.populationBreakdown(ReportScope.COUNTRY).size());
+    }
+
+    @Test
+    void testPercentRoundsHalfAwayFromZeroAndSaturates() {
+        assertEquals(12.35, WorldSnapshot.percent(1235, 10000));
+        assertEquals(33.33, WorldSnapshot.percent(1, 3));
+        assertEquals(66.67, WorldSnapshot.percent(2, 3));
+        assertEquals(-50.0, WorldSnapshot.percent(-1, 2));
+        assertEquals(999.99, WorldSnapshot.percent(1000, 1));
+        assertEquals(0.0, WorldSnapshot.percent(5, 0));
+    }
+
+    @Test
+    void testMajorLanguageSpeakers() {
+        List<LanguageSpeakers> speakers = snapshot.majorLanguageSpeakers();
+        assertEquals(5, speakers.size());
+        assertEquals("Chinese", speakers.get(0).Language);
+        assertEquals(1191843539L, (long) speakers.get(0).Speakers);
+        assertEquals(19.6067225, speakers.get(0).WorldPopulationPercent, 1e-9);
+    }
+
+    @Test
+    void testStreamedReportMatchesPrintedReport() {
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        City.printReport(snapshot.cities(ReportScope.COUNTRY, "Netherlands"), "UC10", false, new PrintStream(printed));
+
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        RowSink<City> sink = City.reportSink("UC10", false, new PrintStream(streamed));
+        snapshot.streamCities(ReportScope.COUNTRY, "Netherlands", sink);
+        sink.end();
+
+        assertEquals(printed.toString(), streamed.toString());
+        assertTrue(streamed.toString().contains("Amsterdam"));
+    }
+
+    @Test
+    void testAppServesReportsFromSnapshot() {
+        App snapshotApp = new App();
+        snapshotApp.useSnapshot(snapshot);
+        assertTrue(snapshotApp.isConnected());
+        assertEquals(6078749450L, snapshotApp.getWorldPopulation());
+        snapshotApp.getTopNContinentCities("Asia", 3);
+        snapshotApp.disconnect();
+        assertFalse(snapshotApp.isConnected());
+    }
+}